@@ -4,13 +4,12 @@ import fr.viveris.jnidbus.exception.DBusException
 import fr.viveris.jnidbus.message.Promise
 import fr.viveris.jnidbus.serialization.Serializable
 import kotlinx.coroutines.suspendCancellableCoroutine
-import java.util.concurrent.CancellationException
 import kotlin.coroutines.resume
 import kotlin.coroutines.resumeWithException
 
 /**
  * suspend the current coroutine until a result or an error is received. This function will throw the exception received
- * by the Promise.
+ * by the Promise. Cancelling the coroutine cancels the promise, and the call if it is a DBusPromise.
  */
 suspend fun <T : Serializable> Promise<T>.await() : T = suspendCancellableCoroutine{cont ->
     this.then{value,exception ->
@@ -19,6 +18,6 @@ suspend fun <T : Serializable> Promise<T>.await() : T = suspendCancellableCorout
     }
 
     cont.invokeOnCancellation {
-        this.fail(CancellationException("The call was cancelled by the coroutine"));
+        this.cancel()
     }
 }
\ No newline at end of file
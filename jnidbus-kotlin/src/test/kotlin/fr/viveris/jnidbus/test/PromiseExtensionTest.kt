@@ -17,6 +17,7 @@ import fr.viveris.jnidbus.test.common.DBusTestCase
 import kotlinx.coroutines.*
 import kotlin.test.Test
 import kotlin.test.assertEquals
+import kotlin.test.assertTrue
 import kotlin.test.fail
 
 class PromiseExtensionTest : DBusTestCase() {
@@ -80,6 +81,27 @@ class PromiseExtensionTest : DBusTestCase() {
         }
     }
 
+    @Test
+    fun `Coroutine cancellation cancels the pending call`() = runBlocking{
+        val handler = CallHandler()
+        this@PromiseExtensionTest.receiver.addHandler(handler)
+        val remoteObj = this@PromiseExtensionTest.sender.createRemoteObject(
+                this@PromiseExtensionTest.receiverBusName,
+                "/Kotlin/PromiseExtensionTest",
+                PromiseExtensionTestRemote::class.java)
+
+        val pending = remoteObj.blockingCall()
+        try{
+            withTimeout(100){
+                pending.await()
+            }
+            fail("No exception raised")
+        }catch (e : TimeoutCancellationException){
+            assertTrue(pending.isCancelled)
+        }
+        this@PromiseExtensionTest.receiver.removeHandler(handler)
+    }
+
     @Handler(path = "/Kotlin/PromiseExtensionTest", interfaceName = "Kotlin.PromiseExtensionTest")
     class CallHandler : GenericHandler() {
 
@@ -0,0 +1,624 @@
+/* Copyright 2019, Viveris Technologies <opensource@toulouse.viveris.fr>
+ * Distributed under the terms of the Academic Free License.
+ */
+package fr.viveris.jnidbus.processor;
+
+import fr.viveris.jnidbus.cache.MessageAccessors;
+import fr.viveris.jnidbus.dispatching.HandlerInvokers;
+import fr.viveris.jnidbus.dispatching.MemberType;
+import fr.viveris.jnidbus.dispatching.annotation.Handler;
+import fr.viveris.jnidbus.dispatching.annotation.HandlerMethod;
+import fr.viveris.jnidbus.remote.RemoteInterface;
+import fr.viveris.jnidbus.remote.RemoteMember;
+import fr.viveris.jnidbus.remote.RemoteObjectFactory;
+import fr.viveris.jnidbus.serialization.DBusType;
+import fr.viveris.jnidbus.serialization.signature.Signature;
+import fr.viveris.jnidbus.serialization.signature.SignatureElement;
+import fr.viveris.jnidbus.serialization.signature.SupportedTypes;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Annotation processor checking the DBusType and Handler classes at compile time and generating the code JNIDBus would
+ * otherwise run through reflection:
+ *      -For each DBusType class, a MessageAccessors class calling the constructor, getters and setters directly
+ *      -For each Handler class, a HandlerInvokers class calling the handler methods directly
+ *      -For each RemoteInterface, a RemoteObjectFactory creating an implementation of the interface which sends the calls
+ *       with its members, timeouts and reply types as constants, instead of a java.lang.reflect.Proxy
+ *
+ * The generated classes are found at runtime by their name, so using the processor does not require any code change.
+ * The checks are the same as the ones done at runtime, the only difference is that they fail the compilation instead of
+ * the first use of the class. Kotlin handlers and interfaces are not processed as their methods can be suspending
+ * functions.
+ */
+public class DBusProcessor extends AbstractProcessor {
+    private static final String SERIALIZABLE = "fr.viveris.jnidbus.serialization.Serializable";
+    private static final String GENERIC_HANDLER = "fr.viveris.jnidbus.dispatching.GenericHandler";
+    private static final String PROMISE = "fr.viveris.jnidbus.message.Promise";
+    private static final String COMPLETION_STAGE = "java.util.concurrent.CompletionStage";
+    private static final String COMPLETABLE_FUTURE = "java.util.concurrent.CompletableFuture";
+    private static final String LAZY_MESSAGE = "fr.viveris.jnidbus.message.LazyMessage";
+    private static final String OBJECT_PATH = "fr.viveris.jnidbus.types.ObjectPath";
+    private static final String UNIX_FD = "fr.viveris.jnidbus.types.UnixFD";
+    private static final String SHARED_BUFFER = "fr.viveris.jnidbus.types.SharedBuffer";
+    private static final String KOTLIN_METADATA = "kotlin.Metadata";
+    private static final String LIST = "java.util.List";
+    private static final String MAP = "java.util.Map";
+    private static final String BUFFER = "java.nio.Buffer";
+    private static final Map<SupportedTypes,String> BUFFERS = new EnumMap<>(SupportedTypes.class);
+    static{
+        BUFFERS.put(SupportedTypes.BYTE,"java.nio.ByteBuffer");
+        BUFFERS.put(SupportedTypes.SHORT,"java.nio.ShortBuffer");
+        BUFFERS.put(SupportedTypes.INTEGER,"java.nio.IntBuffer");
+        BUFFERS.put(SupportedTypes.LONG,"java.nio.LongBuffer");
+        BUFFERS.put(SupportedTypes.DOUBLE,"java.nio.DoubleBuffer");
+    }
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return new HashSet<>(Arrays.asList(DBusType.class.getName(), Handler.class.getName(), RemoteInterface.class.getName()));
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for(TypeElement type : ElementFilter.typesIn(roundEnv.getElementsAnnotatedWith(DBusType.class))){
+            this.processMessage(type);
+        }
+        for(TypeElement type : ElementFilter.typesIn(roundEnv.getElementsAnnotatedWith(Handler.class))){
+            this.processHandler(type);
+        }
+        for(TypeElement type : ElementFilter.typesIn(roundEnv.getElementsAnnotatedWith(RemoteInterface.class))){
+            this.processRemoteInterface(type);
+        }
+        return false;
+    }
+
+    /**
+     * Check the DBusType class and generate its accessors if it is valid
+     *
+     * @param type DBusType class
+     */
+    private void processMessage(TypeElement type){
+        DBusType annotation = type.getAnnotation(DBusType.class);
+        boolean valid = this.checkClass(type);
+
+        if(!this.isSubtype(type.asType(),SERIALIZABLE)){
+            this.error(type,"A DBusType class must implement Serializable");
+            valid = false;
+        }
+
+        boolean hasConstructor = false;
+        for(ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())){
+            if(constructor.getParameters().isEmpty() && constructor.getModifiers().contains(Modifier.PUBLIC)) hasConstructor = true;
+        }
+        //the constructor of an inner class takes the enclosing instance, so it can not be instantiated on deserialization
+        if(!hasConstructor || type.getModifiers().contains(Modifier.ABSTRACT)
+                || (type.getNestingKind() == NestingKind.MEMBER && !type.getModifiers().contains(Modifier.STATIC))){
+            this.error(type,"No public empty constructor found");
+            valid = false;
+        }
+
+        //check the signature is valid and has as many elements as there are fields
+        List<SignatureElement> elements = new ArrayList<>();
+        try{
+            for(SignatureElement element : new Signature(annotation.signature())) elements.add(element);
+        }catch (RuntimeException e){
+            this.error(type,"Invalid signature "+annotation.signature()+": "+e.getMessage());
+            return;
+        }
+        if(elements.size() != annotation.fields().length){
+            this.error(type,"The signature has "+elements.size()+" elements but there are "+annotation.fields().length+" fields");
+            return;
+        }
+
+        //check each field has a getter and setter of the same type, and a type matching its signature element
+        List<VariableElement> fields = new ArrayList<>();
+        for(int i = 0; i < annotation.fields().length; i++){
+            String fieldName = annotation.fields()[i];
+            VariableElement field = this.findField(type,fieldName);
+            if(field == null){
+                this.error(type,"Could not find field "+fieldName);
+                valid = false;
+                continue;
+            }
+            if(field.asType().getKind() == TypeKind.TYPEVAR){
+                this.error(field,"Unspecified generic type found");
+                valid = false;
+            }else if(!this.checkElement(field,field.asType(),elements.get(i))){
+                valid = false;
+            }
+
+            String suffix = Character.toUpperCase(fieldName.charAt(0)) + fieldName.substring(1);
+            ExecutableElement getter = this.findMethod(type,"get"+suffix,0);
+            ExecutableElement setter = this.findMethod(type,"set"+suffix,1);
+            if(getter == null || !getter.getModifiers().contains(Modifier.PUBLIC)){
+                this.error(field,"Could not find public getter get"+suffix+"()");
+                valid = false;
+            }else if(!this.processingEnv.getTypeUtils().isSameType(getter.getReturnType(),field.asType())){
+                this.error(getter,"The getter return type is not the same as the field");
+                valid = false;
+            }
+            if(setter == null || !setter.getModifiers().contains(Modifier.PUBLIC)){
+                this.error(field,"Could not find public setter set"+suffix+"("+field.asType()+")");
+                valid = false;
+            }else if(!this.processingEnv.getTypeUtils().isSameType(setter.getParameters().get(0).asType(),field.asType())){
+                this.error(setter,"The setter parameter type is not the same as the field");
+                valid = false;
+            }
+            fields.add(field);
+        }
+
+        if(valid) this.writeMessageAccessors(type,fields);
+    }
+
+    /**
+     * Check the handler methods of the Handler class and generate their invokers if they are valid
+     *
+     * @param type Handler class
+     */
+    private void processHandler(TypeElement type){
+        if(this.isKotlin(type)) return;
+        boolean valid = this.checkClass(type);
+        if(!this.isSubtype(type.asType(),GENERIC_HANDLER)){
+            this.error(type,"A Handler class must extend GenericHandler");
+            valid = false;
+        }
+
+        //map the handler methods by the key used at runtime to find their invoker
+        Map<String,ExecutableElement> methods = new LinkedHashMap<>();
+        for(ExecutableElement method : ElementFilter.methodsIn(this.processingEnv.getElementUtils().getAllMembers(type))){
+            HandlerMethod annotation = method.getAnnotation(HandlerMethod.class);
+            if(annotation == null) continue;
+            if(!method.getModifiers().contains(Modifier.PUBLIC)){
+                this.warning(method,"The handler method is not public and will be ignored");
+                continue;
+            }
+            if(method.getParameters().size() != 1){
+                this.error(method,"Incorrect number of parameter on an handler method, there should be only one input parameter");
+                valid = false;
+                continue;
+            }
+
+            TypeElement param = this.asTypeElement(method.getParameters().get(0).asType());
+            boolean lazy = param != null && param.getQualifiedName().contentEquals(LAZY_MESSAGE);
+            if(!lazy && (param == null || param.getAnnotation(DBusType.class) == null || !this.isSubtype(param.asType(),SERIALIZABLE))){
+                this.error(method,"A handler method parameter must have the DBusType annotation and be Serializable");
+                valid = false;
+                continue;
+            }
+            if(!lazy && !annotation.signature().isEmpty()){
+                this.error(method,"The signature of a handler method can only be given for a LazyMessage parameter");
+                valid = false;
+                continue;
+            }
+
+            //if the return type is a promise or a completion stage, check its generic type
+            TypeMirror returnType = method.getReturnType();
+            if((this.isSubtype(returnType,PROMISE) || this.isSubtype(returnType,COMPLETION_STAGE)) && returnType.getKind() == TypeKind.DECLARED){
+                List<? extends TypeMirror> arguments = ((DeclaredType) returnType).getTypeArguments();
+                returnType = arguments.isEmpty() ? null : arguments.get(0);
+            }
+            TypeElement returned = returnType == null ? null : this.asTypeElement(returnType);
+            if(annotation.type() == MemberType.METHOD
+                    && (returned == null || returned.getAnnotation(DBusType.class) == null || !this.isSubtype(returned.asType(),SERIALIZABLE))){
+                this.error(method,"A handler method return type must have the DBusType annotation and be Serializable");
+                valid = false;
+                continue;
+            }
+
+            String binaryName = this.processingEnv.getElementUtils().getBinaryName(param).toString();
+            methods.put(method.getSimpleName()+"("+binaryName+")",method);
+        }
+
+        if(valid) this.writeHandlerInvokers(type,methods);
+    }
+
+    /**
+     * Check the members of the RemoteInterface and generate its remote object if they are valid
+     *
+     * @param type RemoteInterface
+     */
+    private void processRemoteInterface(TypeElement type){
+        if(this.isKotlin(type)) return;
+        if(type.getKind() != ElementKind.INTERFACE){
+            this.error(type,"Only interfaces can be annotated with RemoteInterface");
+            return;
+        }
+        boolean valid = this.checkAccess(type);
+
+        List<ExecutableElement> methods = new ArrayList<>();
+        for(ExecutableElement method : ElementFilter.methodsIn(this.processingEnv.getElementUtils().getAllMembers(type))){
+            //the methods of Object and the default and static methods are not remote members
+            if(!method.getModifiers().contains(Modifier.ABSTRACT)) continue;
+            RemoteMember annotation = method.getAnnotation(RemoteMember.class);
+            if(annotation == null){
+                this.error(method,"No RemoteMember annotation were found");
+                valid = false;
+                continue;
+            }
+            if(annotation.timeout() < -1){
+                this.error(method,"The timeout of a remote method must be positive or -1");
+                valid = false;
+            }
+            if(!method.getTypeParameters().isEmpty()){
+                this.error(method,"A remote method can not be generic");
+                valid = false;
+            }
+            if(method.getParameters().size() > 1){
+                this.error(method,"A remote method can only have one parameter");
+                valid = false;
+            }else if(method.getParameters().size() == 1 && !this.isSubtype(method.getParameters().get(0).asType(),SERIALIZABLE)){
+                this.error(method,"A remote method parameter must be serializable");
+                valid = false;
+            }
+
+            //a void method is one-way, it has no output type
+            TypeMirror returnType = method.getReturnType();
+            TypeElement returned = this.asTypeElement(returnType);
+            String raw = returned == null ? "" : returned.getQualifiedName().toString();
+            List<? extends TypeMirror> arguments = returned == null ? Collections.<TypeMirror>emptyList() : ((DeclaredType) returnType).getTypeArguments();
+            if(returnType.getKind() == TypeKind.VOID){
+                methods.add(method);
+                continue;
+            }
+            if(!raw.equals(PROMISE) && !raw.equals(COMPLETION_STAGE) && !raw.equals(COMPLETABLE_FUTURE)){
+                this.error(method,"The return type is not a Promise nor a CompletionStage");
+                valid = false;
+            }else if(arguments.isEmpty() || this.asTypeElement(arguments.get(0)) == null || !this.isSubtype(arguments.get(0),SERIALIZABLE)){
+                this.error(method,"The return type of the method is not generic or its generic type is not explicit");
+                valid = false;
+            }
+            methods.add(method);
+        }
+
+        if(valid) this.writeRemoteObject(type,methods);
+    }
+
+    /**
+     * Check the generated code will be able to access the class
+     *
+     * @param type class to check
+     * @return true if the class is valid
+     */
+    private boolean checkClass(TypeElement type){
+        if(type.getKind() != ElementKind.CLASS){
+            this.error(type,"Only classes can be annotated");
+            return false;
+        }
+        if(type.getNestingKind() == NestingKind.LOCAL || type.getNestingKind() == NestingKind.ANONYMOUS){
+            this.error(type,"A local or anonymous class can not be annotated");
+            return false;
+        }
+        return this.checkAccess(type);
+    }
+
+    /**
+     * Check the generated code, in the same package, will be able to access the type
+     *
+     * @param type type to check
+     * @return true if the type is accessible
+     */
+    private boolean checkAccess(TypeElement type){
+        for(Element e = type; e instanceof TypeElement; e = e.getEnclosingElement()){
+            if(e.getModifiers().contains(Modifier.PRIVATE)){
+                this.error(type,"An annotated class and its enclosing classes can not be private");
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Check the type can be serialized with the given signature element, following the rules of the serializers created
+     * at runtime by MessageMetadata. Arrays, lists and maps are checked down to their values.
+     *
+     * @param field field being checked, on which the errors are reported
+     * @param type type of the field or of one of its values
+     * @param element signature element of the type
+     * @return true if the type matches the signature element
+     */
+    private boolean checkElement(VariableElement field, TypeMirror type, SignatureElement element){
+        SupportedTypes container = element.getContainerType();
+        if(container == null){
+            return this.checkPrimitive(field,type,element.getPrimitive());
+        }
+
+        if(container == SupportedTypes.OBJECT_BEGIN){
+            TypeElement struct = this.asTypeElement(type);
+            if(struct == null || struct.getAnnotation(DBusType.class) == null || !this.isSubtype(type,SERIALIZABLE)){
+                this.error(field,"The struct "+element.getSignatureString()+" must be a Serializable class with the DBusType annotation");
+                return false;
+            }
+            return true;
+        }
+
+        if(container != SupportedTypes.ARRAY){
+            this.error(field,"A dict_entry can only be contained in an array");
+            return false;
+        }
+        SignatureElement value = element.getSignature().getFirst();
+
+        //an array of dict_entries is a map, its keys are primitives and its values can be anything
+        if(value.getContainerType() == SupportedTypes.DICT_ENTRY_BEGIN){
+            if(!this.isSubtype(type,MAP)){
+                this.error(field,"The array of dict_entries "+element.getSignatureString()+" must be a Map");
+                return false;
+            }
+            List<? extends TypeMirror> arguments = ((DeclaredType) type).getTypeArguments();
+            if(arguments.size() != 2){
+                this.error(field,"The given map is not generic");
+                return false;
+            }
+            Signature entry = value.getSignature();
+            return this.checkElement(field,arguments.get(0),entry.getFirst())
+                    && this.checkElement(field,arguments.get(1),entry.getSecond());
+        }
+
+        //only the fixed size primitives can be stored in a NIO buffer
+        if(element.getPrimitive() != null && this.isSubtype(type,BUFFER)){
+            String buffer = BUFFERS.get(element.getPrimitive());
+            if(buffer == null || !this.isSubtype(type,buffer)){
+                this.error(field,"A buffer must be a ByteBuffer, ShortBuffer, IntBuffer, LongBuffer or DoubleBuffer matching the type of the array elements");
+                return false;
+            }
+            return true;
+        }
+
+        if(type.getKind() == TypeKind.ARRAY){
+            return this.checkElement(field,((ArrayType) type).getComponentType(),value);
+        }
+        if(!this.isSubtype(type,LIST)){
+            this.error(field,"The array "+element.getSignatureString()+" must be a Java array, a List or a NIO buffer");
+            return false;
+        }
+        List<? extends TypeMirror> arguments = ((DeclaredType) type).getTypeArguments();
+        if(arguments.isEmpty() || arguments.get(0).getKind() == TypeKind.WILDCARD || arguments.get(0).getKind() == TypeKind.TYPEVAR){
+            this.error(field,"Unspecified generic type found");
+            return false;
+        }
+        return this.checkElement(field,arguments.get(0),value);
+    }
+
+    /**
+     * Check the type can be serialized as the given DBus basic type. The type can be the primitive or boxed type, or an
+     * enum for strings and integers. Object paths and file descriptors have their own classes.
+     */
+    private boolean checkPrimitive(VariableElement field, TypeMirror type, SupportedTypes primitive){
+        TypeElement element = this.asTypeElement(type);
+        boolean valid;
+        if(element != null && element.getKind() == ElementKind.ENUM){
+            valid = primitive == SupportedTypes.STRING || primitive == SupportedTypes.INTEGER;
+        }else if(primitive == SupportedTypes.OBJ_PATH){
+            valid = element != null && element.getQualifiedName().contentEquals(OBJECT_PATH);
+        }else if(primitive == SupportedTypes.UNIX_FD){
+            valid = element != null && (element.getQualifiedName().contentEquals(UNIX_FD) || element.getQualifiedName().contentEquals(SHARED_BUFFER));
+        }else if(type.getKind().isPrimitive()){
+            valid = primitive.getPrimitiveType().isPrimitive() && type.getKind().name().equalsIgnoreCase(primitive.getPrimitiveType().getName());
+        }else{
+            //like at runtime, the field can also be a super type of the boxed type
+            valid = element != null && this.isSubtype(this.processingEnv.getElementUtils().getTypeElement(primitive.getBoxedType().getName()).asType(),element.getQualifiedName().toString());
+        }
+        if(!valid){
+            this.error(field,"The type "+type+" is not compatible with the DBus type "+primitive.getValue());
+        }
+        return valid;
+    }
+
+    private void writeMessageAccessors(TypeElement type, List<VariableElement> fields){
+        String typeName = this.erasure(type.asType());
+        SourceWriter writer = new SourceWriter(this.processingEnv, type, MessageAccessors.SUFFIX);
+        writer.line("@SuppressWarnings({\"unchecked\", \"rawtypes\"})")
+              .line("public final class "+writer.getSimpleName()+" implements fr.viveris.jnidbus.cache.MessageAccessors {")
+              .line("    @Override")
+              .line("    public fr.viveris.jnidbus.serialization.Serializable newInstance() {")
+              .line("        return new "+typeName+"();")
+              .line("    }")
+              .line("")
+              .line("    @Override")
+              .line("    public fr.viveris.jnidbus.cache.FieldAccessor[] getAccessors() {")
+              .line("        return new fr.viveris.jnidbus.cache.FieldAccessor[]{");
+        for(VariableElement field : fields){
+            String fieldName = field.getSimpleName().toString();
+            String suffix = Character.toUpperCase(fieldName.charAt(0)) + fieldName.substring(1);
+            writer.line("            new fr.viveris.jnidbus.cache.FieldAccessor() {")
+                  .line("                @Override")
+                  .line("                public Object get(Object instance) {")
+                  .line("                    return (("+typeName+") instance).get"+suffix+"();")
+                  .line("                }")
+                  .line("")
+                  .line("                @Override")
+                  .line("                public void set(Object instance, Object value) {")
+                  .line("                    (("+typeName+") instance).set"+suffix+"(("+this.boxed(field.asType())+") value);")
+                  .line("                }")
+                  .line("            },");
+        }
+        writer.line("        };")
+              .line("    }")
+              .line("}")
+              .write();
+    }
+
+    private void writeHandlerInvokers(TypeElement type, Map<String,ExecutableElement> methods){
+        String typeName = this.erasure(type.asType());
+        SourceWriter writer = new SourceWriter(this.processingEnv, type, HandlerInvokers.SUFFIX);
+        writer.line("@SuppressWarnings({\"unchecked\", \"rawtypes\"})")
+              .line("public final class "+writer.getSimpleName()+" implements fr.viveris.jnidbus.dispatching.HandlerInvokers {")
+              .line("    @Override")
+              .line("    public fr.viveris.jnidbus.dispatching.HandlerInvoker getInvoker(String key) {")
+              .line("        switch (key) {");
+        for(Map.Entry<String,ExecutableElement> entry : methods.entrySet()){
+            ExecutableElement method = entry.getValue();
+            String call = "(("+typeName+") handler)."+method.getSimpleName()+"(("+this.erasure(method.getParameters().get(0).asType())+") param)";
+            writer.line("            case \""+entry.getKey()+"\": return new fr.viveris.jnidbus.dispatching.HandlerInvoker() {")
+                  .line("                @Override")
+                  .line("                public Object invoke(Object handler, fr.viveris.jnidbus.serialization.Serializable param) throws Exception {");
+            if(method.getReturnType().getKind() == TypeKind.VOID){
+                writer.line("                    "+call+";")
+                      .line("                    return null;");
+            }else{
+                writer.line("                    return "+call+";");
+            }
+            writer.line("                }")
+                  .line("            };");
+        }
+        writer.line("            default: return null;")
+              .line("        }")
+              .line("    }")
+              .line("}")
+              .write();
+    }
+
+    private void writeRemoteObject(TypeElement type, List<ExecutableElement> methods){
+        String typeName = this.erasure(type.asType());
+        String interfaceName = type.getAnnotation(RemoteInterface.class).value();
+        SourceWriter writer = new SourceWriter(this.processingEnv, type, RemoteObjectFactory.SUFFIX);
+        writer.line("@SuppressWarnings({\"unchecked\", \"rawtypes\"})")
+              .line("public final class "+writer.getSimpleName()+" implements fr.viveris.jnidbus.remote.RemoteObjectFactory {")
+              .line("    @Override")
+              .line("    public Object create(String destinationBus, String objectPath, fr.viveris.jnidbus.bindings.bus.EventLoop eventLoop) {")
+              .line("        return new Remote(destinationBus, objectPath, eventLoop);")
+              .line("    }")
+              .line("")
+              .line("    private static final class Remote extends fr.viveris.jnidbus.remote.RemoteObject implements "+typeName+" {")
+              .line("        private Remote(String destinationBus, String objectPath, fr.viveris.jnidbus.bindings.bus.EventLoop eventLoop) {")
+              .line("            super(destinationBus, objectPath, "+this.literal(interfaceName)+", eventLoop);")
+              .line("        }");
+        for(ExecutableElement method : methods){
+            RemoteMember annotation = method.getAnnotation(RemoteMember.class);
+            TypeMirror returnType = method.getReturnType();
+            String parameter = method.getParameters().isEmpty() ? "" : this.erasure(method.getParameters().get(0).asType())+" msg";
+            String msg = method.getParameters().isEmpty() ? "fr.viveris.jnidbus.message.Message.EMPTY" : "msg";
+            if(returnType.getKind() == TypeKind.VOID){
+                writer.line("")
+                      .line("        @Override")
+                      .line("        public void "+method.getSimpleName()+"("+parameter+") {")
+                      .line("            this.send("+this.literal(annotation.value())+", "+annotation.timeout()+", "+msg+");")
+                      .line("        }");
+                continue;
+            }
+
+            String raw = this.asTypeElement(returnType).getQualifiedName().toString();
+            String output = this.erasure(((DeclaredType) returnType).getTypeArguments().get(0));
+            String call = raw.equals(PROMISE) ? "call" : "callFuture";
+            writer.line("")
+                  .line("        @Override")
+                  .line("        public "+returnType+" "+method.getSimpleName()+"("+parameter+") {")
+                  .line("            return this."+call+"("+this.literal(annotation.value())+", "+annotation.timeout()+", "+msg+", "+output+".class);")
+                  .line("        }");
+        }
+        writer.line("    }")
+              .line("}")
+              .write();
+    }
+
+    private String literal(String value){
+        return "\"" + value.replace("\\","\\\\").replace("\"","\\\"") + "\"";
+    }
+
+    private VariableElement findField(TypeElement type, String name){
+        for(VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())){
+            if(field.getSimpleName().contentEquals(name)) return field;
+        }
+        return null;
+    }
+
+    private ExecutableElement findMethod(TypeElement type, String name, int parameters){
+        for(ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements())){
+            if(method.getSimpleName().contentEquals(name) && method.getParameters().size() == parameters) return method;
+        }
+        return null;
+    }
+
+    private boolean isKotlin(TypeElement type){
+        for(AnnotationMirror mirror : type.getAnnotationMirrors()){
+            if(((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(KOTLIN_METADATA)) return true;
+        }
+        return false;
+    }
+
+    private boolean isSubtype(TypeMirror type, String className){
+        TypeElement element = this.processingEnv.getElementUtils().getTypeElement(className);
+        if(element == null) return false;
+        return this.processingEnv.getTypeUtils().isSubtype(
+                this.processingEnv.getTypeUtils().erasure(type),
+                this.processingEnv.getTypeUtils().erasure(element.asType()));
+    }
+
+    private TypeElement asTypeElement(TypeMirror type){
+        if(type.getKind() != TypeKind.DECLARED) return null;
+        return (TypeElement) ((DeclaredType) type).asElement();
+    }
+
+    private String erasure(TypeMirror type){
+        return this.processingEnv.getTypeUtils().erasure(type).toString();
+    }
+
+    private String boxed(TypeMirror type){
+        if(type.getKind().isPrimitive()){
+            return this.processingEnv.getTypeUtils().boxedClass(this.processingEnv.getTypeUtils().getPrimitiveType(type.getKind())).getQualifiedName().toString();
+        }
+        return type.toString();
+    }
+
+    private void error(Element element, String message){
+        this.processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,message,element);
+    }
+
+    private void warning(Element element, String message){
+        this.processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,message,element);
+    }
+
+    /**
+     * Small helper writing a generated class next to the annotated one, named after its binary name and the given suffix
+     */
+    private static class SourceWriter{
+        private final javax.annotation.processing.ProcessingEnvironment env;
+        private final TypeElement origin;
+        private final String packageName;
+        private final String simpleName;
+        private final StringBuilder builder = new StringBuilder();
+
+        private SourceWriter(javax.annotation.processing.ProcessingEnvironment env, TypeElement origin, String suffix){
+            this.env = env;
+            this.origin = origin;
+            this.packageName = env.getElementUtils().getPackageOf(origin).getQualifiedName().toString();
+            String binaryName = env.getElementUtils().getBinaryName(origin).toString();
+            this.simpleName = (this.packageName.isEmpty() ? binaryName : binaryName.substring(this.packageName.length() + 1)) + suffix;
+            if(!this.packageName.isEmpty()) this.line("package "+this.packageName+";").line("");
+        }
+
+        private String getSimpleName(){
+            return this.simpleName;
+        }
+
+        private SourceWriter line(String line){
+            this.builder.append(line).append('\n');
+            return this;
+        }
+
+        private void write(){
+            String name = this.packageName.isEmpty() ? this.simpleName : this.packageName + "." + this.simpleName;
+            try(java.io.Writer writer = this.env.getFiler().createSourceFile(name,this.origin).openWriter()){
+                writer.write(this.builder.toString());
+            }catch (IOException e){
+                this.env.getMessager().printMessage(Diagnostic.Kind.ERROR,"Could not write "+name+": "+e.getMessage(),this.origin);
+            }
+        }
+    }
+}
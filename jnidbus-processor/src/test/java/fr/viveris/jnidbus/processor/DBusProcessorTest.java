@@ -0,0 +1,364 @@
+/* Copyright 2019, Viveris Technologies <opensource@toulouse.viveris.fr>
+ * Distributed under the terms of the Academic Free License.
+ */
+package fr.viveris.jnidbus.processor;
+
+import fr.viveris.jnidbus.cache.MessageAccessors;
+import fr.viveris.jnidbus.cache.MessageMetadata;
+import fr.viveris.jnidbus.dispatching.Criteria;
+import fr.viveris.jnidbus.dispatching.GenericHandler;
+import fr.viveris.jnidbus.dispatching.HandlerInvokers;
+import fr.viveris.jnidbus.dispatching.HandlerMethod;
+import fr.viveris.jnidbus.message.Message;
+import fr.viveris.jnidbus.remote.RemoteObject;
+import fr.viveris.jnidbus.remote.RemoteObjectFactory;
+import fr.viveris.jnidbus.serialization.DBusObject;
+import fr.viveris.jnidbus.serialization.Serializable;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.tools.*;
+import java.io.File;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static junit.framework.TestCase.*;
+
+public class DBusProcessorTest {
+    private static final String MESSAGE =
+            "package test;\n" +
+            "import fr.viveris.jnidbus.message.Message;\n" +
+            "import fr.viveris.jnidbus.serialization.DBusType;\n" +
+            "import java.util.List;\n" +
+            "@DBusType(signature = \"sai\", fields = {\"name\",\"values\"})\n" +
+            "public class TestMessage extends Message {\n" +
+            "    private String name;\n" +
+            "    private List<Integer> values;\n" +
+            "    public String getName(){ return name; }\n" +
+            "    public void setName(String name){ this.name = name; }\n" +
+            "    public List<Integer> getValues(){ return values; }\n" +
+            "    public void setValues(List<Integer> values){ this.values = values; }\n" +
+            "}\n";
+
+    private File output;
+    private List<String> errors = new ArrayList<>();
+
+    @Before
+    public void createOutput() throws Exception {
+        this.output = Files.createTempDirectory("jnidbus-processor").toFile();
+    }
+
+    @After
+    public void deleteOutput(){
+        this.delete(this.output);
+    }
+
+    @Test
+    public void generatedAccessorsAreUsed() throws Exception {
+        assertTrue(this.compile(source("test.TestMessage",MESSAGE)));
+        ClassLoader loader = this.loader();
+        Class<? extends Serializable> clazz = loader.loadClass("test.TestMessage").asSubclass(Serializable.class);
+        loader.loadClass("test.TestMessage"+MessageAccessors.SUFFIX);
+
+        MessageMetadata metadata = new MessageMetadata(clazz);
+        assertTrue(metadata.getAccessor(0).getClass().getName().startsWith("test.TestMessage"+MessageAccessors.SUFFIX));
+
+        Message message = (Message) metadata.newInstance();
+        metadata.getAccessor(0).set(message,"name");
+        metadata.getAccessor(1).set(message,Arrays.asList(1,2,3));
+        DBusObject serialized = message.serialize();
+
+        Message deserialized = (Message) metadata.newInstance();
+        deserialized.deserialize(serialized);
+        assertEquals("name",metadata.getAccessor(0).get(deserialized));
+        assertEquals(Arrays.asList(1,2,3),metadata.getAccessor(1).get(deserialized));
+    }
+
+    @Test
+    public void missingSetterFailsTheCompilation() throws Exception {
+        String message = MESSAGE.replace("public void setValues(List<Integer> values){ this.values = values; }","");
+        assertFalse(this.compile(source("test.TestMessage",message)));
+        assertTrue(this.hasError("Could not find public setter setValues"));
+    }
+
+    @Test
+    public void fieldCountMismatchFailsTheCompilation() throws Exception {
+        String message = MESSAGE.replace("signature = \"sai\"","signature = \"saii\"");
+        assertFalse(this.compile(source("test.TestMessage",message)));
+        assertTrue(this.hasError("The signature has 3 elements but there are 2 fields"));
+    }
+
+    @Test
+    public void basicTypeMismatchFailsTheCompilation() throws Exception {
+        String message = MESSAGE.replace("signature = \"sai\"","signature = \"iai\"");
+        assertFalse(this.compile(source("test.TestMessage",message)));
+        assertTrue(this.hasError("The type java.lang.String is not compatible with the DBus type i"));
+    }
+
+    @Test
+    public void objectPathOnStringFailsTheCompilation() throws Exception {
+        String message = MESSAGE.replace("signature = \"sai\"","signature = \"oai\"");
+        assertFalse(this.compile(source("test.TestMessage",message)));
+        assertTrue(this.hasError("The type java.lang.String is not compatible with the DBus type o"));
+    }
+
+    @Test
+    public void arrayOnNonListFailsTheCompilation() throws Exception {
+        String message = MESSAGE.replace("signature = \"sai\"","signature = \"asai\"");
+        assertFalse(this.compile(source("test.TestMessage",message)));
+        assertTrue(this.hasError("The array as must be a Java array, a List or a NIO buffer"));
+    }
+
+    @Test
+    public void arrayValueMismatchFailsTheCompilation() throws Exception {
+        String message = MESSAGE.replace("signature = \"sai\"","signature = \"sas\"");
+        assertFalse(this.compile(source("test.TestMessage",message)));
+        assertTrue(this.hasError("The type java.lang.Integer is not compatible with the DBus type s"));
+    }
+
+    @Test
+    public void wrongBufferFailsTheCompilation() throws Exception {
+        String message = MESSAGE.replace("List<Integer>","java.nio.ByteBuffer");
+        assertFalse(this.compile(source("test.TestMessage",message)));
+        assertTrue(this.hasError("A buffer must be a ByteBuffer, ShortBuffer, IntBuffer, LongBuffer or DoubleBuffer matching the type of the array elements"));
+    }
+
+    @Test
+    public void matchingBufferIsAccepted() throws Exception {
+        String message = MESSAGE.replace("List<Integer>","java.nio.IntBuffer");
+        assertTrue(this.compile(source("test.TestMessage",message)));
+    }
+
+    @Test
+    public void dictEntriesOnListFailsTheCompilation() throws Exception {
+        String message = MESSAGE.replace("signature = \"sai\"","signature = \"sa{si}\"");
+        assertFalse(this.compile(source("test.TestMessage",message)));
+        assertTrue(this.hasError("The array of dict_entries a{si} must be a Map"));
+    }
+
+    @Test
+    public void dictEntriesOnMapAreAccepted() throws Exception {
+        String message = MESSAGE.replace("signature = \"sai\"","signature = \"sa{si}\"")
+                .replace("List<Integer>","java.util.Map<String,Integer>");
+        assertTrue(this.compile(source("test.TestMessage",message)));
+    }
+
+    @Test
+    public void structWithoutDBusTypeFailsTheCompilation() throws Exception {
+        String message = MESSAGE.replace("signature = \"sai\"","signature = \"(s)ai\"")
+                .replace("String","Struct");
+        String struct =
+                "package test;\n" +
+                "import fr.viveris.jnidbus.message.Message;\n" +
+                "public class Struct extends Message {\n" +
+                "}\n";
+        assertFalse(this.compile(source("test.TestMessage",message),source("test.Struct",struct)));
+        assertTrue(this.hasError("The struct (s) must be a Serializable class with the DBusType annotation"));
+    }
+
+    @Test
+    public void enumOnBooleanFailsTheCompilation() throws Exception {
+        String message = MESSAGE.replace("signature = \"sai\"","signature = \"bai\"")
+                .replace("String","java.util.concurrent.TimeUnit");
+        assertFalse(this.compile(source("test.TestMessage",message)));
+        assertTrue(this.hasError("The type java.util.concurrent.TimeUnit is not compatible with the DBus type b"));
+    }
+
+    @Test
+    public void generatedInvokersAreUsed() throws Exception {
+        String handler =
+                "package test;\n" +
+                "import fr.viveris.jnidbus.dispatching.GenericHandler;\n" +
+                "import fr.viveris.jnidbus.dispatching.MemberType;\n" +
+                "import fr.viveris.jnidbus.dispatching.annotation.Handler;\n" +
+                "import fr.viveris.jnidbus.dispatching.annotation.HandlerMethod;\n" +
+                "@Handler(path = \"/test\", interfaceName = \"test.Handler\")\n" +
+                "public class TestHandler extends GenericHandler {\n" +
+                "    @HandlerMethod(member = \"echo\", type = MemberType.METHOD)\n" +
+                "    public TestMessage echo(TestMessage message){\n" +
+                "        message.setName(message.getName() + \"!\");\n" +
+                "        return message;\n" +
+                "    }\n" +
+                "}\n";
+        assertTrue(this.compile(source("test.TestMessage",MESSAGE),source("test.TestHandler",handler)));
+        ClassLoader loader = this.loader();
+        loader.loadClass("test.TestHandler"+HandlerInvokers.SUFFIX);
+
+        GenericHandler instance = (GenericHandler) loader.loadClass("test.TestHandler").newInstance();
+        HandlerMethod method = null;
+        for(Criteria criteria : instance.getAvailableCriterias().keySet()){
+            method = instance.getAvailableCriterias().get(criteria);
+        }
+        assertNotNull(method);
+
+        Message message = (Message) method.getInputType().newInstance();
+        method.getInputType().getAccessor(0).set(message,"echo");
+        Object returned = method.call(message);
+        assertEquals("echo!",method.getOutputType().getAccessor(0).get(returned));
+    }
+
+    @Test
+    public void handlerWithTwoParametersFailsTheCompilation() throws Exception {
+        String handler =
+                "package test;\n" +
+                "import fr.viveris.jnidbus.dispatching.GenericHandler;\n" +
+                "import fr.viveris.jnidbus.dispatching.MemberType;\n" +
+                "import fr.viveris.jnidbus.dispatching.annotation.Handler;\n" +
+                "import fr.viveris.jnidbus.dispatching.annotation.HandlerMethod;\n" +
+                "@Handler(path = \"/test\", interfaceName = \"test.Handler\")\n" +
+                "public class TestHandler extends GenericHandler {\n" +
+                "    @HandlerMethod(member = \"echo\", type = MemberType.SIGNAL)\n" +
+                "    public void echo(TestMessage message, TestMessage other){}\n" +
+                "}\n";
+        assertFalse(this.compile(source("test.TestMessage",MESSAGE),source("test.TestHandler",handler)));
+        assertTrue(this.hasError("Incorrect number of parameter on an handler method"));
+    }
+
+    @Test
+    public void signatureOnMessageParameterFailsTheCompilation() throws Exception {
+        String handler =
+                "package test;\n" +
+                "import fr.viveris.jnidbus.dispatching.GenericHandler;\n" +
+                "import fr.viveris.jnidbus.dispatching.MemberType;\n" +
+                "import fr.viveris.jnidbus.dispatching.annotation.Handler;\n" +
+                "import fr.viveris.jnidbus.dispatching.annotation.HandlerMethod;\n" +
+                "@Handler(path = \"/test\", interfaceName = \"test.Handler\")\n" +
+                "public class TestHandler extends GenericHandler {\n" +
+                "    @HandlerMethod(member = \"echo\", type = MemberType.SIGNAL, signature = \"sai\")\n" +
+                "    public void echo(TestMessage message){}\n" +
+                "}\n";
+        assertFalse(this.compile(source("test.TestMessage",MESSAGE),source("test.TestHandler",handler)));
+        assertTrue(this.hasError("The signature of a handler method can only be given for a LazyMessage parameter"));
+    }
+
+    @Test
+    public void lazyHandlerIsAccepted() throws Exception {
+        String handler =
+                "package test;\n" +
+                "import fr.viveris.jnidbus.dispatching.GenericHandler;\n" +
+                "import fr.viveris.jnidbus.dispatching.MemberType;\n" +
+                "import fr.viveris.jnidbus.dispatching.annotation.Handler;\n" +
+                "import fr.viveris.jnidbus.dispatching.annotation.HandlerMethod;\n" +
+                "import fr.viveris.jnidbus.message.LazyMessage;\n" +
+                "@Handler(path = \"/test\", interfaceName = \"test.Handler\")\n" +
+                "public class TestHandler extends GenericHandler {\n" +
+                "    @HandlerMethod(member = \"count\", type = MemberType.SIGNAL, signature = \"sai\")\n" +
+                "    public void count(LazyMessage message){}\n" +
+                "}\n";
+        assertTrue(this.compile(source("test.TestHandler",handler)));
+        ClassLoader loader = this.loader();
+        loader.loadClass("test.TestHandler"+HandlerInvokers.SUFFIX);
+
+        GenericHandler instance = (GenericHandler) loader.loadClass("test.TestHandler").newInstance();
+        for(Criteria criteria : instance.getAvailableCriterias().keySet()){
+            assertEquals("sai",criteria.getInputSignature());
+            assertTrue(instance.getAvailableCriterias().get(criteria).isLazy());
+        }
+    }
+
+    @Test
+    public void generatedRemoteObjectImplementsTheInterface() throws Exception {
+        String remote =
+                "package test;\n" +
+                "import fr.viveris.jnidbus.message.Message;\n" +
+                "import fr.viveris.jnidbus.message.Promise;\n" +
+                "import fr.viveris.jnidbus.remote.RemoteInterface;\n" +
+                "import fr.viveris.jnidbus.remote.RemoteMember;\n" +
+                "import java.util.concurrent.CompletionStage;\n" +
+                "@RemoteInterface(\"test.Remote\")\n" +
+                "public interface TestRemote {\n" +
+                "    @RemoteMember(\"echo\")\n" +
+                "    Promise<TestMessage> echo(TestMessage message);\n" +
+                "    @RemoteMember(value = \"empty\", timeout = 100)\n" +
+                "    CompletionStage<Message.EmptyMessage> empty();\n" +
+                "    @RemoteMember(\"notify\")\n" +
+                "    void notify(TestMessage message);\n" +
+                "    default Promise<TestMessage> echoTwice(TestMessage message){ return echo(message); }\n" +
+                "}\n";
+        assertTrue(this.compile(source("test.TestMessage",MESSAGE),source("test.TestRemote",remote)));
+        ClassLoader loader = this.loader();
+        RemoteObjectFactory factory = (RemoteObjectFactory) loader.loadClass("test.TestRemote"+RemoteObjectFactory.SUFFIX).newInstance();
+
+        Object instance = factory.create("test.bus","/test",null);
+        assertTrue(loader.loadClass("test.TestRemote").isInstance(instance));
+        assertTrue(instance instanceof RemoteObject);
+    }
+
+    @Test
+    public void remoteMethodWithoutMemberFailsTheCompilation() throws Exception {
+        String remote =
+                "package test;\n" +
+                "import fr.viveris.jnidbus.message.Promise;\n" +
+                "import fr.viveris.jnidbus.remote.RemoteInterface;\n" +
+                "@RemoteInterface(\"test.Remote\")\n" +
+                "public interface TestRemote {\n" +
+                "    Promise<TestMessage> echo(TestMessage message);\n" +
+                "}\n";
+        assertFalse(this.compile(source("test.TestMessage",MESSAGE),source("test.TestRemote",remote)));
+        assertTrue(this.hasError("No RemoteMember annotation were found"));
+    }
+
+    @Test
+    public void remoteMethodReturningAMessageFailsTheCompilation() throws Exception {
+        String remote =
+                "package test;\n" +
+                "import fr.viveris.jnidbus.remote.RemoteInterface;\n" +
+                "import fr.viveris.jnidbus.remote.RemoteMember;\n" +
+                "@RemoteInterface(\"test.Remote\")\n" +
+                "public interface TestRemote {\n" +
+                "    @RemoteMember(\"echo\")\n" +
+                "    TestMessage echo(TestMessage message);\n" +
+                "}\n";
+        assertFalse(this.compile(source("test.TestMessage",MESSAGE),source("test.TestRemote",remote)));
+        assertTrue(this.hasError("The return type is not a Promise nor a CompletionStage"));
+    }
+
+    private boolean compile(JavaFileObject... sources) throws Exception {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        List<String> options = Arrays.asList("-d",this.output.getPath(),"-classpath",System.getProperty("java.class.path"));
+        JavaCompiler.CompilationTask task = compiler.getTask(null,null,diagnostics,options,null,Arrays.asList(sources));
+        task.setProcessors(Collections.singletonList(new DBusProcessor()));
+        boolean success = task.call();
+        for(Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()){
+            if(diagnostic.getKind() == Diagnostic.Kind.ERROR) this.errors.add(diagnostic.getMessage(null));
+        }
+        return success;
+    }
+
+    private boolean hasError(String message){
+        for(String error : this.errors){
+            if(error.contains(message)) return true;
+        }
+        return false;
+    }
+
+    private ClassLoader loader() throws Exception {
+        return new URLClassLoader(new URL[]{this.output.toURI().toURL()},this.getClass().getClassLoader());
+    }
+
+    private void delete(File file){
+        File[] children = file.listFiles();
+        if(children != null){
+            for(File child : children) this.delete(child);
+        }
+        file.delete();
+    }
+
+    private static JavaFileObject source(String className, final String code){
+        URI uri = URI.create("string:///" + className.replace('.','/') + JavaFileObject.Kind.SOURCE.extension);
+        return new SimpleJavaFileObject(uri, JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return code;
+            }
+        };
+    }
+}
@@ -0,0 +1,124 @@
+/* Copyright 2019, Viveris Technologies <opensource@toulouse.viveris.fr>
+ * Distributed under the terms of the Academic Free License.
+ */
+package fr.viveris;
+
+import fr.viveris.jnidbus.BusType;
+import fr.viveris.jnidbus.Dbus;
+import fr.viveris.jnidbus.bindings.bus.EventLoop;
+import fr.viveris.jnidbus.dispatching.GenericHandler;
+import fr.viveris.jnidbus.dispatching.MemberType;
+import fr.viveris.jnidbus.dispatching.annotation.Handler;
+import fr.viveris.jnidbus.dispatching.annotation.HandlerMethod;
+import fr.viveris.jnidbus.message.Message;
+import fr.viveris.jnidbus.remote.RemoteInterface;
+import fr.viveris.jnidbus.remote.RemoteMember;
+import fr.viveris.jnidbus.remote.Signal;
+import fr.viveris.jnidbus.test.common.DBusObjects.SimpleMessage;
+import fr.viveris.jnidbus.test.common.DBusTestCase;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure how many signals per second the event loop can send with and without the batched send path. Each invocation
+ * queues a full tick worth of signals so the event loop always has a batch to flush.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(time = 3)
+@Fork(2)
+public class BatchedSignals {
+    @Param({"true","false"})
+    public boolean batchSend;
+
+    private Dbus sender;
+    private SignalHandler handler;
+    private SimpleMessage message;
+
+    @Setup
+    public void setup() throws Exception {
+        //the property is read when the event loop is created
+        System.setProperty(EventLoop.BATCH_SEND_PROPERTY,String.valueOf(this.batchSend));
+        String busName = "fr.viveris.vizada.jnidbus.benchmarks.BatchedSignals."+ DBusTestCase.generateRandomString();
+        this.sender = new Dbus(BusType.SESSION,busName,System.getProperty("dbus.busPath"));
+        this.handler = new SignalHandler();
+        this.sender.addHandlerBlocking(this.handler);
+
+        this.message = new SimpleMessage();
+        this.message.setString1("batched");
+        this.message.setString2("signal");
+        this.message.setInt1(24);
+        this.message.setInt2(42);
+    }
+
+    @TearDown
+    public void teardown() throws Exception {
+        this.sender.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EventLoop.MAX_SEND_PER_TICK)
+    public void sendReceiveEmpty() throws InterruptedException {
+        this.handler.latch = new CountDownLatch(EventLoop.MAX_SEND_PER_TICK);
+        for(int i = 0; i < EventLoop.MAX_SEND_PER_TICK; i++){
+            this.sender.sendSignal("/Benchmarks/BatchedSignals",new BatchedSignalsRemote.EmptySignal(),null);
+        }
+        this.handler.latch.await();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EventLoop.MAX_SEND_PER_TICK)
+    public void sendReceiveSimple() throws InterruptedException {
+        this.handler.latch = new CountDownLatch(EventLoop.MAX_SEND_PER_TICK);
+        for(int i = 0; i < EventLoop.MAX_SEND_PER_TICK; i++){
+            this.sender.sendSignal("/Benchmarks/BatchedSignals",new BatchedSignalsRemote.SimpleSignal(this.message),null);
+        }
+        this.handler.latch.await();
+    }
+
+    @Handler(
+            path = "/Benchmarks/BatchedSignals",
+            interfaceName = "Benchmarks.BatchedSignals"
+    )
+    public class SignalHandler extends GenericHandler{
+        CountDownLatch latch;
+
+        @HandlerMethod(
+                member = "emptyMessage",
+                type = MemberType.SIGNAL
+        )
+        public void emptyMessage(Message.EmptyMessage emptyMessage){
+            this.latch.countDown();
+        }
+
+        @HandlerMethod(
+                member = "simpleMessage",
+                type = MemberType.SIGNAL
+        )
+        public void simpleMessage(SimpleMessage simpleMessage){
+            this.latch.countDown();
+        }
+    }
+
+    @RemoteInterface("Benchmarks.BatchedSignals")
+    public interface BatchedSignalsRemote{
+
+        @RemoteMember("emptyMessage")
+        class EmptySignal extends Signal<Message.EmptyMessage> {
+            public EmptySignal() {
+                super(Message.EMPTY);
+            }
+        }
+
+        @RemoteMember("simpleMessage")
+        class SimpleSignal extends Signal<SimpleMessage>{
+            public SimpleSignal(SimpleMessage msg) {
+                super(msg);
+            }
+        }
+
+    }
+}
@@ -0,0 +1,103 @@
+/* Copyright 2019, Viveris Technologies <opensource@toulouse.viveris.fr>
+ * Distributed under the terms of the Academic Free License.
+ */
+package fr.viveris;
+
+import fr.viveris.jnidbus.BusType;
+import fr.viveris.jnidbus.Dbus;
+import fr.viveris.jnidbus.dispatching.GenericHandler;
+import fr.viveris.jnidbus.dispatching.MemberType;
+import fr.viveris.jnidbus.dispatching.annotation.Handler;
+import fr.viveris.jnidbus.dispatching.annotation.HandlerMethod;
+import fr.viveris.jnidbus.message.Promise;
+import fr.viveris.jnidbus.remote.RemoteInterface;
+import fr.viveris.jnidbus.remote.RemoteMember;
+import fr.viveris.jnidbus.test.common.DBusObjects.SimpleMessage;
+import fr.viveris.jnidbus.test.common.DBusTestCase;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare the latency of a call consumed as a CompletableFuture when the remote method returns a Promise bridged to a
+ * future with then(), as the applications built on futures had to do, and when it returns a CompletionStage completed
+ * directly by the native code. Each invocation makes one call and waits for its reply on the future.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(time = 3)
+@Fork(2)
+public class FutureCallLatency {
+    private Dbus sender;
+    private Dbus receiver;
+    private FutureCallLatencyRemote remote;
+    private SimpleMessage message;
+
+    @Setup
+    public void setup() throws Exception {
+        String senderName = "fr.viveris.vizada.jnidbus.benchmarks.FutureCallLatency.sender."+ DBusTestCase.generateRandomString();
+        String receiverName = "fr.viveris.vizada.jnidbus.benchmarks.FutureCallLatency.receiver."+ DBusTestCase.generateRandomString();
+        this.sender = new Dbus(BusType.SESSION,senderName,System.getProperty("dbus.busPath"));
+        this.receiver = new Dbus(BusType.SESSION,receiverName,System.getProperty("dbus.busPath"));
+        this.receiver.addHandlerBlocking(new CallHandler());
+        this.remote = this.sender.createRemoteObject(receiverName,"/Benchmarks/FutureCallLatency",FutureCallLatencyRemote.class);
+
+        this.message = new SimpleMessage();
+        this.message.setString1("latency");
+        this.message.setString2("call");
+        this.message.setInt1(24);
+        this.message.setInt2(42);
+    }
+
+    @TearDown
+    public void teardown() throws Exception {
+        this.sender.close();
+        this.receiver.close();
+    }
+
+    @Benchmark
+    public SimpleMessage promiseBridge() throws Exception {
+        final CompletableFuture<SimpleMessage> future = new CompletableFuture<>();
+        this.remote.promiseCall(this.message).then(new Promise.Callback<SimpleMessage>() {
+            @Override
+            public void value(SimpleMessage value, Exception e) {
+                if(e != null) future.completeExceptionally(e);
+                else future.complete(value);
+            }
+        });
+        return future.get();
+    }
+
+    @Benchmark
+    public SimpleMessage completionStage() throws Exception {
+        return this.remote.futureCall(this.message).toCompletableFuture().get();
+    }
+
+    @Handler(
+            path = "/Benchmarks/FutureCallLatency",
+            interfaceName = "Benchmarks.FutureCallLatency"
+    )
+    public class CallHandler extends GenericHandler {
+
+        @HandlerMethod(
+                member = "simpleCall",
+                type = MemberType.METHOD
+        )
+        public SimpleMessage simpleCall(SimpleMessage simpleMessage){
+            return simpleMessage;
+        }
+    }
+
+    @RemoteInterface("Benchmarks.FutureCallLatency")
+    public interface FutureCallLatencyRemote {
+
+        @RemoteMember("simpleCall")
+        Promise<SimpleMessage> promiseCall(SimpleMessage msg);
+
+        @RemoteMember("simpleCall")
+        CompletionStage<SimpleMessage> futureCall(SimpleMessage msg);
+    }
+}
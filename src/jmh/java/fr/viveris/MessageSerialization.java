@@ -0,0 +1,71 @@
+/* Copyright 2019, Viveris Technologies <opensource@toulouse.viveris.fr>
+ * Distributed under the terms of the Academic Free License.
+ */
+package fr.viveris;
+
+import fr.viveris.jnidbus.serialization.DBusObject;
+import fr.viveris.jnidbus.test.common.DBusObjects.ArrayRecursiveObject;
+import fr.viveris.jnidbus.test.common.DBusObjects.SimpleMessage;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure the Java side of the serialization alone, without any bus involved
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(time = 3)
+@Fork(2)
+public class MessageSerialization {
+    private SimpleMessage simple;
+    private DBusObject serializedSimple;
+    private ArrayRecursiveObject complex;
+    private DBusObject serializedComplex;
+
+    public MessageSerialization(){
+        this.simple = new SimpleMessage();
+        this.simple.setString1("string1");
+        this.simple.setString2("string2");
+        this.simple.setInt1(42);
+        this.simple.setInt2(24);
+        this.serializedSimple = this.simple.serialize();
+
+        this.complex = new ArrayRecursiveObject();
+        ArrayRecursiveObject.SubArrayRecursiveObject sub1 = new ArrayRecursiveObject.SubArrayRecursiveObject();
+        ArrayRecursiveObject.SubArrayRecursiveObject sub2 = new ArrayRecursiveObject.SubArrayRecursiveObject();
+        sub1.setInteger(42);
+        sub1.getStrings().add("comp1");
+        sub1.getStrings().add("comp2");
+        sub2.setInteger(24);
+        sub2.getStrings().add("comp11");
+        this.complex.getObjects().add(sub1);
+        this.complex.getObjects().add(sub2);
+        this.serializedComplex = this.complex.serialize();
+    }
+
+    @Benchmark
+    public DBusObject serializeSimple(){
+        return this.simple.serialize();
+    }
+
+    @Benchmark
+    public SimpleMessage deserializeSimple() throws Exception {
+        SimpleMessage msg = new SimpleMessage();
+        msg.deserialize(this.serializedSimple);
+        return msg;
+    }
+
+    @Benchmark
+    public DBusObject serializeComplex(){
+        return this.complex.serialize();
+    }
+
+    @Benchmark
+    public ArrayRecursiveObject deserializeComplex() throws Exception {
+        ArrayRecursiveObject msg = new ArrayRecursiveObject();
+        msg.deserialize(this.serializedComplex);
+        return msg;
+    }
+}
@@ -0,0 +1,120 @@
+/* Copyright 2019, Viveris Technologies <opensource@toulouse.viveris.fr>
+ * Distributed under the terms of the Academic Free License.
+ */
+package fr.viveris;
+
+import fr.viveris.jnidbus.BusType;
+import fr.viveris.jnidbus.Dbus;
+import fr.viveris.jnidbus.bindings.bus.EventLoop;
+import fr.viveris.jnidbus.dispatching.GenericHandler;
+import fr.viveris.jnidbus.dispatching.MemberType;
+import fr.viveris.jnidbus.dispatching.annotation.Handler;
+import fr.viveris.jnidbus.dispatching.annotation.HandlerMethod;
+import fr.viveris.jnidbus.message.Message;
+import fr.viveris.jnidbus.message.Promise;
+import fr.viveris.jnidbus.remote.RemoteInterface;
+import fr.viveris.jnidbus.remote.RemoteMember;
+import fr.viveris.jnidbus.test.common.DBusObjects.SimpleMessage;
+import fr.viveris.jnidbus.test.common.DBusTestCase;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure the latency distribution (p50, p99...) of a simple method call with and without the immediate replies of the
+ * handler methods run by the event loop. Each invocation makes one call and waits for its reply.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(time = 3)
+@Fork(2)
+public class MethodCallLatency {
+    @Param({"true","false"})
+    public boolean immediateReply;
+
+    private Dbus sender;
+    private Dbus receiver;
+    private MethodCallLatencyRemote remote;
+    private SimpleMessage message;
+
+    @Setup
+    public void setup() throws Exception {
+        //the property is read when the event loop is created
+        System.setProperty(EventLoop.IMMEDIATE_REPLY_PROPERTY,String.valueOf(this.immediateReply));
+        String senderName = "fr.viveris.vizada.jnidbus.benchmarks.MethodCallLatency.sender."+ DBusTestCase.generateRandomString();
+        String receiverName = "fr.viveris.vizada.jnidbus.benchmarks.MethodCallLatency.receiver."+ DBusTestCase.generateRandomString();
+        this.sender = new Dbus(BusType.SESSION,senderName,System.getProperty("dbus.busPath"));
+        this.receiver = new Dbus(BusType.SESSION,receiverName,System.getProperty("dbus.busPath"));
+        this.receiver.addHandlerBlocking(new CallHandler());
+        this.remote = this.sender.createRemoteObject(receiverName,"/Benchmarks/MethodCallLatency",MethodCallLatencyRemote.class);
+
+        this.message = new SimpleMessage();
+        this.message.setString1("latency");
+        this.message.setString2("call");
+        this.message.setInt1(24);
+        this.message.setInt2(42);
+    }
+
+    @TearDown
+    public void teardown() throws Exception {
+        this.sender.close();
+        this.receiver.close();
+    }
+
+    @Benchmark
+    public Message.EmptyMessage emptyCall() throws InterruptedException {
+        return this.await(this.remote.emptyCall());
+    }
+
+    @Benchmark
+    public SimpleMessage simpleCall() throws InterruptedException {
+        return this.await(this.remote.simpleCall(this.message));
+    }
+
+    private <T extends Message> T await(Promise<T> promise) throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        promise.then(new Promise.Callback<T>() {
+            @Override
+            public void value(T value, Exception e) {
+                latch.countDown();
+            }
+        });
+        latch.await();
+        return promise.getValue();
+    }
+
+    @Handler(
+            path = "/Benchmarks/MethodCallLatency",
+            interfaceName = "Benchmarks.MethodCallLatency"
+    )
+    public class CallHandler extends GenericHandler {
+
+        @HandlerMethod(
+                member = "emptyCall",
+                type = MemberType.METHOD
+        )
+        public Message.EmptyMessage emptyCall(Message.EmptyMessage emptyMessage){
+            return Message.EMPTY;
+        }
+
+        @HandlerMethod(
+                member = "simpleCall",
+                type = MemberType.METHOD
+        )
+        public SimpleMessage simpleCall(SimpleMessage simpleMessage){
+            return simpleMessage;
+        }
+    }
+
+    @RemoteInterface("Benchmarks.MethodCallLatency")
+    public interface MethodCallLatencyRemote {
+
+        @RemoteMember("emptyCall")
+        Promise<Message.EmptyMessage> emptyCall();
+
+        @RemoteMember("simpleCall")
+        Promise<SimpleMessage> simpleCall(SimpleMessage msg);
+    }
+}
@@ -2,16 +2,19 @@ package fr.viveris.jnidbus;
 
 import fr.viveris.jnidbus.bindings.bus.Connection;
 import fr.viveris.jnidbus.bindings.bus.EventLoop;
+import fr.viveris.jnidbus.cache.GeneratedClasses;
 import fr.viveris.jnidbus.cache.SignalMetadata;
 import fr.viveris.jnidbus.dispatching.Criteria;
+import fr.viveris.jnidbus.dispatching.DispatchOrdering;
 import fr.viveris.jnidbus.dispatching.Dispatcher;
 import fr.viveris.jnidbus.dispatching.GenericHandler;
+import fr.viveris.jnidbus.dispatching.HandlerExecutor;
 import fr.viveris.jnidbus.dispatching.HandlerMethod;
 import fr.viveris.jnidbus.dispatching.annotation.Handler;
 import fr.viveris.jnidbus.exception.ConnectionException;
 import fr.viveris.jnidbus.message.Message;
 import fr.viveris.jnidbus.message.eventloop.RequestCallback;
-import fr.viveris.jnidbus.message.eventloop.sending.SignalSendingRequest;
+import fr.viveris.jnidbus.remote.RemoteObjectFactory;
 import fr.viveris.jnidbus.remote.RemoteObjectInterceptor;
 import fr.viveris.jnidbus.remote.Signal;
 import fr.viveris.jnidbus.serialization.signature.Signature;
@@ -20,6 +23,7 @@ import org.slf4j.LoggerFactory;
 
 import java.lang.reflect.Proxy;
 import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
 
@@ -60,6 +64,11 @@ public class Dbus implements AutoCloseable {
      */
     private HashMap<String, Dispatcher> dispatchers;
 
+    /**
+     * Executors handlers can run on, mapped by their name
+     */
+    private ConcurrentHashMap<String, HandlerExecutor> executors;
+
     /**
      * Create a new DBus connection with the given type and name.
      *
@@ -73,6 +82,7 @@ public class Dbus implements AutoCloseable {
         this.connection = Connection.createConnection(type,busName,busAddress);
         this.eventLoop = new EventLoop(this.connection);
         this.dispatchers = new HashMap<>();
+        this.executors = new ConcurrentHashMap<>();
         LOG.info("DBus successfully connected and bound to the bus {} ",busName);
     }
 
@@ -80,6 +90,21 @@ public class Dbus implements AutoCloseable {
         this(type,busName,null);
     }
 
+    /**
+     * Register an executor under the given name. Handlers and handler methods giving this name in their annotation will
+     * be deserialized and run on this executor instead of the event loop, their replies are still sent by the event loop.
+     * The executor must be registered before adding the handlers using it.
+     *
+     * @param name name of the executor, referenced by the annotations
+     * @param executor executor on which run the handlers
+     */
+    public void registerExecutor(String name, Executor executor){
+        if(name == null || name.isEmpty()) throw new IllegalArgumentException("The executor name can not be empty");
+        if(this.executors.putIfAbsent(name,new HandlerExecutor(executor)) != null){
+            throw new IllegalArgumentException("An executor is already registered with the name "+name);
+        }
+    }
+
     /**
      * Add a handler object, this method will create and register a new dispatcher if needed. All the Messages classes used
      * by the object will be checked and cached in the process, allowing the developer to quickly detect mapping mistakes.
@@ -97,6 +122,22 @@ public class Dbus implements AutoCloseable {
         //get all criteria provided by this handler
         HashMap<Criteria, HandlerMethod> criterias = handler.getAvailableCriterias();
 
+        //bind the handler methods to their executor, if any
+        for(HandlerMethod hm : criterias.values()){
+            fr.viveris.jnidbus.dispatching.annotation.HandlerMethod methodAnnotation = handler.getHandlerMethodAnnotation(hm.getMethod());
+            String executorName = methodAnnotation.executor();
+            DispatchOrdering ordering = methodAnnotation.ordering();
+            if(executorName.isEmpty()){
+                executorName = handlerAnnotation.executor();
+                ordering = handlerAnnotation.ordering();
+            }
+            if(executorName.isEmpty()) continue;
+
+            HandlerExecutor executor = this.executors.get(executorName);
+            if(executor == null) throw new IllegalArgumentException("No executor registered with the name "+executorName);
+            hm.setExecutor(executor,ordering);
+        }
+
         //try to get the dispatcher, if no dispatcher are found, create one
         Dispatcher dispatcher = this.dispatchers.get(handlerAnnotation.path());
         boolean dispatcherCreated = false;
@@ -112,11 +153,13 @@ public class Dbus implements AutoCloseable {
             dispatcher.addCriteria(handlerAnnotation.interfaceName(),c,criterias.get(c));
         }
 
-        //if the dispatcher was created, register it to Dbus a block until it is effectively registered
+        //if the dispatcher was created, register it to Dbus, else give its new routes to the native code
         if(dispatcherCreated){
             LOG.debug("Adding dispatcher to event loop and register object path {}",handlerAnnotation.path());
             this.eventLoop.addPathHandler(dispatcher,callback);
             dispatchers.put(handlerAnnotation.path(),dispatcher);
+        }else{
+            this.eventLoop.updateRoutes(dispatcher,callback);
         }
     }
 
@@ -157,9 +200,12 @@ public class Dbus implements AutoCloseable {
             dispatcher.removeCriteria(handlerAnnotation.interfaceName(),c,criterias.get(c));
         }
 
-        //unregister dispatcher if there is no more handlers
+        //unregister dispatcher if there is no more handlers, else update its routes
         if(dispatcher.isEmpty()){
             this.eventLoop.removePathHandler(dispatcher,callback);
+            this.dispatchers.remove(handlerAnnotation.path());
+        }else{
+            this.eventLoop.updateRoutes(dispatcher,callback);
         }
     }
 
@@ -186,7 +232,9 @@ public class Dbus implements AutoCloseable {
     /**
      * Create a new remote object instance which annotated methods will be translated into DBus calls and signals. The
      * given class must be annotated with the RemoteInterface annotation and all of its methods must be annotated with
-     * the RemoteMember annotation. The created instance is a Java proxy registered to the current DBus instance ClassLoader.
+     * the RemoteMember annotation. If the jnidbus-processor was run on the interface, the created instance is the class it
+     * generated, which sends the calls without reflection. Otherwise it is a Java proxy registered to the interface
+     * ClassLoader.
      *
      * All the methods of the given interface should return either a Promise of a Message or void
      *
@@ -198,6 +246,8 @@ public class Dbus implements AutoCloseable {
      */
     @SuppressWarnings("unchecked")
     public <T> T createRemoteObject(String destinationBus, String objectPath, Class<T> objectInterface){
+        RemoteObjectFactory factory = GeneratedClasses.load(objectInterface,RemoteObjectFactory.SUFFIX,RemoteObjectFactory.class);
+        if(factory != null) return objectInterface.cast(factory.create(destinationBus,objectPath,this.eventLoop));
         return (T) Proxy.newProxyInstance(objectInterface.getClassLoader(),new Class[]{objectInterface},new RemoteObjectInterceptor(destinationBus,objectPath,objectInterface,this.eventLoop));
     }
 
@@ -208,7 +258,7 @@ public class Dbus implements AutoCloseable {
      */
     public void sendSignal(String objectPath, Signal signal, RequestCallback callback){
         SignalMetadata meta = RemoteObjectInterceptor.getFromCache(signal);
-        this.eventLoop.send(new SignalSendingRequest(signal.getParam().serialize(),objectPath,meta.getInterfaceName(),meta.getMember(),callback));
+        this.eventLoop.sendSignal(objectPath,meta.getInterfaceName(),meta.getMember(),signal.getParam().serialize(),callback);
     }
 
     /**
@@ -1,32 +1,37 @@
 package fr.viveris.jnidbus.bindings.bus;
 
+import fr.viveris.jnidbus.cache.BindingPlan;
+import fr.viveris.jnidbus.dispatching.Criteria;
 import fr.viveris.jnidbus.dispatching.Dispatcher;
+import fr.viveris.jnidbus.dispatching.HandlerMethod;
+import fr.viveris.jnidbus.dispatching.MemberType;
+import fr.viveris.jnidbus.dispatching.RoutingTable;
 import fr.viveris.jnidbus.exception.ClosedEventLoopException;
 import fr.viveris.jnidbus.exception.DBusException;
 import fr.viveris.jnidbus.exception.EventLoopSetupException;
-import fr.viveris.jnidbus.message.Promise;
+import fr.viveris.jnidbus.message.PendingReply;
 import fr.viveris.jnidbus.message.eventloop.RequestCallback;
-import fr.viveris.jnidbus.message.eventloop.RunnableRequest;
-import fr.viveris.jnidbus.message.eventloop.dispatcher.DispatcherRegistrationRequest;
-import fr.viveris.jnidbus.message.eventloop.dispatcher.AbstractDispatcherRequest;
-import fr.viveris.jnidbus.message.eventloop.EventLoopRequest;
-import fr.viveris.jnidbus.message.eventloop.dispatcher.DispatcherUnregistrationRequest;
 import fr.viveris.jnidbus.message.eventloop.sending.*;
 import fr.viveris.jnidbus.serialization.DBusObject;
+import fr.viveris.jnidbus.serialization.wire.WireEncoder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.Closeable;
 import java.io.IOException;
-import java.util.concurrent.ConcurrentLinkedDeque;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * The event loop is the core of the library, it will be responsible for sending, receiving and waiting for events. The
- * whole object is thread safe and communication between this class and other threads is done using Queues. This allows
- * us to easily implement a safe E.L without having to deal with low level and error prone wait/notify mechanism.
+ * whole object is thread safe and communication between this class and other threads is done using a ring of preallocated
+ * request slots. This allows us to easily implement a safe E.L without having to deal with low level and error prone
+ * wait/notify mechanism, and without allocating anything when queuing a request. In direct send mode, the signals, calls
+ * and replies are sent by the calling threads and only the other requests go through the ring.
  *
  * The events are guaranteed to be processed at some point. The E.L can decide to delay event processing to let DBus
  * dispatch its messages. If events are sent from the E.L, they may be processed during the same tick. The E.L also is
@@ -44,6 +49,82 @@ public class EventLoop implements Closeable, Executor {
      */
     public static final int MAX_SEND_PER_TICK = 128;
 
+    /**
+     * System property allowing to disable the batched send path (enabled by default). When enabled, the signals and calls
+     * waiting in the queue are given to the native code in one call instead of one native call per message
+     */
+    public static final String BATCH_SEND_PROPERTY = "jnidbus.eventloop.batchSend";
+
+    /**
+     * System property enabling the wire format codec (disabled by default). When enabled, the signals and calls are encoded
+     * in the DBus wire format by the JVM and the received messages are decoded by the JVM from their wire format, the native
+     * code only marshals and demarshals them. The batched send path is not used in this mode. The messages containing UNIX
+     * file descriptors can not be marshalled and always go through the standard path
+     */
+    public static final String WIRE_CODEC_PROPERTY = "jnidbus.eventloop.wireCodec";
+
+    /**
+     * System property enabling the direct binding of the received messages (disabled by default). When enabled, the native
+     * code fills the instances of the message classes which have a binding plan directly from the DBus message, without
+     * building a DBusObject and without calling the setters of the class
+     */
+    public static final String DIRECT_BINDING_PROPERTY = "jnidbus.eventloop.directBinding";
+
+    /**
+     * System property enabling the direct send mode (disabled by default). When enabled, the signals, calls and replies are
+     * built and sent by the calling thread instead of being queued for the event loop, which only reads, dispatches and
+     * notifies the pending calls. The wire format codec is not used for the messages sent directly
+     */
+    public static final String DIRECT_SEND_PROPERTY = "jnidbus.eventloop.directSend";
+
+    /**
+     * System property allowing to disable the immediate replies (enabled by default). When enabled, a reply or an error
+     * reply made by the event loop thread, typically the result of a handler method called during the dispatch, is sent
+     * right away instead of waiting for the end of the tick, unless requests are already waiting in the queue
+     */
+    public static final String IMMEDIATE_REPLY_PROPERTY = "jnidbus.eventloop.immediateReply";
+
+    /**
+     * System property enabling the batched dispatch (disabled by default). When enabled, the native code collects the
+     * messages matching a route during a tick and gives them to the JVM in one call, as records made of the dispatcher, the
+     * index of the matched route, the message and its sender. The lazy messages are still dispatched one by one
+     */
+    public static final String BATCH_DISPATCH_PROPERTY = "jnidbus.eventloop.batchDispatch";
+
+    /**
+     * Maximum number of messages of a dispatch batch, the batch is given to the JVM when full or at the end of the tick
+     */
+    public static final int MAX_DISPATCH_PER_BATCH = 256;
+
+    /**
+     * Number of slots of the request ring, when the ring is full the producers wait for the event loop to free some slots
+     */
+    public static final int REQUEST_RING_CAPACITY = 4096;
+
+    /**
+     * Kinds of the request slots, the signal and call kinds are also used by the native code
+     */
+    static final int REQUEST_SIGNAL = 0;
+    static final int REQUEST_CALL = 1;
+    static final int REQUEST_REPLY = 2;
+    static final int REQUEST_ERROR_REPLY = 3;
+    static final int REQUEST_RUNNABLE = 4;
+    static final int REQUEST_ADD_PATH = 5;
+    static final int REQUEST_REMOVE_PATH = 6;
+    static final int REQUEST_UPDATE_ROUTES = 7;
+    static final int REQUEST_CANCEL = 8;
+
+    /**
+     * Types of the routes given to the native code
+     */
+    static final int ROUTE_SIGNAL = 0;
+    static final int ROUTE_METHOD = 1;
+
+    /**
+     * Position returned by claim() when the request must go in the overflow queue
+     */
+    private static final long OVERFLOW = -1;
+
     /**
      * Pointer to the native context, this must not be modified by any java code
      */
@@ -65,9 +146,15 @@ public class EventLoop implements Closeable, Executor {
     private Thread thread;
 
     /**
-     * Main event queue
+     * Main request queue
      */
-    private ConcurrentLinkedDeque<EventLoopRequest> eventQueue = new ConcurrentLinkedDeque<>();
+    private final RequestRing ring = new RequestRing(REQUEST_RING_CAPACITY);
+
+    /**
+     * Requests made by the event loop thread while the ring was full, the event loop can not wait for itself to free a
+     * slot so those requests are stored here. Only accessed by the event loop thread
+     */
+    private final ArrayDeque<RequestSlot> overflow = new ArrayDeque<>();
 
     /**
      * Java class representing the Dbus connection
@@ -84,6 +171,46 @@ public class EventLoop implements Closeable, Executor {
      */
     private EventLoopSetupException setupException = null;
 
+    /**
+     * Should the signals and calls be sent to the native code in batches
+     */
+    private final boolean batchSend;
+
+    /**
+     * Encoder of the outgoing signals and calls, null if the wire format codec is disabled. Only used by the event loop thread
+     */
+    private final WireEncoder encoder;
+
+    /**
+     * Should the binding plans of the handler methods and calls be given to the native code
+     */
+    private final boolean directBinding;
+
+    /**
+     * Should the signals, calls and replies be sent by the calling thread
+     */
+    private final boolean directSend;
+
+    /**
+     * Number of threads currently sending directly, the event loop waits for them to leave before closing the connection
+     */
+    private final AtomicInteger directSenders = new AtomicInteger(0);
+
+    /**
+     * Should the replies made by the event loop thread be sent without being queued
+     */
+    private final boolean immediateReply;
+
+    /**
+     * Records of the dispatch batch, filled by the native code and emptied by dispatchBatch(). Null if the batched dispatch
+     * is disabled. Only accessed by the event loop thread
+     */
+    private final Dispatcher[] batchDispatchers;
+    private final int[] batchRoutes;
+    private final Object[] batchBodies;
+    private final String[] batchSenders;
+    private final long[] batchMessages;
+
     /**
      * Launch a new event loop for the given connection. The constructor will create the thread hosting the event loop and return.
      * any exception thrown during the event loop initialization will be stored as a property of the event loop and thrown each time
@@ -93,6 +220,25 @@ public class EventLoop implements Closeable, Executor {
     public EventLoop(Connection connection){
         this.connection = connection;
         this.dBusContextPointer = connection.getDbusContextPointer();
+        boolean wireCodec = Boolean.parseBoolean(System.getProperty(WIRE_CODEC_PROPERTY,"false"));
+        this.encoder = wireCodec ? new WireEncoder() : null;
+        this.directBinding = Boolean.parseBoolean(System.getProperty(DIRECT_BINDING_PROPERTY,"false"));
+        this.directSend = Boolean.parseBoolean(System.getProperty(DIRECT_SEND_PROPERTY,"false"));
+        this.immediateReply = Boolean.parseBoolean(System.getProperty(IMMEDIATE_REPLY_PROPERTY,"true"));
+        if(Boolean.parseBoolean(System.getProperty(BATCH_DISPATCH_PROPERTY,"false"))){
+            this.batchDispatchers = new Dispatcher[MAX_DISPATCH_PER_BATCH];
+            this.batchRoutes = new int[MAX_DISPATCH_PER_BATCH];
+            this.batchBodies = new Object[MAX_DISPATCH_PER_BATCH];
+            this.batchSenders = new String[MAX_DISPATCH_PER_BATCH];
+            this.batchMessages = new long[MAX_DISPATCH_PER_BATCH];
+        }else{
+            this.batchDispatchers = null;
+            this.batchRoutes = null;
+            this.batchBodies = null;
+            this.batchSenders = null;
+            this.batchMessages = null;
+        }
+        this.batchSend = !wireCodec && Boolean.parseBoolean(System.getProperty(BATCH_SEND_PROPERTY,"true"));
         LOG.debug("Starting DBus event loop for bus {}",this.connection.getBusName());
         this.thread = new Thread(new Runnable() {
             @Override
@@ -117,8 +263,10 @@ public class EventLoop implements Closeable, Executor {
      *
      * @param contextPtr pointer to the native context, its better to give it as an argument rather than fetching it from the native
      *                   for performances purposes
+     * @param wireCodec should the received messages be given to the JVM in their wire format
+     * @param directBinding should the calls replies be bound directly to their expected type when possible
      */
-    private native boolean setup(long contextPtr) throws EventLoopSetupException;
+    private native boolean setup(long contextPtr, boolean wireCodec, boolean directBinding) throws EventLoopSetupException;
 
     /**
      * A tick will trigger a call to epoll_wait (using the given timeout parameter), if an event arrives it will be dispatched to Dbus
@@ -183,14 +331,61 @@ public class EventLoop implements Closeable, Executor {
      * @param member member of the dbus interface
      * @param msg pre-serialized object that will be transferred into the native dbus message
      * @param dest destination bus to which send the message
-     * @param promise listener that will be notified when the call state changes
+     * @param timeout timeout of the call in milliseconds, -1 to use the DBus default
+     * @param promise listener that will be notified when the call state changes, null if no reply is expected
+     * @return pointer to the pending call context to attach to the promise, 0 without promise
+     */
+    private native long sendCall(long contextPtr, String path, String interfaceName, String member, DBusObject msg, String dest, int timeout, PendingReply promise);
+
+    /**
+     * Send a signal or a call already encoded in the DBus wire format. The native code only demarshals the buffer and sends
+     * the resulting message.
+     *
+     * @param contextPtr pointer to the native context, its better to give it as an argument rather than fetching it from the native
+     *                   for performances purposes
+     * @param buffer direct buffer containing the message from its index 0
+     * @param length length of the message
+     * @param promise listener that will be notified when the call state changes, null for a signal or a call without reply
+     * @param timeout timeout of the call in milliseconds, -1 to use the DBus default
+     * @return pointer to the pending call context to attach to the promise, 0 without promise
      */
-    private native void sendCall(long contextPtr, String path, String interfaceName, String member, DBusObject msg, String dest, Promise promise);
+    private native long sendMessage(long contextPtr, ByteBuffer buffer, int length, PendingReply promise, int timeout);
 
     /**
-     * register an object path handler to dbus which will dispatch any message on the given object path to the given JVM dispatcher. The dispatcher
-     * will receive all the message for this object path, there is currently no mechanism to filter out what the dispatcher will receive, which can
-     * lead to unwanted message being processed by dbus but this has no effect on the JVM code. We might change this later
+     * Send the signals and calls contained in the given ring slots in one native call. The native code will stop at the
+     * first request it could not send, the caller is then responsible for processing the failed request and resuming the
+     * sending after it. The pending call context of each call is written in the pendingCall field of its slot.
+     *
+     * @param contextPtr pointer to the native context, its better to give it as an argument rather than fetching it from the native
+     *                   for performances purposes
+     * @param slots slot array of the ring, its length must be a power of two
+     * @param start index of the first slot to send
+     * @param count number of slots to send, the index wraps around the end of the array
+     * @return number of slots sent before a failure, or count if everything was sent
+     */
+    private native int sendBatch(long contextPtr, RequestSlot[] slots, int start, int count);
+
+    /**
+     * Cancel a pending call if its reply was not handled yet and release the reference of the JVM on its context. DBus
+     * then frees the pending call and its reference to the promise right away
+     *
+     * @param contextPtr pointer to the native context, its better to give it as an argument rather than fetching it from the native
+     *                   for performances purposes
+     * @param pendingCall pointer to the pending call context
+     */
+    private native void cancelPendingCall(long contextPtr, long pendingCall);
+
+    /**
+     * Release the reference of the JVM on a pending call context once its reply was handled, this can be done from any
+     * thread
+     *
+     * @param pendingCall pointer to the pending call context
+     */
+    private static native void releasePendingCall(long pendingCall);
+
+    /**
+     * register an object path handler to dbus which will dispatch the messages on the given object path to the given JVM dispatcher. The path has
+     * no route when registered, so setRoutes() must be called afterward for the dispatcher to receive anything
      *
      * @param contextPtr pointer to the native context, its better to give it as an argument rather than fetching it from the native
      *                   for performances purposes
@@ -208,9 +403,43 @@ public class EventLoop implements Closeable, Executor {
      */
     private native void removePathHandler(long contextPtr, String path);
 
+    /**
+     * Replace the routing table of a registered path. The native code will only give to the dispatcher the messages matching
+     * one of the routes, the others are rejected before being deserialized. Does nothing if the path is not registered.
+     *
+     * @param contextPtr pointer to the native context, its better to give it as an argument rather than fetching it from the native
+     *                   for performances purposes
+     * @param path registered dbus object path
+     * @param routes interface, member and input signature of each route, one after the other
+     * @param types type of each route, either ROUTE_SIGNAL or ROUTE_METHOD
+     * @param plans pointer to the native binding plan of the input type of each route, 0 if the messages of the route must
+     *              be given as a DBusObject
+     * @param lazy does the handler method of each route take a LazyMessage, in which case the messages are not decoded
+     *             by the native code
+     * @param internStrings should the strings of the messages of each route be interned by the native code
+     */
+    private native void setRoutes(long contextPtr, String path, String[] routes, int[] types, long[] plans, boolean[] lazy, boolean[] internStrings);
+
+    /**
+     * Enable the batched dispatch, the native code will fill the given arrays with the messages received during a tick and
+     * call dispatchBatch() to process them. The arrays all have the same length, which is the maximum size of a batch
+     *
+     * @param contextPtr pointer to the native context, its better to give it as an argument rather than fetching it from the native
+     *                   for performances purposes
+     * @param dispatchers dispatcher of each message
+     * @param routes index of the route matched by each message, in the routing table last given to its dispatcher
+     * @param bodies DBusObject or bound object of each message
+     * @param senders sender of each message
+     * @param messages pointer to the message to reply to, 0 for the signals
+     */
+    private native void setupBatchDispatch(long contextPtr, Dispatcher[] dispatchers, int[] routes, Object[] bodies, String[] senders, long[] messages);
+
     private void run() throws EventLoopSetupException {
         //setup the event loop
-        this.setup(this.dBusContextPointer);
+        this.setup(this.dBusContextPointer,this.encoder != null,this.directBinding);
+        if(this.batchDispatchers != null){
+            this.setupBatchDispatch(this.dBusContextPointer,this.batchDispatchers,this.batchRoutes,this.batchBodies,this.batchSenders,this.batchMessages);
+        }
         //if everything went fine, we can update the state and unlock the barrier. there is a slight data race here as a call arriving
         //just after the state update will be processed before the calls blocked by the barrier at that time
         this.isClosed.set(false);
@@ -225,61 +454,93 @@ public class EventLoop implements Closeable, Executor {
             //update the flag to make the caller call wakeup
             this.shouldWakeup.set(true);
 
-            //process all the event in queue if possible
-            int i = 0;
-            EventLoopRequest request;
-            while((request = this.eventQueue.poll()) != null){
-                this.processRequest(request);
-
-                /**
-                 * If we processed too much event, DBus may be waiting to dispatch events, so we abort request processing
-                 * and make a call to tick() with a timeout to 0 so epoll_wait return immediately so we can resume request
-                 * processing if there is no event for Dbus to dispatch
-                 */
-                if(++i >= MAX_SEND_PER_TICK){
-                    timeout = 0;
-                    break;
-                }else timeout = -1;
+            //process the requests in queue if possible. If we process too much requests, DBus may be waiting to dispatch
+            //events, so we stop and make a call to tick() with a timeout to 0 so epoll_wait return immediately and we can
+            //resume request processing if there is no event for Dbus to dispatch
+            int processed = 0;
+            RequestSlot slot;
+            while(processed < MAX_SEND_PER_TICK && (slot = this.ring.peek(0)) != null){
+                if(this.batchSend && slot.isBatchable()){
+                    //take all the following signals and calls, the batch stops at any other request to keep the ordering
+                    int count = 1;
+                    RequestSlot next;
+                    while(processed + count < MAX_SEND_PER_TICK && (next = this.ring.peek(count)) != null && next.isBatchable()){
+                        count++;
+                    }
+                    this.flushSendBatch(count);
+                    processed += count;
+                }else{
+                    this.processRequest(slot);
+                    this.ring.release(1);
+                    processed++;
+                }
+            }
+            while(processed < MAX_SEND_PER_TICK && (slot = this.overflow.poll()) != null){
+                this.processRequest(slot);
+                processed++;
             }
+            timeout = processed >= MAX_SEND_PER_TICK ? 0 : -1;
 
             //launch tick
             this.tick(this.dBusContextPointer,timeout);
         }
 
+        //the closed state is set, no new direct sender can enter, wait for the current ones before freeing the connection
+        while(this.directSenders.get() != 0){
+            Thread.yield();
+        }
         this.connection.close();
     }
 
     /**
      * Process a request made to the event loop
      *
-     * @param request the request to process
+     * @param slot slot containing the request to process
      */
-    private void processRequest(EventLoopRequest request){
+    private void processRequest(RequestSlot slot){
         try{
-            if(request instanceof AbstractDispatcherRequest){
-                Dispatcher d = ((AbstractDispatcherRequest) request).getDispatcher();
-                if(request instanceof DispatcherRegistrationRequest){
-                    this.addPathHandler(this.dBusContextPointer,d.getPath(),d);
-                    LOG.debug("Event loop {} successfully registered the dispatcher for the path {}",this.connection.getBusName(),d.getPath());
-
-                }else if(request instanceof DispatcherUnregistrationRequest){
-                    this.removePathHandler(this.dBusContextPointer,d.getPath());
-                    LOG.debug("Event loop {} successfully unregistered the dispatcher for the path {}",this.connection.getBusName(),d.getPath());
-
-                }
-
-            }else if(request instanceof AbstractSendingRequest){
-                this.processSendingRequest((AbstractSendingRequest) request);
-            }else if(request instanceof RunnableRequest){
-                ((RunnableRequest) request).getRunnable().run();
+            switch (slot.kind){
+                case REQUEST_SIGNAL:
+                    this.doSendSignal(slot.path,slot.interfaceName,slot.member,slot.message,this.encoder);
+                    break;
+                case REQUEST_CALL:
+                    this.attachPendingCall(slot.promise,this.doSendCall(slot.path,slot.interfaceName,slot.member,slot.message,slot.dest,slot.timeout,slot.promise,this.encoder));
+                    break;
+                case REQUEST_REPLY:
+                    this.doSendReply(slot.message,slot.messagePointer,slot.interfaceName,slot.member);
+                    break;
+                case REQUEST_ERROR_REPLY:
+                    this.doSendErrorReply(slot.error,slot.messagePointer,slot.interfaceName,slot.member);
+                    break;
+                case REQUEST_RUNNABLE:
+                    slot.runnable.run();
+                    break;
+                case REQUEST_ADD_PATH:
+                    this.addPathHandler(this.dBusContextPointer,slot.dispatcher.getPath(),slot.dispatcher);
+                    this.pushRoutes(slot.dispatcher);
+                    LOG.debug("Event loop {} successfully registered the dispatcher for the path {}",this.connection.getBusName(),slot.dispatcher.getPath());
+                    break;
+                case REQUEST_REMOVE_PATH:
+                    this.removePathHandler(this.dBusContextPointer,slot.dispatcher.getPath());
+                    LOG.debug("Event loop {} successfully unregistered the dispatcher for the path {}",this.connection.getBusName(),slot.dispatcher.getPath());
+                    break;
+                case REQUEST_UPDATE_ROUTES:
+                    this.pushRoutes(slot.dispatcher);
+                    LOG.debug("Event loop {} successfully updated the routes of the path {}",this.connection.getBusName(),slot.dispatcher.getPath());
+                    break;
+                case REQUEST_CANCEL:
+                    this.cancelPendingCall(this.dBusContextPointer,slot.messagePointer);
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown event loop request kind "+slot.kind);
             }
 
-            if(request.getCallback() != null){
-                request.getCallback().call(null);
+            if(slot.callback != null){
+                slot.callback.call(null);
             }
         }catch (Exception e){
-            if(request.getCallback() != null){
-                request.getCallback().call(e);
+            if(slot.callback != null){
+                slot.callback.call(e);
             }else{
                 LOG.error("An exception was raised during event loop request processing but the request do not have any callback",e);
             }
@@ -287,47 +548,275 @@ public class EventLoop implements Closeable, Executor {
     }
 
     /**
-     * Process a message send request made to the event loop
+     * Send a signal now, from the calling thread
      *
-     * @param sendingRequest request to process
+     * @param encoder wire format encoder to use, null to let the native code serialize the message
      */
-    private void processSendingRequest(AbstractSendingRequest sendingRequest){
-        if(sendingRequest instanceof CallSendingRequest){
-            CallSendingRequest req = (CallSendingRequest) sendingRequest;
-            LOG.debug("Sending DBus call {}.{}({}) on path {} for the bus {}",req.getInterfaceName(),req.getMember(),req.getMessage().getSignature(),req.getPath(),req.getDest());
-            this.sendCall(this.dBusContextPointer,req.getPath(),req.getInterfaceName(),req.getMember(),req.getMessage(),req.getDest(),req.getPromise());
+    private void doSendSignal(String path, String interfaceName, String member, DBusObject message, WireEncoder encoder){
+        LOG.debug("Sending DBus signal {}.{}({}) on path {}",interfaceName,member,message.getSignature(),path);
+        if(encoder != null && WireEncoder.supports(message.getSignature())){
+            ByteBuffer buffer = encoder.encodeSignal(path,interfaceName,member,message);
+            this.sendMessage(this.dBusContextPointer,buffer,buffer.limit(),null,-1);
+        }else{
+            this.sendSignal(this.dBusContextPointer,path,interfaceName,member,message);
+        }
+    }
 
-        }else if(sendingRequest instanceof ErrorReplySendingRequest){
-            ErrorReplySendingRequest req = (ErrorReplySendingRequest) sendingRequest;
-            LOG.debug("Sending DBus error {} thrown form {}.{}",req.getError().toString(),req.getInterfaceName(),req.getMember());
-            if(req.getError() instanceof DBusException){
-                DBusException cast = (DBusException)req.getError();
-                this.sendReplyError(this.dBusContextPointer,req.getMessagePointer(),cast.getCode(),cast.getMessage());
-            }else{
-                this.sendReplyError(this.dBusContextPointer,req.getMessagePointer(),req.getError().getClass().getName(),req.getError().getMessage());
+    /**
+     * Send a call now, from the calling thread
+     *
+     * @param encoder wire format encoder to use, null to let the native code serialize the message
+     * @return pointer to the pending call context, 0 without promise
+     */
+    private long doSendCall(String path, String interfaceName, String member, DBusObject message, String dest, int timeout, PendingReply promise, WireEncoder encoder){
+        LOG.debug("Sending DBus call {}.{}({}) on path {} for the bus {}",interfaceName,member,message.getSignature(),path,dest);
+        if(encoder != null && WireEncoder.supports(message.getSignature())){
+            ByteBuffer buffer = encoder.encodeCall(dest,path,interfaceName,member,message,promise == null);
+            return this.sendMessage(this.dBusContextPointer,buffer,buffer.limit(),promise,timeout);
+        }else{
+            return this.sendCall(this.dBusContextPointer,path,interfaceName,member,message,dest,timeout,promise);
+        }
+    }
+
+    /**
+     * Give the pending call of a sent call to its promise. If the promise was cancelled or completed before, the call is
+     * cancelled right away so its native resources are released
+     *
+     * @param promise promise of the call, null if no reply is expected
+     * @param pendingCall pointer to the pending call context, 0 without promise
+     */
+    private void attachPendingCall(PendingReply promise, long pendingCall){
+        if(pendingCall != 0 && !promise.attach(this,pendingCall)) this.cancelCall(pendingCall);
+    }
+
+    /**
+     * Send a reply now, from the calling thread
+     */
+    private void doSendReply(DBusObject message, long messagePointer, String interfaceName, String member){
+        LOG.debug("Sending DBus reply form {}.{}({})",interfaceName,member,message.getSignature());
+        this.sendReply(this.dBusContextPointer,message,messagePointer);
+    }
+
+    /**
+     * Send an error reply now, from the calling thread
+     */
+    private void doSendErrorReply(Throwable error, long messagePointer, String interfaceName, String member){
+        LOG.debug("Sending DBus error {} thrown form {}.{}",error,interfaceName,member);
+        if(error instanceof DBusException){
+            DBusException cast = (DBusException)error;
+            this.sendReplyError(this.dBusContextPointer,messagePointer,cast.getCode(),cast.getMessage());
+        }else{
+            this.sendReplyError(this.dBusContextPointer,messagePointer,error.getClass().getName(),error.getMessage());
+        }
+    }
+
+    /**
+     * Register the calling thread as a direct sender, the event loop will not free the connection until it leaves
+     *
+     * @throws ClosedEventLoopException if the event loop is closed
+     */
+    private void enterDirectSend(){
+        this.checkEventLoop();
+        this.directSenders.incrementAndGet();
+        if(this.isClosed.get()){
+            this.directSenders.decrementAndGet();
+            throw new ClosedEventLoopException("The event loop is closed");
+        }
+    }
+
+    /**
+     * Unregister the calling thread as a direct sender and notify the request callback, the same way the event loop
+     * notifies the queued requests
+     *
+     * @param callback nullable callback of the request
+     * @param error exception raised while sending, null if the message was sent
+     */
+    private void leaveDirectSend(RequestCallback callback, Exception error){
+        this.directSenders.decrementAndGet();
+        this.notifySent(callback,error);
+    }
+
+    /**
+     * Can a reply made by the calling thread be sent right away. This is the case when the caller is the event loop and
+     * nothing waits in the queue, so the reply can not overtake a request the event loop made before
+     */
+    private boolean canReplyImmediately(){
+        return this.immediateReply && this.isCallerOnEventLoop() && this.overflow.isEmpty() && this.ring.peek(0) == null;
+    }
+
+    /**
+     * Notify the callback of a request sent without being queued, the same way the event loop notifies the queued requests
+     *
+     * @param callback nullable callback of the request
+     * @param error exception raised while sending, null if the message was sent
+     */
+    private void notifySent(RequestCallback callback, Exception error){
+        if(callback != null){
+            callback.call(error);
+        }else if(error != null){
+            LOG.error("An exception was raised while sending a message but the request do not have any callback",error);
+        }
+    }
+
+    /**
+     * Give the current routing table of the dispatcher to the native code. As the table is read when the request is
+     * processed, successive updates of a dispatcher always end with its latest table.
+     *
+     * @param dispatcher dispatcher which routes changed
+     */
+    private void pushRoutes(Dispatcher dispatcher){
+        RoutingTable table = dispatcher.pushRoutingTable();
+        String[] routes = new String[table.size() * 3];
+        int[] types = new int[table.size()];
+        long[] plans = new long[table.size()];
+        boolean[] lazy = new boolean[table.size()];
+        boolean[] internStrings = new boolean[table.size()];
+        for(int i = 0; i < types.length; i++){
+            Criteria criteria = table.getCriteria(i);
+            HandlerMethod handlerMethod = table.getHandlerMethod(i);
+            routes[i * 3] = table.getInterfaceName(i);
+            routes[i * 3 + 1] = criteria.getMember();
+            routes[i * 3 + 2] = criteria.getInputSignature();
+            types[i] = criteria.getType() == MemberType.SIGNAL ? ROUTE_SIGNAL : ROUTE_METHOD;
+            lazy[i] = handlerMethod.isLazy();
+            internStrings[i] = !lazy[i] && handlerMethod.getInputType().isInternStrings();
+            if(this.directBinding && !lazy[i]){
+                BindingPlan plan = handlerMethod.getInputType().getBindingPlan();
+                if(plan != null) plans[i] = plan.getPointer();
+            }
+        }
+        this.setRoutes(this.dBusContextPointer,dispatcher.getPath(),routes,types,plans,lazy,internStrings);
+    }
+
+    /**
+     * Called by the native code with the messages collected during the tick. Each record is given to its dispatcher in a
+     * plain loop, then cleared so the batch does not retain the messages. A call which could not be dispatched is answered
+     * with an error, which releases its message
+     *
+     * @param count number of records in the batch arrays
+     */
+    private void dispatchBatch(int count){
+        for(int i = 0; i < count; i++){
+            try{
+                this.batchDispatchers[i].dispatchRoute(this.batchRoutes[i],this.batchBodies[i],this.batchSenders[i],this.batchMessages[i]);
+            }catch (Exception e){
+                //the route could not be resolved, reply an error to the calls so the reply releases the message and
+                //the caller does not wait for its timeout
+                if(this.batchMessages[i] != 0){
+                    this.sendErrorReply(e,this.batchMessages[i],null,null,null);
+                }else{
+                    LOG.error("An exception was raised during the dispatch of a batched signal",e);
+                }
             }
+            this.batchMessages[i] = 0;
+            this.batchDispatchers[i] = null;
+            this.batchBodies[i] = null;
+            this.batchSenders[i] = null;
+        }
+    }
 
-        }else if(sendingRequest instanceof ReplySendingRequest){
-            ReplySendingRequest req = (ReplySendingRequest) sendingRequest;
-            LOG.debug("Sending DBus reply form {}.{}({})",req.getInterfaceName(),req.getMember(),req.getMessage().getSignature());
-            this.sendReply(this.dBusContextPointer,req.getMessage(),req.getMessagePointer());
+    /**
+     * Give the given number of signals and calls at the head of the ring to the native code and release their slots. If a
+     * request could not be sent, it is processed again through the standard path so its callback receives the exception,
+     * and the sending resumes after it.
+     *
+     * @param count number of batchable slots from the head of the ring
+     */
+    private void flushSendBatch(int count){
+        LOG.debug("Event loop {} flushing {} sending requests",this.connection.getBusName(),count);
 
-        }else if(sendingRequest instanceof SignalSendingRequest){
-            SignalSendingRequest req = (SignalSendingRequest) sendingRequest;
-            LOG.debug("Sending DBus signal {}.{}({}) on path {}",req.getInterfaceName(),req.getMember(),req.getMessage().getSignature(),req.getPath());
-            this.sendSignal(this.dBusContextPointer,req.getPath(),req.getInterfaceName(),req.getMember(),req.getMessage());
+        int offset = 0;
+        while(offset < count){
+            int sent = this.sendBatch(this.dBusContextPointer,this.ring.getSlots(),this.ring.index(offset),count - offset);
+            for(int i = 0; i < sent; i++){
+                this.notifySuccess(this.ring.peek(offset + i));
+            }
+            offset += sent;
+            if(offset < count){
+                this.processRequest(this.ring.peek(offset));
+                offset++;
+            }
+        }
+
+        this.ring.release(count);
+    }
+
+    /**
+     * Call the request callback (if any) to notify it was successfully processed
+     *
+     * @param slot processed request
+     */
+    private void notifySuccess(RequestSlot slot){
+        if(slot.kind == REQUEST_CALL) this.attachPendingCall(slot.promise,slot.pendingCall);
+        if(slot.callback == null) return;
+        try{
+            slot.callback.call(null);
+        }catch (Exception e){
+            LOG.error("An exception was raised by an event loop request callback",e);
         }
     }
 
+    /**
+     * Claim a position in the request ring, the slot of the position must be filled and given to publish(). If the ring
+     * is full, the caller will wait for the event loop to free some slots, unless the caller is the event loop itself, in
+     * which case OVERFLOW is returned.
+     *
+     * @return the claimed position or OVERFLOW
+     */
+    private long claim(){
+        this.checkEventLoop();
+        if(this.isCallerOnEventLoop()){
+            //once the ring overflowed, keep using the overflow queue so the event loop requests stay ordered
+            return this.overflow.isEmpty() ? this.ring.claim() : OVERFLOW;
+        }
+
+        long position;
+        while((position = this.ring.claim()) < 0){
+            this.wakeupIfNeeded();
+            Thread.yield();
+            this.checkEventLoop();
+        }
+        return position;
+    }
+
+    /**
+     * Get the slot to fill for the claimed position. An overflow slot is allocated and queued directly, which is fine as
+     * only the event loop thread can claim one
+     *
+     * @param position claimed position
+     * @return slot to fill
+     */
+    private RequestSlot slot(long position){
+        if(position == OVERFLOW){
+            RequestSlot slot = new RequestSlot();
+            this.overflow.add(slot);
+            return slot;
+        }
+        return this.ring.slot(position);
+    }
+
+    /**
+     * Make the filled slot of the claimed position visible to the event loop
+     *
+     * @param position claimed position
+     */
+    private void publish(long position){
+        if(position != OVERFLOW) this.ring.publish(position);
+        this.wakeupIfNeeded();
+    }
+
     /**
      * Register a dispatcher to Dbus, this method is asynchronous and the dispatcher will be processed during the next tick. When the dispatcher
      * is successfully registered, its setAsRegistered method will be called
      * @param dispatcher dispatcher to register to dbus
      */
     public void addPathHandler(Dispatcher dispatcher, RequestCallback callback){
-        this.checkEventLoop();
-        this.eventQueue.add(new DispatcherRegistrationRequest(dispatcher,callback));
-        this.wakeupIfNeeded();
+        long position = this.claim();
+        RequestSlot slot = this.slot(position);
+        slot.kind = REQUEST_ADD_PATH;
+        slot.dispatcher = dispatcher;
+        slot.callback = callback;
+        this.publish(position);
     }
 
     /**
@@ -335,9 +824,27 @@ public class EventLoop implements Closeable, Executor {
      * @param dispatcher dispatcher to unregister
      */
     public void removePathHandler(Dispatcher dispatcher, RequestCallback callback){
-        this.checkEventLoop();
-        this.eventQueue.add(new DispatcherUnregistrationRequest(dispatcher,callback));
-        this.wakeupIfNeeded();
+        long position = this.claim();
+        RequestSlot slot = this.slot(position);
+        slot.kind = REQUEST_REMOVE_PATH;
+        slot.dispatcher = dispatcher;
+        slot.callback = callback;
+        this.publish(position);
+    }
+
+    /**
+     * Give the new routes of an already registered dispatcher to the native code, this method is asynchronous and the routes
+     * will be updated during the next tick. Messages matching the new routes may be rejected until then.
+     *
+     * @param dispatcher dispatcher which criteria were added or removed
+     */
+    public void updateRoutes(Dispatcher dispatcher, RequestCallback callback){
+        long position = this.claim();
+        RequestSlot slot = this.slot(position);
+        slot.kind = REQUEST_UPDATE_ROUTES;
+        slot.dispatcher = dispatcher;
+        slot.callback = callback;
+        this.publish(position);
     }
 
     /**
@@ -347,9 +854,203 @@ public class EventLoop implements Closeable, Executor {
      */
     @Override
     public void execute(Runnable runnable) {
-        this.checkEventLoop();
-        this.eventQueue.add(new RunnableRequest(runnable,null));
-        this.wakeupIfNeeded();
+        long position = this.claim();
+        RequestSlot slot = this.slot(position);
+        slot.kind = REQUEST_RUNNABLE;
+        slot.runnable = runnable;
+        this.publish(position);
+    }
+
+    /**
+     * Asynchronously send a signal, without allocating any request object
+     *
+     * @param path object path of the signal
+     * @param interfaceName interface of the signal
+     * @param member name of the signal
+     * @param message serialized signal
+     * @param callback nullable callback notified when the signal was sent
+     */
+    public void sendSignal(String path, String interfaceName, String member, DBusObject message, RequestCallback callback){
+        if(this.directSend){
+            this.enterDirectSend();
+            Exception error = null;
+            try{
+                this.doSendSignal(path,interfaceName,member,message,null);
+            }catch (Exception e){
+                error = e;
+            }
+            this.leaveDirectSend(callback,error);
+            return;
+        }
+
+        long position = this.claim();
+        RequestSlot slot = this.slot(position);
+        slot.kind = REQUEST_SIGNAL;
+        slot.path = path;
+        slot.interfaceName = interfaceName;
+        slot.member = member;
+        slot.message = message;
+        slot.callback = callback;
+        this.publish(position);
+    }
+
+    /**
+     * Asynchronously call a remote method, without allocating any request object
+     *
+     * @param path object path of the remote object
+     * @param interfaceName interface of the method
+     * @param member name of the method
+     * @param message serialized call parameters
+     * @param dest bus on which the remote object is
+     * @param timeout timeout of the call in milliseconds, -1 to use the DBus default. The promise fails with a
+     *                org.freedesktop.DBus.Error.NoReply error when it expires
+     * @param promise DBusPromise or DBusFuture completed when the call returns, null to send the call without expecting
+     *                a reply. Such a call is flagged so the called object does not reply, and no pending call is kept
+     * @param callback nullable callback notified when the call was sent
+     */
+    public void sendCall(String path, String interfaceName, String member, DBusObject message, String dest, int timeout, PendingReply promise, RequestCallback callback){
+        if(this.directSend){
+            this.enterDirectSend();
+            Exception error = null;
+            long pendingCall = 0;
+            try{
+                pendingCall = this.doSendCall(path,interfaceName,member,message,dest,timeout,promise,null);
+            }catch (Exception e){
+                error = e;
+            }
+            this.leaveDirectSend(callback,error);
+            this.attachPendingCall(promise,pendingCall);
+            return;
+        }
+
+        long position = this.claim();
+        RequestSlot slot = this.slot(position);
+        slot.kind = REQUEST_CALL;
+        slot.path = path;
+        slot.interfaceName = interfaceName;
+        slot.member = member;
+        slot.message = message;
+        slot.dest = dest;
+        slot.timeout = timeout;
+        slot.promise = promise;
+        slot.callback = callback;
+        this.publish(position);
+    }
+
+    /**
+     * Asynchronously cancel a call sent by this event loop. If its reply was not received yet, the native pending call is
+     * freed along with its reference to the promise and the reply will be dropped. This is called by the promises of the
+     * calls when cancelled, the promise must already be completed as it will not be notified anymore
+     *
+     * @param pendingCall pointer to the pending call context given to the promise
+     */
+    public void cancelCall(long pendingCall){
+        long position;
+        try{
+            position = this.claim();
+        }catch (ClosedEventLoopException e){
+            //the connection is gone with its pending calls, only the reference of the JVM is left
+            releasePendingCall(pendingCall);
+            return;
+        }
+        RequestSlot slot = this.slot(position);
+        slot.kind = REQUEST_CANCEL;
+        slot.messagePointer = pendingCall;
+        this.publish(position);
+    }
+
+    /**
+     * Release a pending call once its reply was handled. This is called by the promises of the calls when completed by the
+     * native code
+     *
+     * @param pendingCall pointer to the pending call context given to the promise
+     */
+    public void releaseCall(long pendingCall){
+        releasePendingCall(pendingCall);
+    }
+
+    /**
+     * Asynchronously reply to a received call, without allocating any request object
+     *
+     * @param message serialized reply
+     * @param messagePointer pointer to the call we reply to
+     * @param interfaceName interface of the call, for debug purposes
+     * @param member member of the call, for debug purposes
+     * @param callback nullable callback notified when the reply was sent
+     */
+    public void sendReply(DBusObject message, long messagePointer, String interfaceName, String member, RequestCallback callback){
+        if(this.directSend){
+            this.enterDirectSend();
+            Exception error = null;
+            try{
+                this.doSendReply(message,messagePointer,interfaceName,member);
+            }catch (Exception e){
+                error = e;
+            }
+            this.leaveDirectSend(callback,error);
+            return;
+        }else if(this.canReplyImmediately()){
+            Exception error = null;
+            try{
+                this.doSendReply(message,messagePointer,interfaceName,member);
+            }catch (Exception e){
+                error = e;
+            }
+            this.notifySent(callback,error);
+            return;
+        }
+
+        long position = this.claim();
+        RequestSlot slot = this.slot(position);
+        slot.kind = REQUEST_REPLY;
+        slot.message = message;
+        slot.messagePointer = messagePointer;
+        slot.interfaceName = interfaceName;
+        slot.member = member;
+        slot.callback = callback;
+        this.publish(position);
+    }
+
+    /**
+     * Asynchronously reply an error to a received call, without allocating any request object
+     *
+     * @param error error to send, DBusException codes are kept, the class name is used for the others
+     * @param messagePointer pointer to the call we reply to
+     * @param interfaceName interface of the call, for debug purposes
+     * @param member member of the call, for debug purposes
+     * @param callback nullable callback notified when the error was sent
+     */
+    public void sendErrorReply(Throwable error, long messagePointer, String interfaceName, String member, RequestCallback callback){
+        if(this.directSend){
+            this.enterDirectSend();
+            Exception sendError = null;
+            try{
+                this.doSendErrorReply(error,messagePointer,interfaceName,member);
+            }catch (Exception e){
+                sendError = e;
+            }
+            this.leaveDirectSend(callback,sendError);
+            return;
+        }else if(this.canReplyImmediately()){
+            Exception sendError = null;
+            try{
+                this.doSendErrorReply(error,messagePointer,interfaceName,member);
+            }catch (Exception e){
+                sendError = e;
+            }
+            this.notifySent(callback,sendError);
+            return;
+        }
+
+        long position = this.claim();
+        RequestSlot slot = this.slot(position);
+        slot.kind = REQUEST_ERROR_REPLY;
+        slot.error = error;
+        slot.messagePointer = messagePointer;
+        slot.interfaceName = interfaceName;
+        slot.member = member;
+        slot.callback = callback;
+        this.publish(position);
     }
 
     /**
@@ -357,9 +1058,21 @@ public class EventLoop implements Closeable, Executor {
      * @param request sending request we want the event loop to process
      */
     public void send(AbstractSendingRequest request){
-        this.checkEventLoop();
-        this.eventQueue.add(request);
-        this.wakeupIfNeeded();
+        if(request instanceof CallSendingRequest){
+            CallSendingRequest req = (CallSendingRequest) request;
+            this.sendCall(req.getPath(),req.getInterfaceName(),req.getMember(),req.getMessage(),req.getDest(),req.getTimeout(),req.getPromise(),req.getCallback());
+        }else if(request instanceof ErrorReplySendingRequest){
+            ErrorReplySendingRequest req = (ErrorReplySendingRequest) request;
+            this.sendErrorReply(req.getError(),req.getMessagePointer(),req.getInterfaceName(),req.getMember(),req.getCallback());
+        }else if(request instanceof ReplySendingRequest){
+            ReplySendingRequest req = (ReplySendingRequest) request;
+            this.sendReply(req.getMessage(),req.getMessagePointer(),req.getInterfaceName(),req.getMember(),req.getCallback());
+        }else if(request instanceof SignalSendingRequest){
+            SignalSendingRequest req = (SignalSendingRequest) request;
+            this.sendSignal(req.getPath(),req.getInterfaceName(),req.getMember(),req.getMessage(),req.getCallback());
+        }else{
+            throw new IllegalArgumentException("Unknown sending request "+request.getClass().getName());
+        }
     }
 
     /**
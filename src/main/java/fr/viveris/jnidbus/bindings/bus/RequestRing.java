@@ -0,0 +1,125 @@
+/* Copyright 2019, Viveris Technologies <opensource@toulouse.viveris.fr>
+ * Distributed under the terms of the Academic Free License.
+ */
+package fr.viveris.jnidbus.bindings.bus;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded multi-producer single-consumer ring of preallocated request slots. Each slot has a sequence number telling
+ * whether it can be claimed by a producer or read by the consumer:
+ *
+ * - sequence == position: the slot is free and can be claimed for this position
+ * - sequence == position + 1: the slot was published and can be read by the consumer
+ *
+ * Producers only contend on the claim cursor (one CAS per request) and never allocate, the consumer is the event loop
+ * thread and does not need any CAS. Publishing and releasing a slot use an ordered write on its sequence, which makes
+ * the slot fields written before visible to the other side.
+ */
+final class RequestRing {
+    private final RequestSlot[] slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+
+    /**
+     * Next position to claim, shared by the producers
+     */
+    private final AtomicLong claimCursor = new AtomicLong(0);
+
+    /**
+     * Next position to read, only accessed by the consumer
+     */
+    private long readCursor = 0;
+
+    RequestRing(int capacity){
+        if(capacity <= 0 || Integer.bitCount(capacity) != 1){
+            throw new IllegalArgumentException("The ring capacity must be a power of two");
+        }
+        this.slots = new RequestSlot[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+        for(int i = 0; i < capacity; i++){
+            this.slots[i] = new RequestSlot();
+            this.sequences.set(i,i);
+        }
+    }
+
+    /**
+     * Try to claim a slot. The claimed slot must be filled and then published, as the consumer will wait on it.
+     *
+     * @return the claimed position, or -1 if the ring is full
+     */
+    long claim(){
+        long position = this.claimCursor.get();
+        while(true){
+            long sequence = this.sequences.get((int) position & this.mask);
+            if(sequence == position){
+                if(this.claimCursor.compareAndSet(position,position + 1)) return position;
+            }else if(sequence < position){
+                //the slot was not released by the consumer yet
+                return -1;
+            }
+            //another producer claimed this position, retry with the new cursor
+            position = this.claimCursor.get();
+        }
+    }
+
+    /**
+     * @param position a claimed position
+     * @return the slot of the position
+     */
+    RequestSlot slot(long position){
+        return this.slots[(int) position & this.mask];
+    }
+
+    /**
+     * Make the slot of the claimed position readable by the consumer
+     *
+     * @param position claimed position
+     */
+    void publish(long position){
+        this.sequences.lazySet((int) position & this.mask,position + 1);
+    }
+
+    /**
+     * Consumer only. Get the published slot at the given distance of the read cursor without consuming it.
+     *
+     * @param offset distance from the read cursor, must be lower than the ring capacity
+     * @return the slot or null if it was not published yet
+     */
+    RequestSlot peek(int offset){
+        long position = this.readCursor + offset;
+        int index = (int) position & this.mask;
+        if(this.sequences.get(index) != position + 1) return null;
+        return this.slots[index];
+    }
+
+    /**
+     * Consumer only. Index in the slot array of the slot at the given distance of the read cursor
+     *
+     * @param offset distance from the read cursor
+     * @return index in the array returned by getSlots()
+     */
+    int index(int offset){
+        return (int) (this.readCursor + offset) & this.mask;
+    }
+
+    /**
+     * Consumer only. Clear the given number of slots from the read cursor and give them back to the producers
+     *
+     * @param count number of slots to release, they must all have been published
+     */
+    void release(int count){
+        for(int i = 0; i < count; i++){
+            int index = (int) this.readCursor & this.mask;
+            this.slots[index].clear();
+            this.sequences.lazySet(index,this.readCursor + this.mask + 1);
+            this.readCursor++;
+        }
+    }
+
+    RequestSlot[] getSlots() {
+        return slots;
+    }
+}
@@ -0,0 +1,78 @@
+/* Copyright 2019, Viveris Technologies <opensource@toulouse.viveris.fr>
+ * Distributed under the terms of the Academic Free License.
+ */
+package fr.viveris.jnidbus.bindings.bus;
+
+import fr.viveris.jnidbus.dispatching.Dispatcher;
+import fr.viveris.jnidbus.message.PendingReply;
+import fr.viveris.jnidbus.message.eventloop.RequestCallback;
+import fr.viveris.jnidbus.serialization.DBusObject;
+
+/**
+ * Reusable slot of the event loop request ring. A slot can hold any kind of request, the kind field tells which of the
+ * other fields are meaningful. Slots are written by the producer before being published and read by the event loop, they
+ * are then cleared and given back to the producers.
+ *
+ * The fields are read directly by the native code when sending batches, do not rename them without updating EventLoop.cpp
+ */
+final class RequestSlot {
+    /**
+     * Kind of the request, see the REQUEST_* constants of the EventLoop
+     */
+    int kind;
+
+    String path;
+    String interfaceName;
+    String member;
+    String dest;
+    DBusObject message;
+    PendingReply promise;
+
+    /**
+     * Timeout of a call in milliseconds, -1 for the DBus default
+     */
+    int timeout;
+
+    /**
+     * Pointer to the call we reply to, for replies and errors, or to the pending call context to cancel
+     */
+    long messagePointer;
+
+    /**
+     * Pointer to the pending call context of a call, written by the native code when sending batches
+     */
+    long pendingCall;
+    Throwable error;
+
+    Runnable runnable;
+    Dispatcher dispatcher;
+    RequestCallback callback;
+
+    /**
+     * Does this slot contain a signal or a call, which can be sent in batch
+     *
+     * @return true if the request can be sent in a batch
+     */
+    boolean isBatchable(){
+        return this.kind == EventLoop.REQUEST_SIGNAL || this.kind == EventLoop.REQUEST_CALL;
+    }
+
+    /**
+     * Drop every reference held by the slot so the GC can collect them while the slot waits to be reused
+     */
+    void clear(){
+        this.path = null;
+        this.interfaceName = null;
+        this.member = null;
+        this.dest = null;
+        this.message = null;
+        this.promise = null;
+        this.timeout = -1;
+        this.messagePointer = 0;
+        this.pendingCall = 0;
+        this.error = null;
+        this.runnable = null;
+        this.dispatcher = null;
+        this.callback = null;
+    }
+}
@@ -0,0 +1,171 @@
+/* Copyright 2019, Viveris Technologies <opensource@toulouse.viveris.fr>
+ * Distributed under the terms of the Academic Free License.
+ */
+package fr.viveris.jnidbus.cache;
+
+import fr.viveris.jnidbus.message.Message;
+import fr.viveris.jnidbus.serialization.Serializable;
+import fr.viveris.jnidbus.serialization.signature.Signature;
+import fr.viveris.jnidbus.serialization.signature.SignatureElement;
+import fr.viveris.jnidbus.serialization.signature.SupportedTypes;
+
+import java.lang.reflect.Field;
+
+/**
+ * Flat description of a message class used by the native code to fill its instances directly while reading a DBus
+ * message, without building the intermediate DBusObject and without calling the serializers nor the setters. The plan
+ * gives, for each field, its name, its JNI type descriptor, its binding kind and the plan of the nested object if any.
+ *
+ * Only the fields whose type can be set as is by the native code are supported: primitives matching their DBus type,
+ * strings, fixed size arrays bound to Java primitive arrays and nested objects which can be bound themselves. If any
+ * field of the class is not supported, the class has no plan and its messages go through the standard deserialization.
+ *
+ * The plan is compiled once into a native structure when first needed, the native structure lives as long as the plan
+ * which is cached with the metadata of the class.
+ */
+public final class BindingPlan {
+    /**
+     * Binding kinds of the fields, also used by the native code
+     */
+    static final int KIND_BOOLEAN = 0;
+    static final int KIND_BYTE = 1;
+    static final int KIND_SHORT = 2;
+    static final int KIND_INT = 3;
+    static final int KIND_LONG = 4;
+    static final int KIND_DOUBLE = 5;
+    static final int KIND_STRING = 6;
+    static final int KIND_FIXED_ARRAY = 7;
+    static final int KIND_OBJECT = 8;
+
+    private final Class<?> messageClass;
+    private final String signature;
+    private final String[] names;
+    private final String[] descriptors;
+    private final int[] kinds;
+    private final BindingPlan[] nested;
+
+    /**
+     * Pointer to the compiled native plan, 0 while not compiled
+     */
+    private volatile long pointer = 0;
+
+    private BindingPlan(Class<?> messageClass, String signature, String[] names, String[] descriptors, int[] kinds, BindingPlan[] nested){
+        this.messageClass = messageClass;
+        this.signature = signature;
+        this.names = names;
+        this.descriptors = descriptors;
+        this.kinds = kinds;
+        this.nested = nested;
+    }
+
+    /**
+     * Create the plan of the given message class
+     *
+     * @param metadata metadata of the class
+     * @return the plan, or null if one of the fields can not be bound directly
+     */
+    static BindingPlan create(MessageMetadata metadata){
+        //the empty message is a shared instance, it must never be created by the native code
+        if(metadata.getSignature().isEmpty()) return null;
+
+        Class<? extends Serializable> clazz = metadata.getMessageClass();
+        String[] names = metadata.getFields();
+        String[] descriptors = new String[names.length];
+        int[] kinds = new int[names.length];
+        BindingPlan[] nested = new BindingPlan[names.length];
+
+        int i = 0;
+        for(SignatureElement element : new Signature(metadata.getSignature())){
+            Class<?> type;
+            try {
+                type = clazz.getDeclaredField(names[i]).getType();
+            } catch (NoSuchFieldException e) {
+                return null;
+            }
+
+            if(element.getContainerType() == null){
+                kinds[i] = kindOf(element.getPrimitive(),type);
+            }else if(element.getContainerType() == SupportedTypes.ARRAY && element.getPrimitive() != null){
+                //fixed size arrays are read by the native code in one shot into a primitive array
+                SupportedTypes primitive = element.getPrimitive();
+                boolean fixed = primitive != SupportedTypes.STRING && primitive != SupportedTypes.OBJ_PATH && primitive != SupportedTypes.UNIX_FD;
+                kinds[i] = fixed && type.equals(element.getPrimitive().getPrimitiveArrayType()) ? KIND_FIXED_ARRAY : -1;
+            }else if(element.getContainerType() == SupportedTypes.OBJECT_BEGIN && Serializable.class.isAssignableFrom(type)){
+                nested[i] = Message.retrieveFromCache(type.asSubclass(Serializable.class)).getBindingPlan();
+                kinds[i] = nested[i] == null ? -1 : KIND_OBJECT;
+            }else{
+                kinds[i] = -1;
+            }
+
+            if(kinds[i] == -1) return null;
+            descriptors[i] = descriptor(type);
+            i++;
+        }
+        return new BindingPlan(clazz,metadata.getSignature(),names,descriptors,kinds,nested);
+    }
+
+    /**
+     * @return the binding kind of a field of the given DBus type, or -1 if the field type does not allow it
+     */
+    private static int kindOf(SupportedTypes dbusType, Class<?> type){
+        if(dbusType == SupportedTypes.STRING) return type.equals(String.class) ? KIND_STRING : -1;
+        if(dbusType == SupportedTypes.OBJ_PATH || dbusType == SupportedTypes.UNIX_FD || !type.equals(dbusType.getPrimitiveType())) return -1;
+        switch (dbusType){
+            case BOOLEAN: return KIND_BOOLEAN;
+            case BYTE: return KIND_BYTE;
+            case SHORT: return KIND_SHORT;
+            case INTEGER: return KIND_INT;
+            case LONG: return KIND_LONG;
+            case DOUBLE: return KIND_DOUBLE;
+            default: return -1;
+        }
+    }
+
+    /**
+     * @return the JNI type descriptor of the class
+     */
+    private static String descriptor(Class<?> type){
+        if(type.isArray()) return type.getName().replace('.','/');
+        if(type == Boolean.TYPE) return "Z";
+        if(type == Byte.TYPE) return "B";
+        if(type == Short.TYPE) return "S";
+        if(type == Integer.TYPE) return "I";
+        if(type == Long.TYPE) return "J";
+        if(type == Double.TYPE) return "D";
+        return "L" + type.getName().replace('.','/') + ";";
+    }
+
+    /**
+     * Get the native plan, compiling it on the first call. The native library must be loaded
+     *
+     * @return pointer to the native plan
+     */
+    public long getPointer(){
+        long value = this.pointer;
+        if(value == 0){
+            synchronized (this){
+                value = this.pointer;
+                if(value == 0){
+                    long[] nestedPointers = new long[this.nested.length];
+                    for(int i = 0; i < this.nested.length; i++){
+                        if(this.nested[i] != null) nestedPointers[i] = this.nested[i].getPointer();
+                    }
+                    value = compile(this.messageClass,this.signature,this.names,this.descriptors,this.kinds,nestedPointers);
+                    this.pointer = value;
+                }
+            }
+        }
+        return value;
+    }
+
+    public String getSignature(){
+        return this.signature;
+    }
+
+    /**
+     * Resolve the class, constructor and fields of the plan and create the native plan
+     *
+     * @return pointer to the native plan
+     */
+    private static native long compile(Class<?> messageClass, String signature, String[] names, String[] descriptors, int[] kinds, long[] nested);
+}
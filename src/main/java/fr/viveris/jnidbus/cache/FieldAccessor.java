@@ -0,0 +1,26 @@
+/* Copyright 2019, Viveris Technologies <opensource@toulouse.viveris.fr>
+ * Distributed under the terms of the Academic Free License.
+ */
+package fr.viveris.jnidbus.cache;
+
+/**
+ * Reads and writes one serializable field of a message. An accessor is bound to a single field of a single class when
+ * the MessageMetadata is built, so calling it does not involve any lookup.
+ */
+public interface FieldAccessor {
+    /**
+     * Call the getter of the field
+     *
+     * @param instance message to read
+     * @return the value returned by the getter, primitives are boxed
+     */
+    Object get(Object instance);
+
+    /**
+     * Call the setter of the field
+     *
+     * @param instance message to write
+     * @param value value to give to the setter, primitives must be boxed
+     */
+    void set(Object instance, Object value);
+}
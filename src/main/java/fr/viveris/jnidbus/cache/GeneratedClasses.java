@@ -0,0 +1,39 @@
+/* Copyright 2019, Viveris Technologies <opensource@toulouse.viveris.fr>
+ * Distributed under the terms of the Academic Free License.
+ */
+package fr.viveris.jnidbus.cache;
+
+/**
+ * Find the classes generated by the jnidbus-processor. The processor is optional, so a missing class is not an error
+ * and the caller should fall back on reflection.
+ */
+public final class GeneratedClasses {
+    private GeneratedClasses(){}
+
+    /**
+     * Instantiate the class generated for the given annotated class, if any
+     *
+     * @param annotated class processed by the annotation processor
+     * @param suffix suffix appended to the binary name of the annotated class by the processor
+     * @param type interface the generated class implements
+     * @param <T> type of the generated class
+     * @return an instance of the generated class, or null if the processor was not run on the annotated class
+     */
+    public static <T> T load(Class<?> annotated, String suffix, Class<T> type){
+        Class<?> generated;
+        try {
+            generated = Class.forName(annotated.getName() + suffix, true, annotated.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+
+        if(!type.isAssignableFrom(generated)){
+            throw new IllegalStateException("The generated class "+generated.getName()+" does not implement "+type.getName());
+        }
+        try {
+            return type.cast(generated.getConstructor().newInstance());
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not instantiate the generated class "+generated.getName()+": "+e.toString(),e);
+        }
+    }
+}
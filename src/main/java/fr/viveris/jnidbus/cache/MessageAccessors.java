@@ -0,0 +1,28 @@
+/* Copyright 2019, Viveris Technologies <opensource@toulouse.viveris.fr>
+ * Distributed under the terms of the Academic Free License.
+ */
+package fr.viveris.jnidbus.cache;
+
+import fr.viveris.jnidbus.serialization.Serializable;
+
+/**
+ * Implemented by the classes the jnidbus-processor generates for each DBusType class. When such a class is found next
+ * to a message class, the MessageMetadata uses it instead of looking up and checking the getters and setters through
+ * reflection, as the checks were already done at compile time.
+ *
+ * The generated class must be in the same package as the message, be named after its binary name followed by SUFFIX
+ * (ex: Outer$Inner$$DBusAccessors) and have a public empty constructor.
+ */
+public interface MessageAccessors {
+    String SUFFIX = "$$DBusAccessors";
+
+    /**
+     * @return a new empty instance of the message
+     */
+    Serializable newInstance();
+
+    /**
+     * @return the accessor of each field of the message, in the order of the DBusType fields
+     */
+    FieldAccessor[] getAccessors();
+}
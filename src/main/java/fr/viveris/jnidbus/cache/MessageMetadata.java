@@ -11,14 +11,21 @@ import fr.viveris.jnidbus.serialization.signature.Signature;
 import fr.viveris.jnidbus.serialization.signature.SignatureElement;
 import fr.viveris.jnidbus.serialization.signature.SupportedTypes;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.*;
-import java.util.HashMap;
 
 /**
  * A MessageMetadata contains the list of fields managed by JNIDBus, their setters and getters. In order lower the cost of
  * the heavy use of Reflection, the fields are mapped to a pair of Serializer/deserializer which will analyze the signature
  * and type of the field, save those information and reuse them when doing the actual serialization. This mechanism speeds
  * up a lot the serialization process.
+ *
+ * The getters and setters are compiled into FieldAccessor objects. The accessors and serializers are stored in arrays
+ * indexed by the position of the field in the signature, so the serialization loop does not do any lookup. If the
+ * jnidbus-processor generated accessors for the class, they are used instead and the getters and setters are not checked
+ * again.
  */
 public class MessageMetadata {
     /**
@@ -32,26 +39,41 @@ public class MessageMetadata {
     private String[] fields;
 
     /**
-     * Public constructor
+     * Should the native code intern the strings of the received messages
      */
-    private Constructor<? extends Serializable> constructor;
+    private boolean internStrings;
 
     /**
-     * Setters and getters, mapped by field name
+     * Public constructor, adapted to return an Object
      */
-    private HashMap<String, Method> setters = new HashMap<>();
-    private HashMap<String, Method> getters = new HashMap<>();
+    private MethodHandle constructor;
 
     /**
-     * Serializer and deserializers by Methods
+     * Accessors generated at compile time, null if the processor was not used
      */
-    private HashMap<String, Serializer> fieldSerializers = new HashMap<>();
+    private MessageAccessors generated;
+
+    /**
+     * Getter and setter of each field, indexed by field position
+     */
+    private FieldAccessor[] accessors;
+
+    /**
+     * Serializer of each field, indexed by field position
+     */
+    private Serializer[] serializers;
 
     /**
      * Message class object
      */
     private Class<? extends Serializable> clazz;
 
+    /**
+     * Plan used by the native code to bind messages directly to instances of the class, created on first use
+     */
+    private BindingPlan bindingPlan;
+    private boolean bindingPlanCreated = false;
+
     /**
      * Create a new cache entry for the given message class. The class will be checked and an exception will be thrown if
      * an error was found. If the class contains other serializable classes, it will recursively check those as well and
@@ -67,27 +89,34 @@ public class MessageMetadata {
         DBusType type = clazz.getAnnotation(DBusType.class);
         if(type == null) throw new MessageCheckException("no DBusType annotation found",this.clazz);
 
-        //check constructor
-        Constructor<? extends Serializable> constructor;
-        try {
-            constructor = clazz.getConstructor();
-        } catch (NoSuchMethodException e) {
-            throw new MessageCheckException("No public empty constructor found",this.clazz);
-        }
-
         //create a new cache entity
         this.signature = type.signature();
         this.fields = type.fields();
-        this.constructor = constructor;
+        this.internStrings = type.internStrings();
+        this.serializers = new Serializer[this.fields.length];
+
+        //use the generated accessors if there are some, else check the constructor and look up the accessors ourselves
+        this.generated = GeneratedClasses.load(clazz,MessageAccessors.SUFFIX,MessageAccessors.class);
+        if(this.generated != null){
+            this.accessors = this.generated.getAccessors();
+            if(this.accessors.length != this.fields.length){
+                throw new MessageCheckException("The generated accessors do not match the fields, the class should be recompiled",this.clazz);
+            }
+        }else{
+            this.accessors = new FieldAccessor[this.fields.length];
+            try {
+                this.constructor = MethodHandles.lookup().unreflectConstructor(clazz.getConstructor()).asType(MethodType.methodType(Object.class));
+            } catch (NoSuchMethodException e) {
+                throw new MessageCheckException("No public empty constructor found",this.clazz);
+            } catch (IllegalAccessException e) {
+                throw new MessageCheckException("The constructor is not accessible",this.clazz);
+            }
+        }
 
         //generate getter and setter list
         int i = 0;
         for(SignatureElement element : new Signature(type.signature())){
             String fieldName = type.fields()[i];
-            //generate setter and getter name
-            String setterName = "set" + Character.toUpperCase(fieldName.charAt(0)) + fieldName.substring(1);
-            String getterName = "get" + Character.toUpperCase(fieldName.charAt(0)) + fieldName.substring(1);
-
             Field field;
             try{
                 field = clazz.getDeclaredField(fieldName);
@@ -96,33 +125,10 @@ public class MessageMetadata {
             }
 
             Type fieldType = field.getGenericType();
-
-            try {
-                //get the getter and create its serializer, the serializer will check signature and type validity
-                Method getter = clazz.getDeclaredMethod(getterName);
-                this.getters.put(fieldName,getter);
-                if(!fieldType.equals(getter.getGenericReturnType())){
-                    throw new MessageCheckException("The getter return type is not the same as the field",this.clazz,fieldName);
-                }
-            } catch (NoSuchMethodException e) {
-                throw new MessageCheckException("Could not find getter",this.clazz,fieldName);
+            if(this.generated == null){
+                this.accessors[i] = this.createAccessor(field,fieldName);
             }
-
-            try {
-                //get the setter and create its deserializer, the deserializer will check signature and type validity
-                Method setter = clazz.getDeclaredMethod(setterName,field.getType());
-                this.setters.put(fieldName,setter);
-                if(setter.getGenericParameterTypes().length != 1){
-                    throw new MessageCheckException("The setter must only have one parameter",this.clazz,fieldName);
-                }
-                if(!fieldType.equals(setter.getGenericParameterTypes()[0])){
-                    throw new MessageCheckException("The setter return type is not the same as the field",this.clazz,fieldName);
-                }
-            } catch (NoSuchMethodException e) {
-                throw new MessageCheckException("Could not find setter",this.clazz,fieldName);
-            }
-
-            this.fieldSerializers.put(fieldName,this.generateSerializerForSignature(fieldType,element,fieldName));
+            this.serializers[i] = this.generateSerializerForSignature(fieldType,element,fieldName);
             i++;
         }
 
@@ -131,15 +137,66 @@ public class MessageMetadata {
         }
     }
 
-    public Method getGetter(String fieldName){
-        return this.getters.get(fieldName);
+    /**
+     * Find the getter and setter of the field, check them and create their accessor
+     *
+     * @param field field to access
+     * @param fieldName name of the field
+     * @return the accessor of the field
+     * @throws MessageCheckException if the getter or setter is missing or invalid
+     */
+    private FieldAccessor createAccessor(Field field, String fieldName) throws MessageCheckException {
+        //generate setter and getter name
+        String setterName = "set" + Character.toUpperCase(fieldName.charAt(0)) + fieldName.substring(1);
+        String getterName = "get" + Character.toUpperCase(fieldName.charAt(0)) + fieldName.substring(1);
+        Type fieldType = field.getGenericType();
+
+        Method getter;
+        try {
+            //get the getter and create its serializer, the serializer will check signature and type validity
+            getter = this.clazz.getDeclaredMethod(getterName);
+            if(!fieldType.equals(getter.getGenericReturnType())){
+                throw new MessageCheckException("The getter return type is not the same as the field",this.clazz,fieldName);
+            }
+        } catch (NoSuchMethodException e) {
+            throw new MessageCheckException("Could not find getter",this.clazz,fieldName);
+        }
+
+        Method setter;
+        try {
+            //get the setter and create its deserializer, the deserializer will check signature and type validity
+            setter = this.clazz.getDeclaredMethod(setterName,field.getType());
+            if(setter.getGenericParameterTypes().length != 1){
+                throw new MessageCheckException("The setter must only have one parameter",this.clazz,fieldName);
+            }
+            if(!fieldType.equals(setter.getGenericParameterTypes()[0])){
+                throw new MessageCheckException("The setter return type is not the same as the field",this.clazz,fieldName);
+            }
+        } catch (NoSuchMethodException e) {
+            throw new MessageCheckException("Could not find setter",this.clazz,fieldName);
+        }
+
+        try {
+            return new MethodHandleFieldAccessor(getter,setter);
+        } catch (IllegalAccessException e) {
+            throw new MessageCheckException("The getter or setter is not accessible",this.clazz,fieldName);
+        }
     }
 
-    public Serializer getFieldSerializer(String fieldName){
-        return this.fieldSerializers.get(fieldName);
+    /**
+     * @param index position of the field in the signature
+     * @return getter and setter of the field
+     */
+    public FieldAccessor getAccessor(int index){
+        return this.accessors[index];
     }
-    public Method getSetter(String fieldName){
-        return this.setters.get(fieldName);
+
+    /**
+     * @param index position of the field in the signature
+     * @return serializer of the field
+     */
+    public Serializer getSerializer(int index){
+        return this.serializers[index];
     }
 
     public String getSignature() {
@@ -150,17 +207,36 @@ public class MessageMetadata {
         return fields;
     }
 
+    public boolean isInternStrings() {
+        return internStrings;
+    }
+
     public Class<? extends Serializable> getMessageClass(){ return this.clazz; }
 
+    /**
+     * Get the plan allowing the native code to fill the instances of the class directly, the plan is created on the first
+     * call.
+     *
+     * @return the binding plan of the class, or null if the class can not be bound directly
+     */
+    public synchronized BindingPlan getBindingPlan(){
+        if(!this.bindingPlanCreated){
+            this.bindingPlan = BindingPlan.create(this);
+            this.bindingPlanCreated = true;
+        }
+        return this.bindingPlan;
+    }
+
     /**
      * Create a new empty instances of the Message object (for deserialization).
      *
      * @return new empty instance of the message
      */
     public Serializable newInstance(){
+        if(this.generated != null) return this.generated.newInstance();
         try {
-            return this.constructor.newInstance();
-        } catch (Exception e) {
+            return (Serializable) (Object) this.constructor.invokeExact();
+        } catch (Throwable e) {
            throw new IllegalStateException("Could not create instance: "+e.toString(),e);
         }
     }
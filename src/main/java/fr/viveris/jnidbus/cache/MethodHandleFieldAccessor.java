@@ -0,0 +1,57 @@
+/* Copyright 2019, Viveris Technologies <opensource@toulouse.viveris.fr>
+ * Distributed under the terms of the Academic Free License.
+ */
+package fr.viveris.jnidbus.cache;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+
+/**
+ * FieldAccessor calling the getter and setter through method handles. The handles are adapted once to an
+ * (Object)Object and (Object,Object)void type so they can be called with invokeExact, which avoids the argument array,
+ * the access checks and the boxing done by Method.invoke on each call.
+ */
+class MethodHandleFieldAccessor implements FieldAccessor {
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private final MethodHandle getter;
+    private final MethodHandle setter;
+
+    /**
+     * Create an accessor for the given getter and setter
+     *
+     * @param getter getter of the field
+     * @param setter setter of the field
+     * @throws IllegalAccessException if one of the methods is not accessible
+     */
+    MethodHandleFieldAccessor(Method getter, Method setter) throws IllegalAccessException {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        this.getter = lookup.unreflect(getter).asType(GETTER_TYPE);
+        this.setter = lookup.unreflect(setter).asType(SETTER_TYPE);
+    }
+
+    @Override
+    public Object get(Object instance) {
+        try {
+            return (Object) this.getter.invokeExact(instance);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException("The getter threw a checked exception: "+t.toString(),t);
+        }
+    }
+
+    @Override
+    public void set(Object instance, Object value) {
+        try {
+            this.setter.invokeExact(instance, value);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException("The setter threw a checked exception: "+t.toString(),t);
+        }
+    }
+}
@@ -12,13 +12,26 @@ import fr.viveris.jnidbus.serialization.Serializable;
 import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 public class RemoteObjectMetadata {
     private Method method;
     private String member;
+    private int timeout;
     private MessageMetadata inputMetadata;
     private MessageMetadata outputMetadata;
 
+    /**
+     * Does the method return a CompletionStage instead of a Promise
+     */
+    private boolean future;
+
+    /**
+     * Is the method one-way, the call is then sent without expecting a reply
+     */
+    private boolean noReply;
+
     /**
      * Create a new cache entry for the given remote method call. the method will be checked and an exception will be
      * thrown if an error was detected
@@ -34,6 +47,8 @@ public class RemoteObjectMetadata {
         if(annotation == null) throw new RemoteObjectCheckException("No RemoteMember annotation were found");
 
         this.member = annotation.value();
+        this.timeout = annotation.timeout();
+        if(this.timeout < -1) throw new RemoteObjectCheckException("The timeout of a remote method must be positive or -1");
 
         //process input type
         Class<?>[] params = method.getParameterTypes();
@@ -47,10 +62,21 @@ public class RemoteObjectMetadata {
             throw new RemoteObjectCheckException("A remote method can only have one parameter");
         }
 
+        //a void method is one-way, it has no output type
+        if(Void.TYPE.equals(method.getReturnType())){
+            this.noReply = true;
+            return;
+        }
+
         //process output type
         Type output = method.getGenericReturnType();
         if(!(output instanceof ParameterizedType)) throw new RemoteObjectCheckException("The return type of the method is not generic or its generic type is not explicit");
-        if(!Promise.class.equals(((ParameterizedType)output).getRawType())) throw new RemoteObjectCheckException("The return type is not a Promise");
+        Type rawOutput = ((ParameterizedType)output).getRawType();
+        if(CompletionStage.class.equals(rawOutput) || CompletableFuture.class.equals(rawOutput)){
+            this.future = true;
+        }else if(!Promise.class.equals(rawOutput)){
+            throw new RemoteObjectCheckException("The return type is not a Promise nor a CompletionStage");
+        }
 
         Type realOutputType = ((ParameterizedType)output).getActualTypeArguments()[0];
         this.outputMetadata = Message.retrieveFromCache(((Class)realOutputType).asSubclass(Serializable.class));
@@ -65,6 +91,10 @@ public class RemoteObjectMetadata {
         return member;
     }
 
+    public int getTimeout() {
+        return timeout;
+    }
+
     public MessageMetadata getInputMetadata() {
         return inputMetadata;
     }
@@ -72,4 +102,12 @@ public class RemoteObjectMetadata {
     public MessageMetadata getOutputMetadata() {
         return outputMetadata;
     }
+
+    public boolean isFuture() {
+        return future;
+    }
+
+    public boolean isNoReply() {
+        return noReply;
+    }
 }
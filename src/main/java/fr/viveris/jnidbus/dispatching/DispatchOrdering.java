@@ -0,0 +1,23 @@
+/* Copyright 2019, Viveris Technologies <opensource@toulouse.viveris.fr>
+ * Distributed under the terms of the Academic Free License.
+ */
+package fr.viveris.jnidbus.dispatching;
+
+/**
+ * Define which messages must be handled in order when a handler runs on an executor. Messages sharing the same key
+ * are handled one after the other in their reception order, messages with different keys can run concurrently.
+ */
+public enum DispatchOrdering {
+    /**
+     * No ordering, the messages can be handled concurrently
+     */
+    NONE,
+    /**
+     * Messages received on the same object path are handled in order
+     */
+    PATH,
+    /**
+     * Messages coming from the same sender (unique bus name) are handled in order
+     */
+    SENDER
+}
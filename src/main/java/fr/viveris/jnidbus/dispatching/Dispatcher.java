@@ -1,23 +1,23 @@
 package fr.viveris.jnidbus.dispatching;
 
 import fr.viveris.jnidbus.bindings.bus.EventLoop;
+import fr.viveris.jnidbus.message.LazyMessage;
 import fr.viveris.jnidbus.message.Message;
 import fr.viveris.jnidbus.message.Promise;
-import fr.viveris.jnidbus.message.eventloop.sending.ErrorReplySendingRequest;
-import fr.viveris.jnidbus.message.eventloop.sending.ReplySendingRequest;
 import fr.viveris.jnidbus.serialization.DBusObject;
 import fr.viveris.jnidbus.serialization.Serializable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.BiConsumer;
 
 /**
- * Object called by the JNI code when a message arrives on an object path. A dispatcher will contain a map of dbus interfaces it can dispatch to.
- * each interface name will contain a list of criteria it can match, when a criteria is matched, it will look it up in another map whcih contains
- * to which handler method the criteria correspond.
+ * Object called by the JNI code when a message arrives on an object path. A dispatcher contains a routing table indexing its handler methods
+ * by interface, member, input signature and type. The table is immutable and replaced on each registration, so looking up a message does not
+ * allocate nor lock.
  *
  * When all of this is done and that a match is found, it will try deserialize the message and call the method. If the method is a DBus method call
  * it will also wait for the return value and send it to the event loop to return to the caller.
@@ -39,14 +39,16 @@ public class Dispatcher {
     private String path;
 
     /**
-     * Map of all the available interfaces and their available criteria
+     * Current routing table, replaced by a new one each time a criteria is added or removed. The event loop reads it
+     * without locking
      */
-    private HashMap<String,ArrayList<Criteria>> handlersCriterias;
+    private volatile RoutingTable routes;
 
     /**
-     * Map of all the criteria and their handler methods
+     * Routing table last given to the native code, the route indexes of the batched dispatch refer to it. Only accessed by
+     * the event loop thread
      */
-    private HashMap<Criteria,HandlerMethod> handlers;
+    private RoutingTable nativeRoutes = RoutingTable.EMPTY;
 
     /**
      * Event loop to which send calls responses
@@ -61,8 +63,7 @@ public class Dispatcher {
      */
     public Dispatcher(String path, EventLoop eventLoop){
         this.path = path;
-        this.handlersCriterias = new HashMap<>();
-        this.handlers = new HashMap<>();
+        this.routes = RoutingTable.EMPTY;
         this.eventLoop = eventLoop;
     }
 
@@ -74,121 +75,263 @@ public class Dispatcher {
      * @param criteria criteria to register
      * @param handlerMethod handler method to call when the criteria is matched
      */
-    public void addCriteria(String interfaceName, Criteria criteria, HandlerMethod handlerMethod){
-        ArrayList<Criteria> interfaceCriterias = this.handlersCriterias.get(interfaceName);
-
-        //if the interface was never sued before, create its list of criteria
-        if(interfaceCriterias == null){
-            interfaceCriterias = new ArrayList<>();
-            this.handlersCriterias.put(interfaceName,interfaceCriterias);
-        }
-
-        //check for conflicts
-        if(interfaceCriterias.contains(criteria)) throw new IllegalArgumentException("The criteria "+criteria+" is conflicting with an already registered criteria");
-
-        //add the criteria and its handler method
-        interfaceCriterias.add(criteria);
-        this.handlers.put(criteria,handlerMethod);
+    public synchronized void addCriteria(String interfaceName, Criteria criteria, HandlerMethod handlerMethod){
+        this.routes = this.routes.with(interfaceName,criteria,handlerMethod);
     }
 
-    public void removeCriteria(String interfaceName, Criteria criteria, HandlerMethod handlerMethod){
-        ArrayList<Criteria> interfaceCriterias = this.handlersCriterias.get(interfaceName);
-
-        //if the interface was never sued before, create its list of criteria
-        if(interfaceCriterias == null){
-            return;
-        }
-
-        //check for conflicts
-        if(interfaceCriterias.remove(criteria))
-
-            //add the criteria and its handler method
-            this.handlers.remove(criteria);
+    /**
+     * Remove the given criteria of the interface, does nothing if the criteria is not registered
+     *
+     * @param interfaceName interface to which the criteria is bound
+     * @param criteria criteria to remove
+     * @param handlerMethod handler method of the criteria
+     */
+    public synchronized void removeCriteria(String interfaceName, Criteria criteria, HandlerMethod handlerMethod){
+        this.routes = this.routes.without(interfaceName,criteria);
     }
 
     public boolean isEmpty(){
-        return this.handlers.size() == 0;
+        return this.routes.isEmpty();
     }
 
     /**
-     * Method called by the JNI call when a message should be dispatched. The msgPointer parameter is nullable, if it is null then it means the message is a signal,
-     * else it is a method call to which we should reply. When the message is a call the method will return true if the message was dispatched, false if there is
+     * Method called by the JNI call when a message should be dispatched. The isCall parameter tells if the message is a method call or a signal, the msgPointer
+     * parameter is nullable, if it is null then nothing should be replied (signal or call flagged as not expecting a reply), else it is the method call to which
+     * we should reply. When the message is a call the method will return true if the message was dispatched, false if there is
      * no handler registered for the criteria, by doing this Dbus can return a standard error to the caller telling the member could not be found
      *
+     * If the matched handler method runs on an executor, the deserialization and the call are submitted to it and this method returns immediately, the reply
+     * will be sent back through the event loop once the handler is done.
+     *
      * @param args pre-deserialized message
      * @param interfaceName interface on which the message was received
      * @param member member of the message
+     * @param sender unique bus name of the sender, can be null on a peer to peer connection
+     * @param isCall is the message a method call, false for a signal
+     * @param msgPointer pointer to the message we should reply to, can be 0
+     * @return did the dispatcher handle the message
+     */
+    private boolean dispatch(DBusObject args, String interfaceName, String member, String sender, boolean isCall, long msgPointer) {
+        return this.route(args.getSignature(),args,null,interfaceName,member,sender,isCall,msgPointer);
+    }
+
+    /**
+     * Method called by the JNI code when a message was bound by the native code directly to an instance of the input type
+     * of the handler method, using the binding plan given with the routes. This method behaves exactly as the dispatch
+     * method
+     *
+     * @param message message already bound to its class
+     * @param signature signature of the message
+     * @param interfaceName interface on which the message was received
+     * @param member member of the message
+     * @param sender unique bus name of the sender, can be null on a peer to peer connection
+     * @param isCall is the message a method call, false for a signal
      * @param msgPointer pointer to the message we should reply to, can be 0
      * @return did the dispatcher handle the message
      */
-    private boolean dispatch(final DBusObject args, final String interfaceName, final String member, final long msgPointer) {
-        LOG.debug("Dispatcher {} received a message for {}.{}({})",this.path,interfaceName,member,args.getSignature());
-        //get the list of criteria for the given interface and return false if nothing is found
-        ArrayList<Criteria> availableHandlers = this.handlersCriterias.get(interfaceName);
-        if(availableHandlers == null) return false;
+    private boolean dispatchBound(Serializable message, String signature, String interfaceName, String member, String sender, boolean isCall, long msgPointer) {
+        return this.route(signature,null,message,interfaceName,member,sender,isCall,msgPointer);
+    }
 
-        //generate the criteria from the message
-        Criteria requestCriteria;
-        if(msgPointer == 0){
-            requestCriteria = new Criteria(member,args.getSignature(),null, MemberType.SIGNAL);
+    /**
+     * Method called by the JNI code when a message is received for a handler method taking a LazyMessage. The native
+     * message is given as is and wrapped in a view which decodes it on demand. The view is closed once the handler method
+     * returned, or right away if the message is not handled. This method behaves exactly as the dispatch method
+     *
+     * @param contextPointer pointer to the native context
+     * @param viewPointer pointer to the native message, referenced for the view
+     * @param signature signature of the message
+     * @param interfaceName interface on which the message was received
+     * @param member member of the message
+     * @param sender unique bus name of the sender, can be null on a peer to peer connection
+     * @param isCall is the message a method call, false for a signal
+     * @param msgPointer pointer to the message we should reply to, can be 0
+     * @return did the dispatcher handle the message
+     */
+    private boolean dispatchLazy(long contextPointer, long viewPointer, String signature, String interfaceName, String member, String sender, boolean isCall, long msgPointer) {
+        LazyMessage message = new LazyMessage(contextPointer,viewPointer,signature);
+        boolean handled = false;
+        try{
+            handled = this.route(signature,null,message,interfaceName,member,sender,isCall,msgPointer);
+        }finally {
+            if(!handled) message.close();
+        }
+        return handled;
+    }
+
+    /**
+     * Method called by the event loop for each message of a batch collected by the native code during a tick. The native
+     * code already matched the message against the routes it was given, so the handler method is found by the index of its
+     * route and the message is always handled
+     *
+     * @param routeIndex index of the matched route in the routing table given to the native code
+     * @param body pre-deserialized message, or message bound by the native code to the input type of the handler method
+     * @param sender unique bus name of the sender, can be null on a peer to peer connection
+     * @param msgPointer pointer to the message we should reply to, can be 0
+     */
+    public void dispatchRoute(int routeIndex, Object body, String sender, long msgPointer){
+        RoutingTable table = this.nativeRoutes;
+        Criteria criteria = table.getCriteria(routeIndex);
+        String interfaceName = table.getInterfaceName(routeIndex);
+        LOG.debug("Dispatcher {} received a batched message for {}.{}({})",this.path,interfaceName,criteria.getMember(),criteria.getInputSignature());
+        if(body instanceof DBusObject){
+            this.dispatchTo(table.getHandlerMethod(routeIndex),(DBusObject) body,null,interfaceName,criteria.getMember(),sender,msgPointer);
         }else{
-            requestCriteria = new Criteria(member,args.getSignature(),null, MemberType.METHOD);
+            this.dispatchTo(table.getHandlerMethod(routeIndex),null,(Serializable) body,interfaceName,criteria.getMember(),sender,msgPointer);
         }
+    }
+
+    /**
+     * Get the current routing table and remember it as the table given to the native code. Only called by the event loop
+     * when it gives the routes to the native code
+     *
+     * @return the current routing table
+     */
+    public RoutingTable pushRoutingTable(){
+        this.nativeRoutes = this.routes;
+        return this.nativeRoutes;
+    }
+
+    /**
+     * Find the handler method of the message and handle it, either directly or on the executor of the handler method.
+     * Only one of args and bound is set. A call which does not expect a reply is routed as any call, only its msgPointer is 0
+     */
+    private boolean route(String signature, DBusObject args, Serializable bound, String interfaceName, String member, String sender, boolean isCall, long msgPointer){
+        LOG.debug("Dispatcher {} received a message for {}.{}({})",this.path,interfaceName,member,signature);
+        //find the handler method matching the message, return false if nothing is found
+        HandlerMethod handler = this.routes.find(interfaceName,member,signature,isCall ? MemberType.METHOD : MemberType.SIGNAL);
+        if(handler == null) return false;
 
-        //try to find a matching criteria
-        for(Criteria c: availableHandlers){
-            if(c.equals(requestCriteria)){
-                LOG.debug("Dispatcher found a handler, trying to deserialize");
-                //match found, try to deserialize
-                HandlerMethod handler = this.handlers.get(c);
-                try{
-                    Serializable param;
-                    //if the message is empty, use the special EMPTY message
-                    if(args.getSignature().equals("")){
-                        param = Message.EMPTY;
-                    }else{
-                        param = handler.getInputType().newInstance();
-                        param.deserialize(args);
+        this.dispatchTo(handler,args,bound,interfaceName,member,sender,msgPointer);
+        return true;
+    }
+
+    /**
+     * Handle the message with the given handler method, either directly or on its executor. Only one of args and bound is set
+     */
+    private void dispatchTo(final HandlerMethod handler, final DBusObject args, final Serializable bound, final String interfaceName, final String member, String sender, final long msgPointer){
+        HandlerExecutor executor = handler.getExecutor();
+        if(executor == null){
+            this.handle(handler,args,bound,interfaceName,member,msgPointer);
+        }else{
+            LOG.debug("Dispatcher found a handler, offloading it to its executor");
+            try{
+                executor.execute(this.getOrderingKey(handler.getOrdering(),sender),new Runnable() {
+                    @Override
+                    public void run() {
+                        Dispatcher.this.handle(handler,args,bound,interfaceName,member,msgPointer);
                     }
-                    //get the return value of the handler, and if not null send a reply
-                    Object returnObject = handler.call(param);
-                    if(returnObject != null && msgPointer != 0){
-                        if(returnObject instanceof Message){
-                            LOG.debug("Handler returned a result, dispatch the reply: {}",returnObject.toString());
-                            this.eventLoop.send(new ReplySendingRequest(((Message)returnObject).serialize(),msgPointer,interfaceName,member,null));
-                        }else if(returnObject instanceof Promise){
-                            //if the handler returned a Promise, set the callback, do not force the dispatch on the E.L
-                            // as we only send one message
-                            LOG.debug("Handler returned a promise, set the callback");
-                            ((Promise) returnObject).then( new Promise.Callback<Serializable>() {
-                                @Override
-                                public void value(Serializable value, Exception e) {
-                                    if(e != null){
-                                        Dispatcher.this.eventLoop.send(new ErrorReplySendingRequest(e.getCause(),msgPointer,interfaceName,member,null));
-                                    }else{
-                                        Dispatcher.this.eventLoop.send(new ReplySendingRequest(value.serialize(),msgPointer,interfaceName,member,null));
-                                    }
-                                }
-                            });
-                        }else{
-                            LOG.error("The handler returned an unknown result ({}), no reply will be sent",returnObject);
+                });
+            }catch (RejectedExecutionException e){
+                if(msgPointer != 0){
+                    this.eventLoop.sendErrorReply(e,msgPointer,interfaceName,member,null);
+                }else{
+                    LOG.error("The executor rejected the signal handling",e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Deserialize the message and call the handler method, then send its reply if needed. This method is either run by the
+     * event loop or by the executor of the handler method. When run by the event loop, the reply is sent right away on the
+     * message held by the dispatch, otherwise it is queued to the event loop unless the direct send mode is enabled.
+     *
+     * @param handler handler method to call
+     * @param args pre-deserialized message, null if the message was bound by the native code
+     * @param bound message bound by the native code or lazy message, null if args is set
+     * @param interfaceName interface on which the message was received
+     * @param member member of the message
+     * @param msgPointer pointer to the message we should reply to, can be 0
+     */
+    private void handle(HandlerMethod handler, DBusObject args, Serializable bound, final String interfaceName, final String member, final long msgPointer){
+        LOG.debug("Dispatcher found a handler, trying to deserialize");
+        try{
+            Serializable param;
+            //if the message is empty, use the special EMPTY message
+            if(bound != null){
+                param = bound;
+            }else if(args.getSignature().equals("")){
+                param = Message.EMPTY;
+            }else{
+                param = handler.getInputType().newInstance();
+                param.deserialize(args);
+            }
+            //get the return value of the handler, and if not null send a reply
+            Object returnObject = handler.call(param);
+            if(returnObject != null && msgPointer != 0){
+                if(returnObject instanceof Message){
+                    LOG.debug("Handler returned a result, dispatch the reply: {}",returnObject.toString());
+                    this.eventLoop.sendReply(((Message)returnObject).serialize(),msgPointer,interfaceName,member,null);
+                }else if(returnObject instanceof Promise){
+                    //if the handler returned a Promise, set the callback, do not force the dispatch on the E.L
+                    // as we only send one message
+                    LOG.debug("Handler returned a promise, set the callback");
+                    ((Promise) returnObject).then( new Promise.Callback<Serializable>() {
+                        @Override
+                        public void value(Serializable value, Exception e) {
+                            if(e != null){
+                                Dispatcher.this.eventLoop.sendErrorReply(e.getCause(),msgPointer,interfaceName,member,null);
+                            }else{
+                                Dispatcher.this.eventLoop.sendReply(value.serialize(),msgPointer,interfaceName,member,null);
+                            }
                         }
-                    }else if(msgPointer != 0){
-                        LOG.error("The handler returned a null object, no reply will be sent");
-                    }
-                }catch (Exception e){
-                    //if the message is a call, reply an error
-                    if(msgPointer != 0){
-                        this.eventLoop.send(new ErrorReplySendingRequest(e.getCause(),msgPointer, interfaceName, member,null));
-                    }else{
-                        LOG.error("An exception was raised during signal handling",e);
-                    }
+                    });
+                }else if(returnObject instanceof CompletionStage){
+                    //same as for a Promise, the reply is sent by the thread completing the stage
+                    LOG.debug("Handler returned a completion stage, set the callback");
+                    ((CompletionStage<?>) returnObject).whenComplete(new BiConsumer<Object, Throwable>() {
+                        @Override
+                        public void accept(Object value, Throwable e) {
+                            //the dependent stages give the exception wrapped in a CompletionException
+                            if(e instanceof CompletionException && e.getCause() != null) e = e.getCause();
+                            if(e != null){
+                                Dispatcher.this.eventLoop.sendErrorReply(e,msgPointer,interfaceName,member,null);
+                            }else{
+                                Dispatcher.this.eventLoop.sendReply(((Serializable) value).serialize(),msgPointer,interfaceName,member,null);
+                            }
+                        }
+                    });
+                }else{
+                    LOG.error("The handler returned an unknown result ({}), no reply will be sent",returnObject);
                 }
-                return true;
+            }else if(msgPointer != 0){
+                LOG.error("The handler returned a null object, no reply will be sent");
             }
+        }catch (Exception e){
+            //if the message is a call, reply an error
+            if(msgPointer != 0){
+                this.eventLoop.sendErrorReply(e.getCause(),msgPointer, interfaceName, member,null);
+            }else{
+                LOG.error("An exception was raised during signal handling",e);
+            }
+        }finally {
+            //a lazy message can not be used once the handler method returned, release its native message
+            if(bound instanceof LazyMessage) ((LazyMessage) bound).close();
         }
-        //no handler was found
-        return false;
+    }
+
+    /**
+     * Get the key of the message for the given ordering
+     *
+     * @param ordering ordering of the handler method
+     * @param sender sender of the message, can be null
+     * @return the ordering key, null if the message does not need to be ordered
+     */
+    private String getOrderingKey(DispatchOrdering ordering, String sender){
+        switch (ordering){
+            case PATH: return this.path;
+            //peer to peer connections have no sender, all their messages come from the same peer
+            case SENDER: return sender == null ? "" : sender;
+            default: return null;
+        }
+    }
+
+    /**
+     * @return the current routing table of the dispatcher
+     */
+    public RoutingTable getRoutingTable() {
+        return routes;
     }
 
     public boolean isRegistered() {
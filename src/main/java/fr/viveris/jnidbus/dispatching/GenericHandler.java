@@ -3,7 +3,9 @@
  */
 package fr.viveris.jnidbus.dispatching;
 
+import fr.viveris.jnidbus.cache.GeneratedClasses;
 import fr.viveris.jnidbus.dispatching.annotation.Handler;
+import fr.viveris.jnidbus.message.LazyMessage;
 import fr.viveris.jnidbus.message.Promise;
 import fr.viveris.jnidbus.serialization.DBusType;
 import fr.viveris.jnidbus.serialization.Serializable;
@@ -11,6 +13,7 @@ import fr.viveris.jnidbus.serialization.Serializable;
 import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
 import java.util.HashMap;
+import java.util.concurrent.CompletionStage;
 
 /**
  * Abstract class any handler class should extend, it only define one method which will be able to generate all the criteria and
@@ -28,6 +31,9 @@ public abstract class GenericHandler {
         Method[] methods = this.getClass().getMethods();
         HashMap<Criteria,HandlerMethod> returned = new HashMap<>();
 
+        //invokers generated by the annotation processor, if it was used on this handler
+        HandlerInvokers invokers = GeneratedClasses.load(this.getClass(),HandlerInvokers.SUFFIX,HandlerInvokers.class);
+
         for(Method m : methods){
             //check if the method is a handler method, if not keep looking
             fr.viveris.jnidbus.dispatching.annotation.HandlerMethod annotation = this.getHandlerMethodAnnotation(m);
@@ -38,8 +44,8 @@ public abstract class GenericHandler {
             Class<?> returnType = m.getReturnType();
             if(params.length != 1) throw new IllegalArgumentException("Incorrect number of parameter on an handler method, there should be only one input parameter");
 
-            //if the return type is a promise, check its generic type
-            if(Promise.class.isAssignableFrom(returnType)){
+            //if the return type is a promise or a completion stage, check its generic type
+            if(Promise.class.isAssignableFrom(returnType) || CompletionStage.class.isAssignableFrom(returnType)){
                 returnType = (Class) ((ParameterizedType)m.getGenericReturnType()).getActualTypeArguments()[0];
             }
 
@@ -47,9 +53,17 @@ public abstract class GenericHandler {
             DBusType returnAnnotation = returnType.getAnnotation(DBusType.class);
 
             String ouputSignature = "";
+            String inputSignature;
 
-            if(paramAnnotation == null || !Serializable.class.isAssignableFrom(params[0])){
+            //a lazy message has no fixed signature, it is given by the method annotation
+            if(LazyMessage.class.equals(params[0])){
+                inputSignature = annotation.signature();
+            }else if(paramAnnotation == null || !Serializable.class.isAssignableFrom(params[0])){
                 throw new IllegalArgumentException("A handler method parameter must have the DBusType annotation and be Serializable");
+            }else if(!annotation.signature().isEmpty()){
+                throw new IllegalArgumentException("The signature of a handler method can only be given for a LazyMessage parameter");
+            }else{
+                inputSignature = paramAnnotation.signature();
             }
 
             if(annotation.type() == MemberType.METHOD && (returnAnnotation == null || !Serializable.class.isAssignableFrom(returnType))){
@@ -58,14 +72,15 @@ public abstract class GenericHandler {
                 ouputSignature = returnAnnotation.signature();
             }
 
+            HandlerInvoker invoker = invokers == null ? null : invokers.getInvoker(m.getName()+"("+params[0].getName()+")");
             HandlerMethod hm;
             if(Void.TYPE.equals(returnType)){
-                hm = new HandlerMethod(this,m,null);
+                hm = new HandlerMethod(this,m,null,invoker);
             }else{
-                hm = new HandlerMethod(this,m,returnType.asSubclass(Serializable.class));
+                hm = new HandlerMethod(this,m,returnType.asSubclass(Serializable.class),invoker);
             }
             //the types are valid, put it in the map. This line will throw if the serializable types are in fact invalid
-            returned.put(new Criteria(annotation.member(),paramAnnotation.signature(),ouputSignature,annotation.type()),hm);
+            returned.put(new Criteria(annotation.member(),inputSignature,ouputSignature,annotation.type()),hm);
 
         }
         return returned;
@@ -0,0 +1,146 @@
+/* Copyright 2019, Viveris Technologies <opensource@toulouse.viveris.fr>
+ * Distributed under the terms of the Academic Free License.
+ */
+package fr.viveris.jnidbus.dispatching;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Executor registered on a Dbus instance under a name, on which handlers can choose to run. It wraps a user given
+ * Executor and can keep the tasks sharing the same key ordered: the tasks of a key are queued and submitted one at a
+ * time to the wrapped executor, while the tasks of different keys still run concurrently.
+ *
+ * The queue of a key only lives while it has pending tasks, so an unbounded number of keys (senders for example) does
+ * not make the executor leak.
+ */
+public class HandlerExecutor {
+    private static final Logger LOG = LoggerFactory.getLogger(HandlerExecutor.class);
+
+    /**
+     * Executor effectively running the tasks
+     */
+    private final Executor delegate;
+
+    /**
+     * Queues of the keys having pending tasks
+     */
+    private final ConcurrentHashMap<String,SerialQueue> queues = new ConcurrentHashMap<>();
+
+    public HandlerExecutor(Executor delegate){
+        if(delegate == null) throw new NullPointerException("The executor can not be null");
+        this.delegate = delegate;
+    }
+
+    /**
+     * Run the given task on the wrapped executor, after all the previously submitted tasks of the same key.
+     *
+     * @param key ordering key, if null the task is directly submitted to the wrapped executor
+     * @param task task to run
+     * @throws RejectedExecutionException if the wrapped executor rejects the task
+     */
+    public void execute(String key, Runnable task){
+        if(key == null){
+            this.delegate.execute(task);
+            return;
+        }
+
+        while(true){
+            SerialQueue queue = this.queues.get(key);
+            if(queue == null){
+                SerialQueue created = new SerialQueue(key);
+                queue = this.queues.putIfAbsent(key,created);
+                if(queue == null) queue = created;
+            }
+            //the queue can be retired between the lookup and the offer, in which case we retry with a new one
+            if(queue.offer(task)) return;
+        }
+    }
+
+    public Executor getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * Pending tasks of a key. The queue submits itself to the wrapped executor while it has tasks and runs one task per
+     * submission, so a busy key does not monopolize a thread of the wrapped executor.
+     */
+    private class SerialQueue implements Runnable{
+        private final String key;
+        private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+
+        /**
+         * Is the queue submitted to the wrapped executor
+         */
+        private boolean running = false;
+
+        /**
+         * Was the queue removed from the map, a retired queue can not accept tasks anymore
+         */
+        private boolean retired = false;
+
+        SerialQueue(String key){
+            this.key = key;
+        }
+
+        boolean offer(Runnable task){
+            synchronized (this){
+                if(this.retired) return false;
+                this.tasks.add(task);
+                if(this.running) return true;
+                this.running = true;
+            }
+
+            try{
+                HandlerExecutor.this.delegate.execute(this);
+            }catch (RejectedExecutionException e){
+                //the queue was idle so the task is the only one, drop it and let the caller handle the error
+                this.retire();
+                throw e;
+            }
+            return true;
+        }
+
+        @Override
+        public void run() {
+            Runnable task;
+            synchronized (this){
+                task = this.tasks.poll();
+            }
+
+            try{
+                task.run();
+            }finally {
+                boolean reschedule;
+                synchronized (this){
+                    reschedule = !this.tasks.isEmpty();
+                    if(!reschedule) this.retireLocked();
+                }
+                if(reschedule){
+                    try{
+                        HandlerExecutor.this.delegate.execute(this);
+                    }catch (RejectedExecutionException e){
+                        LOG.error("The executor rejected the queued tasks of {}, they will not be run",this.key,e);
+                        this.retire();
+                    }
+                }
+            }
+        }
+
+        private synchronized void retire(){
+            this.tasks.clear();
+            this.retireLocked();
+        }
+
+        private void retireLocked(){
+            this.running = false;
+            this.retired = true;
+            HandlerExecutor.this.queues.remove(this.key,this);
+        }
+    }
+}
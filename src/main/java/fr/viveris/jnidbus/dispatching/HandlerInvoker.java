@@ -0,0 +1,21 @@
+/* Copyright 2019, Viveris Technologies <opensource@toulouse.viveris.fr>
+ * Distributed under the terms of the Academic Free License.
+ */
+package fr.viveris.jnidbus.dispatching;
+
+import fr.viveris.jnidbus.serialization.Serializable;
+
+/**
+ * Calls one handler method directly, without reflection. Invokers are generated by the jnidbus-processor.
+ */
+public interface HandlerInvoker {
+    /**
+     * Call the handler method
+     *
+     * @param handler handler on which the method is called
+     * @param param deserialized input of the method
+     * @return the value returned by the method, null for a void method
+     * @throws Exception any exception thrown by the handler method
+     */
+    Object invoke(Object handler, Serializable param) throws Exception;
+}
@@ -0,0 +1,23 @@
+/* Copyright 2019, Viveris Technologies <opensource@toulouse.viveris.fr>
+ * Distributed under the terms of the Academic Free License.
+ */
+package fr.viveris.jnidbus.dispatching;
+
+/**
+ * Implemented by the classes the jnidbus-processor generates for each Handler class. The generated class must be in the
+ * same package as the handler, be named after its binary name followed by SUFFIX and have a public empty constructor.
+ *
+ * The handler methods without a generated invoker (Kotlin handlers for example) are called through reflection.
+ */
+public interface HandlerInvokers {
+    String SUFFIX = "$$DBusInvokers";
+
+    /**
+     * Get the invoker of a handler method
+     *
+     * @param key name of the method followed by the binary name of its parameter type between parenthesis,
+     *            ex: myMethod(fr.viveris.MyMessage)
+     * @return the invoker, or null if none was generated for the method
+     */
+    HandlerInvoker getInvoker(String key);
+}
@@ -4,6 +4,7 @@
 package fr.viveris.jnidbus.dispatching;
 
 import fr.viveris.jnidbus.cache.MessageMetadata;
+import fr.viveris.jnidbus.message.LazyMessage;
 import fr.viveris.jnidbus.message.Message;
 import fr.viveris.jnidbus.serialization.Serializable;
 
@@ -29,7 +30,12 @@ public class HandlerMethod{
     private Method handlerMethod;
 
     /**
-     * cached input type
+     * Generated invoker of the method, null if the method is called through reflection
+     */
+    private HandlerInvoker invoker;
+
+    /**
+     * cached input type (null if the method takes a LazyMessage)
      */
     private MessageMetadata inputType;
 
@@ -48,6 +54,16 @@ public class HandlerMethod{
      */
     private boolean isKotlinMethod;
 
+    /**
+     * Executor on which the method runs, null if it runs on the event loop
+     */
+    private HandlerExecutor executor;
+
+    /**
+     * Ordering to respect when running on the executor
+     */
+    private DispatchOrdering ordering = DispatchOrdering.NONE;
+
     /**
      * Create a new HandlerMethod. Will throw if the types of the methods are invalid
      *
@@ -56,12 +72,30 @@ public class HandlerMethod{
      * @param returnType return type class of the method
      */
     public HandlerMethod(Object handler, Method handlerMethod, Class<? extends Serializable> returnType) {
+        this(handler,handlerMethod,returnType,null);
+    }
+
+    /**
+     * Create a new HandlerMethod called through the given invoker. Will throw if the types of the methods are invalid
+     *
+     * @param handler object on which we want to call the method
+     * @param handlerMethod method to call
+     * @param returnType return type class of the method
+     * @param invoker invoker generated for the method, null to call it through reflection
+     */
+    public HandlerMethod(Object handler, Method handlerMethod, Class<? extends Serializable> returnType, HandlerInvoker invoker) {
         this.returnClass = returnType;
+        this.invoker = invoker;
         this.handler = handler;
         this.handlerMethod = handlerMethod;
 
-        //put input and output in cache
-        this.inputType = Message.retrieveFromCache(handlerMethod.getParameterTypes()[0].asSubclass(Serializable.class));
+        //put input and output in cache, a lazy message is not deserialized so it has no input type
+        Class<?> paramType = handlerMethod.getParameterTypes()[0];
+        if(LazyMessage.class.equals(paramType)){
+            this.inputType = null;
+        }else{
+            this.inputType = Message.retrieveFromCache(paramType.asSubclass(Serializable.class));
+        }
         if( returnType != null){
             this.outputType = Message.retrieveFromCache(returnType.asSubclass(Serializable.class));
         }else{
@@ -88,11 +122,25 @@ public class HandlerMethod{
     public Object call(Serializable param) throws InvocationTargetException, IllegalAccessException {
         if(this.isKotlinMethod && kotlinInvocator != null){
             return kotlinInvocator.call(this.handler,this.handlerMethod,param);
+        }else if(this.invoker != null){
+            //wrap the exceptions the same way Method.invoke does so the dispatcher handles both cases the same way
+            try{
+                return this.invoker.invoke(this.handler,param);
+            }catch (Exception e){
+                throw new InvocationTargetException(e);
+            }
         }else{
             return this.handlerMethod.invoke(this.handler,param);
         }
     }
 
+    /**
+     * @return true if the method takes a LazyMessage, which is created from the native message instead of being deserialized
+     */
+    public boolean isLazy(){
+        return this.inputType == null;
+    }
+
     public MessageMetadata getInputType() {
         return inputType;
     }
@@ -101,6 +149,29 @@ public class HandlerMethod{
         return outputType;
     }
 
+    public Method getMethod() {
+        return handlerMethod;
+    }
+
+    public HandlerExecutor getExecutor() {
+        return executor;
+    }
+
+    public DispatchOrdering getOrdering() {
+        return ordering;
+    }
+
+    /**
+     * Make the method run on the given executor instead of the event loop
+     *
+     * @param executor executor to run on, null to run on the event loop
+     * @param ordering which messages must be handled in order
+     */
+    public void setExecutor(HandlerExecutor executor, DispatchOrdering ordering) {
+        this.executor = executor;
+        this.ordering = ordering;
+    }
+
     public interface MethodInvocator{
         <T extends Serializable> Object call(Object handler, Method method, Serializable param);
     }
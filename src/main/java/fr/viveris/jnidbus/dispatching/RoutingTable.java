@@ -0,0 +1,204 @@
+/* Copyright 2019, Viveris Technologies <opensource@toulouse.viveris.fr>
+ * Distributed under the terms of the Academic Free License.
+ */
+package fr.viveris.jnidbus.dispatching;
+
+import java.util.HashMap;
+
+/**
+ * Immutable index of the handler methods of a dispatcher, mapped by interface name, then by member. The few routes
+ * sharing the same member are then matched on their input signature and type.
+ *
+ * A table is never modified once built: adding or removing a route creates a new table, which lets the event loop read
+ * the current table without any lock or allocation while the handlers are registered from other threads. The maps of the
+ * interfaces not concerned by a modification are shared between the old and new tables.
+ *
+ * The routes can also be read by index, which is used by the event loop to give the table to the native code so the
+ * messages no handler can match are rejected before being deserialized.
+ */
+public final class RoutingTable {
+    static final RoutingTable EMPTY = new RoutingTable(new HashMap<String, HashMap<String, Route[]>>(),0);
+
+    /**
+     * Routes mapped by interface name, then by member
+     */
+    private final HashMap<String,HashMap<String,Route[]>> interfaces;
+
+    /**
+     * All the routes of the table, used for the access by index
+     */
+    private final Route[] all;
+
+    private RoutingTable(HashMap<String,HashMap<String,Route[]>> interfaces, int size){
+        this.interfaces = interfaces;
+        this.all = new Route[size];
+        int i = 0;
+        for(HashMap<String,Route[]> members : interfaces.values()){
+            for(Route[] routes : members.values()){
+                System.arraycopy(routes,0,this.all,i,routes.length);
+                i += routes.length;
+            }
+        }
+    }
+
+    /**
+     * Find the handler method matching the given message
+     *
+     * @param interfaceName interface of the message
+     * @param member member of the message
+     * @param signature signature of the message
+     * @param type type of the message
+     * @return the matching handler method or null
+     */
+    HandlerMethod find(String interfaceName, String member, String signature, MemberType type){
+        HashMap<String,Route[]> members = this.interfaces.get(interfaceName);
+        if(members == null) return null;
+        Route[] routes = members.get(member);
+        if(routes == null) return null;
+        for(Route route : routes){
+            if(route.type == type && route.signature.equals(signature)) return route.handlerMethod;
+        }
+        return null;
+    }
+
+    /**
+     * Create a new table containing the routes of this table and the given one
+     *
+     * @param interfaceName interface of the route
+     * @param criteria criteria of the route
+     * @param handlerMethod handler method to call when the criteria is matched
+     * @return the new table
+     * @throws IllegalArgumentException if the criteria conflicts with a route of the table
+     */
+    RoutingTable with(String interfaceName, Criteria criteria, HandlerMethod handlerMethod){
+        HashMap<String,Route[]> members = this.copyMembers(interfaceName);
+        Route[] routes = members.get(criteria.getMember());
+        Route route = new Route(interfaceName,criteria,handlerMethod);
+
+        Route[] newRoutes;
+        if(routes == null){
+            newRoutes = new Route[]{route};
+        }else{
+            for(Route r : routes){
+                if(r.criteria.equals(criteria)) throw new IllegalArgumentException("The criteria "+criteria+" is conflicting with an already registered criteria");
+            }
+            newRoutes = new Route[routes.length + 1];
+            System.arraycopy(routes,0,newRoutes,0,routes.length);
+            newRoutes[routes.length] = route;
+        }
+        members.put(criteria.getMember(),newRoutes);
+        return this.withMembers(interfaceName,members,this.all.length + 1);
+    }
+
+    /**
+     * Create a new table containing the routes of this table except the given one
+     *
+     * @param interfaceName interface of the route
+     * @param criteria criteria of the route to remove
+     * @return the new table, or this table if the route does not exist
+     */
+    RoutingTable without(String interfaceName, Criteria criteria){
+        HashMap<String,Route[]> members = this.interfaces.get(interfaceName);
+        if(members == null) return this;
+        Route[] routes = members.get(criteria.getMember());
+        if(routes == null) return this;
+
+        int index = -1;
+        for(int i = 0; i < routes.length; i++){
+            if(routes[i].criteria.equals(criteria)){
+                index = i;
+                break;
+            }
+        }
+        if(index == -1) return this;
+
+        members = this.copyMembers(interfaceName);
+        if(routes.length == 1){
+            members.remove(criteria.getMember());
+        }else{
+            Route[] newRoutes = new Route[routes.length - 1];
+            System.arraycopy(routes,0,newRoutes,0,index);
+            System.arraycopy(routes,index + 1,newRoutes,index,routes.length - index - 1);
+            members.put(criteria.getMember(),newRoutes);
+        }
+        return this.withMembers(interfaceName,members,this.all.length - 1);
+    }
+
+    boolean isEmpty(){
+        return this.all.length == 0;
+    }
+
+    /**
+     * @return number of routes in the table
+     */
+    public int size(){
+        return this.all.length;
+    }
+
+    /**
+     * @param index index of the route, lower than size()
+     * @return interface of the route
+     */
+    public String getInterfaceName(int index){
+        return this.all[index].interfaceName;
+    }
+
+    /**
+     * @param index index of the route, lower than size()
+     * @return criteria of the route
+     */
+    public Criteria getCriteria(int index){
+        return this.all[index].criteria;
+    }
+
+    /**
+     * @param index index of the route, lower than size()
+     * @return handler method of the route
+     */
+    public HandlerMethod getHandlerMethod(int index){
+        return this.all[index].handlerMethod;
+    }
+
+    private HashMap<String,Route[]> copyMembers(String interfaceName){
+        HashMap<String,Route[]> members = this.interfaces.get(interfaceName);
+        return members == null ? new HashMap<String,Route[]>() : new HashMap<>(members);
+    }
+
+    private RoutingTable withMembers(String interfaceName, HashMap<String,Route[]> members, int size){
+        HashMap<String,HashMap<String,Route[]>> interfaces = new HashMap<>(this.interfaces);
+        if(members.isEmpty()){
+            interfaces.remove(interfaceName);
+        }else{
+            interfaces.put(interfaceName,members);
+        }
+        return new RoutingTable(interfaces,size);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("RoutingTable{");
+        for(Route route : this.all){
+            builder.append(route.interfaceName).append(':').append(route.criteria).append(' ');
+        }
+        return builder.append('}').toString();
+    }
+
+    /**
+     * Handler method bound to a criteria, the criteria fields are copied to avoid an indirection during the lookup
+     */
+    private static final class Route{
+        private final String interfaceName;
+        private final Criteria criteria;
+        private final String signature;
+        private final MemberType type;
+        private final HandlerMethod handlerMethod;
+
+        private Route(String interfaceName, Criteria criteria, HandlerMethod handlerMethod){
+            this.interfaceName = interfaceName;
+            this.criteria = criteria;
+            this.signature = criteria.getInputSignature();
+            this.type = criteria.getType();
+            this.handlerMethod = handlerMethod;
+        }
+    }
+}
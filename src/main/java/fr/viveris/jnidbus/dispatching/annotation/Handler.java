@@ -3,6 +3,8 @@
  */
 package fr.viveris.jnidbus.dispatching.annotation;
 
+import fr.viveris.jnidbus.dispatching.DispatchOrdering;
+
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
@@ -11,10 +13,16 @@ import java.lang.annotation.Target;
 /**
  * Annotation giving basic information about the handler object (path and interface). Multiple handlers can be registered
  * to the same path/interface as long as they implement different methods.
+ *
+ * By default the handler methods run on the event loop. The executor field can give the name of an executor registered
+ * with Dbus.registerExecutor() on which the methods will be run instead, the ordering field then tells which messages
+ * must be handled in order. Those values can be overridden by each HandlerMethod.
  */
 @Retention(RetentionPolicy.RUNTIME)
 @Target(ElementType.TYPE)
 public @interface Handler {
     String path();
     String interfaceName();
+    String executor() default "";
+    DispatchOrdering ordering() default DispatchOrdering.NONE;
 }
@@ -3,6 +3,7 @@
  */
 package fr.viveris.jnidbus.dispatching.annotation;
 
+import fr.viveris.jnidbus.dispatching.DispatchOrdering;
 import fr.viveris.jnidbus.dispatching.MemberType;
 
 import java.lang.annotation.ElementType;
@@ -13,10 +14,19 @@ import java.lang.annotation.Target;
 /**
  * Annotation exposing a @Handler class to DBus. The signature of the method will be inferred from its arguments and return type, which should only be Message classes or void
  * for the return type of a signal handler. A method can handle either calls or signals, depending upon the value of the field "type"
+ *
+ * If the executor field is not empty, the method is run on the named executor with the given ordering instead of the ones
+ * of its Handler annotation
+ *
+ * If the parameter of the method is a LazyMessage, the signature of the messages it handles can not be inferred and must
+ * be given by the signature field. This field must stay empty for the other methods
  */
 @Retention(RetentionPolicy.RUNTIME)
 @Target(ElementType.METHOD)
 public @interface HandlerMethod {
     String member();
     MemberType type();
+    String executor() default "";
+    DispatchOrdering ordering() default DispatchOrdering.NONE;
+    String signature() default "";
 }
@@ -10,6 +10,7 @@ import java.util.regex.Pattern;
  */
 public class DBusException extends Exception {
     public static final String METHOD_NOT_FOUND_CODE = "org.freedesktop.DBus.Error.UnknownMethod";
+    public static final String NO_REPLY_CODE = "org.freedesktop.DBus.Error.NoReply";
     public static final Pattern DBUS_ERROR_CODE_FORMAT = Pattern.compile("^[a-zA-z]+\\.([A-zA-Z]+.)*[a-zA-z]$");
 
     private String code;
@@ -0,0 +1,123 @@
+/* Copyright 2019, Viveris Technologies <opensource@toulouse.viveris.fr>
+ * Distributed under the terms of the Academic Free License.
+ */
+package fr.viveris.jnidbus.message;
+
+import fr.viveris.jnidbus.bindings.bus.EventLoop;
+import fr.viveris.jnidbus.exception.DBusException;
+import fr.viveris.jnidbus.serialization.DBusObject;
+import fr.viveris.jnidbus.serialization.Serializable;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * CompletableFuture completed by the JNI code when the reply of a call is received, it is returned by the remote methods
+ * declaring a CompletionStage or a CompletableFuture. The future is completed directly by the thread handling the reply,
+ * as a DBusPromise would be, so the dependent stages run on it unless they were given an executor. As for the DBusPromise,
+ * the expected value class must be given when instantiating the future. Cancelling the future cancels the call, the reply
+ * is then dropped by the native code
+ *
+ * @param <T> expected reply type
+ */
+public class DBusFuture<T extends Serializable> extends CompletableFuture<T> implements PendingReply {
+    @SuppressWarnings("rawtypes")
+    private static final AtomicLongFieldUpdater<DBusFuture> PENDING_CALL = AtomicLongFieldUpdater.newUpdater(DBusFuture.class,"pendingCall");
+
+    private final ReplyType<T> type;
+
+    /**
+     * Event loop which sent the call, set before the pending call
+     */
+    private EventLoop eventLoop;
+
+    /**
+     * Pointer to the native pending call context, 0 when not sent yet or already given back to the event loop
+     */
+    private volatile long pendingCall;
+
+    /**
+     * Create a new future expecting the given serializable type
+     *
+     * @param clazz expected reply type
+     */
+    public DBusFuture(Class<T> clazz){
+        this.type = new ReplyType<>(clazz);
+    }
+
+    /**
+     * Called by JNI code. The future will try to deserialize the DBusObject using the expected type and complete
+     * exceptionally if it is not possible
+     *
+     * @param object reply received
+     */
+    @Override
+    public void resolve(DBusObject object){
+        try {
+            this.complete(this.type.decode(object));
+        } catch (Exception e) {
+            this.completeExceptionally(new DBusException(e.getClass().getName(),e.getMessage()));
+        }
+        this.release();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void resolveBound(Serializable value){
+        this.complete((T) value);
+        this.release();
+    }
+
+    @Override
+    public long getBindingPlan(){
+        return this.type.getBindingPlan();
+    }
+
+    @Override
+    public boolean isInternStrings(){
+        return this.type.isInternStrings();
+    }
+
+    /**
+     * Complete the future exceptionally with a DBusException
+     *
+     * @param name name of the DBus error
+     * @param message message of the DBus error
+     */
+    @Override
+    public void fail(String name, String message){
+        this.completeExceptionally(new DBusException(name,message));
+        this.release();
+    }
+
+    @Override
+    public boolean attach(EventLoop eventLoop, long pendingCall){
+        this.eventLoop = eventLoop;
+        this.pendingCall = pendingCall;
+        //if the future was completed meanwhile, the pending call may have been missed, whoever takes it gives it back
+        return !(this.isDone() && PENDING_CALL.getAndSet(this,0) != 0);
+    }
+
+    /**
+     * Cancel the future and its call if it is still pending. The cancellation is processed by the event loop, which frees
+     * the native pending call and drops its reply if it did not arrive yet
+     *
+     * @param mayInterruptIfRunning ignored, as for any CompletableFuture
+     * @return true if the future was cancelled
+     */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning){
+        boolean cancelled = super.cancel(mayInterruptIfRunning);
+        long pointer = PENDING_CALL.getAndSet(this,0);
+        if(pointer != 0) this.eventLoop.cancelCall(pointer);
+        return cancelled;
+    }
+
+    /**
+     * Give the pending call back to the event loop once the reply was handled
+     */
+    private void release(){
+        long pointer = PENDING_CALL.getAndSet(this,0);
+        if(pointer != 0) this.eventLoop.releaseCall(pointer);
+    }
+}
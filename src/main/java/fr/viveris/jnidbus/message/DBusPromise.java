@@ -1,23 +1,40 @@
 package fr.viveris.jnidbus.message;
 
+import fr.viveris.jnidbus.bindings.bus.EventLoop;
 import fr.viveris.jnidbus.exception.DBusException;
 import fr.viveris.jnidbus.serialization.DBusObject;
 import fr.viveris.jnidbus.serialization.Serializable;
 
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
 /**
  * DBus promises are used by JNI code to notify the return af a call. Such promises must be instantiated with the expected
- * value class for performance purposes (reflection cal to determine promise type at runtime are expensive)
+ * value class for performance purposes (reflection cal to determine promise type at runtime are expensive). Cancelling
+ * the promise cancels the call, the reply is then dropped by the native code
  * @param <T>
  */
-public class DBusPromise<T extends Serializable> extends Promise<T> {
-    private Class<T> clazz;
+public class DBusPromise<T extends Serializable> extends Promise<T> implements PendingReply {
+    @SuppressWarnings("rawtypes")
+    private static final AtomicLongFieldUpdater<DBusPromise> PENDING_CALL = AtomicLongFieldUpdater.newUpdater(DBusPromise.class,"pendingCall");
+
+    private ReplyType<T> type;
+
+    /**
+     * Event loop which sent the call, set before the pending call
+     */
+    private EventLoop eventLoop;
+
+    /**
+     * Pointer to the native pending call context, 0 when not sent yet or already given back to the event loop
+     */
+    private volatile long pendingCall;
 
     /**
      * Create a new promise expecting the given serializable type
      * @param clazz
      */
     public DBusPromise(Class<T> clazz){
-        this.clazz = clazz;
+        this.type = new ReplyType<>(clazz);
     }
 
     /**
@@ -26,21 +43,31 @@ public class DBusPromise<T extends Serializable> extends Promise<T> {
      *
      * @param object
      */
-    private void resolve(DBusObject object){
+    @Override
+    public void resolve(DBusObject object){
         try {
-            T value;
-            //if the message is an EmptyMessage, don't deserialize and use the static instance
-            if(Message.EmptyMessage.class.equals(this.clazz)){
-                this.resolve((T) Message.EMPTY);
-            }else{
-                //retreive the cached entity and create a new instance of the return result
-                value = (T) Message.retrieveFromCache(this.clazz).newInstance();
-                value.deserialize(object);
-                this.resolve(value);
-            }
+            this.tryResolve(this.type.decode(object));
         } catch (Exception e) {
-            if(!this.isResolved()) this.fail(new DBusException(e.getClass().getName(),e.getMessage()));
+            this.tryFail(new DBusException(e.getClass().getName(),e.getMessage()));
         }
+        this.release();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void resolveBound(Serializable value){
+        this.tryResolve((T) value);
+        this.release();
+    }
+
+    @Override
+    public long getBindingPlan(){
+        return this.type.getBindingPlan();
+    }
+
+    @Override
+    public boolean isInternStrings(){
+        return this.type.isInternStrings();
     }
 
     /**
@@ -48,7 +75,39 @@ public class DBusPromise<T extends Serializable> extends Promise<T> {
      * @param name
      * @param message
      */
+    @Override
     public void fail(String name, String message){
-        if(!this.isResolved()) this.fail(new DBusException(name,message));
+        this.tryFail(new DBusException(name,message));
+        this.release();
+    }
+
+    @Override
+    public boolean attach(EventLoop eventLoop, long pendingCall){
+        this.eventLoop = eventLoop;
+        this.pendingCall = pendingCall;
+        //if the promise was completed meanwhile, the pending call may have been missed, whoever takes it gives it back
+        return !(this.isResolved() && PENDING_CALL.getAndSet(this,0) != 0);
+    }
+
+    /**
+     * Cancel the promise and its call if it is still pending. The cancellation is processed by the event loop, which frees
+     * the native pending call and drops its reply if it did not arrive yet
+     *
+     * @return true if the promise was cancelled, false if it already had a result
+     */
+    @Override
+    public boolean cancel(){
+        boolean cancelled = super.cancel();
+        long pointer = PENDING_CALL.getAndSet(this,0);
+        if(pointer != 0) this.eventLoop.cancelCall(pointer);
+        return cancelled;
+    }
+
+    /**
+     * Give the pending call back to the event loop once the reply was handled
+     */
+    private void release(){
+        long pointer = PENDING_CALL.getAndSet(this,0);
+        if(pointer != 0) this.eventLoop.releaseCall(pointer);
     }
 }
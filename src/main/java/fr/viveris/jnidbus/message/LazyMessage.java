@@ -0,0 +1,323 @@
+/* Copyright 2019, Viveris Technologies <opensource@toulouse.viveris.fr>
+ * Distributed under the terms of the Academic Free License.
+ */
+package fr.viveris.jnidbus.message;
+
+import fr.viveris.jnidbus.serialization.DBusObject;
+import fr.viveris.jnidbus.serialization.Serializable;
+import fr.viveris.jnidbus.serialization.signature.Signature;
+import fr.viveris.jnidbus.serialization.signature.SignatureElement;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+
+/**
+ * View on a received DBus message which decodes its values only when they are accessed. A handler method taking a
+ * LazyMessage parameter receives the native message as is, which avoids deserializing the values it does not read. The
+ * signature of such handler method must be given in its HandlerMethod annotation.
+ *
+ * The values are returned in their pre-serialized form, as in a DBusObject: boxed primitives, strings, Java primitive
+ * arrays for the fixed size types, Object arrays for the others and DBusObject for the structs. A struct value can also be
+ * deserialized into its message class. The elements of big arrays can be read one by one with an iterator or streamed
+ * with a spliterator, without decoding the whole array.
+ *
+ * The view keeps a reference to the native message, which is released when the view is closed. The dispatcher closes the
+ * view when the handler method returns, so the view and its iterators must not be used after that.
+ */
+public final class LazyMessage implements Serializable, Closeable {
+    /**
+     * Pointer to the native context, used to create the JVM objects
+     */
+    private final long contextPointer;
+
+    /**
+     * Pointer to the referenced DBusMessage, 0 once released
+     */
+    private long messagePointer;
+
+    private final String signature;
+
+    /**
+     * Signature of each value of the message
+     */
+    private final List<SignatureElement> elements = new ArrayList<>();
+
+    /**
+     * Iterators not finished yet, closed with the view
+     */
+    private final List<ArrayIterator<?>> iterators = new ArrayList<>();
+
+    /**
+     * Create a view on a native message, called when a message is dispatched to a handler method taking a LazyMessage
+     *
+     * @param contextPointer pointer to the native context
+     * @param messagePointer pointer to the native message, the view takes ownership of its reference
+     * @param signature signature of the message
+     */
+    public LazyMessage(long contextPointer, long messagePointer, String signature){
+        this.contextPointer = contextPointer;
+        this.messagePointer = messagePointer;
+        this.signature = signature;
+        for(SignatureElement element : new Signature(signature)){
+            this.elements.add(element);
+        }
+    }
+
+    public String getSignature(){
+        return this.signature;
+    }
+
+    /**
+     * @return number of values of the message
+     */
+    public int size(){
+        return this.elements.size();
+    }
+
+    /**
+     * Decode the value at the given index
+     *
+     * @param index index of the value in the signature
+     * @return the pre-serialized value
+     */
+    public synchronized Object get(int index){
+        this.checkIndex(index);
+        return decode(this.contextPointer,this.checkOpen(),index);
+    }
+
+    public String getString(int index){
+        return (String) this.get(index);
+    }
+
+    public int getInt(int index){
+        return (Integer) this.get(index);
+    }
+
+    public long getLong(int index){
+        return (Long) this.get(index);
+    }
+
+    public boolean getBoolean(int index){
+        return (Boolean) this.get(index);
+    }
+
+    public double getDouble(int index){
+        return (Double) this.get(index);
+    }
+
+    /**
+     * Decode the struct at the given index into a new instance of its message class
+     *
+     * @param index index of the value in the signature
+     * @param type message class of the struct
+     * @return the deserialized value
+     * @throws fr.viveris.jnidbus.exception.MessageSignatureMismatchException if the class does not match the struct
+     */
+    public <T extends Serializable> T get(int index, Class<T> type) throws Exception {
+        SignatureElement element = this.checkIndex(index);
+        return toMessage(element.getSignatureString(),(DBusObject) this.get(index),type);
+    }
+
+    /**
+     * Iterate over the elements of the array at the given index, each element is decoded when returned by the iterator
+     *
+     * @param index index of the array in the signature
+     * @return an iterator over the pre-serialized elements
+     */
+    public Iterator<Object> iterate(int index){
+        return this.openIterator(index,null);
+    }
+
+    /**
+     * Iterate over the structs of the array at the given index, each struct is decoded and deserialized into its message
+     * class when returned by the iterator
+     *
+     * @param index index of the array in the signature
+     * @param type message class of the structs
+     * @return an iterator over the deserialized structs
+     */
+    public <T extends Serializable> Iterator<T> iterate(int index, Class<T> type){
+        return this.openIterator(index,type);
+    }
+
+    /**
+     * Spliterator over the elements of the array at the given index, to be given to StreamSupport.stream(). Its size is
+     * read from the native array and each element is decoded when consumed
+     *
+     * @param index index of the array in the signature
+     * @return an ordered and sized spliterator over the pre-serialized elements
+     */
+    public Spliterator<Object> spliterator(int index){
+        return this.openSpliterator(index,null);
+    }
+
+    /**
+     * Spliterator over the structs of the array at the given index, each struct is decoded and deserialized into its
+     * message class when consumed
+     *
+     * @param index index of the array in the signature
+     * @param type message class of the structs
+     * @return an ordered and sized spliterator over the deserialized structs
+     */
+    public <T extends Serializable> Spliterator<T> spliterator(int index, Class<T> type){
+        return this.openSpliterator(index,type);
+    }
+
+    /**
+     * Release the native message and the iterators not finished, does nothing if the view is already closed
+     */
+    @Override
+    public synchronized void close(){
+        if(this.messagePointer == 0) return;
+        for(ArrayIterator<?> iterator : this.iterators){
+            iterator.release();
+        }
+        this.iterators.clear();
+        release(this.messagePointer);
+        this.messagePointer = 0;
+    }
+
+    /**
+     * A lazy message can not be sent, only read
+     */
+    @Override
+    public DBusObject serialize() {
+        throw new UnsupportedOperationException("A LazyMessage can not be serialized");
+    }
+
+    /**
+     * A lazy message is only created from a native message
+     */
+    @Override
+    public void deserialize(DBusObject obj) {
+        throw new UnsupportedOperationException("A LazyMessage can not be deserialized");
+    }
+
+    private synchronized <T> ArrayIterator<T> openIterator(int index, Class<? extends Serializable> type){
+        SignatureElement element = this.checkIndex(index);
+        if(!element.isArray()) throw new IllegalArgumentException("The value "+index+" is not an array");
+        long iterator = openIterator(this.contextPointer,this.checkOpen(),index);
+        ArrayIterator<T> returned = new ArrayIterator<>(iterator,element.getSignature().getFirst().getSignatureString(),type);
+        if(!returned.finished) this.iterators.add(returned);
+        return returned;
+    }
+
+    private synchronized <T> Spliterator<T> openSpliterator(int index, Class<? extends Serializable> type){
+        ArrayIterator<T> iterator = this.openIterator(index,type);
+        int length = arrayLength(this.messagePointer,index);
+        return Spliterators.spliterator(iterator,length,Spliterator.ORDERED | Spliterator.NONNULL);
+    }
+
+    private SignatureElement checkIndex(int index){
+        if(index < 0 || index >= this.elements.size()){
+            throw new IndexOutOfBoundsException("The message "+this.signature+" has no value at the index "+index);
+        }
+        return this.elements.get(index);
+    }
+
+    private long checkOpen(){
+        if(this.messagePointer == 0) throw new IllegalStateException("The LazyMessage is closed");
+        return this.messagePointer;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends Serializable> T toMessage(String signature, DBusObject value, Class<T> type) throws Exception {
+        //as for the native deserialization, the signature of the struct is set by the JVM side
+        T message = (T) Message.retrieveFromCache(type).newInstance();
+        message.deserialize(new DBusObject(signature,value.getValues()));
+        return message;
+    }
+
+    /**
+     * Iterator reading the elements of an array from a native message iterator. The native iterator is freed when the
+     * last element is read or when the view is closed
+     */
+    private final class ArrayIterator<T> implements Iterator<T> {
+        private long pointer;
+        private final String elementSignature;
+        private final Class<? extends Serializable> type;
+        private boolean finished;
+
+        private ArrayIterator(long pointer, String elementSignature, Class<? extends Serializable> type){
+            this.pointer = pointer;
+            this.elementSignature = elementSignature;
+            this.type = type;
+            this.finished = !iteratorHasNext(pointer);
+            if(this.finished) this.release();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !this.finished;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T next() {
+            synchronized (LazyMessage.this){
+                if(this.finished) throw new NoSuchElementException();
+                checkOpen();
+                Object value = iteratorNext(LazyMessage.this.contextPointer,this.pointer);
+                if(!iteratorHasNext(this.pointer)){
+                    this.finished = true;
+                    this.release();
+                    LazyMessage.this.iterators.remove(this);
+                }
+                if(this.type == null) return (T) value;
+                try {
+                    return (T) toMessage(this.elementSignature,(DBusObject) value,this.type);
+                } catch (Exception e) {
+                    throw new IllegalStateException("Could not deserialize the array element: "+e.toString(),e);
+                }
+            }
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        private void release(){
+            if(this.pointer == 0) return;
+            closeIterator(this.pointer);
+            this.pointer = 0;
+            this.finished = true;
+        }
+    }
+
+    /**
+     * Decode the value at the given index of the message
+     */
+    private static native Object decode(long contextPtr, long msgPointer, int index);
+
+    /**
+     * Create a native iterator positioned on the first element of the array at the given index
+     *
+     * @return pointer to the native iterator
+     */
+    private static native long openIterator(long contextPtr, long msgPointer, int index);
+
+    /**
+     * Count the elements of the array at the given index of the message
+     */
+    private static native int arrayLength(long msgPointer, int index);
+
+    private static native boolean iteratorHasNext(long iteratorPointer);
+
+    /**
+     * Decode the current element of the native iterator and move to the next one
+     */
+    private static native Object iteratorNext(long contextPtr, long iteratorPointer);
+
+    private static native void closeIterator(long iteratorPointer);
+
+    /**
+     * Release the reference of the view on the native message
+     */
+    private static native void release(long msgPointer);
+}
@@ -4,6 +4,7 @@
 package fr.viveris.jnidbus.message;
 
 import fr.viveris.jnidbus.cache.Cache;
+import fr.viveris.jnidbus.cache.FieldAccessor;
 import fr.viveris.jnidbus.cache.MessageMetadata;
 import fr.viveris.jnidbus.exception.MessageSignatureMismatchException;
 import fr.viveris.jnidbus.exception.SerializationException;
@@ -12,13 +13,11 @@ import fr.viveris.jnidbus.serialization.DBusType;
 import fr.viveris.jnidbus.serialization.Serializable;
 import fr.viveris.jnidbus.serialization.serializers.Serializer;
 
-import java.lang.reflect.Method;
-
 /**
  * Represent anything that can be sent to dbus. The serialization process uses a lot of Reflection, which would slow
  * JNIDBus down. In order to prevent that, Messages metadata are cached when first used, those metadata contain a list
- * of Serializer objects bound to each fields. Those Serializer use Reflection only at instantiation time for better
- * performances.
+ * of Serializer and FieldAccessor objects bound to each fields. Those objects use Reflection only at instantiation time
+ * for better performances.
  *
  * An extending class serializable fields should only be:
  *      -A string
@@ -48,15 +47,13 @@ public abstract class Message implements Serializable {
 
         //set the array length at the number of field and iterate on them
         Object[] values = new Object[messageMetadata.getFields().length];
-        int i = 0;
-        for(String fieldName : messageMetadata.getFields()){
+        for(int i = 0; i < values.length; i++){
             try{
-                //retrieve the getter from the cache, execute it and serialize its output
-                Method getter = messageMetadata.getGetter(fieldName);
-                Object returnValue = getter.invoke(this);
+                //retrieve the accessor from the cache, execute it and serialize its output
+                Object returnValue = messageMetadata.getAccessor(i).get(this);
                 if(returnValue == null) throw new SerializationException("A DBus value can not be nullable");
 
-                values[i++] = messageMetadata.getFieldSerializer(fieldName).serialize(returnValue);
+                values[i] = messageMetadata.getSerializer(i).serialize(returnValue);
             }catch (Exception e){
                 throw new SerializationException("An exception was raised during serialization "+e.toString(),e);
             }
@@ -76,18 +73,14 @@ public abstract class Message implements Serializable {
             throw new MessageSignatureMismatchException("Signature mismatch, expected "+ messageMetadata.getSignature()+" but got "+obj.getSignature());
         }
 
-        //iterate on the values/fields
-        int i = 0;
-        for(Object value : obj.getValues()){
-            //get the field name for the current signature element
-            String fieldName = messageMetadata.getFields()[i++];
-
+        //iterate on the values/fields, the values are in the same order as the fields
+        Object[] values = obj.getValues();
+        for(int i = 0; i < values.length; i++){
             try{
-                //retrieve the setter from the cache and execute it with the deserialized output
-                Method setter = messageMetadata.getSetter(fieldName);
-                Serializer serializer = messageMetadata.getFieldSerializer(fieldName);
-                Object deserialized = serializer.deserialize(value);
-                setter.invoke(this,deserialized);
+                //retrieve the accessor from the cache and execute it with the deserialized output
+                FieldAccessor accessor = messageMetadata.getAccessor(i);
+                Serializer serializer = messageMetadata.getSerializer(i);
+                accessor.set(this,serializer.deserialize(values[i]));
             }catch (Exception e){
                 throw new SerializationException("An exception was raised during deserialization",e);
             }
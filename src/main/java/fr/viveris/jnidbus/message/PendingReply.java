@@ -0,0 +1,78 @@
+/* Copyright 2019, Viveris Technologies <opensource@toulouse.viveris.fr>
+ * Distributed under the terms of the Academic Free License.
+ */
+package fr.viveris.jnidbus.message;
+
+import fr.viveris.jnidbus.bindings.bus.EventLoop;
+import fr.viveris.jnidbus.message.eventloop.RequestCallback;
+import fr.viveris.jnidbus.serialization.DBusObject;
+import fr.viveris.jnidbus.serialization.Serializable;
+
+/**
+ * Receiver of the reply of a remote call, notified by the JNI code when the reply or the error is received. The DBusPromise
+ * and the DBusFuture both implement it, which lets the native code complete either of them directly without any adapter.
+ *
+ * A pending reply is also the callback of its call request, it fails when the call could not be sent, so sending a call
+ * does not need any other object. Once sent, the event loop attaches the native pending call to the reply, which gives
+ * it back when completed or cancelled so the native resources of the call are released.
+ *
+ * Warning for maintainers: the methods of this interface are called by JNI code, be careful when modifying them
+ */
+public interface PendingReply extends RequestCallback {
+    /**
+     * Called by JNI code. The reply will be deserialized using the expected type, the receiver fails if it is not
+     * possible
+     *
+     * @param object reply received
+     */
+    void resolve(DBusObject object);
+
+    /**
+     * Called by JNI code when the native code bound the reply directly to the expected type
+     *
+     * @param value reply bound by the native code
+     */
+    void resolveBound(Serializable value);
+
+    /**
+     * Called by JNI code to know if the reply can be bound directly to the expected type
+     *
+     * @return pointer to the native binding plan of the expected type, 0 if the reply must be deserialized
+     */
+    long getBindingPlan();
+
+    /**
+     * Called by JNI code to know if the strings of the reply should be interned
+     *
+     * @return true if the expected type asks for its strings to be interned
+     */
+    boolean isInternStrings();
+
+    /**
+     * Fail with a DBusException, does nothing if the receiver is already completed
+     *
+     * @param name name of the DBus error
+     * @param message message of the DBus error
+     */
+    void fail(String name, String message);
+
+    /**
+     * Called by the event loop once the call is sent, with the native context of its pending call. The receiver must give
+     * it back with EventLoop.releaseCall() once completed by the JNI code, or with EventLoop.cancelCall() when cancelled
+     *
+     * @param eventLoop event loop which sent the call
+     * @param pendingCall pointer to the native pending call context
+     * @return false if the receiver was completed before, the event loop then cancels the call itself
+     */
+    boolean attach(EventLoop eventLoop, long pendingCall);
+
+    /**
+     * Called when the call was processed by the event loop, fail if it could not be sent
+     *
+     * @param e exception raised while sending the call, null if it was sent
+     */
+    @Override
+    default void call(Exception e){
+        if(e != null) this.fail(e.getClass().getName(),"The call could not be sent");
+    }
+}
@@ -3,50 +3,44 @@
  */
 package fr.viveris.jnidbus.message;
 
-import fr.viveris.jnidbus.bindings.bus.EventLoop;
-import fr.viveris.jnidbus.exception.DBusException;
-import fr.viveris.jnidbus.message.eventloop.sending.ErrorReplySendingRequest;
-import fr.viveris.jnidbus.message.eventloop.sending.ReplySendingRequest;
 import fr.viveris.jnidbus.serialization.Serializable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
 
 /**
- * Non-blocking implementation of a promise, the thread safety is assured by AtomicReference and a spin-wait loop.
- * You can specify the callback execution thread by specifying the Executor parameter when binding the callback
+ * Non-blocking implementation of a promise. You can specify the callback execution thread by specifying the Executor
+ * parameter when binding the callback, several callbacks can be bound to the same promise so its result can be shared.
+ * The threads which need the result right away can also wait for it with get(), they are parked until the promise is
+ * resolved.
  *
- * As this implementation is lock-free, the internal state is controlled by an AtomicReference on the PromiseState enum
- * which contains the finite list of state the promise can be in, as there can be a data race when both the value and the callback
- * are set at the same time, a spin-wait loop is used to do an active-waiting for a couple of CPU cycle and prevent any race
+ * The whole state of the promise is held by a single field updated by compare-and-set: null while the promise is empty,
+ * the stack of the callbacks and waiting threads while no result is set, then the value or a Failure holding the
+ * exception. Resolving a promise does not allocate anything and each callback only costs one node.
  *
  * @param <T> value type expected to be passed to the callback
  */
 public class Promise<T> {
+    private static final Logger LOG = LoggerFactory.getLogger(Promise.class);
+
     //Executor used by default, execute the runnable on the current thread
     private static final Executor NOOP_EXECUTOR = new NoOpExecutor();
 
-    //all the different states our promise can be in
-    private enum PromiseState{
-        EMPTY,
-        VALUE_BUT_NO_CALLBACK,
-        EXCEPTION_BUT_NO_CALLBACK,
-        CALLBACK_BUT_NO_VALUE_OR_EXCEPTION,
-        RESOLVED_WITH_VALUE,
-        RESOLVED_WITH_EXCEPTION
-    }
-
-    //current promise state
-    private AtomicReference<PromiseState> state = new AtomicReference<PromiseState>(PromiseState.EMPTY);
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<Promise,Object> STATE = AtomicReferenceFieldUpdater.newUpdater(Promise.class,Object.class,"state");
 
-    //promise values
-    private AtomicReference<Callback<T>> callback = new AtomicReference<Callback<T>>();
-    private AtomicReference<T> value = new AtomicReference<T>();
-    private AtomicReference<Exception> exception = new AtomicReference<Exception>();
-    private AtomicReference<Executor> executor = new AtomicReference<Executor>();
+    /**
+     * null when empty, a Listener while waiting for the result, a Failure if failed, the value if resolved
+     */
+    private volatile Object state;
 
     /**
      * Create a new empty promise that can be resolved at any time
@@ -71,61 +65,53 @@ public class Promise<T> {
 
     /**
      * Resolve the promise and set it to the given value, if the promise is already resolved or failed, an exception will
-     * be thrown. If a callback is already set, dispatch its execution
+     * be thrown. The callbacks already set are dispatched and the waiting threads are woken up
      * @param value
      */
     public void resolve(T value){
-        if(value == null) throw new IllegalArgumentException("Null exception");
-        if(this.state.get() == PromiseState.VALUE_BUT_NO_CALLBACK) throw new IllegalStateException("The promise already contains a value");
-        if(this.state.get() == PromiseState.RESOLVED_WITH_VALUE || this.state.get() == PromiseState.RESOLVED_WITH_EXCEPTION) throw new IllegalStateException("Promise already resolved");
-        if(this.state.get() == PromiseState.EXCEPTION_BUT_NO_CALLBACK) throw new IllegalStateException("Promise already failed");
-
-        else if(this.state.compareAndSet(PromiseState.EMPTY,PromiseState.VALUE_BUT_NO_CALLBACK)){
-            this.value.set(value);
-        }else if(this.state.compareAndSet(PromiseState.CALLBACK_BUT_NO_VALUE_OR_EXCEPTION,PromiseState.RESOLVED_WITH_VALUE)){
-            this.value.set(value);
-            this.executeCallback(this.waitForValue(this.callback),value, null);
-        }
+        if(value == null) throw new IllegalArgumentException("Null value");
+        this.complete(value);
     }
 
     /**
      * Fail the promise and set the exception to the given value, if the promise is already resolved or failed, an exception will
-     * be thrown. If a callback is already set, dispatch its execution
+     * be thrown. The callbacks already set are dispatched and the waiting threads are woken up
      * @param e
      */
     public void fail(Exception e){
         if(e == null) throw new IllegalArgumentException("Null exception");
-        if(this.state.get() == PromiseState.EXCEPTION_BUT_NO_CALLBACK) throw new IllegalStateException("The promise already contains an exception");
-        if(this.state.get() == PromiseState.RESOLVED_WITH_VALUE || this.state.get() == PromiseState.RESOLVED_WITH_EXCEPTION) throw new IllegalStateException("Promise already resolved");
-        if(this.state.get() == PromiseState.VALUE_BUT_NO_CALLBACK) throw new IllegalStateException("Promise already contain value");
-
-        else if(this.state.compareAndSet(PromiseState.EMPTY,PromiseState.EXCEPTION_BUT_NO_CALLBACK)){
-            this.exception.set(e);
-        }else if(this.state.compareAndSet(PromiseState.CALLBACK_BUT_NO_VALUE_OR_EXCEPTION,PromiseState.RESOLVED_WITH_EXCEPTION)){
-            this.exception.set(e);
-            this.executeCallback(this.waitForValue(this.callback),null, e);
-        }
+        this.complete(new Failure(e));
     }
 
     /**
-     * set the promise callback, the callback will be called when either a value or an exception is set in the promise,
-     * the callback will be executed in the given Executor
+     * Cancel the promise by failing it with a CancellationException, if it is not resolved yet. The callbacks already
+     * set are dispatched and the waiting threads are woken up. A DBusPromise also cancels its call so the native resources
+     * it holds are released right away and the reply is dropped
+     *
+     * @return true if the promise was cancelled, false if it already had a result
+     */
+    public boolean cancel(){
+        return this.tryFail(new CancellationException("The promise was cancelled"));
+    }
+
+    /**
+     * Add a callback to the promise, the callback will be called when either a value or an exception is set in the
+     * promise, or right away if the promise is already resolved. The callback will be executed in the given Executor
      * @param executor executor the callback will be dispatched to
      * @param callback callback to execute
      */
     public void then(Executor executor, Callback<T> callback){
-        if(!this.callback.compareAndSet(null,callback)) {
-            throw new IllegalStateException("Callback already bound");
-        }else if(this.state.compareAndSet(PromiseState.EMPTY,PromiseState.CALLBACK_BUT_NO_VALUE_OR_EXCEPTION)){
-            this.executor.set(executor);
-
-        }else if(this.state.compareAndSet(PromiseState.VALUE_BUT_NO_CALLBACK,PromiseState.RESOLVED_WITH_VALUE)){
-            this.executor.set(executor);
-            this.executeCallback(callback,this.waitForValue(this.value),null);
-
-        }else if(this.state.compareAndSet(PromiseState.EXCEPTION_BUT_NO_CALLBACK,PromiseState.RESOLVED_WITH_EXCEPTION)){
-            this.executor.set(executor);
-            this.executeCallback(callback,null, this.waitForValue(this.exception));
+        if(callback == null) throw new IllegalArgumentException("Null callback");
+        Listener node = null;
+        for(;;){
+            Object current = this.state;
+            if(isResult(current)){
+                this.execute(executor,callback,current);
+                return;
+            }
+            if(node == null) node = new Listener(executor,callback,null);
+            node.next = (Listener) current;
+            if(STATE.compareAndSet(this,current,node)) return;
         }
     }
 
@@ -152,7 +138,10 @@ public class Promise<T> {
         this.then(executor,new Callback<T>() {
             @Override
             public void value(T value, Exception exc) {
-                if(exc != null) returned.fail(exc);
+                if(exc != null){
+                    returned.fail(exc);
+                    return;
+                }
                 try{
                     returned.resolve(callable.value(value));
                 }catch (Exception e){
@@ -176,40 +165,31 @@ public class Promise<T> {
 
 
     /**
-     * When dealing with non-blocking primitives, you sometime need to wait for values for just a couple of CPU cycles.
-     * This method will loop over the reference until it is set to a non-null value. Use this method when you know that
-     * the reference will be set to a non-null value shortly.
+     * Wait for the promise to be resolved and return its value, the thread is parked while waiting
      *
-     * @param ref
-     * @param <A>
-     * @return
+     * @return the value of the promise
+     * @throws InterruptedException if the thread is interrupted while waiting
+     * @throws Exception the exception of the promise if it failed
      */
-    private <A> A waitForValue(AtomicReference<A> ref){
-        A returned = null;
-        while (returned == null){
-            returned = ref.get();
-            //if the value is not here yet, yield the Thread to consume less CPU cycles and wait for it.
-            //when migrating to Java 8, use Thread.onSpinWait() which uses x86-specific instruction to further optimise
-            //the loop
-            if(returned == null) Thread.yield();
-        }
-
-        return returned;
+    public T get() throws Exception {
+        return this.unwrap(this.await(false,0));
     }
 
     /**
-     * Execute the callback in the given executor
-     * @param callback
-     * @param value
-     * @param e
+     * Wait for the promise to be resolved for at most the given time and return its value, the thread is parked while
+     * waiting
+     *
+     * @param timeout maximum time to wait
+     * @param unit unit of the timeout
+     * @return the value of the promise
+     * @throws TimeoutException if the promise was not resolved in time
+     * @throws InterruptedException if the thread is interrupted while waiting
+     * @throws Exception the exception of the promise if it failed
      */
-    private void executeCallback(final Callback<T> callback, final T value, final Exception e){
-        this.waitForValue(this.executor).execute(new Runnable() {
-            @Override
-            public void run() {
-                callback.value(value,e);
-            }
-        });
+    public T get(long timeout, TimeUnit unit) throws Exception {
+        Object result = this.await(true,unit.toNanos(timeout));
+        if(result == null) throw new TimeoutException("The promise was not resolved in time");
+        return this.unwrap(result);
     }
 
     /**
@@ -217,7 +197,15 @@ public class Promise<T> {
      * @return
      */
     public boolean isFailed(){
-        return this.state.get() == PromiseState.EXCEPTION_BUT_NO_CALLBACK || this.state.get() == PromiseState.RESOLVED_WITH_EXCEPTION;
+        return this.state instanceof Failure;
+    }
+
+    /**
+     * Return true if the promise was cancelled
+     * @return
+     */
+    public boolean isCancelled(){
+        return this.getException() instanceof CancellationException;
     }
 
     /**
@@ -225,7 +213,8 @@ public class Promise<T> {
      * @return
      */
     public boolean hasValue(){
-        return this.state.get() == PromiseState.VALUE_BUT_NO_CALLBACK || this.state.get() == PromiseState.RESOLVED_WITH_VALUE;
+        Object current = this.state;
+        return isResult(current) && !(current instanceof Failure);
     }
 
     /**
@@ -233,18 +222,17 @@ public class Promise<T> {
      * @return
      */
     public boolean isResolved(){
-        return this.hasValue() || this.isFailed();
+        return isResult(this.state);
     }
 
     /**
      * Get the value for this promise if hasValue() returns true, else return null
      * @return
      */
+    @SuppressWarnings("unchecked")
     public T getValue(){
-        if(this.hasValue()){
-            return this.waitForValue(this.value);
-        }
-        else return null;
+        Object current = this.state;
+        return isResult(current) && !(current instanceof Failure) ? (T) current : null;
     }
 
     /**
@@ -252,10 +240,186 @@ public class Promise<T> {
      * @return
      */
     public Exception getException(){
-        if(this.isFailed()){
-            return this.waitForValue(this.exception);
+        Object current = this.state;
+        return current instanceof Failure ? ((Failure) current).exception : null;
+    }
+
+    /**
+     * Resolve the promise if it has no result yet, used when the promise may have been cancelled concurrently
+     *
+     * @param value value of the promise
+     * @return true if the promise was resolved by this call
+     */
+    boolean tryResolve(T value){
+        if(value == null) throw new IllegalArgumentException("Null value");
+        return this.tryComplete(value);
+    }
+
+    /**
+     * Fail the promise if it has no result yet, used when the promise may have been cancelled concurrently
+     *
+     * @param e exception of the promise
+     * @return true if the promise was failed by this call
+     */
+    boolean tryFail(Exception e){
+        if(e == null) throw new IllegalArgumentException("Null exception");
+        return this.tryComplete(new Failure(e));
+    }
+
+    /**
+     * Set the result of the promise and notify the listeners stacked until now
+     *
+     * @param result the value or a Failure
+     */
+    private void complete(Object result){
+        if(!this.tryComplete(result)){
+            throw new IllegalStateException(this.state instanceof Failure ? "Promise already failed" : "Promise already resolved");
+        }
+    }
+
+    /**
+     * Set the result of the promise if it has none and notify the listeners stacked until now
+     *
+     * @param result the value or a Failure
+     * @return false if the promise already had a result
+     */
+    private boolean tryComplete(Object result){
+        for(;;){
+            Object current = this.state;
+            if(isResult(current)) return false;
+            if(STATE.compareAndSet(this,current,result)){
+                if(current != null) this.notifyListeners((Listener) current,result);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Run the callbacks and wake up the threads of the listeners, in the order they were added
+     */
+    @SuppressWarnings("unchecked")
+    private void notifyListeners(Listener stack, Object result){
+        Listener head = null;
+        while(stack != null){
+            Listener next = stack.next;
+            stack.next = head;
+            head = stack;
+            stack = next;
+        }
+
+        for(Listener listener = head; listener != null; listener = listener.next){
+            if(listener.callback == null){
+                Thread waiter = listener.waiter;
+                if(waiter != null) LockSupport.unpark(waiter);
+                continue;
+            }
+            //a failing callback must not prevent the others from being called
+            try{
+                this.execute(listener.executor,(Callback<T>) listener.callback,result);
+            }catch (RuntimeException e){
+                LOG.error("A promise callback threw an exception",e);
+            }
+        }
+    }
+
+    /**
+     * Stack a listener for the current thread and park it until the promise is resolved
+     *
+     * @param timed should the wait be limited to the given time
+     * @param nanos maximum time to wait
+     * @return the result of the promise, or null if the time elapsed
+     */
+    private Object await(boolean timed, long nanos) throws InterruptedException {
+        Object current = this.state;
+        if(isResult(current)) return current;
+
+        long deadline = timed ? System.nanoTime() + nanos : 0;
+        Listener node = new Listener(null,null,Thread.currentThread());
+        for(;;){
+            current = this.state;
+            if(isResult(current)) return current;
+            node.next = (Listener) current;
+            if(STATE.compareAndSet(this,current,node)) break;
+        }
+
+        //the node is not removed from the stack when giving up, it is only cleared so the thread is not woken up later
+        for(;;){
+            current = this.state;
+            if(isResult(current)) return current;
+            if(Thread.interrupted()){
+                node.waiter = null;
+                throw new InterruptedException();
+            }
+            if(timed){
+                long remaining = deadline - System.nanoTime();
+                if(remaining <= 0){
+                    node.waiter = null;
+                    return null;
+                }
+                LockSupport.parkNanos(this,remaining);
+            }else{
+                LockSupport.park(this);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private T unwrap(Object result) throws Exception {
+        if(result instanceof Failure) throw ((Failure) result).exception;
+        return (T) result;
+    }
+
+    /**
+     * Execute the callback in the given executor, the default executor calls it right away
+     */
+    @SuppressWarnings("unchecked")
+    private void execute(Executor executor, final Callback<T> callback, Object result){
+        final T value = result instanceof Failure ? null : (T) result;
+        final Exception e = result instanceof Failure ? ((Failure) result).exception : null;
+        if(executor == NOOP_EXECUTOR){
+            callback.value(value,e);
+        }else{
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    callback.value(value,e);
+                }
+            });
+        }
+    }
+
+    /**
+     * @return true if the given state is a value or a failure
+     */
+    private static boolean isResult(Object state){
+        return state != null && !(state instanceof Listener);
+    }
+
+    /**
+     * Exception of a failed promise
+     */
+    private static final class Failure {
+        private final Exception exception;
+
+        private Failure(Exception exception){
+            this.exception = exception;
+        }
+    }
+
+    /**
+     * Callback or waiting thread stacked while the promise has no result, only one of them is set
+     */
+    private static final class Listener {
+        private final Executor executor;
+        private final Callback<?> callback;
+        private volatile Thread waiter;
+        private Listener next;
+
+        private Listener(Executor executor, Callback<?> callback, Thread waiter){
+            this.executor = executor;
+            this.callback = callback;
+            this.waiter = waiter;
         }
-        else return null;
     }
 
     /**
@@ -0,0 +1,54 @@
+/* Copyright 2019, Viveris Technologies <opensource@toulouse.viveris.fr>
+ * Distributed under the terms of the Academic Free License.
+ */
+package fr.viveris.jnidbus.message;
+
+import fr.viveris.jnidbus.cache.BindingPlan;
+import fr.viveris.jnidbus.serialization.DBusObject;
+import fr.viveris.jnidbus.serialization.Serializable;
+
+/**
+ * Expected type of a reply, shared by the PendingReply implementations to decode the reply the same way
+ *
+ * @param <T> expected reply type
+ */
+final class ReplyType<T extends Serializable> {
+    private final Class<T> clazz;
+
+    ReplyType(Class<T> clazz){
+        this.clazz = clazz;
+    }
+
+    /**
+     * Deserialize the reply into a new instance of the expected type
+     *
+     * @param object reply received
+     * @return the deserialized value
+     * @throws Exception if the reply does not match the expected type
+     */
+    @SuppressWarnings("unchecked")
+    T decode(DBusObject object) throws Exception {
+        //if the message is an EmptyMessage, don't deserialize and use the static instance
+        if(Message.EmptyMessage.class.equals(this.clazz)) return (T) Message.EMPTY;
+
+        //retrieve the cached entity and create a new instance of the return result
+        T value = (T) Message.retrieveFromCache(this.clazz).newInstance();
+        value.deserialize(object);
+        return value;
+    }
+
+    long getBindingPlan(){
+        if(Message.EmptyMessage.class.equals(this.clazz)) return 0;
+        BindingPlan plan = Message.retrieveFromCache(this.clazz).getBindingPlan();
+        return plan == null ? 0 : plan.getPointer();
+    }
+
+    boolean isInternStrings(){
+        try{
+            return Message.retrieveFromCache(this.clazz).isInternStrings();
+        }catch (Exception e){
+            //an invalid expected type is reported when the reply is deserialized
+            return false;
+        }
+    }
+}
@@ -17,14 +17,20 @@ public class CallSendingRequest<T extends Serializable> extends AbstractSendingR
     private String interfaceName;
     private String member;
     private String dest;
+    private int timeout;
     private DBusPromise<T> promise;
 
     public CallSendingRequest(DBusObject message, String path, String interfaceName, String member, String dest, DBusPromise<T> promise, RequestCallback callback) {
+        this(message,path,interfaceName,member,dest,-1,promise,callback);
+    }
+
+    public CallSendingRequest(DBusObject message, String path, String interfaceName, String member, String dest, int timeout, DBusPromise<T> promise, RequestCallback callback) {
         super(message,callback);
         this.path = path;
         this.interfaceName = interfaceName;
         this.member = member;
         this.dest = dest;
+        this.timeout = timeout;
         this.promise = promise;
     }
 
@@ -44,6 +50,10 @@ public class CallSendingRequest<T extends Serializable> extends AbstractSendingR
         return dest;
     }
 
+    public int getTimeout() {
+        return timeout;
+    }
+
     public DBusPromise<T> getPromise() {
         return promise;
     }
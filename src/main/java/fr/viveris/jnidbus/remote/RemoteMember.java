@@ -9,10 +9,18 @@ import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
 /**
- * Mark a method or a class as a member of a remote interface.
+ * Mark a method or a class as a member of a remote interface. A method returning void is one-way: the call is flagged as
+ * not expecting a reply, so the called object does not send one and no pending call is kept for it.
  */
 @Retention(RetentionPolicy.RUNTIME)
 @Target({ElementType.METHOD,ElementType.TYPE})
 public @interface RemoteMember {
     String value();
+
+    /**
+     * Timeout of the call in milliseconds, when it expires the returned Promise fails with the standard
+     * org.freedesktop.DBus.Error.NoReply error. -1 means the DBus default timeout is used (usually 25 seconds).
+     * This value is ignored for signals and one-way methods.
+     */
+    int timeout() default -1;
 }
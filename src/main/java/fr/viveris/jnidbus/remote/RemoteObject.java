@@ -0,0 +1,73 @@
+/* Copyright 2019, Viveris Technologies <opensource@toulouse.viveris.fr>
+ * Distributed under the terms of the Academic Free License.
+ */
+package fr.viveris.jnidbus.remote;
+
+import fr.viveris.jnidbus.bindings.bus.EventLoop;
+import fr.viveris.jnidbus.message.DBusFuture;
+import fr.viveris.jnidbus.message.DBusPromise;
+import fr.viveris.jnidbus.message.PendingReply;
+import fr.viveris.jnidbus.message.Promise;
+import fr.viveris.jnidbus.serialization.Serializable;
+
+/**
+ * Base class of the remote objects generated by the jnidbus-processor. The generated methods give their member, timeout
+ * and expected reply type as constants, the call is then sent straight to the event loop without any lookup nor
+ * reflection.
+ */
+public abstract class RemoteObject {
+    private final String destinationBus;
+    private final String objectPath;
+    private final String interfaceName;
+    private final EventLoop eventLoop;
+
+    protected RemoteObject(String destinationBus, String objectPath, String interfaceName, EventLoop eventLoop){
+        this.destinationBus = destinationBus;
+        this.objectPath = objectPath;
+        this.interfaceName = interfaceName;
+        this.eventLoop = eventLoop;
+    }
+
+    /**
+     * Call a member of the remote object
+     *
+     * @param member member to call
+     * @param timeout timeout of the call in milliseconds, -1 to use the DBus default
+     * @param msg parameter of the call, Message.EMPTY if the method has none
+     * @param outputClass expected reply type
+     * @return a promise resolved with the reply
+     */
+    protected final <T extends Serializable> Promise<T> call(String member, int timeout, Serializable msg, Class<T> outputClass){
+        DBusPromise<T> promise = new DBusPromise<>(outputClass);
+        this.send(member,timeout,msg,promise);
+        return promise;
+    }
+
+    /**
+     * Same as call(String, int, Serializable, Class) for the methods returning a CompletionStage
+     *
+     * @return a future completed with the reply
+     */
+    protected final <T extends Serializable> DBusFuture<T> callFuture(String member, int timeout, Serializable msg, Class<T> outputClass){
+        DBusFuture<T> future = new DBusFuture<>(outputClass);
+        this.send(member,timeout,msg,future);
+        return future;
+    }
+
+    /**
+     * Call a one-way member of the remote object, the call is sent without expecting a reply
+     *
+     * @param member member to call
+     * @param timeout timeout of the call in milliseconds, unused as there is no reply
+     * @param msg parameter of the call, Message.EMPTY if the method has none
+     */
+    protected final void send(String member, int timeout, Serializable msg){
+        this.eventLoop.sendCall(this.objectPath,this.interfaceName,member,msg.serialize(),this.destinationBus,timeout,null,null);
+    }
+
+    private void send(String member, int timeout, Serializable msg, PendingReply reply){
+        //the pending reply is also the request callback, it fails if the call could not be sent
+        this.eventLoop.sendCall(this.objectPath,this.interfaceName,member,msg.serialize(),this.destinationBus,timeout,reply,reply);
+    }
+
+}
@@ -0,0 +1,26 @@
+/* Copyright 2019, Viveris Technologies <opensource@toulouse.viveris.fr>
+ * Distributed under the terms of the Academic Free License.
+ */
+package fr.viveris.jnidbus.remote;
+
+import fr.viveris.jnidbus.bindings.bus.EventLoop;
+
+/**
+ * Implemented by the classes the jnidbus-processor generates for each RemoteInterface. The generated class must be in the
+ * same package as the interface, be named after its binary name followed by SUFFIX and have a public empty constructor.
+ *
+ * The remote interfaces without a generated factory are implemented by a java.lang.reflect.Proxy.
+ */
+public interface RemoteObjectFactory {
+    String SUFFIX = "$$DBusRemote";
+
+    /**
+     * Create an implementation of the remote interface sending its calls to the given remote object
+     *
+     * @param destinationBus bus name on which the remote object is reachable
+     * @param objectPath object path on the bus
+     * @param eventLoop event loop on which the calls are sent
+     * @return the remote object, implementing the remote interface
+     */
+    Object create(String destinationBus, String objectPath, EventLoop eventLoop);
+}
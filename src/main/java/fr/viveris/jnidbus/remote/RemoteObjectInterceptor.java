@@ -8,14 +8,15 @@ import fr.viveris.jnidbus.cache.Cache;
 import fr.viveris.jnidbus.cache.RemoteObjectMetadata;
 import fr.viveris.jnidbus.cache.SignalMetadata;
 import fr.viveris.jnidbus.exception.RemoteObjectCheckException;
+import fr.viveris.jnidbus.message.DBusFuture;
 import fr.viveris.jnidbus.message.DBusPromise;
 import fr.viveris.jnidbus.message.Message;
-import fr.viveris.jnidbus.message.Promise;
-import fr.viveris.jnidbus.message.eventloop.RequestCallback;
-import fr.viveris.jnidbus.message.eventloop.sending.CallSendingRequest;
+import fr.viveris.jnidbus.message.PendingReply;
 
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
 
 public class RemoteObjectInterceptor implements InvocationHandler {
 
@@ -33,6 +34,12 @@ public class RemoteObjectInterceptor implements InvocationHandler {
 
     private EventLoop eventLoop;
 
+    /**
+     * Metadata of the methods of the interface, filled by the constructor and only read afterwards so a call does not go
+     * through the concurrent cache
+     */
+    private final Map<Method, RemoteObjectMetadata> methods = new HashMap<>();
+
     /**
      * Create an interceptor for the given interface, it will check all the methods of the interface and cache them for
      * later use
@@ -54,7 +61,7 @@ public class RemoteObjectInterceptor implements InvocationHandler {
         //check class
         for(Method m : remoteObjectClass.getDeclaredMethods()){
             //check method and put in cache
-            RemoteObjectInterceptor.getFromCache(m);
+            this.methods.put(m,RemoteObjectInterceptor.getFromCache(m));
         }
     }
 
@@ -69,31 +76,41 @@ public class RemoteObjectInterceptor implements InvocationHandler {
             msg = (Message) objects[0];
         }
 
-        //get metadata from cache
-        RemoteObjectMetadata meta = RemoteObjectInterceptor.getFromCache(method);
+        //get metadata from the methods of the interface, the inherited methods are looked up in the cache
+        RemoteObjectMetadata meta = this.methods.get(method);
+        if(meta == null) meta = RemoteObjectInterceptor.getFromCache(method);
 
-        //create a wildcard Promise, this wont fail as the method was checked and return the correct type
-        final DBusPromise promise = new DBusPromise(meta.getOutputMetadata().getMessageClass());
+        //a one-way call is sent without promise, the called object will not reply and no pending call is kept
+        if(meta.isNoReply()){
+            this.eventLoop.sendCall(this.objectPath,this.interfaceName,meta.getMember(),msg.serialize(),this.destinationBus,meta.getTimeout(),null,null);
+            return null;
+        }
+
+        //create a wildcard Promise or future, this wont fail as the method was checked and return the correct type. The
+        //future is completed by the native code the same way as the promise, without bridging one to the other
+        PendingReply promise;
+        if(meta.isFuture()){
+            promise = new DBusFuture(meta.getOutputMetadata().getMessageClass());
+        }else{
+            promise = new DBusPromise(meta.getOutputMetadata().getMessageClass());
+        }
 
-        //send call and return the Promise, set the request callback to fail the Promise if the sending failed
-        this.eventLoop.send(new CallSendingRequest(msg.serialize(),
-                this.objectPath,
+        //send call and return the Promise, the Promise is also the request callback and fails if the sending failed
+        this.eventLoop.sendCall(this.objectPath,
                 this.interfaceName,
                 meta.getMember(),
+                msg.serialize(),
                 this.destinationBus,
+                meta.getTimeout(),
                 promise,
-                new RequestCallback() {
-                    @Override
-                    public void call(Exception e) {
-                        if(e != null) promise.fail(e.getClass().getName(),"The call could not be sent");
-                    }
-                }));
+                promise);
 
         return promise;
     }
 
     private static RemoteObjectMetadata getFromCache(Method method){
-        if (METHOD_CACHE.getCachedEntity(method) != null) return METHOD_CACHE.getCachedEntity(method);
+        RemoteObjectMetadata cached = METHOD_CACHE.getCachedEntity(method);
+        if (cached != null) return cached;
 
         //the method is not in cache, build the cache entity, add it and return
         try {
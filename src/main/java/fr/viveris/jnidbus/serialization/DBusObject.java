@@ -11,7 +11,7 @@ package fr.viveris.jnidbus.serialization;
  * all the message data. nested objects are represented as nested DBusObject, arrays are represented as standard arrays,
  * which can be boxed or unboxed, their signature are inferred byt eh parent DBusObject signature. Finally, Maps are
  * represented as arrays of DBusObject containing only two value with their signature set to the one of a dict_entries
- * (ex: {si})
+ * (ex: {si}). The arrays of strings and the maps of strings can also be given as PackedStrings
  *
  * When serialized, each DBusObject contain the correct DBus signature, when unserializing, only the root object contains
  * the correct signature. This due to libdbus limitations, the correct signature will eb applied during the process using
@@ -17,10 +17,15 @@ import java.lang.annotation.Target;
  *
  *     if your object contains a list of integer in the field "myList", the annotation should be:
  *          DBusType(signature="ai",fields={"myList"}).
+ *
+ * When the strings of the type take their values in a small set (names, states, map keys...), internStrings can be set
+ * so the native code reuses the same JVM strings instead of creating new ones for each received message. The hint
+ * applies to the whole body of the messages decoded as this type, nested objects included.
  */
 @Retention(RetentionPolicy.RUNTIME)
 @Target(ElementType.TYPE)
 public @interface DBusType {
     String signature();
     String[] fields();
+    boolean internStrings() default false;
 }
@@ -0,0 +1,156 @@
+/* Copyright 2019, Viveris Technologies <opensource@toulouse.viveris.fr>
+ * Distributed under the terms of the Academic Free License.
+ */
+package fr.viveris.jnidbus.serialization;
+
+import java.nio.charset.Charset;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Intermediate representation of the string arrays (as) and of the string to string dictionaries (a{ss}), used instead
+ * of an Object array of strings. All the strings are encoded in UTF-8 one after the other in a single byte array, each
+ * one followed by a zero byte, and their start is given by an offsets array. The native code transfers the whole array
+ * with a few JNI calls, instead of creating or reading each string through the JNI, and the strings are decoded or
+ * encoded by the JVM in a plain loop. For the dictionaries, the key and the value of each entry follow each other.
+ *
+ * Warning for maintainers: this object is used by JNI code and its properties are accessed directly, be careful when
+ * modifying it
+ */
+public final class PackedStrings {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * UTF-8 bytes of the strings, each string is followed by a zero byte
+     */
+    private final byte[] bytes;
+
+    /**
+     * Start of each string in the bytes, followed by the length of the bytes
+     */
+    private final int[] offsets;
+
+    public PackedStrings(byte[] bytes, int[] offsets){
+        this.bytes = bytes;
+        this.offsets = offsets;
+    }
+
+    /**
+     * Pack the strings of the given array
+     *
+     * @param values strings to pack
+     * @return the packed strings
+     */
+    public static PackedStrings pack(Object[] values){
+        Packer packer = new Packer(values.length);
+        for(Object value : values) packer.add((String) value);
+        return packer.finish();
+    }
+
+    /**
+     * Pack the strings of the given collection, in its iteration order
+     *
+     * @param values strings to pack
+     * @return the packed strings
+     */
+    public static PackedStrings pack(Collection<?> values){
+        Packer packer = new Packer(values.size());
+        for(Object value : values) packer.add((String) value);
+        return packer.finish();
+    }
+
+    /**
+     * Pack the entries of the given map, the key of each entry is followed by its value
+     *
+     * @param map map of strings to pack
+     * @return the packed strings
+     */
+    public static PackedStrings packEntries(Map<?,?> map){
+        Packer packer = new Packer(map.size() * 2);
+        for(Map.Entry<?,?> entry : map.entrySet()){
+            packer.add((String) entry.getKey());
+            packer.add((String) entry.getValue());
+        }
+        return packer.finish();
+    }
+
+    /**
+     * @return number of packed strings
+     */
+    public int size(){
+        return this.offsets.length - 1;
+    }
+
+    /**
+     * @return offset of the UTF-8 bytes of the string at the given index
+     */
+    public int getOffset(int index){
+        return this.offsets[index];
+    }
+
+    /**
+     * @return length of the UTF-8 bytes of the string at the given index, without the zero byte
+     */
+    public int getLength(int index){
+        return this.offsets[index + 1] - this.offsets[index] - 1;
+    }
+
+    public byte[] getBytes(){
+        return this.bytes;
+    }
+
+    /**
+     * Decode the string at the given index
+     */
+    public String get(int index){
+        return new String(this.bytes,this.offsets[index],this.getLength(index),UTF_8);
+    }
+
+    /**
+     * Decode all the strings
+     *
+     * @return a new array containing the strings
+     */
+    public String[] toArray(){
+        String[] strings = new String[this.size()];
+        for(int i = 0; i < strings.length; i++){
+            strings[i] = new String(this.bytes,this.offsets[i],this.offsets[i + 1] - this.offsets[i] - 1,UTF_8);
+        }
+        return strings;
+    }
+
+    /**
+     * Growing buffer in which the strings are encoded one after the other
+     */
+    private static final class Packer {
+        private byte[] bytes;
+        private final int[] offsets;
+        private int length = 0;
+        private int count = 0;
+
+        private Packer(int count){
+            this.offsets = new int[count + 1];
+            //most of the strings are short names or paths
+            this.bytes = new byte[Math.max(16,count * 16)];
+        }
+
+        private void add(String value){
+            byte[] encoded = value.getBytes(UTF_8);
+            int required = this.length + encoded.length + 1;
+            if(required > this.bytes.length){
+                byte[] grown = new byte[Math.max(required,this.bytes.length * 2)];
+                System.arraycopy(this.bytes,0,grown,0,this.length);
+                this.bytes = grown;
+            }
+            this.offsets[this.count++] = this.length;
+            System.arraycopy(encoded,0,this.bytes,this.length,encoded.length);
+            this.bytes[required - 1] = 0;
+            this.length = required;
+        }
+
+        private PackedStrings finish(){
+            this.offsets[this.count] = this.length;
+            return new PackedStrings(this.bytes,this.offsets);
+        }
+    }
+}
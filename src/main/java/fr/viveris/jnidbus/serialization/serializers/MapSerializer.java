@@ -3,6 +3,7 @@ package fr.viveris.jnidbus.serialization.serializers;
 import fr.viveris.jnidbus.exception.MessageCheckException;
 import fr.viveris.jnidbus.exception.MessageSignatureMismatchException;
 import fr.viveris.jnidbus.serialization.DBusObject;
+import fr.viveris.jnidbus.serialization.PackedStrings;
 import fr.viveris.jnidbus.serialization.Serializable;
 import fr.viveris.jnidbus.serialization.signature.Signature;
 import fr.viveris.jnidbus.serialization.signature.SignatureElement;
@@ -21,6 +22,8 @@ public class MapSerializer extends Serializer {
     private Serializer valueSerializer;
     private Signature entrySignature;
 
+    //are the keys and values plain strings, in which case the map is transferred as packed strings
+    private boolean isPackedStrings;
 
     public MapSerializer(Type genericType, SignatureElement signature, Class managedClass, String managedFieldName) throws MessageCheckException {
         super(signature, managedClass, managedFieldName);
@@ -65,6 +68,9 @@ public class MapSerializer extends Serializer {
                 throw new MessageCheckException("The given map values are generic but should be primitive", managedClass,managedFieldName);
             }
             this.valueSerializer = new PrimitiveSerializer((Class) valueType,valueSignature,managedClass,managedFieldName);
+            this.isPackedStrings = String.class.equals(keyClass) && String.class.equals(valueType)
+                    && this.entrySignature.getFirst().getPrimitive() == SupportedTypes.STRING
+                    && valueSignature.getPrimitive() == SupportedTypes.STRING;
         }else if(valueSignature.getContainerType() == SupportedTypes.ARRAY){
             if(valueSignature.getPrimitive() != null){
                 this.valueSerializer = new PrimitiveArraySerializer(valueType,valueSignature,managedClass,managedFieldName);
@@ -82,6 +88,8 @@ public class MapSerializer extends Serializer {
     @Override
     public Object serialize(Object value) {
         Map<?,?> map = (Map) value;
+        if(this.isPackedStrings) return PackedStrings.packEntries(map);
+
         DBusObject[] entries = new DBusObject[map.size()];
         int i = 0;
         for(Map.Entry entry : map.entrySet()){
@@ -95,8 +103,16 @@ public class MapSerializer extends Serializer {
 
     @Override
     public Object deserialize(Object value) throws MessageSignatureMismatchException {
-        Object[] entries = (Object[]) value;
         Map map = new HashMap<>();
+        if(value instanceof PackedStrings){
+            String[] strings = ((PackedStrings) value).toArray();
+            for(int i = 0; i < strings.length; i += 2){
+                map.put(this.keySerializer.deserialize(strings[i]),this.valueSerializer.deserialize(strings[i + 1]));
+            }
+            return map;
+        }
+
+        Object[] entries = (Object[]) value;
         for(Object obj : entries){
             Object[] pair = ((DBusObject)obj).getValues();
             map.put(this.keySerializer.deserialize(pair[0]),this.valueSerializer.deserialize(pair[1]));
@@ -2,6 +2,7 @@ package fr.viveris.jnidbus.serialization.serializers;
 
 import fr.viveris.jnidbus.exception.MessageCheckException;
 import fr.viveris.jnidbus.exception.MessageSignatureMismatchException;
+import fr.viveris.jnidbus.serialization.PackedStrings;
 import fr.viveris.jnidbus.serialization.signature.SignatureElement;
 import fr.viveris.jnidbus.serialization.signature.SupportedTypes;
 import fr.viveris.jnidbus.types.ObjectPath;
@@ -9,10 +10,19 @@ import fr.viveris.jnidbus.types.ObjectPath;
 import java.lang.reflect.Array;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.ShortBuffer;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.RandomAccess;
 
 public class PrimitiveArraySerializer extends Serializer {
     private boolean isPrimitiveArray;
@@ -24,6 +34,12 @@ public class PrimitiveArraySerializer extends Serializer {
     //used for enum arrays
     private Serializer primitiveSerializer;
 
+    //is the field a NIO buffer
+    private boolean isBuffer;
+
+    //is the field an array of strings, transferred as packed strings
+    private boolean isPackedStrings;
+
     public PrimitiveArraySerializer(Type genericType, SignatureElement signature, Class managedClass, String managedFieldName) throws MessageCheckException {
         super(signature, managedClass, managedFieldName);
 
@@ -37,6 +53,17 @@ public class PrimitiveArraySerializer extends Serializer {
         this.isPrimitiveArray = !List.class.isAssignableFrom(rawType);
         this.expectedArrayType = rawType;
 
+        //NIO buffers are only supported for the fixed size types they can contain
+        if(Buffer.class.isAssignableFrom(rawType)){
+            this.isBuffer = true;
+            SupportedTypes bufferType = bufferDBusType(rawType);
+            if(bufferType == null || bufferType != signature.getPrimitive()){
+                throw new MessageCheckException("A buffer must be a ByteBuffer, ShortBuffer, IntBuffer, LongBuffer or DoubleBuffer matching the type of the array elements",managedClass,managedFieldName);
+            }
+            this.expectedValueType = bufferType.getPrimitiveType();
+            return;
+        }
+
         if(this.isPrimitiveArray && !rawType.isArray()){
             throw new MessageCheckException("An array must be a Java primitive array or a List",managedClass,managedFieldName);
         }
@@ -59,10 +86,17 @@ public class PrimitiveArraySerializer extends Serializer {
 
         this.primitiveSerializer = new PrimitiveSerializer(this.expectedValueType,signature.getSignature().getFirst(),managedClass,managedFieldName);
         this.isBoxedArray = this.expectedValueType != null && Object.class.isAssignableFrom(this.expectedValueType);
+        this.isPackedStrings = signature.getPrimitive() == SupportedTypes.STRING && String.class.equals(this.expectedValueType);
     }
 
     @Override
     public Object serialize(Object value){
+        if(this.isBuffer) return serializeBuffer((Buffer) value);
+        if(this.isPackedStrings){
+            if(this.isPrimitiveArray) return PackedStrings.pack((Object[]) value);
+            else return PackedStrings.pack((List) value);
+        }
+
         //primitive arrays do not need any processing as they contain only primitive DBus values
         if(this.useSerializer){
             Object[] returned;
@@ -90,6 +124,21 @@ public class PrimitiveArraySerializer extends Serializer {
 
     @Override
     public Object deserialize(Object value) throws MessageSignatureMismatchException {
+        if(this.isBuffer) return this.deserializeBuffer(value);
+
+        //the strings are decoded in one loop, the created array is used as is when possible
+        if(value instanceof PackedStrings){
+            String[] strings = ((PackedStrings) value).toArray();
+            if(this.isPackedStrings){
+                if(this.isPrimitiveArray) return strings;
+                else return strings.length == 0 ? Collections.emptyList() : Arrays.asList(strings);
+            }
+            value = strings;
+        }
+
+        //arrays of fixed size DBus types are received as Java primitive arrays, the others as Object arrays
+        if(value != null && !(value instanceof Object[])) return this.deserializePrimitive(value);
+
         Object[] values = (Object[]) value;
 
         if(this.isPrimitiveArray) {
@@ -118,4 +167,147 @@ public class PrimitiveArraySerializer extends Serializer {
             else return Arrays.asList(values);
         }
     }
+
+    /**
+     * Deserialize an array received as a Java primitive array. If the field has the same type the array is used as is,
+     * else its values are boxed or converted one by one.
+     *
+     * @param value received primitive array
+     * @return the field value
+     * @throws MessageSignatureMismatchException
+     */
+    private Object deserializePrimitive(Object value) throws MessageSignatureMismatchException {
+        int length = Array.getLength(value);
+
+        if(this.isPrimitiveArray){
+            //the array was created for this message, no need to copy it
+            if(this.expectedArrayType.isInstance(value)) return value;
+
+            Object array = Array.newInstance(this.expectedValueType,length);
+            for(int i = 0; i < length; i++){
+                Array.set(array,i,this.primitiveSerializer.deserialize(Array.get(value,i)));
+            }
+            return array;
+        }else{
+            if(length == 0) return Collections.emptyList();
+            else if(this.useSerializer){
+                List returned = new ArrayList(length);
+                for(int i = 0; i < length; i++){
+                    returned.add(this.primitiveSerializer.deserialize(Array.get(value,i)));
+                }
+                return returned;
+            }
+            else return new PrimitiveArrayList(value);
+        }
+    }
+
+    /**
+     * @return the DBus type of the values of the given buffer class, null if the buffer class is not supported
+     */
+    private static SupportedTypes bufferDBusType(Class<?> bufferClass){
+        if(ByteBuffer.class.isAssignableFrom(bufferClass)) return SupportedTypes.BYTE;
+        if(ShortBuffer.class.isAssignableFrom(bufferClass)) return SupportedTypes.SHORT;
+        if(IntBuffer.class.isAssignableFrom(bufferClass)) return SupportedTypes.INTEGER;
+        if(LongBuffer.class.isAssignableFrom(bufferClass)) return SupportedTypes.LONG;
+        if(DoubleBuffer.class.isAssignableFrom(bufferClass)) return SupportedTypes.DOUBLE;
+        return null;
+    }
+
+    /**
+     * Serialize the remaining values of a buffer. A direct buffer in the native order is given as a slice to the native
+     * code, which hands its memory to libdbus. A heap buffer covering its whole array gives its array, the native code
+     * will pin it. The other buffers are copied into a Java primitive array
+     *
+     * @param value buffer to serialize, its position is not modified
+     * @return a direct buffer slice or a Java primitive array
+     */
+    private static Object serializeBuffer(Buffer value){
+        if(value.isDirect()){
+            if(value instanceof ByteBuffer) return ((ByteBuffer) value).slice();
+            if(value instanceof ShortBuffer && ((ShortBuffer) value).order() == ByteOrder.nativeOrder()) return ((ShortBuffer) value).slice();
+            if(value instanceof IntBuffer && ((IntBuffer) value).order() == ByteOrder.nativeOrder()) return ((IntBuffer) value).slice();
+            if(value instanceof LongBuffer && ((LongBuffer) value).order() == ByteOrder.nativeOrder()) return ((LongBuffer) value).slice();
+            if(value instanceof DoubleBuffer && ((DoubleBuffer) value).order() == ByteOrder.nativeOrder()) return ((DoubleBuffer) value).slice();
+        }else if(value.hasArray() && value.arrayOffset() == 0 && value.position() == 0 && value.limit() == Array.getLength(value.array())){
+            return value.array();
+        }
+
+        if(value instanceof ByteBuffer){
+            byte[] array = new byte[value.remaining()];
+            ((ByteBuffer) value).duplicate().get(array);
+            return array;
+        }else if(value instanceof ShortBuffer){
+            short[] array = new short[value.remaining()];
+            ((ShortBuffer) value).duplicate().get(array);
+            return array;
+        }else if(value instanceof IntBuffer){
+            int[] array = new int[value.remaining()];
+            ((IntBuffer) value).duplicate().get(array);
+            return array;
+        }else if(value instanceof LongBuffer){
+            long[] array = new long[value.remaining()];
+            ((LongBuffer) value).duplicate().get(array);
+            return array;
+        }else{
+            double[] array = new double[value.remaining()];
+            ((DoubleBuffer) value).duplicate().get(array);
+            return array;
+        }
+    }
+
+    /**
+     * Wrap the received array in a buffer. The array was created for this message, so the buffer uses it without copying
+     * it again
+     *
+     * @param value received array
+     * @return a heap buffer over the array
+     */
+    private Object deserializeBuffer(Object value){
+        //arrays are received as Object arrays when the native code could not read them in one shot
+        if(value instanceof Object[]){
+            Object[] values = (Object[]) value;
+            Object array = Array.newInstance(this.expectedValueType,values.length);
+            for(int i = 0; i < values.length; i++){
+                Array.set(array,i,values[i]);
+            }
+            value = array;
+        }
+
+        if(value instanceof byte[]) return ByteBuffer.wrap((byte[]) value);
+        if(value instanceof short[]) return ShortBuffer.wrap((short[]) value);
+        if(value instanceof int[]) return IntBuffer.wrap((int[]) value);
+        if(value instanceof long[]) return LongBuffer.wrap((long[]) value);
+        return DoubleBuffer.wrap((double[]) value);
+    }
+
+    /**
+     * Fixed size List backed by a Java primitive array, the values are only boxed when read. Like the list returned by
+     * Arrays.asList(), its values can be replaced but it can not be resized.
+     */
+    private static class PrimitiveArrayList extends AbstractList<Object> implements RandomAccess {
+        private final Object array;
+        private final int length;
+
+        PrimitiveArrayList(Object array){
+            this.array = array;
+            this.length = Array.getLength(array);
+        }
+
+        @Override
+        public Object get(int index) {
+            return Array.get(this.array,index);
+        }
+
+        @Override
+        public Object set(int index, Object element) {
+            Object previous = Array.get(this.array,index);
+            Array.set(this.array,index,element);
+            return previous;
+        }
+
+        @Override
+        public int size() {
+            return this.length;
+        }
+    }
 }
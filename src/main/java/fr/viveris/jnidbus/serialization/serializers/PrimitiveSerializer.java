@@ -5,9 +5,11 @@ import fr.viveris.jnidbus.exception.MessageSignatureMismatchException;
 import fr.viveris.jnidbus.serialization.serializers.primitives.BasicTypesSerializer;
 import fr.viveris.jnidbus.serialization.serializers.primitives.EnumSerializer;
 import fr.viveris.jnidbus.serialization.serializers.primitives.ObjectPathSerializer;
+import fr.viveris.jnidbus.serialization.serializers.primitives.UnixFDSerializer;
 import fr.viveris.jnidbus.serialization.signature.SignatureElement;
 import fr.viveris.jnidbus.serialization.signature.SupportedTypes;
 import fr.viveris.jnidbus.types.ObjectPath;
+import fr.viveris.jnidbus.types.UnixFD;
 
 import java.lang.annotation.ElementType;
 
@@ -15,7 +17,7 @@ import java.lang.annotation.ElementType;
  * The PrimitiveSerializer doesn't do much beside checking the expected type of value
  */
 public class PrimitiveSerializer extends Serializer {
-    private static final Class<?>[] NON_BASIC_TYPES = {Enum.class, ObjectPath.class};
+    private static final Class<?>[] NON_BASIC_TYPES = {Enum.class, ObjectPath.class, UnixFD.class};
 
     private Serializer nestedSerializer;
 
@@ -25,6 +27,8 @@ public class PrimitiveSerializer extends Serializer {
             this.nestedSerializer = new EnumSerializer(expectedType,signatureElement,managedClass,managedFieldName);
         }else if(signatureElement.getPrimitive() == SupportedTypes.OBJ_PATH){
             this.nestedSerializer = new ObjectPathSerializer(expectedType,signatureElement,managedClass,managedFieldName);
+        }else if(signatureElement.getPrimitive() == SupportedTypes.UNIX_FD){
+            this.nestedSerializer = new UnixFDSerializer(expectedType,signatureElement,managedClass,managedFieldName);
         }else {
             this.nestedSerializer = new BasicTypesSerializer(expectedType,signatureElement,managedClass,managedFieldName);
         }
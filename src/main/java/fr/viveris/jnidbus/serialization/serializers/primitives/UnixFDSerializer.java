@@ -0,0 +1,35 @@
+package fr.viveris.jnidbus.serialization.serializers.primitives;
+
+import fr.viveris.jnidbus.exception.MessageCheckException;
+import fr.viveris.jnidbus.exception.MessageSignatureMismatchException;
+import fr.viveris.jnidbus.serialization.serializers.Serializer;
+import fr.viveris.jnidbus.serialization.signature.SignatureElement;
+import fr.viveris.jnidbus.types.SharedBuffer;
+import fr.viveris.jnidbus.types.UnixFD;
+
+/**
+ * The descriptors are given to the native code as their int value, a received descriptor is wrapped in a UnixFD or in a
+ * SharedBuffer depending on the field type
+ */
+public class UnixFDSerializer extends Serializer {
+    private boolean shared;
+
+    public UnixFDSerializer(Class<?> expectedType, SignatureElement signatureElement, Class managedClass, String managedFieldName) throws MessageCheckException {
+        super(signatureElement,managedClass,managedFieldName );
+        if(!UnixFD.class.equals(expectedType) && !SharedBuffer.class.equals(expectedType)){
+            throw new MessageCheckException("The field type should be UnixFD or SharedBuffer",this.managedClass,this.managedFieldName);
+        }
+        this.shared = SharedBuffer.class.equals(expectedType);
+    }
+
+    @Override
+    public Object serialize(Object value) {
+        return ((UnixFD)value).getFd();
+    }
+
+    @Override
+    public Object deserialize(Object value) throws MessageSignatureMismatchException {
+        int fd = (Integer) value;
+        return this.shared ? new SharedBuffer(fd) : new UnixFD(fd);
+    }
+}
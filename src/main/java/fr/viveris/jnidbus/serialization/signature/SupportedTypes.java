@@ -4,6 +4,7 @@
 package fr.viveris.jnidbus.serialization.signature;
 
 import fr.viveris.jnidbus.types.ObjectPath;
+import fr.viveris.jnidbus.types.UnixFD;
 
 import java.lang.reflect.Array;
 
@@ -19,6 +20,7 @@ public enum SupportedTypes {
     SHORT('n',Short.TYPE,Short.class),
     LONG('x',Long.TYPE,Long.class),
     DOUBLE('d',Double.TYPE,Double.class),
+    UNIX_FD('h',UnixFD.class,UnixFD.class),
     ARRAY('a',null,null),
     OBJECT_BEGIN('(',null,null),
     OBJECT_END(')',null,null),
@@ -64,6 +66,7 @@ public enum SupportedTypes {
             case 'n': return SHORT;
             case 'x': return LONG;
             case 'd': return DOUBLE;
+            case 'h': return UNIX_FD;
             case 'a': return ARRAY;
             case '(': return OBJECT_BEGIN;
             case ')': return OBJECT_END;
@@ -0,0 +1,176 @@
+/* Copyright 2019, Viveris Technologies <opensource@toulouse.viveris.fr>
+ * Distributed under the terms of the Academic Free License.
+ */
+package fr.viveris.jnidbus.serialization.wire;
+
+import fr.viveris.jnidbus.serialization.DBusObject;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+import static fr.viveris.jnidbus.serialization.wire.WireFormat.*;
+
+/**
+ * Read the body of a DBus message in wire format into a DBusObject. The native code gives the message marshalled by
+ * libdbus in a direct buffer, which avoids going through the JNI for each value of the message.
+ *
+ * The produced DBusObject has the same shape as the one created by the native deserialization: only the root object
+ * has its signature set, fixed size arrays are Java primitive arrays and the other arrays are Object arrays.
+ */
+public final class WireDecoder {
+
+    private WireDecoder(){}
+
+    /**
+     * Decode the body of the message contained in the buffer, the message must start at the index 0 of the buffer
+     *
+     * @param buffer marshalled message
+     * @return the body of the message
+     */
+    public static DBusObject decode(ByteBuffer buffer){
+        buffer.order(buffer.get(0) == LITTLE_ENDIAN ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+
+        //look for the signature in the header fields, the other ones are already known by the caller
+        int fieldsLength = buffer.getInt(FIXED_HEADER_SIZE);
+        int fieldsEnd = FIXED_HEADER_SIZE + 4 + fieldsLength;
+        buffer.position(FIXED_HEADER_SIZE + 4);
+        String signature = "";
+        while(buffer.position() < fieldsEnd){
+            align(buffer, 8);
+            byte code = buffer.get();
+            String type = readSignature(buffer);
+            if(code == FIELD_SIGNATURE){
+                signature = readSignature(buffer);
+            }else{
+                readValue(buffer, type, 0);
+            }
+        }
+
+        //the body always starts on an 8 bytes boundary
+        buffer.position(fieldsEnd);
+        align(buffer, 8);
+        return new DBusObject(signature, readValues(buffer, signature, 0, signature.length()));
+    }
+
+    /**
+     * Read the values of the complete types between the two indexes of the signature
+     */
+    private static Object[] readValues(ByteBuffer buffer, String signature, int start, int end){
+        List<Object> values = new ArrayList<>();
+        int index = start;
+        while(index < end){
+            values.add(readValue(buffer, signature, index));
+            index = skipType(signature, index);
+        }
+        return values.toArray();
+    }
+
+    private static Object readValue(ByteBuffer buffer, String signature, int index){
+        char type = signature.charAt(index);
+        align(buffer, alignment(type));
+        switch (type){
+            case 'y': return buffer.get();
+            case 'b': return buffer.getInt() != 0;
+            case 'n': case 'q': return buffer.getShort();
+            case 'i': case 'u': return buffer.getInt();
+            case 'x': case 't': return buffer.getLong();
+            case 'd': return buffer.getDouble();
+            case 's':
+            case 'o':
+                return readString(buffer);
+            case 'g':
+                return readSignature(buffer);
+            case 'a':
+                return readArray(buffer, signature, index + 1);
+            case '(':
+            case '{':
+                //as for the native deserialization, the signature of child objects is set by the JVM side
+                int end = skipType(signature, index) - 1;
+                return new DBusObject("", readValues(buffer, signature, index + 1, end));
+            default:
+                throw new IllegalStateException("Unsupported type detected : "+type);
+        }
+    }
+
+    private static Object readArray(ByteBuffer buffer, String signature, int elementIndex){
+        int length = buffer.getInt();
+        char elementType = signature.charAt(elementIndex);
+        //the padding of the first element is present even if the array is empty
+        align(buffer, alignment(elementType));
+        int end = buffer.position() + length;
+
+        switch (elementType){
+            case 'y':
+            {
+                byte[] array = new byte[length];
+                buffer.get(array);
+                return array;
+            }
+            case 'b':
+            {
+                boolean[] array = new boolean[length / 4];
+                for(int i = 0; i < array.length; i++) array[i] = buffer.getInt() != 0;
+                return array;
+            }
+            case 'n':
+            {
+                short[] array = new short[length / 2];
+                buffer.asShortBuffer().get(array);
+                buffer.position(end);
+                return array;
+            }
+            case 'i':
+            {
+                int[] array = new int[length / 4];
+                buffer.asIntBuffer().get(array);
+                buffer.position(end);
+                return array;
+            }
+            case 'x':
+            {
+                long[] array = new long[length / 8];
+                buffer.asLongBuffer().get(array);
+                buffer.position(end);
+                return array;
+            }
+            case 'd':
+            {
+                double[] array = new double[length / 8];
+                buffer.asDoubleBuffer().get(array);
+                buffer.position(end);
+                return array;
+            }
+            default:
+            {
+                List<Object> values = new ArrayList<>();
+                while(buffer.position() < end){
+                    values.add(readValue(buffer, signature, elementIndex));
+                }
+                return values.toArray();
+            }
+        }
+    }
+
+    private static String readString(ByteBuffer buffer){
+        int length = buffer.getInt();
+        String value = decodeString(buffer, length);
+        //skip the trailing nul byte
+        buffer.get();
+        return value;
+    }
+
+    private static String readSignature(ByteBuffer buffer){
+        int length = buffer.get() & 0xFF;
+        String value = decodeString(buffer, length);
+        buffer.get();
+        return value;
+    }
+
+    private static String decodeString(ByteBuffer buffer, int length){
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+}
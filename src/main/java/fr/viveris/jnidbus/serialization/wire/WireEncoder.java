@@ -0,0 +1,340 @@
+/* Copyright 2019, Viveris Technologies <opensource@toulouse.viveris.fr>
+ * Distributed under the terms of the Academic Free License.
+ */
+package fr.viveris.jnidbus.serialization.wire;
+
+import fr.viveris.jnidbus.serialization.DBusObject;
+import fr.viveris.jnidbus.serialization.PackedStrings;
+import fr.viveris.jnidbus.serialization.signature.SupportedTypes;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.ShortBuffer;
+import java.util.List;
+
+import static fr.viveris.jnidbus.serialization.wire.WireFormat.*;
+
+/**
+ * Write complete DBus messages in wire format (little endian) into a direct buffer, which the native code only has to
+ * give to dbus_message_demarshal. The body is written from the values of a DBusObject, without any JNI call.
+ *
+ * An encoder reuses its buffer for each message, so it must only be used by one thread and the returned buffer is only
+ * valid until the next encoding. The event loop owns one encoder, used by its thread only.
+ *
+ * The serials of the messages are chosen by the encoder as libdbus keeps the serial of a demarshalled message. They are
+ * taken in the upper half of the serial range so they do not collide with the serials libdbus gives to the messages it
+ * builds itself.
+ */
+public final class WireEncoder {
+    private static final int INITIAL_CAPACITY = 4096;
+    private static final int SERIAL_BASE = 0x80000000;
+
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(INITIAL_CAPACITY).order(ByteOrder.LITTLE_ENDIAN);
+    private int serial = 0;
+
+    /**
+     * Check if a message body can be encoded. The UNIX file descriptors are passed out of band of the message, a message
+     * containing some must be built by libdbus
+     *
+     * @param signature signature of the message body
+     * @return true if the encoder can encode the message
+     */
+    public static boolean supports(String signature){
+        return signature.indexOf(SupportedTypes.UNIX_FD.getValue()) < 0;
+    }
+
+    /**
+     * Encode a signal
+     *
+     * @param path object path emitting the signal
+     * @param interfaceName interface of the signal
+     * @param member member of the signal
+     * @param body serialized message
+     * @return the buffer containing the message between 0 and its limit
+     */
+    public ByteBuffer encodeSignal(String path, String interfaceName, String member, DBusObject body){
+        return this.encode(TYPE_SIGNAL, (byte) 0, null, path, interfaceName, member, body);
+    }
+
+    /**
+     * Encode a method call
+     *
+     * @param dest bus name of the called object
+     * @param path object path of the called object
+     * @param interfaceName interface of the method
+     * @param member member of the method
+     * @param body serialized message
+     * @return the buffer containing the message between 0 and its limit
+     */
+    public ByteBuffer encodeCall(String dest, String path, String interfaceName, String member, DBusObject body){
+        return this.encodeCall(dest, path, interfaceName, member, body, false);
+    }
+
+    /**
+     * Encode a method call, flagged as not expecting a reply if needed
+     *
+     * @param noReply true if the called object should not send a reply
+     * @return the buffer containing the message between 0 and its limit
+     */
+    public ByteBuffer encodeCall(String dest, String path, String interfaceName, String member, DBusObject body, boolean noReply){
+        return this.encode(TYPE_METHOD_CALL, noReply ? FLAG_NO_REPLY_EXPECTED : 0, dest, path, interfaceName, member, body);
+    }
+
+    private ByteBuffer encode(byte type, byte flags, String dest, String path, String interfaceName, String member, DBusObject body){
+        String signature = body.getSignature();
+        this.buffer.clear();
+
+        //fixed header, the body length is written once the body is
+        this.ensure(FIXED_HEADER_SIZE);
+        this.buffer.put(LITTLE_ENDIAN).put(type).put(flags).put(PROTOCOL_VERSION);
+        this.buffer.putInt(0);
+        this.buffer.putInt(SERIAL_BASE | (this.serial++ & 0x7FFFFFFF));
+
+        //header fields, an array of (byte,variant) structs
+        int fieldsLength = this.openArray(8);
+        int fieldsStart = this.buffer.position();
+        this.writeField(FIELD_PATH, 'o', path);
+        this.writeField(FIELD_INTERFACE, 's', interfaceName);
+        this.writeField(FIELD_MEMBER, 's', member);
+        if(dest != null) this.writeField(FIELD_DESTINATION, 's', dest);
+        if(!signature.isEmpty()) this.writeField(FIELD_SIGNATURE, 'g', signature);
+        this.buffer.putInt(fieldsLength, this.buffer.position() - fieldsStart);
+
+        //the body always starts on an 8 bytes boundary
+        this.pad(8);
+        int bodyStart = this.buffer.position();
+        Object[] values = body.getValues();
+        int index = 0;
+        for(int i = 0; index < signature.length(); i++){
+            index = this.writeValue(signature, index, values[i]);
+        }
+        this.buffer.putInt(4, this.buffer.position() - bodyStart);
+
+        this.buffer.flip();
+        return this.buffer;
+    }
+
+    private void writeField(byte code, char type, String value){
+        this.pad(8);
+        this.ensure(4);
+        this.buffer.put(code).put((byte) 1).put((byte) type).put((byte) 0);
+        if(type == 'g'){
+            this.writeSignature(value);
+        }else{
+            this.writeString(value);
+        }
+    }
+
+    /**
+     * Write the value of the single complete type at the given index of the signature
+     *
+     * @return index of the next type of the signature
+     */
+    private int writeValue(String signature, int index, Object value){
+        char type = signature.charAt(index);
+        switch (type){
+            case 'y':
+                this.ensure(1);
+                this.buffer.put(((Number) value).byteValue());
+                return index + 1;
+            case 'b':
+                this.pad(4);
+                this.buffer.putInt((Boolean) value ? 1 : 0);
+                return index + 1;
+            case 'n':
+                this.pad(2);
+                this.buffer.putShort(((Number) value).shortValue());
+                return index + 1;
+            case 'i':
+                this.pad(4);
+                this.buffer.putInt(((Number) value).intValue());
+                return index + 1;
+            case 'x':
+                this.pad(8);
+                this.buffer.putLong(((Number) value).longValue());
+                return index + 1;
+            case 'd':
+                this.pad(8);
+                this.buffer.putDouble(((Number) value).doubleValue());
+                return index + 1;
+            case 's':
+            case 'o':
+                this.writeString((String) value);
+                return index + 1;
+            case 'a':
+                return this.writeArray(signature, index, value);
+            case '(':
+            case '{':
+                char end = type == '(' ? ')' : '}';
+                this.pad(8);
+                Object[] values = ((DBusObject) value).getValues();
+                int i = 0;
+                index++;
+                while(signature.charAt(index) != end){
+                    index = this.writeValue(signature, index, values[i++]);
+                }
+                return index + 1;
+            default:
+                throw new IllegalStateException("Unsupported type detected : "+type);
+        }
+    }
+
+    private int writeArray(String signature, int index, Object value){
+        int elementIndex = index + 1;
+        int next = skipType(signature, elementIndex);
+        char elementType = signature.charAt(elementIndex);
+
+        //the padding between the length and the first element is not part of the array length, even if it is empty
+        int lengthPosition = this.openArray(alignment(elementType));
+        int start = this.buffer.position();
+
+        if(value instanceof Object[]){
+            for(Object element : (Object[]) value){
+                this.writeValue(signature, elementIndex, element);
+            }
+        }else if(value instanceof List){
+            for(Object element : (List<?>) value){
+                this.writeValue(signature, elementIndex, element);
+            }
+        }else if(value instanceof PackedStrings){
+            this.writePackedStrings(elementType == '{', (PackedStrings) value);
+        }else{
+            this.writePrimitiveArray(elementType, value);
+        }
+
+        this.buffer.putInt(lengthPosition, this.buffer.position() - start);
+        return next;
+    }
+
+    private void writePrimitiveArray(char type, Object value){
+        if(value instanceof byte[]){
+            byte[] array = (byte[]) value;
+            this.ensure(array.length);
+            this.buffer.put(array);
+        }else if(value instanceof int[]){
+            int[] array = (int[]) value;
+            this.ensure(array.length * 4);
+            for(int v : array) this.buffer.putInt(v);
+        }else if(value instanceof long[]){
+            long[] array = (long[]) value;
+            this.ensure(array.length * 8);
+            for(long v : array) this.buffer.putLong(v);
+        }else if(value instanceof short[]){
+            short[] array = (short[]) value;
+            this.ensure(array.length * 2);
+            for(short v : array) this.buffer.putShort(v);
+        }else if(value instanceof double[]){
+            double[] array = (double[]) value;
+            this.ensure(array.length * 8);
+            for(double v : array) this.buffer.putDouble(v);
+        }else if(value instanceof boolean[]){
+            boolean[] array = (boolean[]) value;
+            this.ensure(array.length * 4);
+            for(boolean v : array) this.buffer.putInt(v ? 1 : 0);
+        }else if(value instanceof Buffer){
+            this.writeBuffer((Buffer) value);
+        }else{
+            throw new IllegalStateException("Unsupported array value for the type "+type+": "+value);
+        }
+    }
+
+    /**
+     * Copy the remaining values of a buffer in one shot through a view of the message buffer, the view writes them in the
+     * byte order of the message whatever the order of the given buffer
+     */
+    private void writeBuffer(Buffer value){
+        int count = value.remaining();
+        if(value instanceof ByteBuffer){
+            this.ensure(count);
+            this.buffer.put(((ByteBuffer) value).duplicate());
+            return;
+        }
+
+        int size;
+        if(value instanceof ShortBuffer){
+            size = 2;
+            this.ensure(count * size);
+            this.buffer.asShortBuffer().put(((ShortBuffer) value).duplicate());
+        }else if(value instanceof IntBuffer){
+            size = 4;
+            this.ensure(count * size);
+            this.buffer.asIntBuffer().put(((IntBuffer) value).duplicate());
+        }else if(value instanceof LongBuffer){
+            size = 8;
+            this.ensure(count * size);
+            this.buffer.asLongBuffer().put(((LongBuffer) value).duplicate());
+        }else if(value instanceof DoubleBuffer){
+            size = 8;
+            this.ensure(count * size);
+            this.buffer.asDoubleBuffer().put(((DoubleBuffer) value).duplicate());
+        }else{
+            throw new IllegalStateException("Unsupported buffer value: "+value);
+        }
+        this.buffer.position(this.buffer.position() + count * size);
+    }
+
+    /**
+     * Write the packed strings as they are, they are already encoded. For a dictionary, each pair of strings is an entry
+     */
+    private void writePackedStrings(boolean entries, PackedStrings value){
+        byte[] bytes = value.getBytes();
+        for(int i = 0; i < value.size(); i++){
+            if(entries && i % 2 == 0) this.pad(8);
+            int length = value.getLength(i);
+            this.pad(4);
+            this.ensure(length + 5);
+            this.buffer.putInt(length).put(bytes,value.getOffset(i),length + 1);
+        }
+    }
+
+    /**
+     * Write the length placeholder of an array and the padding of its first element
+     *
+     * @return position of the length, to be written once the elements are
+     */
+    private int openArray(int elementAlignment){
+        this.pad(4);
+        int lengthPosition = this.buffer.position();
+        this.buffer.putInt(0);
+        this.pad(elementAlignment);
+        return lengthPosition;
+    }
+
+    private void writeString(String value){
+        byte[] bytes = value.getBytes(UTF_8);
+        this.pad(4);
+        this.ensure(bytes.length + 5);
+        this.buffer.putInt(bytes.length).put(bytes).put((byte) 0);
+    }
+
+    private void writeSignature(String value){
+        byte[] bytes = value.getBytes(UTF_8);
+        this.ensure(bytes.length + 2);
+        this.buffer.put((byte) bytes.length).put(bytes).put((byte) 0);
+    }
+
+    /**
+     * Write zeros up to the given alignment and make sure a value of the same size can be written after them
+     */
+    private void pad(int alignment){
+        this.ensure(alignment * 2);
+        while((this.buffer.position() & (alignment - 1)) != 0) this.buffer.put((byte) 0);
+    }
+
+    /**
+     * Grow the buffer if less than the given number of bytes are available
+     */
+    private void ensure(int size){
+        if(this.buffer.remaining() >= size) return;
+        int capacity = this.buffer.capacity() * 2;
+        while(capacity - this.buffer.position() < size) capacity *= 2;
+        ByteBuffer grown = ByteBuffer.allocateDirect(capacity).order(ByteOrder.LITTLE_ENDIAN);
+        this.buffer.flip();
+        grown.put(this.buffer);
+        this.buffer = grown;
+    }
+}
@@ -0,0 +1,76 @@
+/* Copyright 2019, Viveris Technologies <opensource@toulouse.viveris.fr>
+ * Distributed under the terms of the Academic Free License.
+ */
+package fr.viveris.jnidbus.serialization.wire;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Constants and helpers of the DBus wire format shared by the encoder and the decoder. Every alignment is computed from
+ * the start of the message, which is always the index 0 of the buffers.
+ */
+final class WireFormat {
+    static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    static final byte LITTLE_ENDIAN = 'l';
+    static final byte PROTOCOL_VERSION = 1;
+
+    static final byte TYPE_METHOD_CALL = 1;
+    static final byte TYPE_SIGNAL = 4;
+
+    static final byte FLAG_NO_REPLY_EXPECTED = 1;
+
+    static final byte FIELD_PATH = 1;
+    static final byte FIELD_INTERFACE = 2;
+    static final byte FIELD_MEMBER = 3;
+    static final byte FIELD_DESTINATION = 6;
+    static final byte FIELD_SIGNATURE = 8;
+
+    /**
+     * Size of the fixed part of the header: endianness, type, flags, version, body length and serial
+     */
+    static final int FIXED_HEADER_SIZE = 12;
+
+    private WireFormat(){}
+
+    /**
+     * @param type DBus type code
+     * @return the alignment of the type in the wire format
+     */
+    static int alignment(char type){
+        switch (type){
+            case 'y': case 'g': case 'v': return 1;
+            case 'n': case 'q': return 2;
+            case 'b': case 'i': case 'u': case 's': case 'o': case 'a': case 'h': return 4;
+            case 'x': case 't': case 'd': case '(': case '{': return 8;
+            default: throw new IllegalStateException("Unsupported type detected : "+type);
+        }
+    }
+
+    /**
+     * Move the position of the buffer to the next multiple of the alignment
+     */
+    static void align(ByteBuffer buffer, int alignment){
+        buffer.position((buffer.position() + alignment - 1) & -alignment);
+    }
+
+    /**
+     * Find the end of the single complete type starting at the given index of the signature
+     *
+     * @param signature signature to read
+     * @param index start of the type
+     * @return index following the type
+     */
+    static int skipType(String signature, int index){
+        char c = signature.charAt(index);
+        if(c == 'a') return skipType(signature, index + 1);
+        if(c == '(' || c == '{'){
+            char end = c == '(' ? ')' : '}';
+            index++;
+            while(signature.charAt(index) != end) index = skipType(signature, index);
+            return index + 1;
+        }
+        return index + 1;
+    }
+}
@@ -0,0 +1,92 @@
+/* Copyright 2019, Viveris Technologies <opensource@toulouse.viveris.fr>
+ * Distributed under the terms of the Academic Free License.
+ */
+package fr.viveris.jnidbus.types;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Payload stored in a sealed memfd, which is sent as a UNIX file descriptor instead of being copied in the message. The
+ * sender writes the payload once in the memfd and seals it so it can not be modified nor resized anymore, the receiver
+ * maps the memfd and reads the payload in place. This replaces the copies of an array of bytes through the JVM, libdbus
+ * and the bus daemon by a single write.
+ *
+ * A message field of type SharedBuffer must have the DBus type h. The receiver must close the buffer when done, which
+ * unmaps it, the mapped buffer must not be used after that. The native library must be loaded to use this class.
+ */
+public class SharedBuffer extends UnixFD {
+    private ByteBuffer mapping;
+
+    public SharedBuffer(int fd) {
+        super(fd);
+    }
+
+    /**
+     * Create a sealed memfd containing the remaining bytes of the payload, the position of the payload is not modified
+     *
+     * @param name name of the memfd, only used for debugging purposes
+     * @param payload bytes to share, direct buffers are written without any intermediate copy
+     * @return the buffer ready to be sent
+     * @throws IOException if the memfd could not be created, written or sealed
+     */
+    public static SharedBuffer create(String name, ByteBuffer payload) throws IOException {
+        int fd;
+        if(payload.isDirect()){
+            fd = createMemfd(name,payload,null,payload.position(),payload.remaining());
+        }else if(payload.hasArray()){
+            fd = createMemfd(name,null,payload.array(),payload.arrayOffset() + payload.position(),payload.remaining());
+        }else{
+            byte[] copy = new byte[payload.remaining()];
+            payload.duplicate().get(copy);
+            fd = createMemfd(name,null,copy,0,copy.length);
+        }
+        return new SharedBuffer(fd);
+    }
+
+    /**
+     * Map the memfd in memory, the mapping is created on the first call and shared by the next ones. The memfd must be
+     * sealed against writes and shrinking, else the sender could change the payload or make the reads fail while it is
+     * mapped.
+     *
+     * @return a read only buffer of the whole payload
+     * @throws IOException if the memfd is not sealed or could not be mapped
+     */
+    public synchronized ByteBuffer map() throws IOException {
+        if(this.getFd() < 0) throw new IllegalStateException("The buffer is closed");
+        if(this.mapping == null){
+            //an empty memfd can not be mapped
+            ByteBuffer mapped = mapMemfd(this.getFd());
+            this.mapping = mapped == null ? ByteBuffer.allocateDirect(0) : mapped;
+        }
+        return this.mapping.asReadOnlyBuffer();
+    }
+
+    /**
+     * Unmap the buffer if it was mapped and close its descriptor
+     */
+    @Override
+    public synchronized void close() {
+        if(this.mapping != null && this.mapping.capacity() > 0){
+            unmap(this.mapping);
+        }
+        this.mapping = null;
+        super.close();
+    }
+
+    /**
+     * Create a memfd, write the payload and seal it. Either the direct buffer or the array is set
+     *
+     * @return the memfd descriptor
+     */
+    private static native int createMemfd(String name, ByteBuffer direct, byte[] array, int offset, int length) throws IOException;
+
+    /**
+     * Check the seals of the memfd and map it
+     *
+     * @return a direct buffer on the mapping, null if the memfd is empty
+     */
+    private static native ByteBuffer mapMemfd(int fd) throws IOException;
+
+    private static native void unmap(ByteBuffer mapping);
+}
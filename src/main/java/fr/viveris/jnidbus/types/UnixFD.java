@@ -0,0 +1,46 @@
+/* Copyright 2019, Viveris Technologies <opensource@toulouse.viveris.fr>
+ * Distributed under the terms of the Academic Free License.
+ */
+package fr.viveris.jnidbus.types;
+
+import java.io.Closeable;
+
+/**
+ * UNIX file descriptor passed in a DBus message (the DBus type h). The descriptor is given as is to libdbus when sent,
+ * which duplicates it, so it must stay open until the message is sent. A received descriptor is a new descriptor owned by
+ * the receiver, which must close it once done.
+ *
+ * The native library must be loaded to close a descriptor.
+ */
+public class UnixFD implements Closeable {
+    private int fd;
+
+    public UnixFD(int fd){
+        if(fd < 0) throw new IllegalArgumentException("Invalid file descriptor "+fd);
+        this.fd = fd;
+    }
+
+    /**
+     * @return the descriptor, -1 if it was closed
+     */
+    public int getFd() {
+        return this.fd;
+    }
+
+    /**
+     * Close the descriptor, does nothing if it is already closed
+     */
+    @Override
+    public synchronized void close() {
+        if(this.fd < 0) return;
+        closeFD(this.fd);
+        this.fd = -1;
+    }
+
+    @Override
+    public String toString() {
+        return "UnixFD{" + this.fd + "}";
+    }
+
+    private static native void closeFD(int fd);
+}
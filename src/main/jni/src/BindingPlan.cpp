@@ -0,0 +1,154 @@
+/* Copyright 2019, Viveris Technologies <opensource@toulouse.viveris.fr>
+ * Distributed under the terms of the Academic Free License.
+ */
+#include "./headers/fr_viveris_jnidbus_cache_BindingPlan.h"
+#include "./headers/binding_plan.h"
+#include "./headers/serialization.h"
+
+#include <cstring>
+
+/**
+ * Resolve the constructor and the fields of the JVM plan and create the native plan. The nested plans were already
+ * compiled by the JVM, only their pointers are given. If a field or the constructor can not be found, 0 is returned and
+ * the JVM exception is left pending.
+ *
+ * Class:     fr_viveris_jnidbus_cache_BindingPlan
+ * Method:    compile
+ * Signature: (Ljava/lang/Class;Ljava/lang/String;[Ljava/lang/String;[Ljava/lang/String;[I[J)J
+ */
+JNIEXPORT jlong JNICALL Java_fr_viveris_jnidbus_cache_BindingPlan_compile
+  (JNIEnv * env, jclass target, jclass messageClass, jstring signatureJVM, jobjectArray namesJVM, jobjectArray descriptorsJVM, jintArray kindsJVM, jlongArray nestedJVM){
+    jmethodID constructor = env->GetMethodID(messageClass,"<init>","()V");
+    if(constructor == NULL) return 0;
+
+    int count = env->GetArrayLength(kindsJVM);
+    binding_field* fields = (binding_field*) malloc(sizeof(binding_field) * (count > 0 ? count : 1));
+    jint* kinds = env->GetIntArrayElements(kindsJVM,NULL);
+    jlong* nested = env->GetLongArrayElements(nestedJVM,NULL);
+
+    bool success = true;
+    for(int i = 0; i < count && success; i++){
+        jstring nameJVM = (jstring) env->GetObjectArrayElement(namesJVM,i);
+        jstring descriptorJVM = (jstring) env->GetObjectArrayElement(descriptorsJVM,i);
+        const char* name = env->GetStringUTFChars(nameJVM,0);
+        const char* descriptor = env->GetStringUTFChars(descriptorJVM,0);
+
+        fields[i].id = env->GetFieldID(messageClass,name,descriptor);
+        fields[i].kind = kinds[i];
+        fields[i].nested = (binding_plan*) nested[i];
+        success = fields[i].id != NULL;
+
+        env->ReleaseStringUTFChars(nameJVM,name);
+        env->ReleaseStringUTFChars(descriptorJVM,descriptor);
+        env->DeleteLocalRef(nameJVM);
+        env->DeleteLocalRef(descriptorJVM);
+    }
+    env->ReleaseIntArrayElements(kindsJVM,kinds,JNI_ABORT);
+    env->ReleaseLongArrayElements(nestedJVM,nested,JNI_ABORT);
+
+    if(!success){
+        free(fields);
+        return 0;
+    }
+
+    binding_plan* plan = (binding_plan*) malloc(sizeof(binding_plan));
+    plan->message_class = (jclass) env->NewGlobalRef(messageClass);
+    plan->constructor = constructor;
+    plan->count = count;
+    plan->fields = fields;
+    const char* signature = env->GetStringUTFChars(signatureJVM,0);
+    plan->signature = strdup(signature);
+    env->ReleaseStringUTFChars(signatureJVM,signature);
+    return (jlong) plan;
+}
+
+jobject bind_message(context* ctx, binding_plan* plan, DBusMessageIter* container){
+    JNIEnv* env;
+    get_env(ctx,&env);
+
+    //use the constructor so the fields not given by the message keep their initial value
+    jobject instance = env->NewObject(plan->message_class,plan->constructor);
+    if(instance == NULL) return NULL;
+
+    //the signature of the message was checked against the plan, each field has its value in the iterator
+    for(int i = 0; i < plan->count; i++){
+        binding_field* field = &plan->fields[i];
+        switch(field->kind){
+            case fr_viveris_jnidbus_cache_BindingPlan_KIND_BOOLEAN:
+            {
+                dbus_bool_t value;
+                dbus_message_iter_get_basic(container,&value);
+                env->SetBooleanField(instance,field->id,value ? JNI_TRUE : JNI_FALSE);
+                break;
+            }
+            case fr_viveris_jnidbus_cache_BindingPlan_KIND_BYTE:
+            {
+                unsigned char value;
+                dbus_message_iter_get_basic(container,&value);
+                env->SetByteField(instance,field->id,(jbyte) value);
+                break;
+            }
+            case fr_viveris_jnidbus_cache_BindingPlan_KIND_SHORT:
+            {
+                dbus_int16_t value;
+                dbus_message_iter_get_basic(container,&value);
+                env->SetShortField(instance,field->id,value);
+                break;
+            }
+            case fr_viveris_jnidbus_cache_BindingPlan_KIND_INT:
+            {
+                dbus_int32_t value;
+                dbus_message_iter_get_basic(container,&value);
+                env->SetIntField(instance,field->id,value);
+                break;
+            }
+            case fr_viveris_jnidbus_cache_BindingPlan_KIND_LONG:
+            {
+                dbus_int64_t value;
+                dbus_message_iter_get_basic(container,&value);
+                env->SetLongField(instance,field->id,value);
+                break;
+            }
+            case fr_viveris_jnidbus_cache_BindingPlan_KIND_DOUBLE:
+            {
+                double value;
+                dbus_message_iter_get_basic(container,&value);
+                env->SetDoubleField(instance,field->id,value);
+                break;
+            }
+            case fr_viveris_jnidbus_cache_BindingPlan_KIND_STRING:
+            {
+                const char* value;
+                dbus_message_iter_get_basic(container,&value);
+                jstring string = deserialize_string(ctx,env,value);
+                if(string == NULL) return NULL;
+                env->SetObjectField(instance,field->id,string);
+                env->DeleteLocalRef(string);
+                break;
+            }
+            case fr_viveris_jnidbus_cache_BindingPlan_KIND_FIXED_ARRAY:
+            {
+                DBusMessageIter sub_container;
+                int element_type = dbus_message_iter_get_element_type(container);
+                dbus_message_iter_recurse(container,&sub_container);
+                jobject array = deserialize_fixed_array(ctx,element_type,&sub_container);
+                if(array == NULL) return NULL;
+                env->SetObjectField(instance,field->id,array);
+                env->DeleteLocalRef(array);
+                break;
+            }
+            case fr_viveris_jnidbus_cache_BindingPlan_KIND_OBJECT:
+            {
+                DBusMessageIter sub_container;
+                dbus_message_iter_recurse(container,&sub_container);
+                jobject nested = bind_message(ctx,field->nested,&sub_container);
+                if(nested == NULL) return NULL;
+                env->SetObjectField(instance,field->id,nested);
+                env->DeleteLocalRef(nested);
+                break;
+            }
+        }
+        dbus_message_iter_next(container);
+    }
+    return instance;
+}
@@ -22,13 +22,33 @@ using namespace std;
  */
 JNIEXPORT jobject JNICALL Java_fr_viveris_jnidbus_bindings_bus_Connection_createConnection
   (JNIEnv * env, jclass target, jobject busType, jstring busName, jstring bus_address){
+      //libdbus must be made thread safe before the connection is created, the signals, calls and replies can be sent
+      //directly by the JVM threads
+      if(!dbus_threads_init_default()){
+         env->ThrowNew(env->FindClass("fr/viveris/jnidbus/exception/ConnectionException"),"Could not initialize the libdbus threads");
+         return NULL;
+      }
+
       //init context
       context* ctx = new context;
+      ctx->wire_codec = false;
+      ctx->direct_binding = false;
+      ctx->batch = NULL;
+      pthread_mutex_init(&ctx->released_sources_lock,NULL);
+      init_intern_table(&ctx->interned);
       env->GetJavaVM(&ctx->vm);
 
+      //resolve everything the native code needs from the JVM, a NoClassDefFoundError or NoSuchMethodError is pending if it fails
+      if(!init_jni_cache(ctx,env)){
+         free_jni_cache(ctx,env);
+         pthread_mutex_destroy(&ctx->released_sources_lock);
+         free_intern_table(&ctx->interned,env);
+         delete ctx;
+         return NULL;
+      }
+
       //get the bus type needed
-      jmethodID getBusTypeMethod = env->GetMethodID(find_class(ctx,"fr/viveris/jnidbus/BusType"), "name", "()Ljava/lang/String;");
-      jstring rawValue = (jstring) env->CallObjectMethod(busType, getBusTypeMethod);
+      jstring rawValue = (jstring) env->CallObjectMethod(busType, ctx->ids.bus_type_name);
       const char* value = env->GetStringUTFChars(rawValue, 0);
       
       DBusBusType type;
@@ -40,7 +60,7 @@ JNIEXPORT jobject JNICALL Java_fr_viveris_jnidbus_bindings_bus_Connection_create
       }else if(strcmp(value,"STARTER") == 0){
          type = DBUS_BUS_STARTER;
       }else{
-         env->ThrowNew(find_class(ctx,"fr/viveris/jnidbus/exception/ConnectionException"),"Unknown bus type");
+         env->ThrowNew(ctx->ids.connection_exception_class,"Unknown bus type");
          return NULL;
       }
 
@@ -60,7 +80,7 @@ JNIEXPORT jobject JNICALL Java_fr_viveris_jnidbus_bindings_bus_Connection_create
       }
       
       if (dbus_error_is_set(&err)) { 
-         env->ThrowNew(find_class(ctx,"fr/viveris/jnidbus/exception/ConnectionException"),err.message);
+         env->ThrowNew(ctx->ids.connection_exception_class,err.message);
          dbus_error_free(&err); 
          return NULL;
       }
@@ -73,13 +93,13 @@ JNIEXPORT jobject JNICALL Java_fr_viveris_jnidbus_bindings_bus_Connection_create
 
       int ret = dbus_bus_request_name(conn, busNameConverted, DBUS_NAME_FLAG_REPLACE_EXISTING , &err);
       if (dbus_error_is_set(&err)) { 
-         env->ThrowNew(find_class(ctx,"fr/viveris/jnidbus/exception/ConnectionException"),err.message);
+         env->ThrowNew(ctx->ids.connection_exception_class,err.message);
          dbus_error_free(&err);
          return NULL;
       }
 
       if (DBUS_REQUEST_NAME_REPLY_PRIMARY_OWNER != ret) { 
-         env->ThrowNew(find_class(ctx,"fr/viveris/jnidbus/exception/ConnectionException"),"Could not apply bus name");
+         env->ThrowNew(ctx->ids.connection_exception_class,"Could not apply bus name");
          return NULL;
       }
 
@@ -92,9 +112,7 @@ JNIEXPORT jobject JNICALL Java_fr_viveris_jnidbus_bindings_bus_Connection_create
       env->ReleaseStringUTFChars(busName, busNameConverted);
 
       //construct JVM object and pass the connection pointer to it
-      jclass cls = find_class(ctx, "fr/viveris/jnidbus/bindings/bus/Connection");
-      jmethodID constructor = env->GetMethodID(cls, "<init>", "(JLjava/lang/String;)V");
-      jobject obj = env->NewObject(cls, constructor,(uintptr_t) ctx,busName);
+      jobject obj = env->NewObject(ctx->ids.connection_class, ctx->ids.connection_constructor,(uintptr_t) ctx,busName);
       return obj;
   }
 
@@ -117,7 +135,7 @@ JNIEXPORT void JNICALL Java_fr_viveris_jnidbus_bindings_bus_Connection_closeNati
       dbus_bus_release_name(conn,ctx->bus_name,&err);
 
       if (dbus_error_is_set(&err)) { 
-         env->ThrowNew(find_class(ctx,"fr/viveris/jnidbus/exception/ConnectionException"),err.message);
+         env->ThrowNew(ctx->ids.connection_exception_class,err.message);
          dbus_error_free(&err); 
          return;
       }
@@ -3,73 +3,248 @@
  */
 #include "./headers/context.h"
 
-jclass find_class(context* context, const char* name){
-    //try to get from cache
-    std::string nameString = std::string(name);
-    jclass classJVM = context->class_cache[nameString];
-
-    //if class not found, fetch from the JVM
-    if(classJVM == NULL){
-        JNIEnv* env;
-        get_env(context,&env);
-        classJVM = (jclass) env->NewGlobalRef(env->FindClass(name));
-        context->class_cache[nameString] = classJVM;
-    }
+#include <cstring>
 
-    return classJVM;
+/**
+ * Find the class and store a global reference to it
+ */
+static bool load_class(JNIEnv* env, const char* name, jclass* target){
+    jclass local = env->FindClass(name);
+    if(local == NULL) return false;
+    *target = (jclass) env->NewGlobalRef(local);
+    env->DeleteLocalRef(local);
+    return true;
 }
 
+static bool load_method(JNIEnv* env, jclass cls, const char* name, const char* signature, jmethodID* target){
+    *target = env->GetMethodID(cls,name,signature);
+    return *target != NULL;
+}
+
+static bool load_static_method(JNIEnv* env, jclass cls, const char* name, const char* signature, jmethodID* target){
+    *target = env->GetStaticMethodID(cls,name,signature);
+    return *target != NULL;
+}
 
-jclass find_array_class(context* context, const char* name){
-    //try to get from cache
-    std::string nameString = std::string(name);
-    jclass classJVM = context->class_cache["["+nameString];
+static bool load_field(JNIEnv* env, jclass cls, const char* name, const char* signature, jfieldID* target){
+    *target = env->GetFieldID(cls,name,signature);
+    return *target != NULL;
+}
+
+/**
+ * Get a method or field of a class we do not need to keep a reference to
+ */
+static bool load_class_method(JNIEnv* env, const char* class_name, const char* name, const char* signature, jmethodID* target){
+    jclass cls = env->FindClass(class_name);
+    if(cls == NULL) return false;
+    bool found = load_method(env,cls,name,signature,target);
+    env->DeleteLocalRef(cls);
+    return found;
+}
+
+static bool load_class_field(JNIEnv* env, const char* class_name, const char* name, const char* signature, jfieldID* target){
+    jclass cls = env->FindClass(class_name);
+    if(cls == NULL) return false;
+    bool found = load_field(env,cls,name,signature,target);
+    env->DeleteLocalRef(cls);
+    return found;
+}
+
+bool init_jni_cache(context* ctx, JNIEnv* env){
+    jni_cache* ids = &ctx->ids;
+    memset(ids,0,sizeof(jni_cache));
+    const char* slot_class = "fr/viveris/jnidbus/bindings/bus/RequestSlot";
+
+    return
+        //classes
+        load_class(env,"java/lang/Object",&ids->object_class) &&
+        load_class(env,"[Ljava/lang/Object;",&ids->object_array_class) &&
+        load_class(env,"java/lang/Integer",&ids->integer_class) &&
+        load_class(env,"java/lang/Boolean",&ids->boolean_class) &&
+        load_class(env,"java/lang/Byte",&ids->byte_class) &&
+        load_class(env,"java/lang/Short",&ids->short_class) &&
+        load_class(env,"java/lang/Long",&ids->long_class) &&
+        load_class(env,"java/lang/Double",&ids->double_class) &&
+        load_class(env,"fr/viveris/jnidbus/serialization/DBusObject",&ids->dbus_object_class) &&
+        load_class(env,"fr/viveris/jnidbus/bindings/bus/Connection",&ids->connection_class) &&
+        load_class(env,"java/lang/IllegalStateException",&ids->illegal_state_exception_class) &&
+        load_class(env,"fr/viveris/jnidbus/exception/ConnectionException",&ids->connection_exception_class) &&
+        load_class(env,"fr/viveris/jnidbus/exception/EventLoopSetupException",&ids->event_loop_setup_exception_class) &&
+        load_class(env,"fr/viveris/jnidbus/serialization/wire/WireDecoder",&ids->wire_decoder_class) &&
+        load_class(env,"java/nio/Buffer",&ids->buffer_class) &&
+        load_class(env,"fr/viveris/jnidbus/serialization/PackedStrings",&ids->packed_strings_class) &&
+
+        //boxed types
+        load_method(env,ids->integer_class,"<init>","(I)V",&ids->integer_constructor) &&
+        load_method(env,ids->boolean_class,"<init>","(Z)V",&ids->boolean_constructor) &&
+        load_method(env,ids->byte_class,"<init>","(B)V",&ids->byte_constructor) &&
+        load_method(env,ids->short_class,"<init>","(S)V",&ids->short_constructor) &&
+        load_method(env,ids->long_class,"<init>","(J)V",&ids->long_constructor) &&
+        load_method(env,ids->double_class,"<init>","(D)V",&ids->double_constructor) &&
+        load_method(env,ids->integer_class,"intValue","()I",&ids->integer_value) &&
+        load_method(env,ids->boolean_class,"booleanValue","()Z",&ids->boolean_value) &&
+        load_method(env,ids->byte_class,"byteValue","()B",&ids->byte_value) &&
+        load_method(env,ids->short_class,"shortValue","()S",&ids->short_value) &&
+        load_method(env,ids->long_class,"longValue","()J",&ids->long_value) &&
+        load_method(env,ids->double_class,"doubleValue","()D",&ids->double_value) &&
+
+        //library methods
+        load_method(env,ids->dbus_object_class,"<init>","(Ljava/lang/String;[Ljava/lang/Object;)V",&ids->dbus_object_constructor) &&
+        load_method(env,ids->packed_strings_class,"<init>","([B[I)V",&ids->packed_strings_constructor) &&
+        load_method(env,ids->connection_class,"<init>","(JLjava/lang/String;)V",&ids->connection_constructor) &&
+        load_class_method(env,"fr/viveris/jnidbus/BusType","name","()Ljava/lang/String;",&ids->bus_type_name) &&
+        load_class_method(env,"fr/viveris/jnidbus/dispatching/Dispatcher","dispatch",
+            "(Lfr/viveris/jnidbus/serialization/DBusObject;Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;ZJ)Z",&ids->dispatcher_dispatch) &&
+        load_class_method(env,"fr/viveris/jnidbus/dispatching/Dispatcher","dispatchBound",
+            "(Lfr/viveris/jnidbus/serialization/Serializable;Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;ZJ)Z",&ids->dispatcher_dispatch_bound) &&
+        load_class_method(env,"fr/viveris/jnidbus/dispatching/Dispatcher","dispatchLazy",
+            "(JJLjava/lang/String;Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;ZJ)Z",&ids->dispatcher_dispatch_lazy) &&
+        load_class_method(env,"fr/viveris/jnidbus/bindings/bus/EventLoop","dispatchBatch","(I)V",&ids->event_loop_dispatch_batch) &&
+        load_class_method(env,"fr/viveris/jnidbus/message/PendingReply","resolve","(Lfr/viveris/jnidbus/serialization/DBusObject;)V",&ids->promise_resolve) &&
+        load_class_method(env,"fr/viveris/jnidbus/message/PendingReply","fail","(Ljava/lang/String;Ljava/lang/String;)V",&ids->promise_fail) &&
+        load_class_method(env,"fr/viveris/jnidbus/message/PendingReply","resolveBound","(Lfr/viveris/jnidbus/serialization/Serializable;)V",&ids->promise_resolve_bound) &&
+        load_class_method(env,"fr/viveris/jnidbus/message/PendingReply","getBindingPlan","()J",&ids->promise_binding_plan) &&
+        load_class_method(env,"fr/viveris/jnidbus/message/PendingReply","isInternStrings","()Z",&ids->promise_intern_strings) &&
+        load_class_method(env,"java/util/concurrent/atomic/AtomicBoolean","set","(Z)V",&ids->atomic_boolean_set) &&
+        load_static_method(env,ids->wire_decoder_class,"decode","(Ljava/nio/ByteBuffer;)Lfr/viveris/jnidbus/serialization/DBusObject;",&ids->wire_decoder_decode) &&
+
+        //fields
+        load_field(env,ids->dbus_object_class,"signature","Ljava/lang/String;",&ids->dbus_object_signature) &&
+        load_field(env,ids->dbus_object_class,"values","[Ljava/lang/Object;",&ids->dbus_object_values) &&
+        load_field(env,ids->packed_strings_class,"bytes","[B",&ids->packed_strings_bytes) &&
+        load_field(env,ids->packed_strings_class,"offsets","[I",&ids->packed_strings_offsets) &&
+        load_class_field(env,"fr/viveris/jnidbus/bindings/bus/EventLoop","shouldWakeup","Ljava/util/concurrent/atomic/AtomicBoolean;",&ids->event_loop_should_wakeup) &&
+        load_class_field(env,slot_class,"kind","I",&ids->slot_kind) &&
+        load_class_field(env,slot_class,"path","Ljava/lang/String;",&ids->slot_path) &&
+        load_class_field(env,slot_class,"interfaceName","Ljava/lang/String;",&ids->slot_interface_name) &&
+        load_class_field(env,slot_class,"member","Ljava/lang/String;",&ids->slot_member) &&
+        load_class_field(env,slot_class,"dest","Ljava/lang/String;",&ids->slot_dest) &&
+        load_class_field(env,slot_class,"message","Lfr/viveris/jnidbus/serialization/DBusObject;",&ids->slot_message) &&
+        load_class_field(env,slot_class,"promise","Lfr/viveris/jnidbus/message/PendingReply;",&ids->slot_promise) &&
+        load_class_field(env,slot_class,"timeout","I",&ids->slot_timeout) &&
+        load_class_field(env,slot_class,"pendingCall","J",&ids->slot_pending_call);
+}
 
-    //if class not found, fetch from the JVM
-    if(classJVM == NULL){
-        JNIEnv* env;
-        get_env(context,&env);
-        classJVM = (jclass) env->NewGlobalRef(env->GetObjectClass(env->NewObjectArray(0,find_class(context,name),NULL)));
-        context->class_cache["["+nameString] = classJVM;
+void free_jni_cache(context* ctx, JNIEnv* env){
+    jclass* classes[] = {
+        &ctx->ids.object_class, &ctx->ids.object_array_class, &ctx->ids.integer_class, &ctx->ids.boolean_class,
+        &ctx->ids.byte_class, &ctx->ids.short_class, &ctx->ids.long_class, &ctx->ids.double_class,
+        &ctx->ids.dbus_object_class, &ctx->ids.connection_class, &ctx->ids.illegal_state_exception_class,
+        &ctx->ids.connection_exception_class, &ctx->ids.event_loop_setup_exception_class, &ctx->ids.wire_decoder_class,
+        &ctx->ids.buffer_class, &ctx->ids.packed_strings_class
+    };
+    for(size_t i = 0; i < sizeof(classes) / sizeof(classes[0]); i++){
+        if(*classes[i] != NULL){
+            env->DeleteGlobalRef(*classes[i]);
+            *classes[i] = NULL;
+        }
     }
+}
+
+int compare_routes(const route* a, const route* b){
+    int result = strcmp(a->interface_name,b->interface_name);
+    if(result != 0) return result;
+    result = strcmp(a->member,b->member);
+    if(result != 0) return result;
+    result = strcmp(a->signature,b->signature);
+    if(result != 0) return result;
+    return a->type - b->type;
+}
+
+const route* find_route(route_table* table, const route* searched){
+    if(table == NULL) return NULL;
 
-    return classJVM;
+    //binary search in the sorted routes
+    int low = 0;
+    int high = table->count - 1;
+    while(low <= high){
+        int middle = (low + high) / 2;
+        int result = compare_routes(&table->routes[middle],searched);
+        if(result == 0) return &table->routes[middle];
+        if(result < 0){
+            low = middle + 1;
+        }else{
+            high = middle - 1;
+        }
+    }
+    return NULL;
 }
 
-jmethodID find_method(context* context, const char* class_name, const char* name, const char* signature){
-    //generate method key
-    std::string nameString = std::string()+class_name+"_"+name+"_"+signature;
+void free_route_table(route_table* table){
+    if(table == NULL) return;
+    free(table->routes);
+    free(table->strings);
+    free(table);
+}
 
-    //try to get from cache
-    jmethodID method_id = context->method_cache[nameString];
+void release_source(epoll_source* source){
+    source->removed = true;
+    pthread_mutex_lock(&source->ctx->released_sources_lock);
+    source->ctx->released_sources.push_back(source);
+    pthread_mutex_unlock(&source->ctx->released_sources_lock);
+}
 
-    //if class not found, fetch from the JVM
-    if(method_id == NULL){
-        JNIEnv* env;
-        get_env(context,&env);
-        method_id = env->GetMethodID(find_class(context,class_name),name,signature);
-        context->method_cache[nameString] = method_id;
+void free_released_sources(context* ctx){
+    pthread_mutex_lock(&ctx->released_sources_lock);
+    for(size_t i = 0; i < ctx->released_sources.size(); i++){
+        free(ctx->released_sources[i]);
     }
+    ctx->released_sources.clear();
+    pthread_mutex_unlock(&ctx->released_sources_lock);
+}
 
-    return method_id;
+void init_intern_table(string_intern_table* table){
+    memset(table->entries,0,sizeof(table->entries));
+    pthread_mutex_init(&table->lock,NULL);
 }
 
-jfieldID find_field(context* context, const char* class_name, const char* name, const char* signature){
-    //generate field key
-    std::string nameString = std::string()+class_name+"_"+name+"_"+signature;
+jstring intern_string(context* ctx, JNIEnv* env, const char* value){
+    //FNV-1a hash of the string, stop as soon as the string is too long to be interned
+    unsigned int hash = 2166136261u;
+    int length = 0;
+    for(const char* c = value; *c != '\0'; c++){
+        if(++length > INTERN_MAX_LENGTH) return env->NewStringUTF(value);
+        hash = (hash ^ (unsigned char) *c) * 16777619u;
+    }
+
+    string_intern_table* table = &ctx->interned;
+    interned_string* entry = &table->entries[hash & (INTERN_TABLE_SIZE - 1)];
+    pthread_mutex_lock(&table->lock);
+    if(entry->value != NULL && entry->hash == hash && strcmp(entry->value,value) == 0){
+        jstring found = (jstring) env->NewLocalRef(entry->string);
+        pthread_mutex_unlock(&table->lock);
+        return found;
+    }
+    pthread_mutex_unlock(&table->lock);
+
+    //not found, create the string and replace the entry with it
+    jstring created = env->NewStringUTF(value);
+    if(created == NULL) return NULL;
+    jstring global = (jstring) env->NewGlobalRef(created);
+    char* copy = strdup(value);
 
-    //try to get from cache
-    jfieldID method_id = context->field_cache[nameString];
+    pthread_mutex_lock(&table->lock);
+    char* replaced_value = entry->value;
+    jstring replaced = entry->string;
+    entry->value = copy;
+    entry->hash = hash;
+    entry->string = global;
+    pthread_mutex_unlock(&table->lock);
 
-    //if class not found, fetch from the JVM
-    if(method_id == NULL){
-        JNIEnv* env;
-        get_env(context,&env);
-        method_id = env->GetFieldID(find_class(context,class_name),name,signature);
-        context->field_cache[nameString] = method_id;
+    if(replaced_value != NULL){
+        free(replaced_value);
+        env->DeleteGlobalRef(replaced);
     }
+    return created;
+}
 
-    return method_id;
+void free_intern_table(string_intern_table* table, JNIEnv* env){
+    for(int i = 0; i < INTERN_TABLE_SIZE; i++){
+        if(table->entries[i].value == NULL) continue;
+        free(table->entries[i].value);
+        env->DeleteGlobalRef(table->entries[i].string);
+    }
+    pthread_mutex_destroy(&table->lock);
 }
 
 void get_env(context* context, JNIEnv** env){
@@ -82,14 +257,22 @@ void close_context(context* ctx){
     JNIEnv* env;
     get_env(ctx,&env);
 
-    //delete global ref of any cached class ref
-	std::map<std::string,jclass>::iterator it = ctx->class_cache.begin();
-	while (it != ctx->class_cache.end())
-	{
-        env->DeleteGlobalRef((jobject)it->second);
-		it++;
-	}
-    
+    //delete the global refs of the cached classes
+    free_jni_cache(ctx,env);
+
+    free_released_sources(ctx);
+    pthread_mutex_destroy(&ctx->released_sources_lock);
+    if(ctx->batch != NULL){
+        env->DeleteGlobalRef(ctx->batch->dispatchers);
+        env->DeleteGlobalRef(ctx->batch->routes_jvm);
+        env->DeleteGlobalRef(ctx->batch->bodies);
+        env->DeleteGlobalRef(ctx->batch->senders);
+        env->DeleteGlobalRef(ctx->batch->messages_jvm);
+        free(ctx->batch->routes);
+        free(ctx->batch->messages);
+        free(ctx->batch);
+    }
+    free_intern_table(&ctx->interned,env);
     close(ctx->epollFD);
     close(ctx->wakeupFD);
     free(ctx->epollStruct);
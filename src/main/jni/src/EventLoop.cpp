@@ -5,6 +5,7 @@
 #include <string>
 #include <cstring>
 #include <errno.h>
+#include <algorithm>
 
 #include <sys/eventfd.h>
 
@@ -14,11 +15,9 @@ DBusObjectPathVTable dbus_handler_struct = {
 };
 
 /**
- * This method setup epoll, the wakeup FD and register watch functions to DBus. Watch functions are an interface
- * that allows the developer to build an event loop with any technology it wants (select, epoll, kqueue, etc...).
- *
- * As we don't register any timeout functions, DBus will not be able to detect and manage timeout, this should be done
- * on the JVM side (we might change this at some point but it is not worth the effort right now).
+ * This method setup epoll, the wakeup FD and register watch and timeout functions to DBus. Watch functions are an interface
+ * that allows the developer to build an event loop with any technology it wants (select, epoll, kqueue, etc...). Timeouts
+ * are backed by timerfds registered to the same epoll instance, which allows DBus to expire the pending calls.
  *
  * On the JVM side, any call made to the event loop while this function was not executed will block and wait.
  *
@@ -27,20 +26,22 @@ DBusObjectPathVTable dbus_handler_struct = {
  * Signature: ()Z
  */
 JNIEXPORT jboolean JNICALL Java_fr_viveris_jnidbus_bindings_bus_EventLoop_setup
-  (JNIEnv * env, jobject target, jlong ctxPtr){
+  (JNIEnv * env, jobject target, jlong ctxPtr, jboolean wireCodec, jboolean directBinding){
     //get contxet
     context* ctx = (context*) ctxPtr;
+    ctx->wire_codec = wireCodec == JNI_TRUE;
+    ctx->direct_binding = directBinding == JNI_TRUE;
 
     //create epoll instance
     ctx->epollFD = epoll_create1(0);
     if(ctx->epollFD == -1){
-      env->ThrowNew(find_class(ctx,"fr/viveris/jnidbus/exception/EventLoopSetupException"),"Could not create the epoll FD");
+      env->ThrowNew(ctx->ids.event_loop_setup_exception_class,"Could not create the epoll FD");
     }
 
     //create wakeup file descriptor
     ctx->wakeupFD = eventfd(0,EFD_NONBLOCK);
     if(ctx->wakeupFD == -1){
-      env->ThrowNew(find_class(ctx,"fr/viveris/jnidbus/exception/EventLoopSetupException"),"Could not create the wakeup FD");
+      env->ThrowNew(ctx->ids.event_loop_setup_exception_class,"Could not create the wakeup FD");
     }
 
     //create epoll struct in which it will put the selected file descriptors
@@ -48,22 +49,30 @@ JNIEXPORT jboolean JNICALL Java_fr_viveris_jnidbus_bindings_bus_EventLoop_setup
     ctx->epollStruct = (epoll_event*) calloc (EPOLL_MAX_EVENTS, sizeof(epoll_event));
 
     //add the wakeup fd to epoll, we only care about data to read
-    wakeupStruct.data.fd = ctx->wakeupFD;
+    ctx->wakeupSource.type = WAKEUP_SOURCE;
+    ctx->wakeupSource.fd = ctx->wakeupFD;
+    ctx->wakeupSource.data = NULL;
+    ctx->wakeupSource.ctx = ctx;
+    ctx->wakeupSource.removed = false;
+    wakeupStruct.data.ptr = &ctx->wakeupSource;
     wakeupStruct.events = EPOLLIN;
     int error = epoll_ctl(ctx->epollFD,EPOLL_CTL_ADD,ctx->wakeupFD,&wakeupStruct);
     if(error == -1){
-        env->ThrowNew(find_class(ctx,"fr/viveris/jnidbus/exception/EventLoopSetupException"),"Could not register the wakeup FD to epoll");
+        env->ThrowNew(ctx->ids.event_loop_setup_exception_class,"Could not register the wakeup FD to epoll");
     }
 
     //put event loop in context
     ctx->eventLoop = env->NewGlobalRef(target);
 
     //put lock object in context
-    jobject wakeup_atomic = env->GetObjectField(ctx->eventLoop,env->GetFieldID(find_class(ctx, "fr/viveris/jnidbus/bindings/bus/EventLoop"),"shouldWakeup","Ljava/util/concurrent/atomic/AtomicBoolean;"));
+    jobject wakeup_atomic = env->GetObjectField(ctx->eventLoop,ctx->ids.event_loop_should_wakeup);
     ctx->wakeup_atomic = env->NewGlobalRef(wakeup_atomic);
 
-    //add watch handlers
+    //add watch and timeout handlers
     dbus_connection_set_watch_functions(ctx->connection,add_watch,remove_watch,toggle_watch,ctx,NULL);
+    if(!dbus_connection_set_timeout_functions(ctx->connection,add_timeout,remove_timeout,toggle_timeout,ctx,NULL)){
+      env->ThrowNew(ctx->ids.event_loop_setup_exception_class,"Could not register the timeout functions");
+    }
 
     return JNI_TRUE;
   }
@@ -73,9 +82,10 @@ JNIEXPORT jboolean JNICALL Java_fr_viveris_jnidbus_bindings_bus_EventLoop_setup
  * Core method of the event loop. A tick will call epoll_wait and wait for events. It is possible to
  * wake epoll by using the wakeup file descriptor.
  *
- * When a wakeup call is made, we will simply empty the FD and proceed. If any other FD are selected,
+ * When a wakeup call is made, we will simply empty the FD and proceed. If a watch FD is selected,
  * get the DBus watch pointer corresponding and notify DBus a watch state has changed, which will
- * make DBus check for data and dispatch parsed message to the correct object path handler.
+ * make DBus check for data and dispatch parsed message to the correct object path handler. If a
+ * timer FD expired, notify DBus its timeout should be handled.
  *
  * Class:     fr_viveris_jnidbus_bindings_bus_EventLoop
  * Method:    tick
@@ -91,21 +101,32 @@ JNIEXPORT void JNICALL Java_fr_viveris_jnidbus_bindings_bus_EventLoop_tick
     int numberSelected = epoll_wait(ctx->epollFD,events,EPOLL_MAX_EVENTS,(int)timeout);
 
     //set the wakeup flag to false
-    env->CallVoidMethod(ctx->wakeup_atomic,find_method(ctx,"java/util/concurrent/atomic/AtomicBoolean","set","(Z)V"),JNI_FALSE);
+    env->CallVoidMethod(ctx->wakeup_atomic,ctx->ids.atomic_boolean_set,JNI_FALSE);
 
     //iterate through what epoll selected
     for (int i = 0; i < numberSelected; i++){
-      if(events[i].data.fd == ctx->wakeupFD){
+      epoll_source* source = (epoll_source*) events[i].data.ptr;
+
+      //the source may have been released by DBus while handling a previous event
+      if(source->removed) continue;
+
+      if(source->type == WAKEUP_SOURCE){
         //wakeup call detected, empty the event FD and proceed
         uint64_t u;
-        read(events[i].data.fd,&u,sizeof(uint64_t));
+        read(source->fd,&u,sizeof(uint64_t));
         continue;
+      }else if(source->type == TIMEOUT_SOURCE){
+        //a timer expired, empty the timer FD and let DBus handle it, DBus may remove the timeout during the call
+        uint64_t expirations;
+        read(source->fd,&expirations,sizeof(uint64_t));
+        if (!dbus_timeout_handle((DBusTimeout*) source->data)) {
+          env->ThrowNew(ctx->ids.illegal_state_exception_class,"More memory is needed but none is available");
+        }
       }else{
         //a change have been detected on a FD, dispatch to dbus
         unsigned int flags = 0;
         unsigned int epollFlages = events[i].events;
-        DBusWatch* watch = (DBusWatch*) events[i].data.ptr;
-        int fd = dbus_watch_get_unix_fd(watch);
+        DBusWatch* watch = (DBusWatch*) source->data;
 
         if (epollFlages & EPOLLIN)  flags |= DBUS_WATCH_READABLE;
         if (epollFlages & EPOLLOUT) flags |= DBUS_WATCH_WRITABLE;
@@ -113,13 +134,19 @@ JNIEXPORT void JNICALL Java_fr_viveris_jnidbus_bindings_bus_EventLoop_tick
         if (epollFlages & EPOLLERR) flags |= DBUS_WATCH_ERROR;
 
         if (!dbus_watch_handle(watch, flags)) {
-          env->ThrowNew(find_class(ctx,"java/lang/IllegalStateException"),"More memory is needed but none is available");
+          env->ThrowNew(ctx->ids.illegal_state_exception_class,"More memory is needed but none is available");
         }
-
-        //dispatch all the detected events
-        while (dbus_connection_dispatch(ctx->connection) == DBUS_DISPATCH_DATA_REMAINS);
       }
+
+      //dispatch all the detected events
+      while (dbus_connection_dispatch(ctx->connection) == DBUS_DISPATCH_DATA_REMAINS);
     }
+
+    //give the messages collected during the tick to the JVM
+    if(ctx->batch != NULL) flush_dispatch_batch(ctx,env);
+
+    //the events are processed, we can now free what DBus released
+    free_released_sources(ctx);
   }
 
 /**
@@ -163,7 +190,7 @@ JNIEXPORT void JNICALL Java_fr_viveris_jnidbus_bindings_bus_EventLoop_sendReply
     }else{
       dbus_uint32_t msgSerial = 0;
       if (!dbus_connection_send(conn, msg, &msgSerial)) {
-        env->ThrowNew(find_class(ctx,"java/lang/IllegalStateException"),"Sending failed (probably caused by an out of memory)");
+        env->ThrowNew(ctx->ids.illegal_state_exception_class,"Sending failed (probably caused by an out of memory)");
       }
     }
 
@@ -190,7 +217,7 @@ JNIEXPORT void JNICALL Java_fr_viveris_jnidbus_bindings_bus_EventLoop_sendReplyE
 
     dbus_uint32_t msgSerial = 0;
     if (!dbus_connection_send(conn, msg, &msgSerial)) {
-      env->ThrowNew(find_class(ctx,"java/lang/IllegalStateException"),"Sending failed (probably caused by an out of memory)");
+      env->ThrowNew(ctx->ids.illegal_state_exception_class,"Sending failed (probably caused by an out of memory)");
     }
 
     env->ReleaseStringUTFChars(errorCodeJVM, errorCodeNative);
@@ -199,18 +226,36 @@ JNIEXPORT void JNICALL Java_fr_viveris_jnidbus_bindings_bus_EventLoop_sendReplyE
 }
 
 /**
+ * Give the JVM PendingReply (promise or future) to DBus for later notification. When the call was sent from another
+ * thread than the event loop, the reply may have been processed by the event loop before the notify function is set, in
+ * which case the promise is notified from here. The pending call is referenced during the check so the event loop can not
+ * free it in the meantime.
  *
- * Send a Signal on the Bus
- *
- * Class:     fr_viveris_jnidbus_bindings_bus_EventLoop
- * Method:    sendSignal
- * Signature: (JLjava/lang/String;Ljava/lang/String;Ljava/lang/String;Lfr/viveris/jnidbus/message/Message;)V
+ * The returned context holds a reference for the JVM, which gives it back to the PendingReply so the call can be
+ * cancelled. The JVM must release it with cancelPendingCall or releasePendingCall
  */
-JNIEXPORT void JNICALL Java_fr_viveris_jnidbus_bindings_bus_EventLoop_sendSignal
-  (JNIEnv * env, jobject target, jlong ctxPtr, jstring pathJVM, jstring interfaceJVM, jstring memberJVM, jobject messageJVM){
+static pending_call_context* register_promise(context* ctx, JNIEnv* env, DBusPendingCall* res, jobject promise){
+    pending_call_context* callContext = (pending_call_context*) malloc(sizeof(pending_call_context));
+    callContext->promise = env->NewGlobalRef(promise);
+    callContext->ctx = ctx;
+    callContext->pending = res;
+    callContext->notified = 0;
+    callContext->refs = 2;
+
+    dbus_pending_call_ref(res);
+    dbus_pending_call_set_notify(res,handle_call_response,callContext,free_pending_call_context);
+    if(dbus_pending_call_get_completed(res)) handle_call_response(res,callContext);
+    dbus_pending_call_unref(res);
+    return callContext;
+}
 
-    context* ctx = (context*) ctxPtr;
+/**
+ * Build and send a signal from the given JVM objects. If something went wrong an exception will be pending in the JVM
+ * and the function will return false
+ */
+static bool send_signal(context* ctx, JNIEnv* env, jstring pathJVM, jstring interfaceJVM, jstring memberJVM, jobject messageJVM){
     DBusConnection* conn = ctx->connection;
+    bool success = false;
 
     //transform them into native types
     const char* pathNative = env->GetStringUTFChars(pathJVM, 0);
@@ -222,12 +267,14 @@ JNIEXPORT void JNICALL Java_fr_viveris_jnidbus_bindings_bus_EventLoop_sendSignal
     DBusMessageIter args;
     dbus_message_iter_init_append(msg,&args);
     serialize(ctx,messageJVM,&args);
-    if(env->ExceptionOccurred()){
+    if(env->ExceptionCheck()){
       //do nothing
     }else{
       dbus_uint32_t msgSerial = 0;
       if (!dbus_connection_send(conn, msg, &msgSerial)) {
-        env->ThrowNew(find_class(ctx,"java/lang/IllegalStateException"),"Sending failed (probably caused by an out of memory)");
+        env->ThrowNew(ctx->ids.illegal_state_exception_class,"Sending failed (probably caused by an out of memory)");
+      }else{
+        success = true;
       }
     }
 
@@ -235,23 +282,17 @@ JNIEXPORT void JNICALL Java_fr_viveris_jnidbus_bindings_bus_EventLoop_sendSignal
     env->ReleaseStringUTFChars(interfaceJVM, typeNative);
     env->ReleaseStringUTFChars(memberJVM, nameNative);
     dbus_message_unref(msg);
+    return success;
 }
 
 /**
- *
- * Asynchronously call a DBus method. The function will register the given JVM Promise to DBus which will notify
- * it when its state changes
- *
- * Class:     fr_viveris_jnidbus_bindings_bus_Connection
- * Method:    sendEvent
- * Signature: (Lfr/viveris/jnidbus/bindings/message/Event;)Z
+ * Build and send a call from the given JVM objects and register the promise to the pending call, its context is stored
+ * in callContext. Without promise the call is flagged as not expecting a reply and sent without pending call. If
+ * something went wrong an exception will be pending in the JVM and the function will return false
  */
-JNIEXPORT void JNICALL Java_fr_viveris_jnidbus_bindings_bus_EventLoop_sendCall
-  (JNIEnv * env, jobject target, jlong ctxPtr, jstring pathJVM, jstring interfaceJVM, jstring memberJVM, jobject messageJVM, jstring destJVM, jobject promise){
-    context* ctx = (context*) ctxPtr;
-
-    //get the dbus connection from pointer
+static bool send_call(context* ctx, JNIEnv* env, jstring pathJVM, jstring interfaceJVM, jstring memberJVM, jobject messageJVM, jstring destJVM, jint timeout, jobject promise, pending_call_context** callContext){
     DBusConnection* conn = ctx->connection;
+    bool success = false;
 
     //transform params into native types
     const char* pathNative = env->GetStringUTFChars(pathJVM, 0);
@@ -264,18 +305,25 @@ JNIEXPORT void JNICALL Java_fr_viveris_jnidbus_bindings_bus_EventLoop_sendCall
     DBusMessageIter args;
     dbus_message_iter_init_append(msg,&args);
     serialize(ctx,messageJVM,&args);
-    if(env->ExceptionOccurred()){
+    if(env->ExceptionCheck()){
       //do nothing
+    }else if(promise == NULL){
+      //the called object will not reply, so there is nothing to wait for
+      dbus_message_set_no_reply(msg,1);
+      dbus_uint32_t msgSerial = 0;
+      if (!dbus_connection_send(conn, msg, &msgSerial)) {
+        env->ThrowNew(ctx->ids.illegal_state_exception_class,"Sending failed (probably caused by an out of memory)");
+      }else{
+        success = true;
+      }
     }else{
       DBusPendingCall* res;
-      if (!dbus_connection_send_with_reply(conn,msg,&res,-1)) {
-        env->ThrowNew(find_class(ctx,"java/lang/IllegalStateException"),"Sending failed (probably caused by an out of memory)");
+      //a timeout of -1 is DBUS_TIMEOUT_USE_DEFAULT, when the timeout expires DBus will complete the call with an error
+      if (!dbus_connection_send_with_reply(conn,msg,&res,timeout)) {
+        env->ThrowNew(ctx->ids.illegal_state_exception_class,"Sending failed (probably caused by an out of memory)");
       }else{
-        //give the JVM Promise to DBus for later notification
-        pending_call_context* callContext = (pending_call_context*) malloc(sizeof(pending_call_context));
-        callContext->promise = env->NewGlobalRef(promise);
-        callContext->ctx = ctx;
-        dbus_pending_call_set_notify(res,handle_call_response,callContext,NULL);
+        *callContext = register_promise(ctx,env,res,promise);
+        success = true;
       }
     }
 
@@ -286,14 +334,212 @@ JNIEXPORT void JNICALL Java_fr_viveris_jnidbus_bindings_bus_EventLoop_sendCall
     env->ReleaseStringUTFChars(destJVM, destNative);
 
     dbus_message_unref(msg);
+    return success;
+}
+
+/**
+ *
+ * Send a Signal on the Bus
+ *
+ * Class:     fr_viveris_jnidbus_bindings_bus_EventLoop
+ * Method:    sendSignal
+ * Signature: (JLjava/lang/String;Ljava/lang/String;Ljava/lang/String;Lfr/viveris/jnidbus/message/Message;)V
+ */
+JNIEXPORT void JNICALL Java_fr_viveris_jnidbus_bindings_bus_EventLoop_sendSignal
+  (JNIEnv * env, jobject target, jlong ctxPtr, jstring pathJVM, jstring interfaceJVM, jstring memberJVM, jobject messageJVM){
+    send_signal((context*) ctxPtr,env,pathJVM,interfaceJVM,memberJVM,messageJVM);
+}
+
+/**
+ *
+ * Asynchronously call a DBus method. The function will register the given JVM Promise to DBus which will notify
+ * it when its state changes, and return the pending call context to the JVM (0 without promise)
+ *
+ * Class:     fr_viveris_jnidbus_bindings_bus_Connection
+ * Method:    sendEvent
+ * Signature: (Lfr/viveris/jnidbus/bindings/message/Event;)Z
+ */
+JNIEXPORT jlong JNICALL Java_fr_viveris_jnidbus_bindings_bus_EventLoop_sendCall
+  (JNIEnv * env, jobject target, jlong ctxPtr, jstring pathJVM, jstring interfaceJVM, jstring memberJVM, jobject messageJVM, jstring destJVM, jint timeout, jobject promise){
+    pending_call_context* callContext = NULL;
+    send_call((context*) ctxPtr,env,pathJVM,interfaceJVM,memberJVM,messageJVM,destJVM,timeout,promise,&callContext);
+    return (jlong) callContext;
+}
+
+/**
+ *
+ * Send a signal or a call encoded by the JVM in the DBus wire format. The message is demarshalled from the direct buffer
+ * and sent as is, if a promise is given the call is registered as for sendCall and its pending call context is returned.
+ * A call without promise was flagged as not expecting a reply by the JVM
+ *
+ * Class:     fr_viveris_jnidbus_bindings_bus_EventLoop
+ * Method:    sendMessage
+ * Signature: (JLjava/nio/ByteBuffer;ILfr/viveris/jnidbus/message/PendingReply;I)J
+ */
+JNIEXPORT jlong JNICALL Java_fr_viveris_jnidbus_bindings_bus_EventLoop_sendMessage
+  (JNIEnv * env, jobject target, jlong ctxPtr, jobject buffer, jint length, jobject promise, jint timeout){
+    context* ctx = (context*) ctxPtr;
+    DBusConnection* conn = ctx->connection;
+    pending_call_context* callContext = NULL;
+
+    char* data = (char*) env->GetDirectBufferAddress(buffer);
+    if(data == NULL){
+      env->ThrowNew(ctx->ids.illegal_state_exception_class,"The message buffer is not a direct buffer");
+      return 0;
+    }
+
+    DBusError err;
+    dbus_error_init(&err);
+    DBusMessage* msg = dbus_message_demarshal(data,length,&err);
+    if(msg == NULL){
+      std::string error = std::string()+"Invalid message : "+err.message;
+      dbus_error_free(&err);
+      env->ThrowNew(ctx->ids.illegal_state_exception_class,error.c_str());
+      return 0;
+    }
+
+    if(promise == NULL){
+      dbus_uint32_t msgSerial = 0;
+      if (!dbus_connection_send(conn, msg, &msgSerial)) {
+        env->ThrowNew(ctx->ids.illegal_state_exception_class,"Sending failed (probably caused by an out of memory)");
+      }
+    }else{
+      DBusPendingCall* res;
+      if (!dbus_connection_send_with_reply(conn,msg,&res,timeout)) {
+        env->ThrowNew(ctx->ids.illegal_state_exception_class,"Sending failed (probably caused by an out of memory)");
+      }else{
+        callContext = register_promise(ctx,env,res,promise);
+      }
+    }
+
+    dbus_message_unref(msg);
+    return (jlong) callContext;
+}
+
+/**
+ *
+ * Send a batch of signals and calls in one JNI call. The requests are read directly from the slots of the JVM request
+ * ring, which is way cheaper than crossing the JNI boundary for each request. The function stops at the first request
+ * that could not be sent, clears the pending exception and return the number of requests sent, the JVM will then process
+ * the failed request again through the standard path so the exception is given to its callback. The pending call context
+ * of each call is written back in its slot.
+ *
+ * Class:     fr_viveris_jnidbus_bindings_bus_EventLoop
+ * Method:    sendBatch
+ * Signature: (J[Lfr/viveris/jnidbus/bindings/bus/RequestSlot;II)I
+ */
+JNIEXPORT jint JNICALL Java_fr_viveris_jnidbus_bindings_bus_EventLoop_sendBatch
+  (JNIEnv * env, jobject target, jlong ctxPtr, jobjectArray slots, jint start, jint count){
+    context* ctx = (context*) ctxPtr;
+    //the ring size is a power of two, so we can wrap the index with a mask
+    jint mask = env->GetArrayLength(slots) - 1;
+
+    for(jint i = 0; i < count; i++){
+      jobject slot = env->GetObjectArrayElement(slots,(start + i) & mask);
+      jstring pathJVM = (jstring) env->GetObjectField(slot,ctx->ids.slot_path);
+      jstring interfaceJVM = (jstring) env->GetObjectField(slot,ctx->ids.slot_interface_name);
+      jstring memberJVM = (jstring) env->GetObjectField(slot,ctx->ids.slot_member);
+      jobject messageJVM = env->GetObjectField(slot,ctx->ids.slot_message);
+      bool success;
+
+      if(env->GetIntField(slot,ctx->ids.slot_kind) == fr_viveris_jnidbus_bindings_bus_EventLoop_REQUEST_CALL){
+        jstring destJVM = (jstring) env->GetObjectField(slot,ctx->ids.slot_dest);
+        jobject promise = env->GetObjectField(slot,ctx->ids.slot_promise);
+
+        jint timeout = env->GetIntField(slot,ctx->ids.slot_timeout);
+
+        pending_call_context* callContext = NULL;
+        success = send_call(ctx,env,pathJVM,interfaceJVM,memberJVM,messageJVM,destJVM,timeout,promise,&callContext);
+        if(callContext != NULL) env->SetLongField(slot,ctx->ids.slot_pending_call,(jlong) callContext);
+
+        env->DeleteLocalRef(destJVM);
+        env->DeleteLocalRef(promise);
+      }else{
+        success = send_signal(ctx,env,pathJVM,interfaceJVM,memberJVM,messageJVM);
+      }
+
+      env->DeleteLocalRef(pathJVM);
+      env->DeleteLocalRef(interfaceJVM);
+      env->DeleteLocalRef(memberJVM);
+      env->DeleteLocalRef(messageJVM);
+      env->DeleteLocalRef(slot);
+
+      //let the JVM process the failed request again so its callback is notified
+      if(!success){
+        env->ExceptionClear();
+        return i;
+      }
+    }
+
+    return count;
+}
+
+/**
+ *
+ * Cancel a pending call and release the reference of the JVM on its context. If the reply was not handled yet, DBus
+ * forgets the call, which frees the pending call and the JVM promise reference right away, and a reply received later
+ * is dropped. Otherwise only the reference of the JVM is released
+ *
+ * Class:     fr_viveris_jnidbus_bindings_bus_EventLoop
+ * Method:    cancelPendingCall
+ * Signature: (JJ)V
+ */
+JNIEXPORT void JNICALL Java_fr_viveris_jnidbus_bindings_bus_EventLoop_cancelPendingCall
+  (JNIEnv * env, jobject target, jlong ctxPtr, jlong callPtr){
+    pending_call_context* callContext = (pending_call_context*) callPtr;
+
+    //the notify function will not be called once the call is cancelled, so release its reference on the pending call
+    if(__sync_bool_compare_and_swap(&callContext->notified,0,1)){
+      DBusPendingCall* pending = callContext->pending;
+      dbus_pending_call_cancel(pending);
+      dbus_pending_call_unref(pending);
+    }
+    release_pending_call_context(callContext);
+}
+
+/**
+ *
+ * Release the reference of the JVM on a pending call context, once the reply was handled
+ *
+ * Class:     fr_viveris_jnidbus_bindings_bus_EventLoop
+ * Method:    releasePendingCall
+ * Signature: (J)V
+ */
+JNIEXPORT void JNICALL Java_fr_viveris_jnidbus_bindings_bus_EventLoop_releasePendingCall
+  (JNIEnv * env, jclass target, jlong callPtr){
+    release_pending_call_context((pending_call_context*) callPtr);
+}
+
+/**
+ *
+ * Enable the batched dispatch, the given JVM arrays are kept for the lifetime of the connection and filled by the dispatch
+ * handler
+ *
+ * Class:     fr_viveris_jnidbus_bindings_bus_EventLoop
+ * Method:    setupBatchDispatch
+ * Signature: (J[Lfr/viveris/jnidbus/dispatching/Dispatcher;[I[Ljava/lang/Object;[Ljava/lang/String;[J)V
+ */
+JNIEXPORT void JNICALL Java_fr_viveris_jnidbus_bindings_bus_EventLoop_setupBatchDispatch
+  (JNIEnv * env, jobject target, jlong ctxPtr, jobjectArray dispatchers, jintArray routes, jobjectArray bodies, jobjectArray senders, jlongArray messages){
+    context* ctx = (context*) ctxPtr;
+    dispatch_batch* batch = (dispatch_batch*) malloc(sizeof(dispatch_batch));
+    batch->dispatchers = (jobjectArray) env->NewGlobalRef(dispatchers);
+    batch->routes_jvm = (jintArray) env->NewGlobalRef(routes);
+    batch->bodies = (jobjectArray) env->NewGlobalRef(bodies);
+    batch->senders = (jobjectArray) env->NewGlobalRef(senders);
+    batch->messages_jvm = (jlongArray) env->NewGlobalRef(messages);
+    batch->capacity = env->GetArrayLength(dispatchers);
+    batch->count = 0;
+    batch->routes = (jint*) malloc(sizeof(jint) * batch->capacity);
+    batch->messages = (jlong*) malloc(sizeof(jlong) * batch->capacity);
+    ctx->batch = batch;
 }
 
 /**
  *
  * Register a new Dispatcher to DBus and add a match to receive signal for this object path.
- * Please note that with the current implementation, a dispatcher can be notified for signals that
- * do not have handlers on the JVM side, this might change in the future but it's not worth the
- * effort right now.
+ * The match is broad, so the messages are filtered by the routes of the dispatcher before being
+ * given to the JVM, the dispatcher has no route until setRoutes is called.
  *
  * Class:     fr_viveris_jnidbus_bindings_bus_EventLoop
  * Method:    addPathHandler
@@ -308,6 +554,7 @@ JNIEXPORT void JNICALL Java_fr_viveris_jnidbus_bindings_bus_EventLoop_addPathHan
   handler_context* handler_data = (handler_context*) malloc(sizeof(handler_context));
   handler_data->ctx = ctx;
   handler_data->dispatcher = env->NewGlobalRef(dispatcher);
+  handler_data->routes = NULL;
   dbus_connection_register_object_path(ctx->connection,pathNative,&dbus_handler_struct,handler_data);
   std::string match = std::string()+"path='"+pathNative+"'";
   dbus_bus_add_match(ctx->connection,match.c_str(),NULL);
@@ -339,4 +586,82 @@ JNIEXPORT void JNICALL Java_fr_viveris_jnidbus_bindings_bus_EventLoop_removePath
 
 
   env->ReleaseStringUTFChars(pathJVM,pathNative);
-}
\ No newline at end of file
+}
+
+/**
+ * Copy the string at the given index of the JVM array at the cursor position and move the cursor after it
+ */
+static const char* copy_route_string(JNIEnv* env, jobjectArray array, int index, char** cursor){
+  jstring stringJVM = (jstring) env->GetObjectArrayElement(array,index);
+  int length = env->GetStringUTFLength(stringJVM);
+  char* copy = *cursor;
+  env->GetStringUTFRegion(stringJVM,0,env->GetStringLength(stringJVM),copy);
+  copy[length] = '\0';
+  *cursor += length + 1;
+  env->DeleteLocalRef(stringJVM);
+  return copy;
+}
+
+static bool route_less(const route& a, const route& b){
+  return compare_routes(&a,&b) < 0;
+}
+
+/**
+ * Replace the route table of a registered object path. The routes are given as a flat array of interface, member and
+ * signature triplets, and are copied in one buffer so the table does not reference any JVM object.
+ *
+ * Class:     fr_viveris_jnidbus_bindings_bus_EventLoop
+ * Method:    setRoutes
+ * Signature: (JLjava/lang/String;[Ljava/lang/String;[I[J[Z[Z)V
+ */
+JNIEXPORT void JNICALL Java_fr_viveris_jnidbus_bindings_bus_EventLoop_setRoutes
+  (JNIEnv * env, jobject target, jlong ctxPtr, jstring pathJVM, jobjectArray routesJVM, jintArray typesJVM, jlongArray plansJVM, jbooleanArray lazyJVM, jbooleanArray internJVM){
+  context* ctx = (context*) ctxPtr;
+
+  //get the handler context of the path, the path may have been unregistered in the meantime
+  const char* pathNative = env->GetStringUTFChars(pathJVM, 0);
+  void* data = NULL;
+  dbus_bool_t found = dbus_connection_get_object_path_data(ctx->connection,pathNative,&data);
+  env->ReleaseStringUTFChars(pathJVM,pathNative);
+  if(!found || data == NULL) return;
+  handler_context* handlerCtx = (handler_context*) data;
+
+  //compute the size of the string buffer
+  int count = env->GetArrayLength(typesJVM);
+  size_t length = 0;
+  for(int i = 0; i < count * 3; i++){
+    jstring stringJVM = (jstring) env->GetObjectArrayElement(routesJVM,i);
+    length += env->GetStringUTFLength(stringJVM) + 1;
+    env->DeleteLocalRef(stringJVM);
+  }
+
+  route_table* table = (route_table*) malloc(sizeof(route_table));
+  table->count = count;
+  table->routes = (route*) malloc(sizeof(route) * (count > 0 ? count : 1));
+  table->strings = (char*) malloc(length > 0 ? length : 1);
+
+  char* cursor = table->strings;
+  jint* types = env->GetIntArrayElements(typesJVM,NULL);
+  jlong* plans = env->GetLongArrayElements(plansJVM,NULL);
+  jboolean* lazy = env->GetBooleanArrayElements(lazyJVM,NULL);
+  jboolean* intern = env->GetBooleanArrayElements(internJVM,NULL);
+  for(int i = 0; i < count; i++){
+    table->routes[i].interface_name = copy_route_string(env,routesJVM,i * 3,&cursor);
+    table->routes[i].member = copy_route_string(env,routesJVM,i * 3 + 1,&cursor);
+    table->routes[i].signature = copy_route_string(env,routesJVM,i * 3 + 2,&cursor);
+    table->routes[i].type = types[i];
+    table->routes[i].plan = (binding_plan*) plans[i];
+    table->routes[i].lazy = lazy[i] == JNI_TRUE;
+    table->routes[i].intern_strings = intern[i] == JNI_TRUE;
+    table->routes[i].index = i;
+  }
+  env->ReleaseIntArrayElements(typesJVM,types,JNI_ABORT);
+  env->ReleaseLongArrayElements(plansJVM,plans,JNI_ABORT);
+  env->ReleaseBooleanArrayElements(lazyJVM,lazy,JNI_ABORT);
+  env->ReleaseBooleanArrayElements(internJVM,intern,JNI_ABORT);
+  std::sort(table->routes,table->routes + count,route_less);
+
+  //the table is only read by the dispatch handler which runs on this thread, we can free the old one right away
+  free_route_table(handlerCtx->routes);
+  handlerCtx->routes = table;
+}
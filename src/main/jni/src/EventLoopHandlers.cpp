@@ -2,50 +2,200 @@
  * Distributed under the terms of the Academic Free License.
  */
 #include "./headers/event_loop_handlers.h"
+#include "./headers/fr_viveris_jnidbus_bindings_bus_EventLoop.h"
 
+#include <cstring>
+#include <sys/timerfd.h>
+
+
+/**
+ * Check if the message is a call the handler should reply to. A call flagged as not expecting a reply is handled as a
+ * call but gives no message pointer to the JVM, so no reply is sent and the message is released right away. The JVM is
+ * told separately that the message is a call, so it is still routed to the handler methods of the calls
+ */
+static bool expects_reply(DBusMessage* msg){
+  return dbus_message_get_type(msg) == DBUS_MESSAGE_TYPE_METHOD_CALL && !dbus_message_get_no_reply(msg);
+}
+
+/**
+ * Give a message to a handler method taking a lazy message. The message must already be referenced for the reply, an
+ * additional reference is taken for the view created by the JVM
+ */
+static DBusHandlerResult dispatch_lazy(context* ctx, handler_context* handlerCtx, DBusMessage* msg, const route* searched){
+  JNIEnv* env;
+  get_env(ctx,&env);
+
+  const char * sender = dbus_message_get_sender(msg);
+  jstring senderJVM = sender == NULL ? NULL : intern_string(ctx,env,sender);
+
+  uintptr_t msgPointer = 0;
+  if(expects_reply(msg)){
+    msgPointer = (uintptr_t) msg;
+  }
+
+  //the JVM view takes ownership of this reference, even if the message is not handled
+  dbus_message_ref(msg);
+  jboolean wasHandled = env->CallBooleanMethod(
+    handlerCtx->dispatcher,
+    ctx->ids.dispatcher_dispatch_lazy,
+    (jlong) ctx,
+    (jlong) msg,
+    intern_string(ctx,env,searched->signature),
+    intern_string(ctx,env,searched->interface_name),
+    intern_string(ctx,env,searched->member),
+    senderJVM,
+    (jboolean) (searched->type == fr_viveris_jnidbus_bindings_bus_EventLoop_ROUTE_METHOD),
+    (jlong) msgPointer
+  );
+
+  if(msgPointer == 0 || wasHandled == JNI_FALSE){
+    dbus_message_unref(msg);
+  }
+
+  if(wasHandled == JNI_FALSE){
+    return DBUS_HANDLER_RESULT_NOT_YET_HANDLED;
+  }else{
+    return DBUS_HANDLER_RESULT_HANDLED;
+  }
+}
+
+/**
+ * Add a decoded message to the dispatch batch, the batch is flushed when full. As the message matched a route of the
+ * dispatcher it will be handled by the JVM, the calls keep their reference until they are replied
+ */
+static DBusHandlerResult add_to_batch(context* ctx, JNIEnv* env, handler_context* handlerCtx, const route* matched, DBusMessage* msg, jobject jvmObject){
+  dispatch_batch* batch = ctx->batch;
+
+  //the message could not be decoded, let DBus reject it
+  if(jvmObject == NULL){
+    env->ExceptionClear();
+    dbus_message_unref(msg);
+    return DBUS_HANDLER_RESULT_NOT_YET_HANDLED;
+  }
+
+  //most of the messages come from a few peers, their sender string is taken from the intern table
+  const char* sender = dbus_message_get_sender(msg);
+  jstring senderJVM = sender == NULL ? NULL : intern_string(ctx,env,sender);
+
+  int i = batch->count++;
+  env->SetObjectArrayElement(batch->dispatchers,i,handlerCtx->dispatcher);
+  env->SetObjectArrayElement(batch->bodies,i,jvmObject);
+  env->SetObjectArrayElement(batch->senders,i,senderJVM);
+  env->DeleteLocalRef(jvmObject);
+  if(senderJVM != NULL) env->DeleteLocalRef(senderJVM);
+  batch->routes[i] = matched->index;
+
+  //a signal or a call without reply is not needed anymore, a call is released once replied
+  if(expects_reply(msg)){
+    batch->messages[i] = (jlong) (uintptr_t) msg;
+  }else{
+    batch->messages[i] = 0;
+    dbus_message_unref(msg);
+  }
+
+  if(batch->count == batch->capacity) flush_dispatch_batch(ctx,env);
+  return DBUS_HANDLER_RESULT_HANDLED;
+}
+
+void flush_dispatch_batch(context* ctx, JNIEnv* env){
+  dispatch_batch* batch = ctx->batch;
+  if(batch->count == 0) return;
+  int count = batch->count;
+  batch->count = 0;
+  env->SetIntArrayRegion(batch->routes_jvm,0,count,batch->routes);
+  env->SetLongArrayRegion(batch->messages_jvm,0,count,batch->messages);
+  env->CallVoidMethod(ctx->eventLoop,ctx->ids.event_loop_dispatch_batch,count);
+}
 
 DBusHandlerResult handle_dispatch(DBusConnection* connection, DBusMessage* msg, void* ctxPtr){
+  handler_context* handlerCtx = (handler_context*) ctxPtr;
+
+  //check the message headers against the routes of the dispatcher, so the messages nobody handles are rejected
+  //before creating any JVM object
+  const char* interface = dbus_message_get_interface(msg);
+  const char* member = dbus_message_get_member(msg);
+  if(interface == NULL || member == NULL) return DBUS_HANDLER_RESULT_NOT_YET_HANDLED;
+  route searched;
+  searched.interface_name = interface;
+  searched.member = member;
+  searched.signature = dbus_message_get_signature(msg);
+  searched.type = dbus_message_get_type(msg) == DBUS_MESSAGE_TYPE_METHOD_CALL ?
+      fr_viveris_jnidbus_bindings_bus_EventLoop_ROUTE_METHOD : fr_viveris_jnidbus_bindings_bus_EventLoop_ROUTE_SIGNAL;
+  const route* matched = find_route(handlerCtx->routes,&searched);
+  if(matched == NULL) return DBUS_HANDLER_RESULT_NOT_YET_HANDLED;
+
   dbus_message_ref(msg);
 
   //get the JVM environment
-  handler_context* handlerCtx = (handler_context*) ctxPtr;
   context* ctx = (context*) handlerCtx->ctx;
   JNIEnv* env;
   get_env(ctx,&env);
   
-  DBusMessageIter rootIter;
-  dbus_message_iter_init(msg, &rootIter);
-  jobject jvmObject = deserialize(ctx,&rootIter);
-  //set the object signature
-  env->SetObjectField(
-      jvmObject,
-      find_field(ctx,"fr/viveris/jnidbus/serialization/DBusObject","signature","Ljava/lang/String;"),
-      env->NewStringUTF(dbus_message_get_signature(msg)));
+  //if the handler method takes a lazy message, nothing is decoded here: the view keeps its own reference on the message
+  //and releases it when closed. The collected messages are given first so the dispatch order is kept
+  if(matched->lazy){
+    if(ctx->batch != NULL) flush_dispatch_batch(ctx,env);
+    return dispatch_lazy(ctx,handlerCtx,msg,&searched);
+  }
+
+  //if the input type of the route has a binding plan, fill the message object directly, else deserialize a DBusObject.
+  //if the binding fails the message goes through the standard path which will report the error
+  intern_scope scope(matched->intern_strings);
+  jobject jvmObject = NULL;
+  bool bound = false;
+  if(matched->plan != NULL){
+    DBusMessageIter rootIter;
+    dbus_message_iter_init(msg, &rootIter);
+    jvmObject = bind_message(ctx,matched->plan,&rootIter);
+    bound = jvmObject != NULL;
+    if(!bound) env->ExceptionClear();
+  }
+  if(!bound){
+    jvmObject = deserialize_message(ctx,msg);
+  }
+
+  if(ctx->batch != NULL){
+    return add_to_batch(ctx,env,handlerCtx,matched,msg,jvmObject);
+  }
 
   //message metadata
-  const char * interface = dbus_message_get_interface(msg);
-  const char * member = dbus_message_get_member(msg);
+  //the sender is used by the dispatcher ordering, it is null on peer to peer connections
+  const char * sender = dbus_message_get_sender(msg);
+  jstring senderJVM = sender == NULL ? NULL : intern_string(ctx,env,sender);
 
   //if the message is a call, prepare the response
   uintptr_t msgPointer = 0;
-  if(dbus_message_get_type(msg) == DBUS_MESSAGE_TYPE_METHOD_CALL){
+  if(expects_reply(msg)){
     msgPointer = (uintptr_t) msg;
   }
 
   //Call the JVM handler method, the method will return false if the message was a called and that no handler were found, true instead
-  jboolean wasHandled = env->CallBooleanMethod(
-    handlerCtx->dispatcher,
-    find_method(
-      ctx,
-      "fr/viveris/jnidbus/dispatching/Dispatcher", 
-      "dispatch", 
-      "(Lfr/viveris/jnidbus/serialization/DBusObject;Ljava/lang/String;Ljava/lang/String;J)Z"
-    ),
-    jvmObject,
-    env->NewStringUTF(interface),
-    env->NewStringUTF(member),
-    msgPointer
-  );
+  jboolean isCall = (jboolean) (searched.type == fr_viveris_jnidbus_bindings_bus_EventLoop_ROUTE_METHOD);
+  jboolean wasHandled;
+  if(bound){
+    wasHandled = env->CallBooleanMethod(
+      handlerCtx->dispatcher,
+      ctx->ids.dispatcher_dispatch_bound,
+      jvmObject,
+      intern_string(ctx,env,searched.signature),
+      intern_string(ctx,env,interface),
+      intern_string(ctx,env,member),
+      senderJVM,
+      isCall,
+      msgPointer
+    );
+  }else{
+    wasHandled = env->CallBooleanMethod(
+      handlerCtx->dispatcher,
+      ctx->ids.dispatcher_dispatch,
+      jvmObject,
+      intern_string(ctx,env,interface),
+      intern_string(ctx,env,member),
+      senderJVM,
+      isCall,
+      msgPointer
+    );
+  }
 
   //if the message was a signal or a call not dispatched, free it
   if(msgPointer == 0 || wasHandled == JNI_FALSE){
@@ -67,6 +217,7 @@ void handle_dispatch_unregister(DBusConnection* connection, void* ctxPtr){
   get_env(ctx,&env);
 
   env->DeleteGlobalRef(handlerCtx->dispatcher);
+  free_route_table(handlerCtx->routes);
   free(handlerCtx);
 }
 
@@ -74,6 +225,10 @@ void handle_call_response(DBusPendingCall* pending, void* ctxPtr){
   //get JVM environment
   pending_call_context* pCtx = (pending_call_context*) ctxPtr;
   context* ctx = pCtx->ctx;
+
+  //the promise may be notified by the thread which sent the call and by the event loop, only the first one handles it
+  if(!__sync_bool_compare_and_swap(&pCtx->notified,0,1)) return;
+
   JNIEnv* env;
   get_env(ctx,&env);
 
@@ -81,7 +236,7 @@ void handle_call_response(DBusPendingCall* pending, void* ctxPtr){
   DBusMessage* msg = dbus_pending_call_steal_reply(pending);
 
   if(msg == NULL){
-    env->ThrowNew(find_class(ctx,"java/lang/IllegalStateException"),"Pending call notified but message was null");
+    env->ThrowNew(ctx->ids.illegal_state_exception_class,"Pending call notified but message was null");
   }
 
   //if the message is an error, call the fail() method of the object
@@ -91,43 +246,102 @@ void handle_call_response(DBusPendingCall* pending, void* ctxPtr){
     dbus_set_error_from_message(&err,msg);
     env->CallVoidMethod(
       pCtx->promise,
-      find_method(
-        ctx,
-        "fr/viveris/jnidbus/message/DBusPromise", 
-        "fail", 
-        "(Ljava/lang/String;Ljava/lang/String;)V"
-      ),
-      env->NewStringUTF(err.name),
+      ctx->ids.promise_fail,
+      intern_string(ctx,env,err.name),
       env->NewStringUTF(err.message)
     );
     dbus_error_free(&err);
   //else, deserialize and call the notify() method
   }else{
-    DBusMessageIter rootIter;
-    dbus_message_iter_init(msg, &rootIter);
-    jobject jvmObject = deserialize(ctx,&rootIter);
-    env->SetObjectField(
-      jvmObject,
-      find_field(ctx,"fr/viveris/jnidbus/serialization/DBusObject","signature","Ljava/lang/String;"),
-      env->NewStringUTF(dbus_message_get_signature(msg)));
+    //only ask the promise if its strings should be interned when the reply contains some
+    const char* signature = dbus_message_get_signature(msg);
+    bool intern = false;
+    if(strpbrk(signature,"so") != NULL){
+      intern = env->CallBooleanMethod(pCtx->promise,ctx->ids.promise_intern_strings) == JNI_TRUE;
+    }
+    intern_scope scope(intern);
 
-    env->CallVoidMethod(
-      pCtx->promise,
-      find_method(
-        ctx,
-        "fr/viveris/jnidbus/message/DBusPromise", 
-        "resolve", 
-        "(Lfr/viveris/jnidbus/serialization/DBusObject;)V"
-      ),
-      jvmObject
-    );
+    //if the expected type has a binding plan matching the reply, fill it directly
+    binding_plan* plan = NULL;
+    if(ctx->direct_binding){
+      plan = (binding_plan*) env->CallLongMethod(pCtx->promise,ctx->ids.promise_binding_plan);
+      //an invalid expected type is reported by the standard path
+      if(env->ExceptionCheck()){
+        env->ExceptionClear();
+        plan = NULL;
+      }
+      if(plan != NULL && strcmp(plan->signature,signature) != 0) plan = NULL;
+    }
+
+    jobject boundObject = NULL;
+    if(plan != NULL){
+      DBusMessageIter rootIter;
+      dbus_message_iter_init(msg, &rootIter);
+      boundObject = bind_message(ctx,plan,&rootIter);
+      if(boundObject == NULL) env->ExceptionClear();
+    }
+
+    if(boundObject != NULL){
+      env->CallVoidMethod(
+        pCtx->promise,
+        ctx->ids.promise_resolve_bound,
+        boundObject
+      );
+    }else{
+      jobject jvmObject = deserialize_message(ctx,msg);
+
+      env->CallVoidMethod(
+        pCtx->promise,
+        ctx->ids.promise_resolve,
+        jvmObject
+      );
+    }
   }
 
-  //free resources
+  //free resources, the pending call context is freed by free_pending_call_context when the pending call is released
   dbus_message_unref(msg);
   dbus_pending_call_unref(pending);
+}
+
+void free_pending_call_context(void* ctxPtr){
+  pending_call_context* pCtx = (pending_call_context*) ctxPtr;
+  JNIEnv* env;
+  get_env(pCtx->ctx,&env);
+
+  //the promise is not needed anymore even if the JVM still holds the context
   env->DeleteGlobalRef(pCtx->promise);
-  free(pCtx);
+  pCtx->promise = NULL;
+  pCtx->pending = NULL;
+  release_pending_call_context(pCtx);
+}
+
+void release_pending_call_context(pending_call_context* pCtx){
+  if(__sync_sub_and_fetch(&pCtx->refs,1) == 0) free(pCtx);
+}
+
+/**
+ * Called by DBus when a watch is freed
+ */
+static void free_watch_source(void* data){
+    release_source((epoll_source*) data);
+}
+
+/**
+ * Get the epoll source of the watch, or create it if this is the first time we see this watch. The source is released
+ * by DBus when the watch is freed
+ */
+static epoll_source* get_watch_source(DBusWatch *w, context* ctx){
+    epoll_source* source = (epoll_source*) dbus_watch_get_data(w);
+    if(source == NULL){
+        source = (epoll_source*) malloc(sizeof(epoll_source));
+        source->type = WATCH_SOURCE;
+        source->fd = dbus_watch_get_unix_fd(w);
+        source->data = w;
+        source->ctx = ctx;
+        source->removed = false;
+        dbus_watch_set_data(w,source,free_watch_source);
+    }
+    return source;
 }
 
 /**
@@ -146,12 +360,12 @@ dbus_bool_t add_watch(DBusWatch *w, void *data){
     if(flags & DBUS_WATCH_READABLE) cond |= EPOLLIN;
     if(flags & DBUS_WATCH_WRITABLE) cond |= EPOLLOUT;
 
-    //register to epoll and store a pointer to the watch in the epoll struct. Beware, event.data is a union struct
-    //so only one field can be used at a time, meaning we are storing only the watch pointer (which contains the
-    //file descriptor, so we are fine)
+    //register to epoll and store a pointer to the watch source in the epoll struct. Beware, event.data is a union struct
+    //so only one field can be used at a time, meaning we are storing only the source pointer (which contains the
+    //watch, so we are fine)
     epoll_event event;
     event.events = cond;
-    event.data.ptr = w;
+    event.data.ptr = get_watch_source(w,ctx);
 
     int error = epoll_ctl(ctx->epollFD,EPOLL_CTL_ADD,fd,&event);
     if(error == -1){
@@ -202,7 +416,79 @@ void toggle_watch(DBusWatch *w, void *data){
 
   epoll_event event;
   event.events = cond;
-  event.data.ptr = w;
+  event.data.ptr = get_watch_source(w,ctx);
 
   epoll_ctl(ctx->epollFD,EPOLL_CTL_MOD,fd,&event);
+}
+
+/**
+ * Arm the timerfd of the source with the DBus timeout interval, or disarm it if the timeout is disabled. DBus timeouts are
+ * periodic, they should fire every interval until they are removed or disabled
+ */
+static void arm_timeout(epoll_source* source){
+    DBusTimeout* t = (DBusTimeout*) source->data;
+    itimerspec spec;
+    memset(&spec,0,sizeof(itimerspec));
+
+    if(dbus_timeout_get_enabled(t)){
+        int interval = dbus_timeout_get_interval(t);
+        spec.it_interval.tv_sec = interval / 1000;
+        spec.it_interval.tv_nsec = (interval % 1000) * 1000000L;
+        spec.it_value = spec.it_interval;
+        //a zero value would disarm the timer, make it expire as soon as possible instead
+        if(interval <= 0) spec.it_value.tv_nsec = 1;
+    }
+
+    timerfd_settime(source->fd,0,&spec,NULL);
+}
+
+/**
+ * Called by DBus when it needs a timer, for example to expire a pending call. A timerfd is created for the timeout
+ * and registered to epoll
+ */
+dbus_bool_t add_timeout(DBusTimeout *t, void *data){
+    context* ctx = (context*) data;
+
+    int fd = timerfd_create(CLOCK_MONOTONIC,TFD_NONBLOCK | TFD_CLOEXEC);
+    if(fd == -1) return 0;
+
+    epoll_source* source = (epoll_source*) malloc(sizeof(epoll_source));
+    source->type = TIMEOUT_SOURCE;
+    source->fd = fd;
+    source->data = t;
+    source->ctx = ctx;
+    source->removed = false;
+
+    epoll_event event;
+    event.events = EPOLLIN;
+    event.data.ptr = source;
+    if(epoll_ctl(ctx->epollFD,EPOLL_CTL_ADD,fd,&event) == -1){
+        close(fd);
+        free(source);
+        return 0;
+    }
+
+    dbus_timeout_set_data(t,source,NULL);
+    arm_timeout(source);
+    return 1;
+}
+
+/**
+ * Called when DBus does not need the timer anymore, the timerfd is closed (which removes it from epoll)
+ */
+void remove_timeout(DBusTimeout *t, void *data){
+    epoll_source* source = (epoll_source*) dbus_timeout_get_data(t);
+    if(source == NULL) return;
+
+    dbus_timeout_set_data(t,NULL,NULL);
+    close(source->fd);
+    release_source(source);
+}
+
+/**
+ * Called when the timeout is enabled, disabled or when its interval changed
+ */
+void toggle_timeout(DBusTimeout *t, void *data){
+    epoll_source* source = (epoll_source*) dbus_timeout_get_data(t);
+    if(source != NULL) arm_timeout(source);
 }
\ No newline at end of file
@@ -0,0 +1,117 @@
+/* Copyright 2019, Viveris Technologies <opensource@toulouse.viveris.fr>
+ * Distributed under the terms of the Academic Free License.
+ */
+#include "./headers/fr_viveris_jnidbus_message_LazyMessage.h"
+#include "./headers/serialization.h"
+
+/**
+ * Move a new iterator of the message to the value at the given index, return false if the message has less values
+ */
+static bool seek_value(DBusMessage* msg, int index, DBusMessageIter* iter){
+    if(!dbus_message_iter_init(msg,iter)) return false;
+    for(int i = 0; i < index; i++){
+        if(!dbus_message_iter_next(iter)) return false;
+    }
+    return dbus_message_iter_get_arg_type(iter) != DBUS_TYPE_INVALID;
+}
+
+/**
+ * Decode the value at the given index, the value is created the same way as in a deserialized DBusObject
+ *
+ * Class:     fr_viveris_jnidbus_message_LazyMessage
+ * Method:    decode
+ * Signature: (JJI)Ljava/lang/Object;
+ */
+JNIEXPORT jobject JNICALL Java_fr_viveris_jnidbus_message_LazyMessage_decode
+  (JNIEnv * env, jclass target, jlong ctxPtr, jlong msgPtr, jint index){
+    context* ctx = (context*) ctxPtr;
+    DBusMessageIter iter;
+    if(!seek_value((DBusMessage*) msgPtr,index,&iter)){
+        env->ThrowNew(ctx->ids.illegal_state_exception_class,"The message has no value at the given index");
+        return NULL;
+    }
+    return deserialize_value(ctx,&iter);
+}
+
+/**
+ * Allocate an iterator on the elements of the array at the given index. The iterator references the message, which must
+ * outlive it
+ *
+ * Class:     fr_viveris_jnidbus_message_LazyMessage
+ * Method:    openIterator
+ * Signature: (JJI)J
+ */
+JNIEXPORT jlong JNICALL Java_fr_viveris_jnidbus_message_LazyMessage_openIterator
+  (JNIEnv * env, jclass target, jlong ctxPtr, jlong msgPtr, jint index){
+    context* ctx = (context*) ctxPtr;
+    DBusMessageIter iter;
+    if(!seek_value((DBusMessage*) msgPtr,index,&iter) || dbus_message_iter_get_arg_type(&iter) != DBUS_TYPE_ARRAY){
+        env->ThrowNew(ctx->ids.illegal_state_exception_class,"The message has no array at the given index");
+        return 0;
+    }
+    DBusMessageIter* sub_container = (DBusMessageIter*) malloc(sizeof(DBusMessageIter));
+    dbus_message_iter_recurse(&iter,sub_container);
+    return (jlong) sub_container;
+}
+
+/**
+ * Count the elements of the array at the given index, the array was checked by openIterator
+ *
+ * Class:     fr_viveris_jnidbus_message_LazyMessage
+ * Method:    arrayLength
+ * Signature: (JI)I
+ */
+JNIEXPORT jint JNICALL Java_fr_viveris_jnidbus_message_LazyMessage_arrayLength
+  (JNIEnv * env, jclass target, jlong msgPtr, jint index){
+    DBusMessageIter iter;
+    if(!seek_value((DBusMessage*) msgPtr,index,&iter) || dbus_message_iter_get_arg_type(&iter) != DBUS_TYPE_ARRAY) return 0;
+    return dbus_message_iter_get_element_count(&iter);
+}
+
+/**
+ * Class:     fr_viveris_jnidbus_message_LazyMessage
+ * Method:    iteratorHasNext
+ * Signature: (J)Z
+ */
+JNIEXPORT jboolean JNICALL Java_fr_viveris_jnidbus_message_LazyMessage_iteratorHasNext
+  (JNIEnv * env, jclass target, jlong iterPtr){
+    //an invalid type means the iterator is finished
+    return dbus_message_iter_get_arg_type((DBusMessageIter*) iterPtr) != DBUS_TYPE_INVALID ? JNI_TRUE : JNI_FALSE;
+}
+
+/**
+ * Decode the current element of the iterator and move to the next one
+ *
+ * Class:     fr_viveris_jnidbus_message_LazyMessage
+ * Method:    iteratorNext
+ * Signature: (JJ)Ljava/lang/Object;
+ */
+JNIEXPORT jobject JNICALL Java_fr_viveris_jnidbus_message_LazyMessage_iteratorNext
+  (JNIEnv * env, jclass target, jlong ctxPtr, jlong iterPtr){
+    DBusMessageIter* iter = (DBusMessageIter*) iterPtr;
+    jobject value = deserialize_value((context*) ctxPtr,iter);
+    dbus_message_iter_next(iter);
+    return value;
+}
+
+/**
+ * Class:     fr_viveris_jnidbus_message_LazyMessage
+ * Method:    closeIterator
+ * Signature: (J)V
+ */
+JNIEXPORT void JNICALL Java_fr_viveris_jnidbus_message_LazyMessage_closeIterator
+  (JNIEnv * env, jclass target, jlong iterPtr){
+    free((DBusMessageIter*) iterPtr);
+}
+
+/**
+ * Release the reference the view holds on the message
+ *
+ * Class:     fr_viveris_jnidbus_message_LazyMessage
+ * Method:    release
+ * Signature: (J)V
+ */
+JNIEXPORT void JNICALL Java_fr_viveris_jnidbus_message_LazyMessage_release
+  (JNIEnv * env, jclass target, jlong msgPtr){
+    dbus_message_unref((DBusMessage*) msgPtr);
+}
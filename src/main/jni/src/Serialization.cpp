@@ -5,21 +5,30 @@
 
 using namespace std;
 
+/**
+ * Should the strings deserialized by the thread be interned, set by the intern_scope
+ */
+static thread_local bool intern_strings = false;
+
+/**
+ * Can the string arrays deserialized by the thread be given as packed strings, only the messages deserialized as a whole
+ * use them as the JVM serializers know how to read them
+ */
+static thread_local bool pack_strings = false;
+
 void serialize(context* ctx, jobject serialized, DBusMessageIter* container){
     //get JVM env
     JNIEnv* env;
     get_env(ctx,&env);
     
     //get signature and values from the JVM object
-    const char* dbus_object_class_name = "fr/viveris/jnidbus/serialization/DBusObject";
-    jclass dbusObjectClass = find_class(ctx,dbus_object_class_name);
-    jstring dbusTypesJVM = (jstring) env->GetObjectField(serialized, find_field(ctx,dbus_object_class_name,"signature", "Ljava/lang/String;"));
-    jobjectArray dbusValues = (jobjectArray) env->GetObjectField(serialized, find_field(ctx,dbus_object_class_name,"values", "[Ljava/lang/Object;"));
+    jstring dbusTypesJVM = (jstring) env->GetObjectField(serialized, ctx->ids.dbus_object_signature);
+    jobjectArray dbusValues = (jobjectArray) env->GetObjectField(serialized, ctx->ids.dbus_object_values);
     const char* dbusTypesNative = env->GetStringUTFChars(dbusTypesJVM, 0);
     
     //validate the signature
     if(!dbus_signature_validate(dbusTypesNative,NULL)){
-        env->ThrowNew(find_class(ctx,"java/lang/IllegalStateException"),"The given signture is not a valid DBus signature");
+        env->ThrowNew(ctx->ids.illegal_state_exception_class,"The given signture is not a valid DBus signature");
     }else if(strlen(dbusTypesNative) > 0){
         DBusSignatureIter signatureIter;
         dbus_signature_iter_init(&signatureIter,dbusTypesNative);
@@ -70,9 +79,7 @@ void serialize_struct(context* ctx, jobjectArray message, DBusMessageIter* conta
                 DBusMessageIter sub_container;
                 dbus_message_iter_open_container(container,DBUS_TYPE_STRUCT,NULL,&sub_container);
 
-                const char* dbus_object_class_name = "fr/viveris/jnidbus/serialization/DBusObject";
-                jclass dbusObjectClass = find_class(ctx,dbus_object_class_name);
-                jobjectArray dbusValues = (jobjectArray) env->GetObjectField(valueJVM, find_field(ctx,dbus_object_class_name,"values", "[Ljava/lang/Object;"));
+                jobjectArray dbusValues = (jobjectArray) env->GetObjectField(valueJVM, ctx->ids.dbus_object_values);
 
                 serialize_struct(ctx,dbusValues,&sub_container,&sub_signature);
                 dbus_message_iter_close_container(container,&sub_container);
@@ -103,45 +110,17 @@ jobject deserialize(context* ctx, DBusMessageIter* container){
     //as DBus can not tell us the size of the message we have to use a vector to temporarily store the deserialized objects
     vector<jobject> values;
 
-    const char* dbus_object_class_name = "fr/viveris/jnidbus/serialization/DBusObject";
-    jclass dbusObjectClass = find_class(ctx,dbus_object_class_name);
 
 
     do{
-        switch(dbus_message_iter_get_arg_type(container)){
-            case DBUS_TYPE_ARRAY:
-            {
-                //recurse, deserialize and push to vector
-                DBusMessageIter sub_container;
-                dbus_message_iter_recurse(container, &sub_container);
-                values.push_back((jobject)deserialize_array(ctx,dbus_message_iter_get_element_type(container),&sub_container));
-                break;
-            }
-            case DBUS_TYPE_STRUCT:
-            {
-                //recurse, deserialize and push to vector
-                DBusMessageIter sub_container;
-                dbus_message_iter_recurse(container, &sub_container);
-                values.push_back((jobject) deserialize(ctx,&sub_container));
-                break;
-            }
-            case DBUS_TYPE_INVALID:
-            {
-                //do nothing, it means the iterator is finished
-                break;
-            }
-            default:
-            {
-                //deserialize the primitive type and push to vector
-                values.push_back(deserialize_element(ctx,container));
-                break;
-            }
+        //an invalid type means the iterator is finished
+        if(dbus_message_iter_get_arg_type(container) != DBUS_TYPE_INVALID){
+            values.push_back(deserialize_value(ctx,container));
         }
     }while(dbus_message_iter_next(container));
 
-    //get the JVM object constructor and create the object array that will contain the deserialized values
-    jmethodID constructor = find_method(ctx,dbus_object_class_name,"<init>","(Ljava/lang/String;[Ljava/lang/Object;)V");
-    jobjectArray objectArray = env->NewObjectArray(values.size(),find_class(ctx,"java/lang/Object"),NULL);
+    //create the object array that will contain the deserialized values
+    jobjectArray objectArray = env->NewObjectArray(values.size(),ctx->ids.object_class,NULL);
     
     //fill the JVM array
     for(int i = 0; i<values.size();i++){
@@ -150,13 +129,27 @@ jobject deserialize(context* ctx, DBusMessageIter* container){
 
     //don't set the signature of the object, this will either be done by the handling function in the case of a root object
     //or it will be done by the JVM side for the child objects
-    return env->NewObject(dbusObjectClass,constructor,env->NewStringUTF(""),objectArray);
+    return env->NewObject(ctx->ids.dbus_object_class,ctx->ids.dbus_object_constructor,env->NewStringUTF(""),objectArray);
 }
 
 void serialize_array(context* ctx, int dbus_type, jobjectArray array, DBusMessageIter* container, DBusSignatureIter* signature){
     //get JVM env
     JNIEnv* env;
     get_env(ctx,&env);
+
+    //direct buffers are appended from their memory, as they are not Java arrays they must be detected before reading the length
+    if(array != NULL && env->IsInstanceOf(array,ctx->ids.buffer_class) == JNI_TRUE){
+        serialize_direct_buffer(ctx,dbus_type,array,container);
+        return;
+    }
+
+    //packed strings are not Java arrays either
+    if((dbus_type == DBUS_TYPE_STRING || dbus_type == DBUS_TYPE_DICT_ENTRY) && array != NULL &&
+            env->IsInstanceOf(array,ctx->ids.packed_strings_class) == JNI_TRUE){
+        serialize_packed_strings(ctx,dbus_type,array,container);
+        return;
+    }
+
     int array_length = array_length = env->GetArrayLength(array);
 
     if(dbus_type == DBUS_TYPE_ARRAY){
@@ -213,16 +206,14 @@ void serialize_array(context* ctx, int dbus_type, jobjectArray array, DBusMessag
             memcpy(&sub_signature_copy,&sub_signature,sizeof(DBusSignatureIter));
 
             //get array of values adns erialize them using the signature
-            const char* dbus_object_class_name = "fr/viveris/jnidbus/serialization/DBusObject";
-            jclass dbusObjectClass = find_class(ctx,dbus_object_class_name);
-            jobjectArray dbusValues = (jobjectArray) env->GetObjectField(valueJVM, find_field(ctx,dbus_object_class_name,"values", "[Ljava/lang/Object;"));
+            jobjectArray dbusValues = (jobjectArray) env->GetObjectField(valueJVM, ctx->ids.dbus_object_values);
 
             serialize_struct(ctx,dbusValues,&sub_container,&sub_signature_copy);
             dbus_message_iter_close_container(container,&sub_container);
             env->DeleteLocalRef(valueJVM);
         }
     }else{
-        if(env->IsInstanceOf(array,find_array_class(ctx,"java/lang/Object")) == JNI_FALSE){
+        if(env->IsInstanceOf(array,ctx->ids.object_array_class) == JNI_FALSE){
             serialize_primitive_array(ctx,dbus_type,array,array_length,container);
         }else{
             //iterate through the array
@@ -238,11 +229,175 @@ void serialize_array(context* ctx, int dbus_type, jobjectArray array, DBusMessag
     }
 }
 
-jobjectArray deserialize_array(context* ctx, int dbus_type, DBusMessageIter* container){
+jobject deserialize_value(context* ctx, DBusMessageIter* container){
+    switch(dbus_message_iter_get_arg_type(container)){
+        case DBUS_TYPE_ARRAY:
+        {
+            //recurse and deserialize the array
+            DBusMessageIter sub_container;
+            dbus_message_iter_recurse(container, &sub_container);
+            return deserialize_array(ctx,dbus_message_iter_get_element_type(container),&sub_container);
+        }
+        case DBUS_TYPE_STRUCT:
+        case DBUS_TYPE_DICT_ENTRY:
+        {
+            //recurse and deserialize the struct values
+            DBusMessageIter sub_container;
+            dbus_message_iter_recurse(container, &sub_container);
+            return deserialize(ctx,&sub_container);
+        }
+        default:
+        {
+            //deserialize the primitive type
+            return deserialize_element(ctx,container);
+        }
+    }
+}
+
+jobject deserialize_message(context* ctx, DBusMessage* msg){
+    JNIEnv* env;
+    get_env(ctx,&env);
+
+    //the UNIX file descriptors are not part of the marshalled message, such messages are read with an iterator
+    if(ctx->wire_codec && !dbus_message_contains_unix_fds(msg)){
+        //give the marshalled message to the JVM in a direct buffer, the buffer is only used during the decode call
+        char* marshalled;
+        int length;
+        if(!dbus_message_marshal(msg,&marshalled,&length)){
+            env->ThrowNew(ctx->ids.illegal_state_exception_class,"Could not marshal the message (probably caused by an out of memory)");
+            return NULL;
+        }
+        jobject buffer = env->NewDirectByteBuffer(marshalled,length);
+        jobject jvmObject = NULL;
+        if(buffer != NULL){
+            jvmObject = env->CallStaticObjectMethod(ctx->ids.wire_decoder_class,ctx->ids.wire_decoder_decode,buffer);
+            env->DeleteLocalRef(buffer);
+        }
+        dbus_free(marshalled);
+        return jvmObject;
+    }
+
+    DBusMessageIter rootIter;
+    dbus_message_iter_init(msg, &rootIter);
+    bool previous = pack_strings;
+    pack_strings = true;
+    jobject jvmObject = deserialize(ctx,&rootIter);
+    pack_strings = previous;
+    //set the object signature
+    env->SetObjectField(
+        jvmObject,
+        ctx->ids.dbus_object_signature,
+        intern_string(ctx,env,dbus_message_get_signature(msg)));
+    return jvmObject;
+}
+
+/**
+ * Check if the array can be given as packed strings: an array of strings or of dict entries of two strings. The
+ * interned strings must be created one by one, so they are never packed
+ */
+static bool can_pack_strings(int dbus_type, DBusMessageIter* container){
+    if(!pack_strings || intern_strings || dbus_message_iter_get_arg_type(container) != dbus_type) return false;
+    if(dbus_type == DBUS_TYPE_STRING) return true;
+    if(dbus_type != DBUS_TYPE_DICT_ENTRY) return false;
+
+    char* signature = dbus_message_iter_get_signature(container);
+    bool packable = strcmp(signature,"{ss}") == 0;
+    dbus_free(signature);
+    return packable;
+}
+
+/**
+ * Append the string the iterator points to, followed by its zero byte
+ */
+static void append_packed_string(DBusMessageIter* iter, vector<char>& bytes, vector<jint>& offsets){
+    const char* value;
+    dbus_message_iter_get_basic(iter,&value);
+    offsets.push_back(bytes.size());
+    bytes.insert(bytes.end(),value,value + strlen(value) + 1);
+}
+
+jobject deserialize_packed_strings(context* ctx, int dbus_type, DBusMessageIter* container){
+    JNIEnv* env;
+    get_env(ctx,&env);
+
+    vector<char> bytes;
+    vector<jint> offsets;
+    do{
+        if(dbus_type == DBUS_TYPE_DICT_ENTRY){
+            DBusMessageIter entry;
+            dbus_message_iter_recurse(container,&entry);
+            append_packed_string(&entry,bytes,offsets);
+            dbus_message_iter_next(&entry);
+            append_packed_string(&entry,bytes,offsets);
+        }else{
+            append_packed_string(container,bytes,offsets);
+        }
+    }while(dbus_message_iter_next(container));
+    offsets.push_back(bytes.size());
+
+    jbyteArray bytesJVM = env->NewByteArray(bytes.size());
+    if(bytesJVM == NULL) return NULL;
+    jintArray offsetsJVM = env->NewIntArray(offsets.size());
+    if(offsetsJVM == NULL) return NULL;
+    env->SetByteArrayRegion(bytesJVM,0,bytes.size(),(const jbyte*) bytes.data());
+    env->SetIntArrayRegion(offsetsJVM,0,offsets.size(),offsets.data());
+
+    jobject packed = env->NewObject(ctx->ids.packed_strings_class,ctx->ids.packed_strings_constructor,bytesJVM,offsetsJVM);
+    env->DeleteLocalRef(bytesJVM);
+    env->DeleteLocalRef(offsetsJVM);
+    return packed;
+}
+
+void serialize_packed_strings(context* ctx, int dbus_type, jobject packed, DBusMessageIter* container){
+    JNIEnv* env;
+    get_env(ctx,&env);
+
+    jbyteArray bytesJVM = (jbyteArray) env->GetObjectField(packed,ctx->ids.packed_strings_bytes);
+    jintArray offsetsJVM = (jintArray) env->GetObjectField(packed,ctx->ids.packed_strings_offsets);
+    int count = env->GetArrayLength(offsetsJVM) - 1;
+
+    //libdbus copies the strings, the arrays are only pinned while appending them
+    char* bytes = (char*) env->GetPrimitiveArrayCritical(bytesJVM,NULL);
+    if(bytes == NULL) return;
+    jint* offsets = (jint*) env->GetPrimitiveArrayCritical(offsetsJVM,NULL);
+    if(offsets == NULL){
+        env->ReleasePrimitiveArrayCritical(bytesJVM,bytes,JNI_ABORT);
+        return;
+    }
+
+    for(int i = 0; i < count; i++){
+        const char* value = bytes + offsets[i];
+        if(dbus_type == DBUS_TYPE_DICT_ENTRY){
+            //the key and the value of each entry follow each other
+            DBusMessageIter entry;
+            const char* entryValue = bytes + offsets[++i];
+            dbus_message_iter_open_container(container,DBUS_TYPE_DICT_ENTRY,NULL,&entry);
+            dbus_message_iter_append_basic(&entry,DBUS_TYPE_STRING,&value);
+            dbus_message_iter_append_basic(&entry,DBUS_TYPE_STRING,&entryValue);
+            dbus_message_iter_close_container(container,&entry);
+        }else{
+            dbus_message_iter_append_basic(container,dbus_type,&value);
+        }
+    }
+
+    env->ReleasePrimitiveArrayCritical(offsetsJVM,offsets,JNI_ABORT);
+    env->ReleasePrimitiveArrayCritical(bytesJVM,bytes,JNI_ABORT);
+    env->DeleteLocalRef(bytesJVM);
+    env->DeleteLocalRef(offsetsJVM);
+}
+
+jobject deserialize_array(context* ctx, int dbus_type, DBusMessageIter* container){
     //get JVM env
     JNIEnv* env;
     get_env(ctx,&env);
 
+    //fixed size types are read in one shot into a JVM primitive array
+    jobject fixed = deserialize_fixed_array(ctx,dbus_type,container);
+    if(fixed != NULL || env->ExceptionCheck()) return fixed;
+
+    //the strings are copied in one shot and decoded by the JVM
+    if(can_pack_strings(dbus_type,container)) return deserialize_packed_strings(ctx,dbus_type,container);
+
     //as DBus can not tell us the size of the message we have to use a vector to temporarily store the deserialized objects
     vector<jobject> values;
 
@@ -275,7 +430,7 @@ jobjectArray deserialize_array(context* ctx, int dbus_type, DBusMessageIter* con
     }
 
     //create container JVM array
-    jobjectArray objectArray = env->NewObjectArray(values.size(),find_class(ctx,"java/lang/Object"),NULL);
+    jobjectArray objectArray = env->NewObjectArray(values.size(),ctx->ids.object_class,NULL);
 
     //fill array
     for(int i = 0; i<values.size();i++){
@@ -284,6 +439,78 @@ jobjectArray deserialize_array(context* ctx, int dbus_type, DBusMessageIter* con
     return objectArray;
 }
 
+jobject deserialize_fixed_array(context* ctx, int dbus_type, DBusMessageIter* container){
+    JNIEnv* env;
+    get_env(ctx,&env);
+
+    //the container iterator is positioned on the first element, DBus gives us a pointer to the array data in the message
+    int length = 0;
+    switch(dbus_type){
+        case DBUS_TYPE_INT32:
+        {
+            const dbus_int32_t* values;
+            dbus_message_iter_get_fixed_array(container,&values,&length);
+            jintArray array = env->NewIntArray(length);
+            if(array != NULL) env->SetIntArrayRegion(array,0,length,(const jint*) values);
+            return array;
+        }
+        case DBUS_TYPE_BYTE:
+        {
+            const unsigned char* values;
+            dbus_message_iter_get_fixed_array(container,&values,&length);
+            jbyteArray array = env->NewByteArray(length);
+            if(array != NULL) env->SetByteArrayRegion(array,0,length,(const jbyte*) values);
+            return array;
+        }
+        case DBUS_TYPE_INT16:
+        {
+            const dbus_int16_t* values;
+            dbus_message_iter_get_fixed_array(container,&values,&length);
+            jshortArray array = env->NewShortArray(length);
+            if(array != NULL) env->SetShortArrayRegion(array,0,length,(const jshort*) values);
+            return array;
+        }
+        case DBUS_TYPE_INT64:
+        {
+            const dbus_int64_t* values;
+            dbus_message_iter_get_fixed_array(container,&values,&length);
+            jlongArray array = env->NewLongArray(length);
+            if(array != NULL) env->SetLongArrayRegion(array,0,length,(const jlong*) values);
+            return array;
+        }
+        case DBUS_TYPE_DOUBLE:
+        {
+            const double* values;
+            dbus_message_iter_get_fixed_array(container,&values,&length);
+            jdoubleArray array = env->NewDoubleArray(length);
+            if(array != NULL) env->SetDoubleArrayRegion(array,0,length,(const jdouble*) values);
+            return array;
+        }
+        case DBUS_TYPE_BOOLEAN:
+        {
+            //DBus booleans are 32 bits wide, they must be converted to JVM booleans by chunks
+            const dbus_bool_t* values;
+            dbus_message_iter_get_fixed_array(container,&values,&length);
+            jbooleanArray array = env->NewBooleanArray(length);
+            if(array == NULL) return NULL;
+            jboolean buffer[256];
+            for(int offset = 0; offset < length; offset += 256){
+                int chunk = length - offset < 256 ? length - offset : 256;
+                for(int i = 0; i < chunk; i++){
+                    buffer[i] = values[offset + i] ? JNI_TRUE : JNI_FALSE;
+                }
+                env->SetBooleanArrayRegion(array,offset,chunk,buffer);
+            }
+            return array;
+        }
+        default:
+        {
+            //not a fixed size type
+            return NULL;
+        }
+    }
+}
+
 void serialize_element(context* ctx, int dbus_type, jobject object, DBusMessageIter* container){
     //get JVM env
     JNIEnv* env;
@@ -301,40 +528,51 @@ void serialize_element(context* ctx, int dbus_type, jobject object, DBusMessageI
         }
         case DBUS_TYPE_INT32:
         {
-            jint valueNative = env->CallIntMethod(object,find_method(ctx,"java/lang/Integer","intValue","()I"));
+            jint valueNative = env->CallIntMethod(object,ctx->ids.integer_value);
             dbus_message_iter_append_basic(container, DBUS_TYPE_INT32, &valueNative);
             break;
         }
         case DBUS_TYPE_BOOLEAN:
         {
-            int valueNative = (int) env->CallBooleanMethod(object,find_method(ctx,"java/lang/Boolean","booleanValue","()Z"));
+            int valueNative = (int) env->CallBooleanMethod(object,ctx->ids.boolean_value);
             dbus_message_iter_append_basic(container,DBUS_TYPE_BOOLEAN,&valueNative);
             break;
         }
         case DBUS_TYPE_BYTE:
         {
-            jbyte valueNative = env->CallByteMethod(object,find_method(ctx,"java/lang/Byte","byteValue","()B"));
+            jbyte valueNative = env->CallByteMethod(object,ctx->ids.byte_value);
             dbus_message_iter_append_basic(container,DBUS_TYPE_BYTE,&valueNative);
             break;
         }
         case DBUS_TYPE_INT16:
         {
-            jshort valueNative = env->CallShortMethod(object,find_method(ctx,"java/lang/Short","shortValue","()S"));
+            jshort valueNative = env->CallShortMethod(object,ctx->ids.short_value);
             dbus_message_iter_append_basic(container,DBUS_TYPE_INT16,&valueNative);
             break;
         }
         case DBUS_TYPE_INT64:
         {
-            jlong valueNative = env->CallLongMethod(object,find_method(ctx,"java/lang/Long","longValue","()J"));
+            jlong valueNative = env->CallLongMethod(object,ctx->ids.long_value);
             dbus_message_iter_append_basic(container,DBUS_TYPE_INT64,&valueNative);
             break;
         }
         case DBUS_TYPE_DOUBLE:
         {
-            jdouble valueNative = env->CallDoubleMethod(object,find_method(ctx,"java/lang/Double","doubleValue","()D"));
+            jdouble valueNative = env->CallDoubleMethod(object,ctx->ids.double_value);
             dbus_message_iter_append_basic(container,DBUS_TYPE_DOUBLE,&valueNative);
             break;
         }
+        case DBUS_TYPE_UNIX_FD:
+        {
+            //libdbus duplicates the descriptor, the JVM keeps ownership of the given one
+            if(!dbus_connection_can_send_type(ctx->connection,DBUS_TYPE_UNIX_FD)){
+                env->ThrowNew(ctx->ids.illegal_state_exception_class,"The connection does not support UNIX file descriptors passing");
+                break;
+            }
+            jint valueNative = env->CallIntMethod(object,ctx->ids.integer_value);
+            dbus_message_iter_append_basic(container,DBUS_TYPE_UNIX_FD,&valueNative);
+            break;
+        }
         case DBUS_TYPE_INVALID:
         {
             //ignore, we reached end of iterator
@@ -343,7 +581,7 @@ void serialize_element(context* ctx, int dbus_type, jobject object, DBusMessageI
         default:
         {
             std::string error = std::string()+"Unsupported type detected : "+(char)dbus_type;
-            env->ThrowNew(find_class(ctx,"java/lang/IllegalStateException"),error.c_str());
+            env->ThrowNew(ctx->ids.illegal_state_exception_class,error.c_str());
             break;
         }
     }
@@ -353,59 +591,61 @@ void serialize_primitive_array(context* ctx, int dbus_type, jarray object, int l
     JNIEnv* env;
     get_env(ctx,&env);
 
-    //JVM primitive arrays can be mapped to a proper memory region, easily processable by DBus for more efficiency
-    switch(dbus_type){
-        case DBUS_TYPE_INT32:
-        {
-            jint* nativeValues = env->GetIntArrayElements((jintArray)object,NULL);
-            dbus_message_iter_append_fixed_array(container, DBUS_TYPE_INT32, &nativeValues, length);
-            env->ReleaseIntArrayElements((jintArray)object,nativeValues,JNI_ABORT);
-            break;
-        }
-        case DBUS_TYPE_BOOLEAN:
-        {
-            jboolean* nativeValues = env->GetBooleanArrayElements((jbooleanArray)object,NULL);
-            dbus_message_iter_append_fixed_array(container, DBUS_TYPE_BOOLEAN, &nativeValues, length);
-            env->ReleaseBooleanArrayElements((jbooleanArray)object,nativeValues,JNI_ABORT);
-            break;
+    if(dbus_type == DBUS_TYPE_INVALID){
+        //ignore, we reached end of iterator
+        return;
+    }else if(dbus_type != DBUS_TYPE_INT32 && dbus_type != DBUS_TYPE_BOOLEAN && dbus_type != DBUS_TYPE_BYTE &&
+             dbus_type != DBUS_TYPE_INT16 && dbus_type != DBUS_TYPE_INT64 && dbus_type != DBUS_TYPE_DOUBLE){
+        std::string error = std::string()+"Unsupported primitive type detected : "+(char)dbus_type;
+        env->ThrowNew(ctx->ids.illegal_state_exception_class,error.c_str());
+        return;
+    }
+
+    //the JVM array is pinned instead of copied, so only libdbus copies the values. No JNI call must be made until it is
+    //released
+    void* nativeValues = env->GetPrimitiveArrayCritical(object,NULL);
+    if(nativeValues == NULL) return;
+
+    if(dbus_type == DBUS_TYPE_BOOLEAN){
+        //a DBus boolean is 4 bytes long while a JVM boolean is 1 byte long, the values must be widened
+        vector<dbus_bool_t> booleans(length);
+        for(int i = 0; i < length; i++){
+            booleans[i] = ((jboolean*) nativeValues)[i] ? 1 : 0;
         }
+        env->ReleasePrimitiveArrayCritical(object,nativeValues,JNI_ABORT);
+        const dbus_bool_t* booleansPtr = booleans.data();
+        dbus_message_iter_append_fixed_array(container, DBUS_TYPE_BOOLEAN, &booleansPtr, length);
+    }else{
+        dbus_message_iter_append_fixed_array(container, dbus_type, &nativeValues, length);
+        env->ReleasePrimitiveArrayCritical(object,nativeValues,JNI_ABORT);
+    }
+}
+
+void serialize_direct_buffer(context* ctx, int dbus_type, jobject buffer, DBusMessageIter* container){
+    JNIEnv* env;
+    get_env(ctx,&env);
+
+    //the JVM side only gives direct buffers in the native order, starting at their first value, so their memory can be
+    //given as is to libdbus. The capacity of a buffer is its number of values
+    void* nativeValues = env->GetDirectBufferAddress(buffer);
+    jlong length = env->GetDirectBufferCapacity(buffer);
+    if(nativeValues == NULL || length < 0){
+        env->ThrowNew(ctx->ids.illegal_state_exception_class,"The buffer is not a direct buffer");
+        return;
+    }
+
+    switch(dbus_type){
         case DBUS_TYPE_BYTE:
-        {
-            jbyte* nativeValues = env->GetByteArrayElements((jbyteArray)object,NULL);
-            dbus_message_iter_append_fixed_array(container, DBUS_TYPE_BYTE, &nativeValues, length);
-            env->ReleaseByteArrayElements((jbyteArray)object,nativeValues,JNI_ABORT);
-            break;
-        }
         case DBUS_TYPE_INT16:
-        {
-            jshort* nativeValues = env->GetShortArrayElements((jshortArray)object,NULL);
-            dbus_message_iter_append_fixed_array(container, DBUS_TYPE_INT16, &nativeValues, length);
-            env->ReleaseShortArrayElements((jshortArray)object,nativeValues,JNI_ABORT);
-            break;
-        }
+        case DBUS_TYPE_INT32:
         case DBUS_TYPE_INT64:
-        {
-            jlong* nativeValues = env->GetLongArrayElements((jlongArray)object,NULL);
-            dbus_message_iter_append_fixed_array(container, DBUS_TYPE_INT64, &nativeValues, length);
-            env->ReleaseLongArrayElements((jlongArray)object,nativeValues,JNI_ABORT);
-            break;
-        }
         case DBUS_TYPE_DOUBLE:
-        {
-            jdouble* nativeValues = env->GetDoubleArrayElements((jdoubleArray)object,NULL);
-            dbus_message_iter_append_fixed_array(container, DBUS_TYPE_DOUBLE, &nativeValues, length);
-            env->ReleaseDoubleArrayElements((jdoubleArray)object,nativeValues,JNI_ABORT);
-            break;
-        }
-        case DBUS_TYPE_INVALID:
-        {
-            //ignore, we reached end of iterator
+            dbus_message_iter_append_fixed_array(container, dbus_type, &nativeValues, (int) length);
             break;
-        }
         default:
         {
-            std::string error = std::string()+"Unsupported primitive type detected : "+(char)dbus_type;
-            env->ThrowNew(find_class(ctx,"java/lang/IllegalStateException"),error.c_str());
+            std::string error = std::string()+"Unsupported buffer type detected : "+(char)dbus_type;
+            env->ThrowNew(ctx->ids.illegal_state_exception_class,error.c_str());
             break;
         }
     }
@@ -422,63 +662,58 @@ jobject deserialize_element(context* ctx, DBusMessageIter* container){
         {
             char* value;
             dbus_message_iter_get_basic(container, &value);
-            return env->NewStringUTF(value);
+            return deserialize_string(ctx,env,value);
             break;
         }
         case DBUS_TYPE_INT32:
         {
             int value;
             dbus_message_iter_get_basic(container, &value);
-            jclass integerClass = find_class(ctx,"java/lang/Integer");
-            jmethodID constructor = find_method(ctx,"java/lang/Integer","<init>","(I)V");
-            return env->NewObject(integerClass,constructor,value);
+            return env->NewObject(ctx->ids.integer_class,ctx->ids.integer_constructor,value);
             break;
         }
         case DBUS_TYPE_BOOLEAN:
         {
             bool value;
             dbus_message_iter_get_basic(container, &value);
-            jclass booleanClass = find_class(ctx,"java/lang/Boolean");
-            jmethodID constructor = find_method(ctx,"java/lang/Boolean","<init>","(Z)V");
-            return env->NewObject(booleanClass,constructor,value);
+            return env->NewObject(ctx->ids.boolean_class,ctx->ids.boolean_constructor,value);
             break;
         }
         case DBUS_TYPE_BYTE:
         {
             signed char value;
             dbus_message_iter_get_basic(container, &value);
-            jclass byteClass = find_class(ctx,"java/lang/Byte");
-            jmethodID constructor = find_method(ctx,"java/lang/Byte","<init>","(B)V");
-            return env->NewObject(byteClass,constructor,value);
+            return env->NewObject(ctx->ids.byte_class,ctx->ids.byte_constructor,value);
             break;
         }
         case DBUS_TYPE_INT16:
         {
             short value;
             dbus_message_iter_get_basic(container, &value);
-            jclass shortClass = find_class(ctx,"java/lang/Short");
-            jmethodID constructor = find_method(ctx,"java/lang/Short","<init>","(S)V");
-            return env->NewObject(shortClass,constructor,value);
+            return env->NewObject(ctx->ids.short_class,ctx->ids.short_constructor,value);
             break;
         }
         case DBUS_TYPE_INT64:
         {
             long value;
             dbus_message_iter_get_basic(container, &value);
-            jclass longClass = find_class(ctx,"java/lang/Long");
-            jmethodID constructor = find_method(ctx,"java/lang/Long","<init>","(J)V");
-            return env->NewObject(longClass,constructor,value);
+            return env->NewObject(ctx->ids.long_class,ctx->ids.long_constructor,value);
             break;
         }
         case DBUS_TYPE_DOUBLE:
         {
             double value;
             dbus_message_iter_get_basic(container, &value);
-            jclass doubleClass = find_class(ctx,"java/lang/Double");
-            jmethodID constructor = find_method(ctx,"java/lang/Double","<init>","(D)V");
-            return env->NewObject(doubleClass,constructor,value);
+            return env->NewObject(ctx->ids.double_class,ctx->ids.double_constructor,value);
             break;
         }
+        case DBUS_TYPE_UNIX_FD:
+        {
+            //libdbus gives a duplicate of the descriptor, owned by the JVM from now on
+            int value;
+            dbus_message_iter_get_basic(container, &value);
+            return env->NewObject(ctx->ids.integer_class,ctx->ids.integer_constructor,value);
+        }
         case DBUS_TYPE_INVALID:
         {
             //ignore, we reached end of iterator
@@ -487,8 +722,21 @@ jobject deserialize_element(context* ctx, DBusMessageIter* container){
         default:
         {
             std::string error = std::string()+"Unsupported type detected : "+(char)dbus_message_iter_get_arg_type(container);
-            env->ThrowNew(find_class(ctx,"java/lang/IllegalStateException"),error.c_str());
+            env->ThrowNew(ctx->ids.illegal_state_exception_class,error.c_str());
             return NULL;
         }
     }
 }
+
+intern_scope::intern_scope(bool enabled){
+    this->previous = intern_strings;
+    intern_strings = enabled;
+}
+
+intern_scope::~intern_scope(){
+    intern_strings = this->previous;
+}
+
+jstring deserialize_string(context* ctx, JNIEnv* env, const char* value){
+    return intern_strings ? intern_string(ctx,env,value) : env->NewStringUTF(value);
+}
@@ -0,0 +1,127 @@
+/* Copyright 2019, Viveris Technologies <opensource@toulouse.viveris.fr>
+ * Distributed under the terms of the Academic Free License.
+ */
+#include "./headers/fr_viveris_jnidbus_types_SharedBuffer.h"
+
+#include <cerrno>
+#include <cstring>
+#include <string>
+#include <fcntl.h>
+#include <unistd.h>
+#include <linux/memfd.h>
+#include <sys/mman.h>
+#include <sys/stat.h>
+#include <sys/syscall.h>
+
+//seals preventing the sender from modifying the payload once shared
+#define REQUIRED_SEALS (F_SEAL_SHRINK | F_SEAL_GROW | F_SEAL_WRITE)
+
+static void throw_io_exception(JNIEnv* env, const char* message){
+    std::string error = std::string()+message+": "+strerror(errno);
+    env->ThrowNew(env->FindClass("java/io/IOException"),error.c_str());
+}
+
+/**
+ * Write the whole payload in the memfd, retrying on partial writes
+ */
+static bool write_payload(int fd, const char* payload, size_t length){
+    while(length > 0){
+        ssize_t written = write(fd,payload,length);
+        if(written < 0){
+            if(errno == EINTR) continue;
+            return false;
+        }
+        payload += written;
+        length -= written;
+    }
+    return true;
+}
+
+/**
+ * Create the memfd, write the payload and seal it against any modification. The memfd_create call goes through syscall
+ * as old libc versions do not have a wrapper for it.
+ *
+ * Class:     fr_viveris_jnidbus_types_SharedBuffer
+ * Method:    createMemfd
+ * Signature: (Ljava/lang/String;Ljava/nio/ByteBuffer;[BII)I
+ */
+JNIEXPORT jint JNICALL Java_fr_viveris_jnidbus_types_SharedBuffer_createMemfd
+  (JNIEnv * env, jclass target, jstring nameJVM, jobject direct, jbyteArray array, jint offset, jint length){
+    const char* name = env->GetStringUTFChars(nameJVM,0);
+    int fd = syscall(SYS_memfd_create,name,MFD_CLOEXEC | MFD_ALLOW_SEALING);
+    env->ReleaseStringUTFChars(nameJVM,name);
+    if(fd < 0){
+        throw_io_exception(env,"Could not create the memfd");
+        return -1;
+    }
+
+    bool written;
+    if(direct != NULL){
+        const char* payload = (const char*) env->GetDirectBufferAddress(direct);
+        written = write_payload(fd,payload + offset,length);
+    }else{
+        //the array is only pinned during the write, which does not call the JVM
+        char* payload = (char*) env->GetPrimitiveArrayCritical(array,NULL);
+        written = write_payload(fd,payload + offset,length);
+        env->ReleasePrimitiveArrayCritical(array,payload,JNI_ABORT);
+    }
+
+    if(!written){
+        throw_io_exception(env,"Could not write the payload in the memfd");
+        close(fd);
+        return -1;
+    }
+    if(fcntl(fd,F_ADD_SEALS,REQUIRED_SEALS | F_SEAL_SEAL) < 0){
+        throw_io_exception(env,"Could not seal the memfd");
+        close(fd);
+        return -1;
+    }
+    return fd;
+}
+
+/**
+ * Check the seals of a received memfd and map it read only. The seals are checked so the sender can not modify the
+ * payload nor shrink the memfd, which would make the reads of the mapping fail with a SIGBUS.
+ *
+ * Class:     fr_viveris_jnidbus_types_SharedBuffer
+ * Method:    mapMemfd
+ * Signature: (I)Ljava/nio/ByteBuffer;
+ */
+JNIEXPORT jobject JNICALL Java_fr_viveris_jnidbus_types_SharedBuffer_mapMemfd
+  (JNIEnv * env, jclass target, jint fd){
+    int seals = fcntl(fd,F_GET_SEALS);
+    if(seals < 0){
+        throw_io_exception(env,"Could not get the seals of the descriptor, it is probably not a memfd");
+        return NULL;
+    }
+    if((seals & REQUIRED_SEALS) != REQUIRED_SEALS){
+        env->ThrowNew(env->FindClass("java/io/IOException"),"The memfd is not sealed against writes and resizing");
+        return NULL;
+    }
+
+    struct stat status;
+    if(fstat(fd,&status) < 0){
+        throw_io_exception(env,"Could not get the size of the memfd");
+        return NULL;
+    }
+    if(status.st_size == 0) return NULL;
+
+    void* mapping = mmap(NULL,status.st_size,PROT_READ,MAP_SHARED,fd,0);
+    if(mapping == MAP_FAILED){
+        throw_io_exception(env,"Could not map the memfd");
+        return NULL;
+    }
+    jobject buffer = env->NewDirectByteBuffer(mapping,status.st_size);
+    if(buffer == NULL) munmap(mapping,status.st_size);
+    return buffer;
+}
+
+/**
+ * Class:     fr_viveris_jnidbus_types_SharedBuffer
+ * Method:    unmap
+ * Signature: (Ljava/nio/ByteBuffer;)V
+ */
+JNIEXPORT void JNICALL Java_fr_viveris_jnidbus_types_SharedBuffer_unmap
+  (JNIEnv * env, jclass target, jobject mapping){
+    munmap(env->GetDirectBufferAddress(mapping),env->GetDirectBufferCapacity(mapping));
+}
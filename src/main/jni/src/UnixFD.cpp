@@ -0,0 +1,16 @@
+/* Copyright 2019, Viveris Technologies <opensource@toulouse.viveris.fr>
+ * Distributed under the terms of the Academic Free License.
+ */
+#include "./headers/fr_viveris_jnidbus_types_UnixFD.h"
+
+#include <unistd.h>
+
+/**
+ * Class:     fr_viveris_jnidbus_types_UnixFD
+ * Method:    closeFD
+ * Signature: (I)V
+ */
+JNIEXPORT void JNICALL Java_fr_viveris_jnidbus_types_UnixFD_closeFD
+  (JNIEnv * env, jclass target, jint fd){
+    close(fd);
+}
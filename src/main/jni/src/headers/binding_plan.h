@@ -0,0 +1,39 @@
+/* Copyright 2019, Viveris Technologies <opensource@toulouse.viveris.fr>
+ * Distributed under the terms of the Academic Free License.
+ */
+#include <dbus/dbus.h>
+#include <jni.h>
+#include "./context.h"
+
+#ifndef _binding_plan_
+#define _binding_plan_
+
+    /**
+     * Field of a binding plan, the kind is one of the KIND_ constants of the JVM BindingPlan class. The nested plan is
+     * only set for the object fields
+     */
+    struct binding_field{
+        jfieldID id;
+        int kind;
+        binding_plan* nested;
+    };
+
+    /**
+     * Native version of a JVM BindingPlan, it allows to fill an instance of a message class directly from a DBus message
+     * iterator. Plans are shared by every connection and live as long as the JVM BindingPlan, the class is a global reference
+     */
+    struct binding_plan{
+        jclass message_class;
+        jmethodID constructor;
+        char* signature;
+        int count;
+        binding_field* fields;
+    };
+
+    /**
+     * Create a new instance of the plan class and fill its fields from the container, which must match the plan signature.
+     * Returns NULL if something went wrong, in which case a JVM exception is pending
+     */
+    jobject bind_message(context* ctx, binding_plan* plan, DBusMessageIter* container);
+
+#endif
@@ -3,9 +3,10 @@
  */
 #include <jni.h>
 #include <dbus/dbus.h>
-#include <map>
+#include <vector>
 #include <sys/epoll.h>
 #include <unistd.h>
+#include <pthread.h>
 
 #ifndef _context_headers_
 #define _context_headers_
@@ -14,6 +15,163 @@
     #define EPOLL_MAX_EVENTS (int) 64
     #endif
 
+    //number of entries of the string intern table, must be a power of two
+    #ifndef INTERN_TABLE_SIZE
+    #define INTERN_TABLE_SIZE (int) 1024
+    #endif
+
+    //longer strings are never interned, they are unlikely to be repeated
+    #ifndef INTERN_MAX_LENGTH
+    #define INTERN_MAX_LENGTH (int) 64
+    #endif
+
+    struct context;
+    struct binding_plan;
+
+    /**
+     * Messages collected by the dispatch handler during a tick, given to the JVM in one call. The object records are written
+     * directly in the JVM arrays while the route indexes and message pointers are stored natively and copied in one shot
+     * when the batch is flushed
+     */
+    struct dispatch_batch{
+        //JVM arrays of the event loop, global references
+        jobjectArray dispatchers;
+        jintArray routes_jvm;
+        jobjectArray bodies;
+        jobjectArray senders;
+        jlongArray messages_jvm;
+        //maximum number of records, length of the JVM arrays
+        int capacity;
+        int count;
+        jint* routes;
+        jlong* messages;
+    };
+
+    /**
+     * Entry of the string intern table, the JVM string is a global reference
+     */
+    struct interned_string{
+        char* value;
+        unsigned int hash;
+        jstring string;
+    };
+
+    /**
+     * Bounded cache of the JVM strings created from the received messages. Each string goes in the entry given by its hash,
+     * replacing the previous one, so the table never grows and the strings which are not repeated are quickly evicted.
+     * The table is used by the event loop and by the threads decoding the replies and lazy messages, it is protected by a
+     * lock which is never held while creating a JVM object
+     */
+    struct string_intern_table{
+        interned_string entries[INTERN_TABLE_SIZE];
+        pthread_mutex_t lock;
+    };
+
+    /**
+     * Kind of file descriptor registered to epoll
+     */
+    enum epoll_source_type{
+        WAKEUP_SOURCE,
+        WATCH_SOURCE,
+        TIMEOUT_SOURCE
+    };
+
+    /**
+     * Everything registered to epoll is described by this struct, a pointer to it is stored in the epoll event data so
+     * the event loop knows what kind of file descriptor was selected. For watches the data is the DBusWatch, for timeouts
+     * it is the DBusTimeout, and the file descriptor is a timerfd owned by the source.
+     *
+     * A source can be released by DBus while we are iterating through the events selected by epoll, so the source is only
+     * marked as removed and freed at the end of the tick.
+     */
+    struct epoll_source{
+        epoll_source_type type;
+        int fd;
+        void* data;
+        context* ctx;
+        bool removed;
+    };
+
+    /**
+     * Every class, method and field of the JVM used by the native code. They are all resolved once when the connection is
+     * created so the native code never has to look them up by name, which would be way too slow to do for each serialized
+     * value. The classes are global references, freed when the context is closed.
+     */
+    struct jni_cache{
+        //classes
+        jclass object_class;
+        jclass object_array_class;
+        jclass integer_class;
+        jclass boolean_class;
+        jclass byte_class;
+        jclass short_class;
+        jclass long_class;
+        jclass double_class;
+        jclass dbus_object_class;
+        jclass connection_class;
+        jclass illegal_state_exception_class;
+        jclass connection_exception_class;
+        jclass event_loop_setup_exception_class;
+        jclass wire_decoder_class;
+        jclass buffer_class;
+        jclass packed_strings_class;
+
+        //boxed types constructors and getters
+        jmethodID integer_constructor;
+        jmethodID boolean_constructor;
+        jmethodID byte_constructor;
+        jmethodID short_constructor;
+        jmethodID long_constructor;
+        jmethodID double_constructor;
+        jmethodID integer_value;
+        jmethodID boolean_value;
+        jmethodID byte_value;
+        jmethodID short_value;
+        jmethodID long_value;
+        jmethodID double_value;
+
+        //library methods
+        jmethodID dbus_object_constructor;
+        jmethodID packed_strings_constructor;
+        jmethodID connection_constructor;
+        jmethodID bus_type_name;
+        jmethodID dispatcher_dispatch;
+        jmethodID dispatcher_dispatch_bound;
+        jmethodID dispatcher_dispatch_lazy;
+        jmethodID event_loop_dispatch_batch;
+        //PendingReply methods, implemented by DBusPromise and DBusFuture
+        jmethodID promise_resolve;
+        jmethodID promise_fail;
+        jmethodID promise_resolve_bound;
+        jmethodID promise_binding_plan;
+        jmethodID promise_intern_strings;
+        jmethodID atomic_boolean_set;
+        jmethodID wire_decoder_decode;
+
+        //DBusObject fields
+        jfieldID dbus_object_signature;
+        jfieldID dbus_object_values;
+
+        //PackedStrings fields
+        jfieldID packed_strings_bytes;
+        jfieldID packed_strings_offsets;
+
+        //EventLoop fields
+        jfieldID event_loop_should_wakeup;
+
+        //RequestSlot fields, read when sending batches
+        jfieldID slot_kind;
+        jfieldID slot_path;
+        jfieldID slot_interface_name;
+        jfieldID slot_member;
+        jfieldID slot_dest;
+        jfieldID slot_message;
+        jfieldID slot_promise;
+        jfieldID slot_timeout;
+        //written back with the pending call context of each call sent
+        jfieldID slot_pending_call;
+    };
+
     /**
      * When using the JNI, we have to code in a oldish C style (for retro-compatibility purposes), this means that we can't have
      * proper objects and must instead use stateless functions. In order to make our code statefull we have to passs around a context
@@ -37,16 +195,56 @@
         int wakeupFD;
         //allocated struct used by the epoll_wait call to store modified FDs
         epoll_event* epollStruct;
+        //epoll source of the wakeup file descriptor
+        epoll_source wakeupSource;
+        //sources released by DBus, waiting for the end of the tick to be freed
+        std::vector<epoll_source*> released_sources;
+        //protect the released sources, DBus may release a source from a thread sending directly
+        pthread_mutex_t released_sources_lock;
         //JVM event loop object
         jobject eventLoop;
         //wakeup atomic boolean
         jobject wakeup_atomic;
-        //meta-class cache
-        std::map<std::string,jclass> class_cache;
-        //method ID cache
-        std::map<std::string,jmethodID> method_cache;
-        //field ID cache
-        std::map<std::string,jfieldID> field_cache;
+        //should the received messages be given to the JVM in their wire format instead of being deserialized natively
+        bool wire_codec;
+        //should the calls replies be bound directly to their expected type when it has a binding plan
+        bool direct_binding;
+        //messages collected during the tick when the batched dispatch is enabled, null otherwise
+        dispatch_batch* batch;
+        //JVM strings of the message headers and of the bodies asking for it
+        string_intern_table interned;
+        //classes, methods and fields of the JVM used by the native code
+        jni_cache ids;
+    };
+
+    /**
+     * Route of a dispatcher, a message is only given to the JVM dispatcher if it matches one of its routes. The type is
+     * either ROUTE_SIGNAL or ROUTE_METHOD of the JVM event loop. If the input type of the route has a binding plan, the
+     * messages are bound directly to it instead of being deserialized into a DBusObject. If the route is lazy, the
+     * messages are given as is to the JVM which decodes them on demand.
+     */
+    struct route{
+        const char* interface_name;
+        const char* member;
+        const char* signature;
+        int type;
+        binding_plan* plan;
+        //the handler method takes a lazy message, the message is not decoded before being dispatched
+        bool lazy;
+        //index of the route in the routing table of the JVM dispatcher
+        int index;
+        //the input type of the route asks for the strings of its messages to be interned
+        bool intern_strings;
+    };
+
+    /**
+     * Routes of a dispatcher sorted by interface, member, signature and type so they can be searched without allocating.
+     * All the strings are stored in one buffer owned by the table
+     */
+    struct route_table{
+        route* routes;
+        int count;
+        char* strings;
     };
 
     /**
@@ -55,40 +253,79 @@
     struct handler_context{
         context* ctx;
         jobject dispatcher;
+        //routes of the dispatcher, null until the JVM gives them
+        route_table* routes;
     };
 
     /**
-     * Context that DBus will pass to any PendingCall when its state changes
+     * Context that DBus will pass to any PendingCall when its state changes. The context is also held by the JVM
+     * PendingReply so the call can be cancelled, it is freed once both the pending call and the JVM released it
      */
     struct pending_call_context{
         context* ctx;
+        //DBusPromise or DBusFuture completed with the reply
         jobject promise;
+        //pending call of the context, only valid while the promise was not notified
+        DBusPendingCall* pending;
+        //set once the promise was notified or the call cancelled, the reply can be handled by the sending thread or by
+        //the event loop
+        volatile int notified;
+        //references held by the pending call and by the JVM
+        volatile int refs;
     };
 
     /**
-     * The JVM have a mechanism to manage objects referenced in JNI code to avoid concurrent garbage collection.
-     * by default, when retreiving anything from the JVM, it will give us a Local reference, the JVM will try
-     * to detect when a local reference is expired by itslef when the function returns. When working with asynchronous
-     * callbacks we don't want the JVM to do this, and instead we will manage references by ourslef. To do this we use
-     * GlobalReferences, which creates an unmanaged reference to the object.
-     * 
-     * This function is used to find meta-classes in the JVM and cache it for later use. When retreiving a class
-     * for the first time, the function will call env->FindClass() and make a global reference for it, any call made
-     * from there will return the cached global reference.
-     * 
+     * Resolve every class, method and field of the jni_cache of the context. The classes are kept as global references
+     * so they can not be unloaded while the connection is open. Returns false if something could not be found, in which
+     * case a JVM exception is pending.
+     */
+    bool init_jni_cache(context* ctx, JNIEnv* env);
+
+    /**
+     * Delete the global references of the jni_cache
+     */
+    void free_jni_cache(context* ctx, JNIEnv* env);
+
+    /**
+     * Compare two routes, used to sort the route tables
+     */
+    int compare_routes(const route* a, const route* b);
+
+    /**
+     * Search the table for the given route, the table can be null. Returns the matching route of the table or null
+     */
+    const route* find_route(route_table* table, const route* searched);
+
+    /**
+     * Free the given route table, the table can be null
+     */
+    void free_route_table(route_table* table);
+
+    /**
+     * Mark the source as removed and free it at the end of the current tick
+     */
+    void release_source(epoll_source* source);
+
+    /**
+     * Free the sources released during the tick
+     */
+    void free_released_sources(context* ctx);
+
+    /**
+     * Initialize an empty intern table
      */
-    jclass find_class(context* context, const char* name);
-    jclass find_array_class(context* context, const char* name);
+    void init_intern_table(string_intern_table* table);
 
     /**
-     * Like the meta-class cache, this one takes care of method IDs
+     * Get the JVM string of the given UTF-8 string from the intern table of the context, creating and storing it if needed.
+     * Returns a new local reference, or null if the string could not be created, in which case a JVM exception is pending
      */
-    jmethodID find_method(context* context, const char* class_name, const char* name, const char* signature);
+    jstring intern_string(context* ctx, JNIEnv* env, const char* value);
 
     /**
-     * Same thing but for fields IDs
+     * Delete the strings of the intern table
      */
-    jfieldID find_field(context* context, const char* class_name, const char* name, const char* signature);
+    void free_intern_table(string_intern_table* table, JNIEnv* env);
 
     /**
      * Retreive a pointer to the JNIEnv from the VM object
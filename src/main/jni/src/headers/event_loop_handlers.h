@@ -5,6 +5,7 @@
 #include <jni.h>
 #include "./context.h"
 #include "./serialization.h"
+#include "./binding_plan.h"
 
 #ifndef _event_loop_handlers_
 #define _event_loop_handlers_
@@ -16,6 +17,13 @@
     void remove_watch(DBusWatch *w, void *data);
     void toggle_watch(DBusWatch *w, void *data);
 
+    /**
+     * Timeout functions used by DBus to manage its timers, each timeout is backed by a timerfd registered to epoll
+     */
+    dbus_bool_t add_timeout(DBusTimeout *t, void *data);
+    void remove_timeout(DBusTimeout *t, void *data);
+    void toggle_timeout(DBusTimeout *t, void *data);
+
     /**
      * handler function called when a message arrives directly on the registered object path, the message 
      * canb be anything (signal or call) and will be given to the JVM dispatcher for proper dispatching
@@ -27,10 +35,26 @@
      */
     void handle_dispatch_unregister(DBusConnection* connection, void* ctxPtr); 
 
+    /**
+     * Give the messages collected by the dispatch handler to the JVM and empty the batch
+     */
+    void flush_dispatch_batch(context* ctx, JNIEnv* env);
+
     /**
      * handler function called when the response to a call is received, the received response will not be dispatched to
      * handle_dispatch.
      */
     void handle_call_response(DBusPendingCall* pending, void* ctxPtr);
 
+    /**
+     * Called by DBus when a pending call is freed, whether it was answered, timed out, cancelled or the connection was
+     * closed. Delete the JVM promise reference and release the reference of the pending call on the context.
+     */
+    void free_pending_call_context(void* ctxPtr);
+
+    /**
+     * Release a reference on the pending call context, the context is freed with the last one
+     */
+    void release_pending_call_context(pending_call_context* pCtx);
+
 #endif
\ No newline at end of file
@@ -9,13 +9,41 @@ extern "C" {
 #endif
 #undef fr_viveris_jnidbus_bindings_bus_EventLoop_MAX_SEND_PER_TICK
 #define fr_viveris_jnidbus_bindings_bus_EventLoop_MAX_SEND_PER_TICK 128L
+#undef fr_viveris_jnidbus_bindings_bus_EventLoop_MAX_DISPATCH_PER_BATCH
+#define fr_viveris_jnidbus_bindings_bus_EventLoop_MAX_DISPATCH_PER_BATCH 256L
+#undef fr_viveris_jnidbus_bindings_bus_EventLoop_REQUEST_RING_CAPACITY
+#define fr_viveris_jnidbus_bindings_bus_EventLoop_REQUEST_RING_CAPACITY 4096L
+#undef fr_viveris_jnidbus_bindings_bus_EventLoop_REQUEST_SIGNAL
+#define fr_viveris_jnidbus_bindings_bus_EventLoop_REQUEST_SIGNAL 0L
+#undef fr_viveris_jnidbus_bindings_bus_EventLoop_REQUEST_CALL
+#define fr_viveris_jnidbus_bindings_bus_EventLoop_REQUEST_CALL 1L
+#undef fr_viveris_jnidbus_bindings_bus_EventLoop_REQUEST_REPLY
+#define fr_viveris_jnidbus_bindings_bus_EventLoop_REQUEST_REPLY 2L
+#undef fr_viveris_jnidbus_bindings_bus_EventLoop_REQUEST_ERROR_REPLY
+#define fr_viveris_jnidbus_bindings_bus_EventLoop_REQUEST_ERROR_REPLY 3L
+#undef fr_viveris_jnidbus_bindings_bus_EventLoop_REQUEST_RUNNABLE
+#define fr_viveris_jnidbus_bindings_bus_EventLoop_REQUEST_RUNNABLE 4L
+#undef fr_viveris_jnidbus_bindings_bus_EventLoop_REQUEST_ADD_PATH
+#define fr_viveris_jnidbus_bindings_bus_EventLoop_REQUEST_ADD_PATH 5L
+#undef fr_viveris_jnidbus_bindings_bus_EventLoop_REQUEST_REMOVE_PATH
+#define fr_viveris_jnidbus_bindings_bus_EventLoop_REQUEST_REMOVE_PATH 6L
+#undef fr_viveris_jnidbus_bindings_bus_EventLoop_REQUEST_UPDATE_ROUTES
+#define fr_viveris_jnidbus_bindings_bus_EventLoop_REQUEST_UPDATE_ROUTES 7L
+#undef fr_viveris_jnidbus_bindings_bus_EventLoop_REQUEST_CANCEL
+#define fr_viveris_jnidbus_bindings_bus_EventLoop_REQUEST_CANCEL 8L
+#undef fr_viveris_jnidbus_bindings_bus_EventLoop_ROUTE_SIGNAL
+#define fr_viveris_jnidbus_bindings_bus_EventLoop_ROUTE_SIGNAL 0L
+#undef fr_viveris_jnidbus_bindings_bus_EventLoop_ROUTE_METHOD
+#define fr_viveris_jnidbus_bindings_bus_EventLoop_ROUTE_METHOD 1L
+#undef fr_viveris_jnidbus_bindings_bus_EventLoop_OVERFLOW
+#define fr_viveris_jnidbus_bindings_bus_EventLoop_OVERFLOW -1LL
 /*
  * Class:     fr_viveris_jnidbus_bindings_bus_EventLoop
  * Method:    setup
- * Signature: (J)Z
+ * Signature: (JZZ)Z
  */
 JNIEXPORT jboolean JNICALL Java_fr_viveris_jnidbus_bindings_bus_EventLoop_setup
-  (JNIEnv *, jobject, jlong);
+  (JNIEnv *, jobject, jlong, jboolean, jboolean);
 
 /*
  * Class:     fr_viveris_jnidbus_bindings_bus_EventLoop
@@ -60,10 +88,42 @@ JNIEXPORT void JNICALL Java_fr_viveris_jnidbus_bindings_bus_EventLoop_sendSignal
 /*
  * Class:     fr_viveris_jnidbus_bindings_bus_EventLoop
  * Method:    sendCall
- * Signature: (JLjava/lang/String;Ljava/lang/String;Ljava/lang/String;Lfr/viveris/jnidbus/serialization/DBusObject;Ljava/lang/String;Lfr/viveris/jnidbus/message/Promise;)V
+ * Signature: (JLjava/lang/String;Ljava/lang/String;Ljava/lang/String;Lfr/viveris/jnidbus/serialization/DBusObject;Ljava/lang/String;ILfr/viveris/jnidbus/message/PendingReply;)J
+ */
+JNIEXPORT jlong JNICALL Java_fr_viveris_jnidbus_bindings_bus_EventLoop_sendCall
+  (JNIEnv *, jobject, jlong, jstring, jstring, jstring, jobject, jstring, jint, jobject);
+
+/*
+ * Class:     fr_viveris_jnidbus_bindings_bus_EventLoop
+ * Method:    sendMessage
+ * Signature: (JLjava/nio/ByteBuffer;ILfr/viveris/jnidbus/message/PendingReply;I)J
+ */
+JNIEXPORT jlong JNICALL Java_fr_viveris_jnidbus_bindings_bus_EventLoop_sendMessage
+  (JNIEnv *, jobject, jlong, jobject, jint, jobject, jint);
+
+/*
+ * Class:     fr_viveris_jnidbus_bindings_bus_EventLoop
+ * Method:    sendBatch
+ * Signature: (J[Lfr/viveris/jnidbus/bindings/bus/RequestSlot;II)I
+ */
+JNIEXPORT jint JNICALL Java_fr_viveris_jnidbus_bindings_bus_EventLoop_sendBatch
+  (JNIEnv *, jobject, jlong, jobjectArray, jint, jint);
+
+/*
+ * Class:     fr_viveris_jnidbus_bindings_bus_EventLoop
+ * Method:    cancelPendingCall
+ * Signature: (JJ)V
  */
-JNIEXPORT void JNICALL Java_fr_viveris_jnidbus_bindings_bus_EventLoop_sendCall
-  (JNIEnv *, jobject, jlong, jstring, jstring, jstring, jobject, jstring, jobject);
+JNIEXPORT void JNICALL Java_fr_viveris_jnidbus_bindings_bus_EventLoop_cancelPendingCall
+  (JNIEnv *, jobject, jlong, jlong);
+
+/*
+ * Class:     fr_viveris_jnidbus_bindings_bus_EventLoop
+ * Method:    releasePendingCall
+ * Signature: (J)V
+ */
+JNIEXPORT void JNICALL Java_fr_viveris_jnidbus_bindings_bus_EventLoop_releasePendingCall
+  (JNIEnv *, jclass, jlong);
 
 /*
  * Class:     fr_viveris_jnidbus_bindings_bus_EventLoop
@@ -81,6 +141,22 @@ JNIEXPORT void JNICALL Java_fr_viveris_jnidbus_bindings_bus_EventLoop_addPathHan
 JNIEXPORT void JNICALL Java_fr_viveris_jnidbus_bindings_bus_EventLoop_removePathHandler
   (JNIEnv *, jobject, jlong, jstring);
 
+/*
+ * Class:     fr_viveris_jnidbus_bindings_bus_EventLoop
+ * Method:    setRoutes
+ * Signature: (JLjava/lang/String;[Ljava/lang/String;[I[J[Z[Z)V
+ */
+JNIEXPORT void JNICALL Java_fr_viveris_jnidbus_bindings_bus_EventLoop_setRoutes
+  (JNIEnv *, jobject, jlong, jstring, jobjectArray, jintArray, jlongArray, jbooleanArray, jbooleanArray);
+
+/*
+ * Class:     fr_viveris_jnidbus_bindings_bus_EventLoop
+ * Method:    setupBatchDispatch
+ * Signature: (J[Lfr/viveris/jnidbus/dispatching/Dispatcher;[I[Ljava/lang/Object;[Ljava/lang/String;[J)V
+ */
+JNIEXPORT void JNICALL Java_fr_viveris_jnidbus_bindings_bus_EventLoop_setupBatchDispatch
+  (JNIEnv *, jobject, jlong, jobjectArray, jintArray, jobjectArray, jobjectArray, jlongArray);
+
 #ifdef __cplusplus
 }
 #endif
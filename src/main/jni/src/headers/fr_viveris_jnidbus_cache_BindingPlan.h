@@ -0,0 +1,39 @@
+/* DO NOT EDIT THIS FILE - it is machine generated */
+#include <jni.h>
+/* Header for class fr_viveris_jnidbus_cache_BindingPlan */
+
+#ifndef _Included_fr_viveris_jnidbus_cache_BindingPlan
+#define _Included_fr_viveris_jnidbus_cache_BindingPlan
+#ifdef __cplusplus
+extern "C" {
+#endif
+#undef fr_viveris_jnidbus_cache_BindingPlan_KIND_BOOLEAN
+#define fr_viveris_jnidbus_cache_BindingPlan_KIND_BOOLEAN 0L
+#undef fr_viveris_jnidbus_cache_BindingPlan_KIND_BYTE
+#define fr_viveris_jnidbus_cache_BindingPlan_KIND_BYTE 1L
+#undef fr_viveris_jnidbus_cache_BindingPlan_KIND_SHORT
+#define fr_viveris_jnidbus_cache_BindingPlan_KIND_SHORT 2L
+#undef fr_viveris_jnidbus_cache_BindingPlan_KIND_INT
+#define fr_viveris_jnidbus_cache_BindingPlan_KIND_INT 3L
+#undef fr_viveris_jnidbus_cache_BindingPlan_KIND_LONG
+#define fr_viveris_jnidbus_cache_BindingPlan_KIND_LONG 4L
+#undef fr_viveris_jnidbus_cache_BindingPlan_KIND_DOUBLE
+#define fr_viveris_jnidbus_cache_BindingPlan_KIND_DOUBLE 5L
+#undef fr_viveris_jnidbus_cache_BindingPlan_KIND_STRING
+#define fr_viveris_jnidbus_cache_BindingPlan_KIND_STRING 6L
+#undef fr_viveris_jnidbus_cache_BindingPlan_KIND_FIXED_ARRAY
+#define fr_viveris_jnidbus_cache_BindingPlan_KIND_FIXED_ARRAY 7L
+#undef fr_viveris_jnidbus_cache_BindingPlan_KIND_OBJECT
+#define fr_viveris_jnidbus_cache_BindingPlan_KIND_OBJECT 8L
+/*
+ * Class:     fr_viveris_jnidbus_cache_BindingPlan
+ * Method:    compile
+ * Signature: (Ljava/lang/Class;Ljava/lang/String;[Ljava/lang/String;[Ljava/lang/String;[I[J)J
+ */
+JNIEXPORT jlong JNICALL Java_fr_viveris_jnidbus_cache_BindingPlan_compile
+  (JNIEnv *, jclass, jclass, jstring, jobjectArray, jobjectArray, jintArray, jlongArray);
+
+#ifdef __cplusplus
+}
+#endif
+#endif
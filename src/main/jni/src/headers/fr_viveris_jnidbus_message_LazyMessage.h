@@ -0,0 +1,69 @@
+/* DO NOT EDIT THIS FILE - it is machine generated */
+#include <jni.h>
+/* Header for class fr_viveris_jnidbus_message_LazyMessage */
+
+#ifndef _Included_fr_viveris_jnidbus_message_LazyMessage
+#define _Included_fr_viveris_jnidbus_message_LazyMessage
+#ifdef __cplusplus
+extern "C" {
+#endif
+/*
+ * Class:     fr_viveris_jnidbus_message_LazyMessage
+ * Method:    decode
+ * Signature: (JJI)Ljava/lang/Object;
+ */
+JNIEXPORT jobject JNICALL Java_fr_viveris_jnidbus_message_LazyMessage_decode
+  (JNIEnv *, jclass, jlong, jlong, jint);
+
+/*
+ * Class:     fr_viveris_jnidbus_message_LazyMessage
+ * Method:    openIterator
+ * Signature: (JJI)J
+ */
+JNIEXPORT jlong JNICALL Java_fr_viveris_jnidbus_message_LazyMessage_openIterator
+  (JNIEnv *, jclass, jlong, jlong, jint);
+
+/*
+ * Class:     fr_viveris_jnidbus_message_LazyMessage
+ * Method:    arrayLength
+ * Signature: (JI)I
+ */
+JNIEXPORT jint JNICALL Java_fr_viveris_jnidbus_message_LazyMessage_arrayLength
+  (JNIEnv *, jclass, jlong, jint);
+
+/*
+ * Class:     fr_viveris_jnidbus_message_LazyMessage
+ * Method:    iteratorHasNext
+ * Signature: (J)Z
+ */
+JNIEXPORT jboolean JNICALL Java_fr_viveris_jnidbus_message_LazyMessage_iteratorHasNext
+  (JNIEnv *, jclass, jlong);
+
+/*
+ * Class:     fr_viveris_jnidbus_message_LazyMessage
+ * Method:    iteratorNext
+ * Signature: (JJ)Ljava/lang/Object;
+ */
+JNIEXPORT jobject JNICALL Java_fr_viveris_jnidbus_message_LazyMessage_iteratorNext
+  (JNIEnv *, jclass, jlong, jlong);
+
+/*
+ * Class:     fr_viveris_jnidbus_message_LazyMessage
+ * Method:    closeIterator
+ * Signature: (J)V
+ */
+JNIEXPORT void JNICALL Java_fr_viveris_jnidbus_message_LazyMessage_closeIterator
+  (JNIEnv *, jclass, jlong);
+
+/*
+ * Class:     fr_viveris_jnidbus_message_LazyMessage
+ * Method:    release
+ * Signature: (J)V
+ */
+JNIEXPORT void JNICALL Java_fr_viveris_jnidbus_message_LazyMessage_release
+  (JNIEnv *, jclass, jlong);
+
+#ifdef __cplusplus
+}
+#endif
+#endif
@@ -0,0 +1,37 @@
+/* DO NOT EDIT THIS FILE - it is machine generated */
+#include <jni.h>
+/* Header for class fr_viveris_jnidbus_types_SharedBuffer */
+
+#ifndef _Included_fr_viveris_jnidbus_types_SharedBuffer
+#define _Included_fr_viveris_jnidbus_types_SharedBuffer
+#ifdef __cplusplus
+extern "C" {
+#endif
+/*
+ * Class:     fr_viveris_jnidbus_types_SharedBuffer
+ * Method:    createMemfd
+ * Signature: (Ljava/lang/String;Ljava/nio/ByteBuffer;[BII)I
+ */
+JNIEXPORT jint JNICALL Java_fr_viveris_jnidbus_types_SharedBuffer_createMemfd
+  (JNIEnv *, jclass, jstring, jobject, jbyteArray, jint, jint);
+
+/*
+ * Class:     fr_viveris_jnidbus_types_SharedBuffer
+ * Method:    mapMemfd
+ * Signature: (I)Ljava/nio/ByteBuffer;
+ */
+JNIEXPORT jobject JNICALL Java_fr_viveris_jnidbus_types_SharedBuffer_mapMemfd
+  (JNIEnv *, jclass, jint);
+
+/*
+ * Class:     fr_viveris_jnidbus_types_SharedBuffer
+ * Method:    unmap
+ * Signature: (Ljava/nio/ByteBuffer;)V
+ */
+JNIEXPORT void JNICALL Java_fr_viveris_jnidbus_types_SharedBuffer_unmap
+  (JNIEnv *, jclass, jobject);
+
+#ifdef __cplusplus
+}
+#endif
+#endif
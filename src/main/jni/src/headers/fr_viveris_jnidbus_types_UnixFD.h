@@ -0,0 +1,21 @@
+/* DO NOT EDIT THIS FILE - it is machine generated */
+#include <jni.h>
+/* Header for class fr_viveris_jnidbus_types_UnixFD */
+
+#ifndef _Included_fr_viveris_jnidbus_types_UnixFD
+#define _Included_fr_viveris_jnidbus_types_UnixFD
+#ifdef __cplusplus
+extern "C" {
+#endif
+/*
+ * Class:     fr_viveris_jnidbus_types_UnixFD
+ * Method:    closeFD
+ * Signature: (I)V
+ */
+JNIEXPORT void JNICALL Java_fr_viveris_jnidbus_types_UnixFD_closeFD
+  (JNIEnv *, jclass, jint);
+
+#ifdef __cplusplus
+}
+#endif
+#endif
@@ -21,6 +21,17 @@ void serialize(context* ctx, jobject message, DBusMessageIter* container);
  */ 
 jobject deserialize(context* ctx, DBusMessageIter* container);
 
+/**
+ * deserialize the single value the iterator points to, arrays and structs included
+ */
+jobject deserialize_value(context* ctx, DBusMessageIter* container);
+
+/**
+ * deserialize the body of a DBus message into a JVM DBusObject with its signature set. If the wire codec is enabled the
+ * message is marshalled and decoded by the JVM, else it is read with a message iterator
+ */
+jobject deserialize_message(context* ctx, DBusMessage* msg);
+
 /**
  * serialize a JVM dbus_object array of values given the signature, allwos us to use dbus built-in
  * signature functions instead of calling the JVM for the one of the DBusObject (better for performances)
@@ -38,9 +49,30 @@ void serialize_array(context* ctx, int dbus_type, jobjectArray array, DBusMessag
 void serialize_primitive_array(context* ctx, int dbus_type, jarray object, int length,  DBusMessageIter* container);
 
 /**
- * Transfer the container array into a JVM array
+ * Transfer the values of a JVM direct buffer into the container, without copying them on the JVM side
+ */
+void serialize_direct_buffer(context* ctx, int dbus_type, jobject buffer, DBusMessageIter* container);
+
+/**
+ * Transfer the JVM packed strings into the container, the type is either a string or a dict entry of two strings
+ */
+void serialize_packed_strings(context* ctx, int dbus_type, jobject packed, DBusMessageIter* container);
+
+/**
+ * Copy the strings of the container array, or the keys and values of its dict entries, into JVM packed strings
  */
-jobjectArray deserialize_array(context* ctx, int dbus_type, DBusMessageIter* container);
+jobject deserialize_packed_strings(context* ctx, int dbus_type, DBusMessageIter* container);
+
+/**
+ * Transfer the container array into a JVM array, fixed size types give a JVM primitive array and the others an Object array
+ */
+jobject deserialize_array(context* ctx, int dbus_type, DBusMessageIter* container);
+
+/**
+ * Read an array of fixed size type in one shot into a JVM primitive array, without boxing its values. Returns NULL if the
+ * type is not a fixed size type supported by the JVM side
+ */
+jobject deserialize_fixed_array(context* ctx, int dbus_type, DBusMessageIter* container);
 
 
 
@@ -54,4 +86,20 @@ void serialize_element(context* ctx, int dbus_type, jobject object, DBusMessageI
  */
 jobject deserialize_element(context* ctx, DBusMessageIter* container);
 
+/**
+ * Create the JVM string of a string value of a message body. The string is taken from the intern table of the context
+ * when the current thread is in an intern_scope asking for it
+ */
+jstring deserialize_string(context* ctx, JNIEnv* env, const char* value);
+
+/**
+ * While an enabled scope lives, the string values deserialized by the current thread are interned. The scopes can be
+ * nested, the previous state is restored when the scope is destroyed
+ */
+struct intern_scope{
+    bool previous;
+    intern_scope(bool enabled);
+    ~intern_scope();
+};
+
 #endif
\ No newline at end of file
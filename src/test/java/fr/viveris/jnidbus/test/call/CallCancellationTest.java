@@ -0,0 +1,141 @@
+/* Copyright 2019, Viveris Technologies <opensource@toulouse.viveris.fr>
+ * Distributed under the terms of the Academic Free License.
+ */
+package fr.viveris.jnidbus.test.call;
+
+import fr.viveris.jnidbus.dispatching.GenericHandler;
+import fr.viveris.jnidbus.dispatching.MemberType;
+import fr.viveris.jnidbus.dispatching.annotation.Handler;
+import fr.viveris.jnidbus.dispatching.annotation.HandlerMethod;
+import fr.viveris.jnidbus.message.Message;
+import fr.viveris.jnidbus.message.Promise;
+import fr.viveris.jnidbus.remote.RemoteInterface;
+import fr.viveris.jnidbus.remote.RemoteMember;
+import fr.viveris.jnidbus.test.common.DBusTestCase;
+import org.junit.Test;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static junit.framework.TestCase.*;
+
+public class CallCancellationTest extends DBusTestCase {
+
+    @Test
+    public void cancelledPromiseDropsTheReply() throws Exception {
+        CallHandler handler = new CallHandler();
+        this.receiver.addHandlerBlocking(handler);
+        CallCancellationTestRemote remoteObj = this.sender.createRemoteObject(this.receiverBusName, "/fr/viveris/jnidbus/test/call/CallCancellationTest",CallCancellationTestRemote.class);
+
+        Promise<Message.EmptyMessage> pending = remoteObj.delayedCall();
+        assertTrue(pending.cancel());
+        try{
+            pending.get(5, TimeUnit.SECONDS);
+            fail("The call should have been cancelled");
+        }catch (CancellationException e){
+            assertTrue(pending.isCancelled());
+        }
+
+        //the reply sent after the cancellation is dropped and the connection keeps working
+        assertTrue(handler.replied.await(5, TimeUnit.SECONDS));
+        assertEquals(Message.EMPTY,remoteObj.instantCall().get(5, TimeUnit.SECONDS));
+        assertTrue(pending.isCancelled());
+    }
+
+    @Test
+    public void cancelledFutureDropsTheReply() throws Exception {
+        CallHandler handler = new CallHandler();
+        this.receiver.addHandlerBlocking(handler);
+        CallCancellationTestRemote remoteObj = this.sender.createRemoteObject(this.receiverBusName, "/fr/viveris/jnidbus/test/call/CallCancellationTest",CallCancellationTestRemote.class);
+
+        CompletableFuture<Message.EmptyMessage> pending = remoteObj.delayedFutureCall();
+        assertTrue(pending.cancel(false));
+        assertTrue(pending.isCancelled());
+
+        assertTrue(handler.replied.await(5, TimeUnit.SECONDS));
+        assertEquals(Message.EMPTY,remoteObj.instantCall().get(5, TimeUnit.SECONDS));
+        assertTrue(pending.isCancelled());
+    }
+
+    @Test
+    public void cancelledCallsWithoutReplyAreReleased() throws Exception {
+        this.receiver.addHandlerBlocking(new CallHandler());
+        CallCancellationTestRemote remoteObj = this.sender.createRemoteObject(this.receiverBusName, "/fr/viveris/jnidbus/test/call/CallCancellationTest",CallCancellationTestRemote.class);
+
+        //the called object never answers, the calls are only released by their cancellation
+        Promise<?>[] pending = new Promise[1000];
+        for(int i = 0; i < pending.length; i++){
+            pending[i] = remoteObj.unansweredCall();
+        }
+        for(Promise<?> promise : pending){
+            assertTrue(promise.cancel());
+        }
+
+        assertEquals(Message.EMPTY,remoteObj.instantCall().get(5, TimeUnit.SECONDS));
+        for(Promise<?> promise : pending){
+            assertTrue(promise.isCancelled());
+        }
+    }
+
+    @Handler(
+            path = "/fr/viveris/jnidbus/test/call/CallCancellationTest",
+            interfaceName = "fr.viveris.jnidbus.test.Call.CallCancellationTest"
+    )
+    public class CallHandler extends GenericHandler {
+        private CountDownLatch replied = new CountDownLatch(1);
+
+        @HandlerMethod(
+                member = "instantCall",
+                type = MemberType.METHOD
+        )
+        public Message.EmptyMessage instantCall(Message.EmptyMessage msg){
+            return Message.EMPTY;
+        }
+
+        @HandlerMethod(
+                member = "delayedCall",
+                type = MemberType.METHOD
+        )
+        public Promise<Message.EmptyMessage> delayedCall(Message.EmptyMessage msg){
+            final Promise<Message.EmptyMessage> promise = new Promise<>();
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        Thread.sleep(500);
+                    } catch (InterruptedException e) {
+                        e.printStackTrace();
+                    }
+                    promise.resolve(Message.EMPTY);
+                    CallHandler.this.replied.countDown();
+                }
+            }).start();
+            return promise;
+        }
+
+        @HandlerMethod(
+                member = "unansweredCall",
+                type = MemberType.METHOD
+        )
+        public Promise<Message.EmptyMessage> unansweredCall(Message.EmptyMessage msg){
+            return new Promise<>();
+        }
+    }
+
+    @RemoteInterface("fr.viveris.jnidbus.test.Call.CallCancellationTest")
+    public interface CallCancellationTestRemote{
+        @RemoteMember("instantCall")
+        Promise<Message.EmptyMessage> instantCall();
+
+        @RemoteMember("delayedCall")
+        Promise<Message.EmptyMessage> delayedCall();
+
+        @RemoteMember("delayedCall")
+        CompletableFuture<Message.EmptyMessage> delayedFutureCall();
+
+        @RemoteMember("unansweredCall")
+        Promise<Message.EmptyMessage> unansweredCall();
+    }
+}
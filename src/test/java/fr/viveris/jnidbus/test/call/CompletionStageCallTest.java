@@ -0,0 +1,129 @@
+/* Copyright 2019, Viveris Technologies <opensource@toulouse.viveris.fr>
+ * Distributed under the terms of the Academic Free License.
+ */
+package fr.viveris.jnidbus.test.call;
+
+import fr.viveris.jnidbus.dispatching.GenericHandler;
+import fr.viveris.jnidbus.dispatching.MemberType;
+import fr.viveris.jnidbus.dispatching.annotation.Handler;
+import fr.viveris.jnidbus.dispatching.annotation.HandlerMethod;
+import fr.viveris.jnidbus.exception.DBusException;
+import fr.viveris.jnidbus.message.DBusFuture;
+import fr.viveris.jnidbus.message.Message;
+import fr.viveris.jnidbus.remote.RemoteInterface;
+import fr.viveris.jnidbus.remote.RemoteMember;
+import fr.viveris.jnidbus.test.common.DBusObjects.SingleStringMessage;
+import fr.viveris.jnidbus.test.common.DBusTestCase;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static junit.framework.TestCase.*;
+
+public class CompletionStageCallTest extends DBusTestCase {
+
+    @Test
+    public void remoteMethodReturnsACompletionStage() throws Exception {
+        this.receiver.addHandlerBlocking(new CallHandler());
+        CompletionStageCallTestRemote remoteObj = this.sender.createRemoteObject(this.receiverBusName, "/fr/viveris/jnidbus/test/call/CompletionStageCallTest",CompletionStageCallTestRemote.class);
+
+        CompletionStage<SingleStringMessage> pending = remoteObj.instantCall();
+        //the stage is completed by the native code, it is not bridged from a Promise
+        assertTrue(pending instanceof DBusFuture);
+        assertEquals("test",pending.toCompletableFuture().get(5, TimeUnit.SECONDS).getString());
+    }
+
+    @Test
+    public void handlerReturnsACompletionStage() throws Exception {
+        this.receiver.addHandlerBlocking(new CallHandler());
+        CompletionStageCallTestRemote remoteObj = this.sender.createRemoteObject(this.receiverBusName, "/fr/viveris/jnidbus/test/call/CompletionStageCallTest",CompletionStageCallTestRemote.class);
+
+        CompletableFuture<Message.EmptyMessage> pending = remoteObj.delayedCall();
+        assertEquals(Message.EMPTY,pending.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void failedStageIsSentAsAnError() throws Exception {
+        this.receiver.addHandlerBlocking(new CallHandler());
+        CompletionStageCallTestRemote remoteObj = this.sender.createRemoteObject(this.receiverBusName, "/fr/viveris/jnidbus/test/call/CompletionStageCallTest",CompletionStageCallTestRemote.class);
+
+        CompletableFuture<Message.EmptyMessage> pending = remoteObj.failCall();
+        try{
+            pending.get(5, TimeUnit.SECONDS);
+            fail("The call should have failed");
+        }catch (ExecutionException e){
+            assertTrue(e.getCause() instanceof DBusException);
+            assertEquals("test.error.code",((DBusException) e.getCause()).getCode());
+            assertEquals("TestMessage",e.getCause().getMessage());
+        }
+    }
+
+    @Handler(
+            path = "/fr/viveris/jnidbus/test/call/CompletionStageCallTest",
+            interfaceName = "fr.viveris.jnidbus.test.Call.CompletionStageCallTest"
+    )
+    public class CallHandler extends GenericHandler {
+
+        @HandlerMethod(
+                member = "instantReturn",
+                type = MemberType.METHOD
+        )
+        public CompletionStage<SingleStringMessage> instantReturn(Message.EmptyMessage msg){
+            SingleStringMessage ret = new SingleStringMessage();
+            ret.setString("test");
+            return CompletableFuture.completedFuture(ret);
+        }
+
+        @HandlerMethod(
+                member = "delayedCall",
+                type = MemberType.METHOD
+        )
+        public CompletableFuture<Message.EmptyMessage> delayedCall(Message.EmptyMessage msg){
+            final CompletableFuture<Message.EmptyMessage> future = new CompletableFuture<>();
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        Thread.sleep(500);
+                    } catch (InterruptedException e) {
+                        e.printStackTrace();
+                    }
+                    future.complete(Message.EMPTY);
+                }
+            }).start();
+            return future;
+        }
+
+        @HandlerMethod(
+                member = "failCall",
+                type = MemberType.METHOD
+        )
+        public CompletionStage<Message.EmptyMessage> failCall(Message.EmptyMessage msg){
+            //the dependent stage wraps the exception, the error reply must still carry the original one
+            CompletableFuture<Message.EmptyMessage> future = new CompletableFuture<>();
+            future.completeExceptionally(new DBusException("test.error.code","TestMessage"));
+            return future.thenApply(new Function<Message.EmptyMessage, Message.EmptyMessage>() {
+                @Override
+                public Message.EmptyMessage apply(Message.EmptyMessage emptyMessage) {
+                    return emptyMessage;
+                }
+            });
+        }
+    }
+
+    @RemoteInterface("fr.viveris.jnidbus.test.Call.CompletionStageCallTest")
+    public interface CompletionStageCallTestRemote{
+        @RemoteMember("instantReturn")
+        CompletionStage<SingleStringMessage> instantCall();
+
+        @RemoteMember("delayedCall")
+        CompletableFuture<Message.EmptyMessage> delayedCall();
+
+        @RemoteMember("failCall")
+        CompletableFuture<Message.EmptyMessage> failCall();
+    }
+}
@@ -0,0 +1,195 @@
+/* Copyright 2019, Viveris Technologies <opensource@toulouse.viveris.fr>
+ * Distributed under the terms of the Academic Free License.
+ */
+package fr.viveris.jnidbus.test.call;
+
+import fr.viveris.jnidbus.BusType;
+import fr.viveris.jnidbus.Dbus;
+import fr.viveris.jnidbus.bindings.bus.EventLoop;
+import fr.viveris.jnidbus.dispatching.GenericHandler;
+import fr.viveris.jnidbus.dispatching.MemberType;
+import fr.viveris.jnidbus.dispatching.annotation.Handler;
+import fr.viveris.jnidbus.dispatching.annotation.HandlerMethod;
+import fr.viveris.jnidbus.exception.ClosedEventLoopException;
+import fr.viveris.jnidbus.message.Message;
+import fr.viveris.jnidbus.message.Promise;
+import fr.viveris.jnidbus.message.eventloop.RequestCallback;
+import fr.viveris.jnidbus.remote.RemoteInterface;
+import fr.viveris.jnidbus.remote.RemoteMember;
+import fr.viveris.jnidbus.remote.Signal;
+import fr.viveris.jnidbus.test.common.DBusTestCase;
+import fr.viveris.jnidbus.test.common.Listener;
+import org.junit.Test;
+import org.junit.runners.Parameterized;
+
+import java.util.Collection;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static junit.framework.TestCase.*;
+
+/**
+ * Check the signals and calls are sent by the calling threads in direct send mode, and that closing the event loop
+ * does not free the connection under them
+ */
+public class DirectSendCallTest extends DBusTestCase {
+    private static final String PATH = "/fr/viveris/jnidbus/test/call/DirectSendCallTest";
+    private static final int SENDERS = 4;
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> features(){
+        return features(EventLoop.DIRECT_SEND_PROPERTY);
+    }
+
+    @Test
+    public void signalIsSentWhileTheEventLoopIsBlocked() throws InterruptedException {
+        CallHandler handler = new CallHandler();
+        this.receiver.addHandlerBlocking(handler);
+
+        CountDownLatch release = this.block(this.sender);
+        try{
+            this.sender.sendSignal(PATH,new DirectSendCallTestRemote.EmptySignal(),null);
+            assertTrue(handler.signalBarrier.await(5, TimeUnit.SECONDS));
+        }finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void callIsSentWhileTheEventLoopIsBlocked() throws InterruptedException {
+        CallHandler handler = new CallHandler();
+        this.receiver.addHandlerBlocking(handler);
+        DirectSendCallTestRemote remoteObj = this.sender.createRemoteObject(this.receiverBusName,PATH,DirectSendCallTestRemote.class);
+
+        CountDownLatch release = this.block(this.sender);
+        Listener<Message.EmptyMessage> l = new Listener<>();
+        try{
+            Promise<Message.EmptyMessage> pending = remoteObj.emptyCall();
+            pending.then(l);
+            //the call reaches the handler, only its reply waits for the event loop of the sender
+            assertTrue(handler.callBarrier.await(5, TimeUnit.SECONDS));
+            assertFalse(l.getBarrier().await(200, TimeUnit.MILLISECONDS));
+        }finally {
+            release.countDown();
+        }
+        assertTrue(l.getBarrier().await(5, TimeUnit.SECONDS));
+        assertEquals(Message.EMPTY,l.getValue());
+        assertNull(l.getT());
+    }
+
+    @Test
+    public void closeWaitsForTheDirectSenders() throws Exception {
+        final Dbus bus = new Dbus(BusType.SESSION,"fr.viveris.vizada.jnidbus.test.sender."+generateRandomString());
+        final AtomicInteger sent = new AtomicInteger(0);
+        final AtomicInteger errors = new AtomicInteger(0);
+        final CountDownLatch started = new CountDownLatch(SENDERS);
+        final RequestCallback callback = new RequestCallback() {
+            @Override
+            public void call(Exception e) {
+                if(e == null) sent.incrementAndGet();
+                else errors.incrementAndGet();
+            }
+        };
+
+        //keep sending until the event loop is closed, the senders in flight during the close must not fail
+        Thread[] senders = new Thread[SENDERS];
+        for(int i = 0; i < SENDERS; i++){
+            senders[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    started.countDown();
+                    try{
+                        while(true){
+                            bus.sendSignal(PATH,new DirectSendCallTestRemote.EmptySignal(),callback);
+                        }
+                    }catch (ClosedEventLoopException e){
+                        //expected once the event loop is closed
+                    }catch (Throwable e){
+                        e.printStackTrace();
+                        errors.incrementAndGet();
+                    }
+                }
+            });
+            senders[i].start();
+        }
+        assertTrue(started.await(2, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        bus.close();
+
+        for(Thread sender : senders){
+            sender.join(5000);
+            assertFalse(sender.isAlive());
+        }
+        assertEquals(0,errors.get());
+        assertTrue(sent.get() > 0);
+
+        //the new senders are rejected
+        try{
+            bus.sendSignal(PATH,new DirectSendCallTestRemote.EmptySignal(),null);
+            fail("The event loop should be closed");
+        }catch (ClosedEventLoopException e){
+            //expected
+        }
+    }
+
+    /**
+     * Block the event loop of the given bus in a runnable until the returned latch is released
+     */
+    private CountDownLatch block(Dbus bus) throws InterruptedException {
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        bus.getEventLoopExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                blocked.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                }
+            }
+        });
+        assertTrue(blocked.await(2, TimeUnit.SECONDS));
+        return release;
+    }
+
+    @Handler(
+            path = PATH,
+            interfaceName = "fr.viveris.jnidbus.test.Call.DirectSendCallTest"
+    )
+    public class CallHandler extends GenericHandler {
+        private CountDownLatch callBarrier = new CountDownLatch(1);
+        private CountDownLatch signalBarrier = new CountDownLatch(1);
+
+        @HandlerMethod(
+                member = "emptyCall",
+                type = MemberType.METHOD
+        )
+        public Message.EmptyMessage emptyCall(Message.EmptyMessage msg){
+            this.callBarrier.countDown();
+            return Message.EMPTY;
+        }
+
+        @HandlerMethod(
+                member = "emptySignal",
+                type = MemberType.SIGNAL
+        )
+        public void emptySignal(Message.EmptyMessage msg){
+            this.signalBarrier.countDown();
+        }
+    }
+
+    @RemoteInterface("fr.viveris.jnidbus.test.Call.DirectSendCallTest")
+    public interface DirectSendCallTestRemote{
+        @RemoteMember("emptyCall")
+        Promise<Message.EmptyMessage> emptyCall();
+
+        @RemoteMember("emptySignal")
+        class EmptySignal extends Signal<Message.EmptyMessage> {
+            public EmptySignal() {
+                super(Message.EMPTY);
+            }
+        }
+    }
+}
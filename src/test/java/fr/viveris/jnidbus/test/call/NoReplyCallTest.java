@@ -0,0 +1,88 @@
+/* Copyright 2019, Viveris Technologies <opensource@toulouse.viveris.fr>
+ * Distributed under the terms of the Academic Free License.
+ */
+package fr.viveris.jnidbus.test.call;
+
+import fr.viveris.jnidbus.dispatching.GenericHandler;
+import fr.viveris.jnidbus.dispatching.MemberType;
+import fr.viveris.jnidbus.dispatching.annotation.Handler;
+import fr.viveris.jnidbus.dispatching.annotation.HandlerMethod;
+import fr.viveris.jnidbus.message.Message;
+import fr.viveris.jnidbus.message.Promise;
+import fr.viveris.jnidbus.remote.RemoteInterface;
+import fr.viveris.jnidbus.remote.RemoteMember;
+import fr.viveris.jnidbus.test.common.DBusObjects.SingleStringMessage;
+import fr.viveris.jnidbus.test.common.DBusTestCase;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static junit.framework.TestCase.*;
+
+public class NoReplyCallTest extends DBusTestCase {
+
+    @Test
+    public void oneWayCallReachesTheHandler() throws Exception {
+        CallHandler handler = new CallHandler();
+        this.receiver.addHandlerBlocking(handler);
+        NoReplyCallTestRemote remoteObj = this.sender.createRemoteObject(this.receiverBusName, "/fr/viveris/jnidbus/test/call/NoReplyCallTest",NoReplyCallTestRemote.class);
+
+        SingleStringMessage msg = new SingleStringMessage();
+        msg.setString("notification");
+        remoteObj.notifyCall(msg);
+        remoteObj.emptyNotifyCall();
+
+        assertTrue(handler.barrier.await(5, TimeUnit.SECONDS));
+        assertEquals("notification",handler.received);
+    }
+
+    @Test
+    public void callsWithReplyStillWork() throws Exception {
+        this.receiver.addHandlerBlocking(new CallHandler());
+        NoReplyCallTestRemote remoteObj = this.sender.createRemoteObject(this.receiverBusName, "/fr/viveris/jnidbus/test/call/NoReplyCallTest",NoReplyCallTestRemote.class);
+
+        //the same handler method answers the calls expecting a reply
+        assertEquals(Message.EMPTY,remoteObj.emptyCall().get(5, TimeUnit.SECONDS));
+    }
+
+    @Handler(
+            path = "/fr/viveris/jnidbus/test/call/NoReplyCallTest",
+            interfaceName = "fr.viveris.jnidbus.test.Call.NoReplyCallTest"
+    )
+    public class CallHandler extends GenericHandler {
+        private CountDownLatch barrier = new CountDownLatch(2);
+        private volatile String received;
+
+        @HandlerMethod(
+                member = "notify",
+                type = MemberType.METHOD
+        )
+        public Message.EmptyMessage notify(SingleStringMessage msg){
+            this.received = msg.getString();
+            this.barrier.countDown();
+            return Message.EMPTY;
+        }
+
+        @HandlerMethod(
+                member = "emptyNotify",
+                type = MemberType.METHOD
+        )
+        public Message.EmptyMessage emptyNotify(Message.EmptyMessage msg){
+            this.barrier.countDown();
+            return Message.EMPTY;
+        }
+    }
+
+    @RemoteInterface("fr.viveris.jnidbus.test.Call.NoReplyCallTest")
+    public interface NoReplyCallTestRemote{
+        @RemoteMember("notify")
+        void notifyCall(SingleStringMessage msg);
+
+        @RemoteMember("emptyNotify")
+        void emptyNotifyCall();
+
+        @RemoteMember("emptyNotify")
+        Promise<Message.EmptyMessage> emptyCall();
+    }
+}
@@ -0,0 +1,160 @@
+/* Copyright 2019, Viveris Technologies <opensource@toulouse.viveris.fr>
+ * Distributed under the terms of the Academic Free License.
+ */
+package fr.viveris.jnidbus.test.call;
+
+import fr.viveris.jnidbus.dispatching.DispatchOrdering;
+import fr.viveris.jnidbus.dispatching.GenericHandler;
+import fr.viveris.jnidbus.dispatching.MemberType;
+import fr.viveris.jnidbus.dispatching.annotation.Handler;
+import fr.viveris.jnidbus.dispatching.annotation.HandlerMethod;
+import fr.viveris.jnidbus.message.Message;
+import fr.viveris.jnidbus.message.Promise;
+import fr.viveris.jnidbus.remote.RemoteInterface;
+import fr.viveris.jnidbus.remote.RemoteMember;
+import fr.viveris.jnidbus.test.common.DBusObjects.SingleStringMessage;
+import fr.viveris.jnidbus.test.common.DBusTestCase;
+import fr.viveris.jnidbus.test.common.Listener;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static junit.framework.TestCase.*;
+
+public class OffloadedCallTest extends DBusTestCase {
+    private static final String WORKER_PREFIX = "offloaded-worker-";
+
+    private ExecutorService workers;
+
+    @Before
+    public void setupWorkers(){
+        final AtomicInteger count = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(4, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                return new Thread(r,WORKER_PREFIX+count.getAndIncrement());
+            }
+        });
+        this.receiver.registerExecutor("workers",this.workers);
+    }
+
+    @After
+    public void shutdownWorkers(){
+        this.workers.shutdownNow();
+    }
+
+    @Test
+    public void callRunsOnExecutor() throws InterruptedException {
+        CallHandler handler = new CallHandler();
+        this.receiver.addHandlerBlocking(handler);
+        OffloadedCallTestRemote remoteObj = this.sender.createRemoteObject(this.receiverBusName, "/fr/viveris/jnidbus/test/call/OffloadedCallTest",OffloadedCallTestRemote.class);
+
+        Promise<SingleStringMessage> pending = remoteObj.threadName();
+        Listener<SingleStringMessage> l = new Listener<>();
+        pending.then(l);
+
+        assertTrue(l.getBarrier().await(2, TimeUnit.SECONDS));
+        assertNull(l.getT());
+        assertTrue(l.getValue().getString().startsWith(WORKER_PREFIX));
+    }
+
+    @Test
+    public void callsFromSameSenderAreOrdered() throws InterruptedException {
+        CallHandler handler = new CallHandler();
+        this.receiver.addHandlerBlocking(handler);
+        OffloadedCallTestRemote remoteObj = this.sender.createRemoteObject(this.receiverBusName, "/fr/viveris/jnidbus/test/call/OffloadedCallTest",OffloadedCallTestRemote.class);
+
+        int count = 20;
+        List<Listener<Message.EmptyMessage>> listeners = new ArrayList<>();
+        for(int i = 0; i < count; i++){
+            SingleStringMessage msg = new SingleStringMessage();
+            msg.setString(String.valueOf(i));
+            Listener<Message.EmptyMessage> l = new Listener<>();
+            remoteObj.ordered(msg).then(l);
+            listeners.add(l);
+        }
+
+        for(Listener<Message.EmptyMessage> l : listeners){
+            assertTrue(l.getBarrier().await(5, TimeUnit.SECONDS));
+            assertNull(l.getT());
+        }
+        assertFalse(handler.overlapped.get());
+        for(int i = 0; i < count; i++){
+            assertEquals(String.valueOf(i),handler.received.get(i));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownExecutorIsRejected() throws InterruptedException {
+        this.receiver.addHandlerBlocking(new UnknownExecutorHandler());
+    }
+
+    @Handler(
+            path = "/fr/viveris/jnidbus/test/call/OffloadedCallTest",
+            interfaceName = "fr.viveris.jnidbus.test.Call.OffloadedCallTest",
+            executor = "workers"
+    )
+    public class CallHandler extends GenericHandler {
+        private AtomicInteger running = new AtomicInteger();
+        private AtomicBoolean overlapped = new AtomicBoolean(false);
+        private List<String> received = Collections.synchronizedList(new ArrayList<String>());
+
+        @HandlerMethod(
+                member = "threadName",
+                type = MemberType.METHOD
+        )
+        public SingleStringMessage threadName(Message.EmptyMessage emptyMessage){
+            SingleStringMessage ret = new SingleStringMessage();
+            ret.setString(Thread.currentThread().getName());
+            return ret;
+        }
+
+        @HandlerMethod(
+                member = "ordered",
+                type = MemberType.METHOD,
+                executor = "workers",
+                ordering = DispatchOrdering.SENDER
+        )
+        public Message.EmptyMessage ordered(SingleStringMessage msg) throws InterruptedException {
+            if(this.running.incrementAndGet() > 1) this.overlapped.set(true);
+            this.received.add(msg.getString());
+            Thread.sleep(10);
+            this.running.decrementAndGet();
+            return Message.EMPTY;
+        }
+    }
+
+    @Handler(
+            path = "/fr/viveris/jnidbus/test/call/OffloadedCallTest/Unknown",
+            interfaceName = "fr.viveris.jnidbus.test.Call.OffloadedCallTest",
+            executor = "unknown"
+    )
+    public class UnknownExecutorHandler extends GenericHandler {
+        @HandlerMethod(
+                member = "threadName",
+                type = MemberType.METHOD
+        )
+        public SingleStringMessage threadName(Message.EmptyMessage emptyMessage){
+            return new SingleStringMessage();
+        }
+    }
+
+    @RemoteInterface("fr.viveris.jnidbus.test.Call.OffloadedCallTest")
+    public interface OffloadedCallTestRemote{
+        @RemoteMember("threadName")
+        Promise<SingleStringMessage> threadName();
+
+        @RemoteMember("ordered")
+        Promise<Message.EmptyMessage> ordered(SingleStringMessage msg);
+    }
+}
@@ -0,0 +1,95 @@
+/* Copyright 2019, Viveris Technologies <opensource@toulouse.viveris.fr>
+ * Distributed under the terms of the Academic Free License.
+ */
+package fr.viveris.jnidbus.test.call;
+
+import fr.viveris.jnidbus.dispatching.GenericHandler;
+import fr.viveris.jnidbus.dispatching.MemberType;
+import fr.viveris.jnidbus.dispatching.annotation.Handler;
+import fr.viveris.jnidbus.dispatching.annotation.HandlerMethod;
+import fr.viveris.jnidbus.exception.DBusException;
+import fr.viveris.jnidbus.message.Message;
+import fr.viveris.jnidbus.message.Promise;
+import fr.viveris.jnidbus.remote.RemoteInterface;
+import fr.viveris.jnidbus.remote.RemoteMember;
+import fr.viveris.jnidbus.test.common.DBusTestCase;
+import fr.viveris.jnidbus.test.common.Listener;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static junit.framework.TestCase.*;
+
+public class TimeoutCallTest extends DBusTestCase {
+
+    @Test
+    public void callTimesOut() throws InterruptedException {
+        CallHandler handler = new CallHandler();
+        this.receiver.addHandlerBlocking(handler);
+        TimeoutCallTestRemote remoteObj = this.sender.createRemoteObject(this.receiverBusName, "/fr/viveris/jnidbus/test/call/TimeoutCallTest",TimeoutCallTestRemote.class);
+
+        Promise<Message.EmptyMessage> pending = remoteObj.neverAnswer();
+        Listener<Message.EmptyMessage> l = new Listener<>();
+        pending.then(l);
+
+        assertTrue(handler.barrier.await(2, TimeUnit.SECONDS));
+        assertTrue(l.getBarrier().await(2, TimeUnit.SECONDS));
+        assertNull(l.getValue());
+        assertNotNull(l.getT());
+        assertEquals(DBusException.NO_REPLY_CODE,l.getT().getCode());
+    }
+
+    @Test
+    public void callAnsweredBeforeTimeout() throws InterruptedException {
+        CallHandler handler = new CallHandler();
+        this.receiver.addHandlerBlocking(handler);
+        TimeoutCallTestRemote remoteObj = this.sender.createRemoteObject(this.receiverBusName, "/fr/viveris/jnidbus/test/call/TimeoutCallTest",TimeoutCallTestRemote.class);
+
+        Promise<Message.EmptyMessage> pending = remoteObj.instantAnswer();
+        Listener<Message.EmptyMessage> l = new Listener<>();
+        pending.then(l);
+
+        assertTrue(l.getBarrier().await(2, TimeUnit.SECONDS));
+        assertEquals(Message.EMPTY,l.getValue());
+        assertNull(l.getT());
+
+        //the expired timer must not fail the already resolved promise
+        Thread.sleep(1000);
+        assertTrue(pending.hasValue());
+    }
+
+    @Handler(
+            path = "/fr/viveris/jnidbus/test/call/TimeoutCallTest",
+            interfaceName = "fr.viveris.jnidbus.test.Call.TimeoutCallTest"
+    )
+    public class CallHandler extends GenericHandler {
+        private CountDownLatch barrier = new CountDownLatch(1);
+
+        @HandlerMethod(
+                member = "neverAnswer",
+                type = MemberType.METHOD
+        )
+        public Promise<Message.EmptyMessage> neverAnswer(Message.EmptyMessage emptyMessage){
+            this.barrier.countDown();
+            return new Promise<>();
+        }
+
+        @HandlerMethod(
+                member = "instantAnswer",
+                type = MemberType.METHOD
+        )
+        public Message.EmptyMessage instantAnswer(Message.EmptyMessage emptyMessage){
+            return Message.EMPTY;
+        }
+    }
+
+    @RemoteInterface("fr.viveris.jnidbus.test.Call.TimeoutCallTest")
+    public interface TimeoutCallTestRemote{
+        @RemoteMember(value = "neverAnswer", timeout = 500)
+        Promise<Message.EmptyMessage> neverAnswer();
+
+        @RemoteMember(value = "instantAnswer", timeout = 500)
+        Promise<Message.EmptyMessage> instantAnswer();
+    }
+}
@@ -0,0 +1,52 @@
+package fr.viveris.jnidbus.test.common.DBusObjects.arrays;
+
+import fr.viveris.jnidbus.message.Message;
+import fr.viveris.jnidbus.serialization.DBusType;
+
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+
+@DBusType(
+        signature = "ayaiaxad",
+        fields = {"bytes","ints","longs","doubles"}
+)
+public class BufferArray extends Message {
+    private ByteBuffer bytes;
+    private IntBuffer ints;
+    private LongBuffer longs;
+    private DoubleBuffer doubles;
+
+    public ByteBuffer getBytes() {
+        return bytes;
+    }
+
+    public void setBytes(ByteBuffer bytes) {
+        this.bytes = bytes;
+    }
+
+    public IntBuffer getInts() {
+        return ints;
+    }
+
+    public void setInts(IntBuffer ints) {
+        this.ints = ints;
+    }
+
+    public LongBuffer getLongs() {
+        return longs;
+    }
+
+    public void setLongs(LongBuffer longs) {
+        this.longs = longs;
+    }
+
+    public DoubleBuffer getDoubles() {
+        return doubles;
+    }
+
+    public void setDoubles(DoubleBuffer doubles) {
+        this.doubles = doubles;
+    }
+}
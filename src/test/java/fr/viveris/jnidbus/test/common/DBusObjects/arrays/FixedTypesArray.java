@@ -0,0 +1,67 @@
+package fr.viveris.jnidbus.test.common.DBusObjects.arrays;
+
+import fr.viveris.jnidbus.message.Message;
+import fr.viveris.jnidbus.serialization.DBusType;
+
+import java.util.List;
+
+@DBusType(
+        signature = "ayaxadanabay",
+        fields = {"bytes","longs","doubles","shorts","booleans","byteList"}
+)
+public class FixedTypesArray extends Message {
+    private byte[] bytes;
+    private long[] longs;
+    private double[] doubles;
+    private short[] shorts;
+    private List<Boolean> booleans;
+    private List<Byte> byteList;
+
+    public byte[] getBytes() {
+        return bytes;
+    }
+
+    public void setBytes(byte[] bytes) {
+        this.bytes = bytes;
+    }
+
+    public long[] getLongs() {
+        return longs;
+    }
+
+    public void setLongs(long[] longs) {
+        this.longs = longs;
+    }
+
+    public double[] getDoubles() {
+        return doubles;
+    }
+
+    public void setDoubles(double[] doubles) {
+        this.doubles = doubles;
+    }
+
+    public short[] getShorts() {
+        return shorts;
+    }
+
+    public void setShorts(short[] shorts) {
+        this.shorts = shorts;
+    }
+
+    public List<Boolean> getBooleans() {
+        return booleans;
+    }
+
+    public void setBooleans(List<Boolean> booleans) {
+        this.booleans = booleans;
+    }
+
+    public List<Byte> getByteList() {
+        return byteList;
+    }
+
+    public void setByteList(List<Byte> byteList) {
+        this.byteList = byteList;
+    }
+}
@@ -0,0 +1,22 @@
+package fr.viveris.jnidbus.test.common.DBusObjects.map;
+
+import fr.viveris.jnidbus.message.Message;
+import fr.viveris.jnidbus.serialization.DBusType;
+
+import java.util.Map;
+
+@DBusType(
+        signature = "a{ss}",
+        fields = {"map"}
+)
+public class StringMap extends Message {
+    private Map<String,String> map;
+
+    public Map<String, String> getMap() {
+        return map;
+    }
+
+    public void setMap(Map<String, String> map) {
+        this.map = map;
+    }
+}
@@ -0,0 +1,36 @@
+/* Copyright 2019, Viveris Technologies <opensource@toulouse.viveris.fr>
+ * Distributed under the terms of the Academic Free License.
+ */
+package fr.viveris.jnidbus.test.common.DBusObjects.primitives;
+
+import fr.viveris.jnidbus.message.Message;
+import fr.viveris.jnidbus.serialization.DBusType;
+import fr.viveris.jnidbus.types.SharedBuffer;
+import fr.viveris.jnidbus.types.UnixFD;
+
+import java.util.List;
+
+@DBusType(
+        signature = "hah",
+        fields = {"buffer","list"}
+)
+public class UnixFDMessage extends Message {
+    private SharedBuffer buffer;
+    private List<UnixFD> list;
+
+    public SharedBuffer getBuffer() {
+        return buffer;
+    }
+
+    public void setBuffer(SharedBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    public List<UnixFD> getList() {
+        return list;
+    }
+
+    public void setList(List<UnixFD> list) {
+        this.list = list;
+    }
+}
@@ -5,16 +5,35 @@ package fr.viveris.jnidbus.test.common;
 
 import fr.viveris.jnidbus.BusType;
 import fr.viveris.jnidbus.Dbus;
+import fr.viveris.jnidbus.bindings.bus.EventLoop;
 import fr.viveris.jnidbus.exception.ConnectionException;
 import org.junit.After;
 import org.junit.Before;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Random;
 
+/**
+ * Base of the test cases using a sender and a receiver bus. Each test case is run once with the default event loop and
+ * once for each optional event loop feature, enabled through its system property before the buses are created. A test
+ * case targeting a single feature can hide features() with its own list
+ */
+@RunWith(Parameterized.class)
 public abstract class DBusTestCase {
     private static final Logger LOG = LoggerFactory.getLogger(DBusTestCase.class);
+
+    /**
+     * System property of the event loop feature enabled for the test, null for the default event loop
+     */
+    @Parameterized.Parameter
+    public String feature;
+
     protected Dbus sender;
     protected Dbus receiver;
 
@@ -25,9 +44,35 @@ public abstract class DBusTestCase {
      * We have to setup a new connection for each test for nice stateless tests, in addition we must make the bus name
      * unique as DBus needs a few millis to free a bus name, meaning each test would be delayed, which is not acceptable
      */
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> features(){
+        return features(null,
+                EventLoop.WIRE_CODEC_PROPERTY,
+                EventLoop.DIRECT_BINDING_PROPERTY,
+                EventLoop.DIRECT_SEND_PROPERTY,
+                EventLoop.BATCH_DISPATCH_PROPERTY);
+    }
+
+    /**
+     * Build the parameters of the test cases run with the given features
+     *
+     * @param properties system properties of the features, null for the default event loop
+     * @return the parameters of the test cases
+     */
+    protected static Collection<Object[]> features(String... properties){
+        List<Object[]> parameters = new ArrayList<>();
+        for(String property : properties){
+            parameters.add(new Object[]{property});
+        }
+        return parameters;
+    }
+
     @Before
     public void setup() throws ConnectionException {
-        LOG.info("----------- Start Test Case -----------");
+        LOG.info("----------- Start Test Case {} -----------",this.feature == null ? "" : this.feature);
+        if(this.feature != null){
+            System.setProperty(this.feature,"true");
+        }
         this.senderBusName = "fr.viveris.vizada.jnidbus.test.sender."+generateRandomString();
         this.receiverBusName = "fr.viveris.vizada.jnidbus.test.receiver."+generateRandomString();
         this.sender = new Dbus(BusType.SESSION,this.senderBusName);
@@ -41,6 +86,9 @@ public abstract class DBusTestCase {
             this.receiver.close();
             LOG.info("----------- End Test Case -----------");
         }catch (Exception e){ }
+        if(this.feature != null){
+            System.clearProperty(this.feature);
+        }
     }
 
     /**
@@ -0,0 +1,41 @@
+package fr.viveris.jnidbus.test.common.handlers.arrays;
+
+import fr.viveris.jnidbus.dispatching.MemberType;
+import fr.viveris.jnidbus.dispatching.annotation.Handler;
+import fr.viveris.jnidbus.dispatching.annotation.HandlerMethod;
+import fr.viveris.jnidbus.remote.RemoteInterface;
+import fr.viveris.jnidbus.remote.RemoteMember;
+import fr.viveris.jnidbus.remote.Signal;
+import fr.viveris.jnidbus.test.common.DBusObjects.arrays.BufferArray;
+import fr.viveris.jnidbus.test.common.handlers.CommonHandler;
+
+@Handler(
+        path = "/handlers/arrays/buffer",
+        interfaceName = "Handlers.Arrays.Buffer"
+)
+public class BufferArrayHandler extends CommonHandler<BufferArray> {
+
+    @HandlerMethod(
+            member = "handle",
+            type = MemberType.SIGNAL
+    )
+    public void handle(BufferArray msg){
+        this.doHandle(msg);
+    }
+
+    @Override
+    public Signal<BufferArray> buildSignal(BufferArray value) {
+        return new BufferArrayHandler.BufferArrayHandlerRemote.BufferArraySignal(value);
+    }
+
+    @RemoteInterface("Handlers.Arrays.Buffer")
+    public interface BufferArrayHandlerRemote{
+
+        @RemoteMember("handle")
+        class BufferArraySignal extends Signal<BufferArray> {
+            public BufferArraySignal(BufferArray params) {
+                super(params);
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package fr.viveris.jnidbus.test.common.handlers.arrays;
+
+import fr.viveris.jnidbus.dispatching.MemberType;
+import fr.viveris.jnidbus.dispatching.annotation.Handler;
+import fr.viveris.jnidbus.dispatching.annotation.HandlerMethod;
+import fr.viveris.jnidbus.remote.RemoteInterface;
+import fr.viveris.jnidbus.remote.RemoteMember;
+import fr.viveris.jnidbus.remote.Signal;
+import fr.viveris.jnidbus.test.common.DBusObjects.arrays.FixedTypesArray;
+import fr.viveris.jnidbus.test.common.handlers.CommonHandler;
+
+@Handler(
+        path = "/handlers/arrays/fixed",
+        interfaceName = "Handlers.Arrays.Fixed"
+)
+public class FixedTypesArrayHandler extends CommonHandler<FixedTypesArray> {
+
+    @HandlerMethod(
+            member = "handle",
+            type = MemberType.SIGNAL
+    )
+    public void handle(FixedTypesArray msg){
+        this.doHandle(msg);
+    }
+
+    @Override
+    public Signal<FixedTypesArray> buildSignal(FixedTypesArray value) {
+        return new FixedTypesArrayHandler.FixedTypesArrayHandlerRemote.FixedTypesArraySignal(value);
+    }
+
+    @RemoteInterface("Handlers.Arrays.Fixed")
+    public interface FixedTypesArrayHandlerRemote{
+
+        @RemoteMember("handle")
+        class FixedTypesArraySignal extends Signal<FixedTypesArray> {
+            public FixedTypesArraySignal(FixedTypesArray params) {
+                super(params);
+            }
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/* Copyright 2019, Viveris Technologies <opensource@toulouse.viveris.fr>
+ * Distributed under the terms of the Academic Free License.
+ */
+package fr.viveris.jnidbus.test.common.handlers.lazy;
+
+import fr.viveris.jnidbus.dispatching.MemberType;
+import fr.viveris.jnidbus.dispatching.annotation.Handler;
+import fr.viveris.jnidbus.dispatching.annotation.HandlerMethod;
+import fr.viveris.jnidbus.message.LazyMessage;
+import fr.viveris.jnidbus.remote.RemoteInterface;
+import fr.viveris.jnidbus.remote.RemoteMember;
+import fr.viveris.jnidbus.remote.Signal;
+import fr.viveris.jnidbus.test.common.DBusObjects.ArrayRecursiveObject;
+import fr.viveris.jnidbus.test.common.handlers.CommonHandler;
+
+import java.util.Iterator;
+
+/**
+ * Read an ArrayRecursiveObject signal through a lazy message, iterating over the structs of its array
+ */
+@Handler(
+        path = "/handlers/lazy/array",
+        interfaceName = "Handlers.Lazy.LazyArrayHandler"
+)
+public class LazyArrayHandler extends CommonHandler<ArrayRecursiveObject> {
+
+    @HandlerMethod(
+            member = "handle",
+            type = MemberType.SIGNAL,
+            signature = "a(asi)"
+    )
+    public void handle(LazyMessage msg){
+        ArrayRecursiveObject value = new ArrayRecursiveObject();
+        Iterator<ArrayRecursiveObject.SubArrayRecursiveObject> iterator = msg.iterate(0,ArrayRecursiveObject.SubArrayRecursiveObject.class);
+        while(iterator.hasNext()){
+            value.getObjects().add(iterator.next());
+        }
+        this.doHandle(value);
+    }
+
+    @Override
+    public Signal<ArrayRecursiveObject> buildSignal(ArrayRecursiveObject value) {
+        return new LazyArrayHandlerRemote.LazyArraySignal(value);
+    }
+
+    @RemoteInterface("Handlers.Lazy.LazyArrayHandler")
+    public interface LazyArrayHandlerRemote{
+
+        @RemoteMember("handle")
+        class LazyArraySignal extends Signal<ArrayRecursiveObject> {
+            public LazyArraySignal(ArrayRecursiveObject params) {
+                super(params);
+            }
+        }
+    }
+}
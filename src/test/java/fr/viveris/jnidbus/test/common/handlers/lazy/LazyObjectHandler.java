@@ -0,0 +1,53 @@
+/* Copyright 2019, Viveris Technologies <opensource@toulouse.viveris.fr>
+ * Distributed under the terms of the Academic Free License.
+ */
+package fr.viveris.jnidbus.test.common.handlers.lazy;
+
+import fr.viveris.jnidbus.dispatching.MemberType;
+import fr.viveris.jnidbus.dispatching.annotation.Handler;
+import fr.viveris.jnidbus.dispatching.annotation.HandlerMethod;
+import fr.viveris.jnidbus.message.LazyMessage;
+import fr.viveris.jnidbus.remote.RemoteInterface;
+import fr.viveris.jnidbus.remote.RemoteMember;
+import fr.viveris.jnidbus.remote.Signal;
+import fr.viveris.jnidbus.test.common.DBusObjects.RecursiveObject;
+import fr.viveris.jnidbus.test.common.handlers.CommonHandler;
+
+/**
+ * Read a RecursiveObject signal through a lazy message, value by value
+ */
+@Handler(
+        path = "/handlers/lazy/object",
+        interfaceName = "Handlers.Lazy.LazyObjectHandler"
+)
+public class LazyObjectHandler extends CommonHandler<RecursiveObject> {
+
+    @HandlerMethod(
+            member = "handle",
+            type = MemberType.SIGNAL,
+            signature = "i(s)s"
+    )
+    public void handle(LazyMessage msg) throws Exception {
+        RecursiveObject value = new RecursiveObject();
+        value.setString(msg.getString(2));
+        value.setObject(msg.get(1,RecursiveObject.SubObject.class));
+        value.setInteger(msg.getInt(0));
+        this.doHandle(value);
+    }
+
+    @Override
+    public Signal<RecursiveObject> buildSignal(RecursiveObject value) {
+        return new LazyObjectHandlerRemote.LazyObjectSignal(value);
+    }
+
+    @RemoteInterface("Handlers.Lazy.LazyObjectHandler")
+    public interface LazyObjectHandlerRemote{
+
+        @RemoteMember("handle")
+        class LazyObjectSignal extends Signal<RecursiveObject> {
+            public LazyObjectSignal(RecursiveObject params) {
+                super(params);
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/* Copyright 2019, Viveris Technologies <opensource@toulouse.viveris.fr>
+ * Distributed under the terms of the Academic Free License.
+ */
+package fr.viveris.jnidbus.test.common.handlers.lazy;
+
+import fr.viveris.jnidbus.dispatching.MemberType;
+import fr.viveris.jnidbus.dispatching.annotation.Handler;
+import fr.viveris.jnidbus.dispatching.annotation.HandlerMethod;
+import fr.viveris.jnidbus.message.LazyMessage;
+import fr.viveris.jnidbus.remote.RemoteInterface;
+import fr.viveris.jnidbus.remote.RemoteMember;
+import fr.viveris.jnidbus.remote.Signal;
+import fr.viveris.jnidbus.test.common.DBusObjects.ArrayRecursiveObject;
+import fr.viveris.jnidbus.test.common.handlers.CommonHandler;
+
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+/**
+ * Read an ArrayRecursiveObject signal through a lazy message, streaming the structs of its array
+ */
+@Handler(
+        path = "/handlers/lazy/stream",
+        interfaceName = "Handlers.Lazy.LazyStreamHandler"
+)
+public class LazyStreamHandler extends CommonHandler<ArrayRecursiveObject> {
+
+    @HandlerMethod(
+            member = "handle",
+            type = MemberType.SIGNAL,
+            signature = "a(asi)"
+    )
+    public void handle(LazyMessage msg){
+        Spliterator<ArrayRecursiveObject.SubArrayRecursiveObject> spliterator = msg.spliterator(0,ArrayRecursiveObject.SubArrayRecursiveObject.class);
+        long size = spliterator.getExactSizeIfKnown();
+
+        ArrayRecursiveObject value = new ArrayRecursiveObject();
+        value.setObjects(StreamSupport.stream(spliterator,false).collect(Collectors.<ArrayRecursiveObject.SubArrayRecursiveObject>toList()));
+        //the size given by the native code must match the streamed elements, else the signal is not reported
+        if(size != value.getObjects().size()) throw new IllegalStateException("Wrong array size "+size);
+        this.doHandle(value);
+    }
+
+    @Override
+    public Signal<ArrayRecursiveObject> buildSignal(ArrayRecursiveObject value) {
+        return new LazyStreamHandlerRemote.LazyStreamSignal(value);
+    }
+
+    @RemoteInterface("Handlers.Lazy.LazyStreamHandler")
+    public interface LazyStreamHandlerRemote{
+
+        @RemoteMember("handle")
+        class LazyStreamSignal extends Signal<ArrayRecursiveObject> {
+            public LazyStreamSignal(ArrayRecursiveObject params) {
+                super(params);
+            }
+        }
+    }
+}
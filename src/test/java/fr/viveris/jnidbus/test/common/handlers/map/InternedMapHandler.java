@@ -0,0 +1,41 @@
+package fr.viveris.jnidbus.test.common.handlers.map;
+
+import fr.viveris.jnidbus.dispatching.MemberType;
+import fr.viveris.jnidbus.dispatching.annotation.Handler;
+import fr.viveris.jnidbus.dispatching.annotation.HandlerMethod;
+import fr.viveris.jnidbus.remote.RemoteInterface;
+import fr.viveris.jnidbus.remote.RemoteMember;
+import fr.viveris.jnidbus.remote.Signal;
+import fr.viveris.jnidbus.test.common.DBusObjects.map.InternedMap;
+import fr.viveris.jnidbus.test.common.handlers.CommonHandler;
+
+@Handler(
+        path = "/handlers/map/interned",
+        interfaceName = "Handlers.Map.InternedMapHandler"
+)
+public class InternedMapHandler extends CommonHandler<InternedMap> {
+
+    @HandlerMethod(
+            member = "handle",
+            type = MemberType.SIGNAL
+    )
+    public void handle(InternedMap msg){
+        this.doHandle(msg);
+    }
+
+    @Override
+    public Signal<InternedMap> buildSignal(InternedMap value) {
+        return new InternedMapHandlerRemote.InternedMapSignal(value);
+    }
+
+    @RemoteInterface("Handlers.Map.InternedMapHandler")
+    public interface InternedMapHandlerRemote{
+
+        @RemoteMember("handle")
+        class InternedMapSignal extends Signal<InternedMap> {
+            public InternedMapSignal(InternedMap params) {
+                super(params);
+            }
+        }
+    }
+}
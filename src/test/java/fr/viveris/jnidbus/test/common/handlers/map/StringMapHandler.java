@@ -0,0 +1,41 @@
+package fr.viveris.jnidbus.test.common.handlers.map;
+
+import fr.viveris.jnidbus.dispatching.MemberType;
+import fr.viveris.jnidbus.dispatching.annotation.Handler;
+import fr.viveris.jnidbus.dispatching.annotation.HandlerMethod;
+import fr.viveris.jnidbus.remote.RemoteInterface;
+import fr.viveris.jnidbus.remote.RemoteMember;
+import fr.viveris.jnidbus.remote.Signal;
+import fr.viveris.jnidbus.test.common.DBusObjects.map.StringMap;
+import fr.viveris.jnidbus.test.common.handlers.CommonHandler;
+
+@Handler(
+        path = "/handlers/map/string",
+        interfaceName = "Handlers.Map.StringMapHandler"
+)
+public class StringMapHandler extends CommonHandler<StringMap> {
+
+    @HandlerMethod(
+            member = "handle",
+            type = MemberType.SIGNAL
+    )
+    public void handle(StringMap msg){
+        this.doHandle(msg);
+    }
+
+    @Override
+    public Signal<StringMap> buildSignal(StringMap value) {
+        return new StringMapHandlerRemote.StringMapSignal(value);
+    }
+
+    @RemoteInterface("Handlers.Map.StringMapHandler")
+    public interface StringMapHandlerRemote{
+
+        @RemoteMember("handle")
+        class StringMapSignal extends Signal<StringMap> {
+            public StringMapSignal(StringMap params) {
+                super(params);
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package fr.viveris.jnidbus.test.common.handlers.objects;
+
+import fr.viveris.jnidbus.dispatching.MemberType;
+import fr.viveris.jnidbus.dispatching.annotation.Handler;
+import fr.viveris.jnidbus.dispatching.annotation.HandlerMethod;
+import fr.viveris.jnidbus.remote.RemoteInterface;
+import fr.viveris.jnidbus.remote.RemoteMember;
+import fr.viveris.jnidbus.remote.Signal;
+import fr.viveris.jnidbus.test.common.DBusObjects.RecursiveObject;
+import fr.viveris.jnidbus.test.common.handlers.CommonHandler;
+
+@Handler(
+        path = "/handlers/object/recursive",
+        interfaceName = "Handlers.Object.RecursiveObjectHandler"
+)
+public class RecursiveObjectHandler extends CommonHandler<RecursiveObject> {
+
+    @HandlerMethod(
+            member = "handle",
+            type = MemberType.SIGNAL
+    )
+    public void handle(RecursiveObject msg){
+        this.doHandle(msg);
+    }
+
+    @Override
+    public Signal<RecursiveObject> buildSignal(RecursiveObject value) {
+        return new RecursiveObjectHandlerRemote.RecursiveObjectSignal(value);
+    }
+
+    @RemoteInterface("Handlers.Object.RecursiveObjectHandler")
+    public interface RecursiveObjectHandlerRemote{
+
+        @RemoteMember("handle")
+        class RecursiveObjectSignal extends Signal<RecursiveObject> {
+            public RecursiveObjectSignal(RecursiveObject params) {
+                super(params);
+            }
+        }
+    }
+}
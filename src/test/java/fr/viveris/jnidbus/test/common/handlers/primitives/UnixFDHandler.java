@@ -0,0 +1,44 @@
+/* Copyright 2019, Viveris Technologies <opensource@toulouse.viveris.fr>
+ * Distributed under the terms of the Academic Free License.
+ */
+package fr.viveris.jnidbus.test.common.handlers.primitives;
+
+import fr.viveris.jnidbus.dispatching.MemberType;
+import fr.viveris.jnidbus.dispatching.annotation.Handler;
+import fr.viveris.jnidbus.dispatching.annotation.HandlerMethod;
+import fr.viveris.jnidbus.remote.RemoteInterface;
+import fr.viveris.jnidbus.remote.RemoteMember;
+import fr.viveris.jnidbus.remote.Signal;
+import fr.viveris.jnidbus.test.common.DBusObjects.primitives.UnixFDMessage;
+import fr.viveris.jnidbus.test.common.handlers.CommonHandler;
+
+@Handler(
+        path = "/handlers/primitive/unix_fd",
+        interfaceName = "Handlers.Primitive.UnixFDHandler"
+)
+public class UnixFDHandler extends CommonHandler<UnixFDMessage> {
+
+    @HandlerMethod(
+            member = "handle",
+            type = MemberType.SIGNAL
+    )
+    public void handle(UnixFDMessage msg){
+        this.doHandle(msg);
+    }
+
+    @Override
+    public Signal<UnixFDMessage> buildSignal(UnixFDMessage value) {
+        return new UnixFDHandlerRemote.UnixFDSignal(value);
+    }
+
+    @RemoteInterface("Handlers.Primitive.UnixFDHandler")
+    public interface UnixFDHandlerRemote{
+
+        @RemoteMember("handle")
+        class UnixFDSignal extends Signal<UnixFDMessage> {
+            public UnixFDSignal(UnixFDMessage params) {
+                super(params);
+            }
+        }
+    }
+}
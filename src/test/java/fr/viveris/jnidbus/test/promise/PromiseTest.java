@@ -3,9 +3,14 @@ package fr.viveris.jnidbus.test.promise;
 import fr.viveris.jnidbus.message.Promise;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import static org.junit.Assert.*;
 
@@ -47,4 +52,161 @@ public class PromiseTest {
         assertTrue(barrier.await(1, TimeUnit.SECONDS));
 
     }
+
+    @Test
+    public void severalCallbacksTest(){
+        final List<String> calls = new ArrayList<>();
+        Promise<String> promise = new Promise<>();
+        promise.then(new Promise.Callback<String>() {
+            @Override
+            public void value(String value, Exception e) {
+                calls.add("first "+value);
+            }
+        });
+        promise.then(new Promise.Callback<String>() {
+            @Override
+            public void value(String value, Exception e) {
+                calls.add("second "+value);
+            }
+        });
+        assertTrue(calls.isEmpty());
+
+        promise.resolve("value");
+        //a callback set after the resolution is called right away
+        promise.then(new Promise.Callback<String>() {
+            @Override
+            public void value(String value, Exception e) {
+                calls.add("third "+value);
+            }
+        });
+        assertEquals(Arrays.asList("first value","second value","third value"),calls);
+    }
+
+    @Test
+    public void callbackOnExecutorTest(){
+        final List<Runnable> tasks = new ArrayList<>();
+        final List<Exception> received = new ArrayList<>();
+        Promise<String> promise = new Promise<>();
+        promise.then(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                tasks.add(command);
+            }
+        }, new Promise.Callback<String>() {
+            @Override
+            public void value(String value, Exception e) {
+                assertNull(value);
+                received.add(e);
+            }
+        });
+
+        IllegalStateException exception = new IllegalStateException("failed");
+        promise.fail(exception);
+        assertEquals(1,tasks.size());
+        assertTrue(received.isEmpty());
+        tasks.get(0).run();
+        assertEquals(Arrays.<Exception>asList(exception),received);
+    }
+
+    @Test
+    public void resolveTwiceTest(){
+        Promise<String> promise = new Promise<>("value");
+        try{
+            promise.resolve("other");
+            fail();
+        }catch (IllegalStateException e){
+            //expected
+        }
+        try{
+            promise.fail(new Exception());
+            fail();
+        }catch (IllegalStateException e){
+            //expected
+        }
+        assertTrue(promise.hasValue());
+        assertFalse(promise.isFailed());
+        assertEquals("value",promise.getValue());
+        assertNull(promise.getException());
+    }
+
+    @Test
+    public void getWaitsForTheValueTest() throws Exception {
+        final Promise<String> promise = new Promise<>();
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(50);
+                    promise.resolve("value");
+                } catch (InterruptedException e) {
+
+                }
+            }
+        }).start();
+
+        assertEquals("value",promise.get(1,TimeUnit.SECONDS));
+        assertEquals("value",promise.get());
+    }
+
+    @Test
+    public void getThrowsTheFailureTest() throws Exception {
+        IllegalStateException exception = new IllegalStateException("failed");
+        Promise<String> promise = new Promise<>(exception);
+        try{
+            promise.get(1,TimeUnit.SECONDS);
+            fail();
+        }catch (IllegalStateException e){
+            assertSame(exception,e);
+        }
+    }
+
+    @Test
+    public void getTimeoutTest() throws Exception {
+        Promise<String> promise = new Promise<>();
+        long start = System.nanoTime();
+        try{
+            promise.get(50,TimeUnit.MILLISECONDS);
+            fail();
+        }catch (TimeoutException e){
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+        }
+
+        //the abandoned waiter does not prevent the promise from being resolved
+        promise.resolve("value");
+        assertEquals("value",promise.get(0,TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void cancelTest() throws Exception {
+        final Promise<String> promise = new Promise<>();
+        final List<Exception> received = new ArrayList<>();
+        promise.then(new Promise.Callback<String>() {
+            @Override
+            public void value(String value, Exception e) {
+                received.add(e);
+            }
+        });
+
+        assertTrue(promise.cancel());
+        assertTrue(promise.isCancelled());
+        assertEquals(1,received.size());
+        assertTrue(received.get(0) instanceof CancellationException);
+
+        //a cancelled promise can not be cancelled again nor resolved
+        assertFalse(promise.cancel());
+        try{
+            promise.resolve("value");
+            fail();
+        }catch (IllegalStateException e){
+            assertTrue(promise.isCancelled());
+        }
+    }
+
+    @Test
+    public void cancelResolvedPromiseTest(){
+        Promise<String> promise = new Promise<>("value");
+        assertFalse(promise.cancel());
+        assertFalse(promise.isCancelled());
+        assertEquals("value",promise.getValue());
+    }
 }
@@ -3,12 +3,21 @@
  */
 package fr.viveris.jnidbus.test.serialization;
 
+import fr.viveris.jnidbus.test.common.DBusObjects.arrays.BufferArray;
+import fr.viveris.jnidbus.test.common.DBusObjects.arrays.FixedTypesArray;
 import fr.viveris.jnidbus.test.common.DBusObjects.arrays.NestedPrimitiveArray;
 import fr.viveris.jnidbus.test.common.DBusObjects.arrays.PrimitiveArray;
+import fr.viveris.jnidbus.test.common.handlers.arrays.BufferArrayHandler;
+import fr.viveris.jnidbus.test.common.handlers.arrays.FixedTypesArrayHandler;
 import fr.viveris.jnidbus.test.common.handlers.arrays.NestedPrimitiveArrayHandler;
 import fr.viveris.jnidbus.test.common.handlers.arrays.PrimitiveArrayHandler;
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -91,4 +100,53 @@ public class ArraySerializationTest extends SerializationTestCase {
         assertArrayEquals(primitiveBoxed,received.getPrimitiveBoxed()[0]);
         assertArrayEquals(listValues,received.getCollection().get(0).toArray());
     }
+
+    @Test
+    public void arrayOfFixedTypesTest() throws InterruptedException {
+        FixedTypesArray msg = new FixedTypesArray();
+        byte[] bytes = new byte[]{1,-2,3};
+        long[] longs = new long[]{Long.MAX_VALUE,0,Long.MIN_VALUE};
+        double[] doubles = new double[]{1.5,-2.25};
+        short[] shorts = new short[]{Short.MIN_VALUE,42};
+        Boolean[] booleans = new Boolean[]{true,false,true};
+        Byte[] byteList = new Byte[]{4,5};
+        msg.setBytes(bytes);
+        msg.setLongs(longs);
+        msg.setDoubles(doubles);
+        msg.setShorts(shorts);
+        msg.setBooleans(Arrays.asList(booleans));
+        msg.setByteList(Arrays.asList(byteList));
+
+        FixedTypesArray received = this.sendAndReceive(new FixedTypesArrayHandler(),msg);
+
+        assertArrayEquals(bytes,received.getBytes());
+        assertArrayEquals(longs,received.getLongs());
+        assertArrayEquals(doubles,received.getDoubles(),0);
+        assertArrayEquals(shorts,received.getShorts());
+        assertArrayEquals(booleans,received.getBooleans().toArray());
+        assertArrayEquals(byteList,received.getByteList().toArray());
+    }
+
+    @Test
+    public void arrayOfBuffersTest() throws InterruptedException {
+        BufferArray msg = new BufferArray();
+        ByteBuffer bytes = ByteBuffer.allocateDirect(4);
+        bytes.put(new byte[]{1,-2,3,4}).flip();
+        bytes.position(1);
+        IntBuffer ints = ByteBuffer.allocateDirect(8).order(ByteOrder.nativeOrder()).asIntBuffer();
+        ints.put(new int[]{Integer.MIN_VALUE,42}).flip();
+        msg.setBytes(bytes);
+        msg.setInts(ints);
+        msg.setLongs(LongBuffer.wrap(new long[]{0,Long.MAX_VALUE,3},1,2));
+        msg.setDoubles(DoubleBuffer.wrap(new double[]{1.5,-2.25}));
+
+        BufferArray received = this.sendAndReceive(new BufferArrayHandler(),msg);
+
+        assertEquals(ByteBuffer.wrap(new byte[]{-2,3,4}),received.getBytes());
+        assertEquals(IntBuffer.wrap(new int[]{Integer.MIN_VALUE,42}),received.getInts());
+        assertEquals(LongBuffer.wrap(new long[]{Long.MAX_VALUE,3}),received.getLongs());
+        assertEquals(DoubleBuffer.wrap(new double[]{1.5,-2.25}),received.getDoubles());
+        //the position of the sent buffers is not modified
+        assertEquals(1,bytes.position());
+    }
 }
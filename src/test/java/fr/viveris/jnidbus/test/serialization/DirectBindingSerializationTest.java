@@ -0,0 +1,85 @@
+/* Copyright 2019, Viveris Technologies <opensource@toulouse.viveris.fr>
+ * Distributed under the terms of the Academic Free License.
+ */
+package fr.viveris.jnidbus.test.serialization;
+
+import fr.viveris.jnidbus.bindings.bus.EventLoop;
+import fr.viveris.jnidbus.cache.BindingPlan;
+import fr.viveris.jnidbus.message.Message;
+import fr.viveris.jnidbus.test.common.DBusObjects.ArrayRecursiveObject;
+import fr.viveris.jnidbus.test.common.DBusObjects.RecursiveObject;
+import fr.viveris.jnidbus.test.common.DBusObjects.SimpleMessage;
+import fr.viveris.jnidbus.test.common.DBusObjects.objects.NestedObject;
+import fr.viveris.jnidbus.test.common.DBusObjects.primitives.IntMessage;
+import fr.viveris.jnidbus.test.common.handlers.objects.NestedObjectHandler;
+import fr.viveris.jnidbus.test.common.handlers.objects.RecursiveObjectHandler;
+import org.junit.Test;
+import org.junit.runners.Parameterized;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import static junit.framework.TestCase.*;
+import static org.junit.Assert.assertArrayEquals;
+
+/**
+ * Check which messages can be bound directly by the native code and send them through the bus with the direct binding
+ * enabled
+ */
+public class DirectBindingSerializationTest extends SerializationTestCase {
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> features(){
+        return features(EventLoop.DIRECT_BINDING_PROPERTY);
+    }
+
+    @Test
+    public void bindingPlanSupport(){
+        BindingPlan plan = Message.retrieveFromCache(RecursiveObject.class).getBindingPlan();
+        assertNotNull(plan);
+        assertEquals("i(s)s",plan.getSignature());
+        assertNotNull(Message.retrieveFromCache(SimpleMessage.class).getBindingPlan());
+        assertNotNull(Message.retrieveFromCache(NestedObject.SubObject2.class).getBindingPlan());
+
+        //boxed values, lists and empty messages go through the standard deserialization
+        assertNull(Message.retrieveFromCache(IntMessage.class).getBindingPlan());
+        assertNull(Message.retrieveFromCache(ArrayRecursiveObject.class).getBindingPlan());
+        assertNull(Message.retrieveFromCache(NestedObject.class).getBindingPlan());
+        assertNull(Message.retrieveFromCache(Message.EmptyMessage.class).getBindingPlan());
+    }
+
+    @Test
+    public void boundObject() throws InterruptedException {
+        RecursiveObject msg = new RecursiveObject();
+        RecursiveObject.SubObject sub = new RecursiveObject.SubObject();
+        sub.setString("nested");
+        msg.setInteger(42);
+        msg.setObject(sub);
+        msg.setString("root");
+
+        RecursiveObject received = this.sendAndReceive(new RecursiveObjectHandler(),msg);
+
+        assertEquals(42,received.getInteger());
+        assertEquals("nested",received.getObject().getString());
+        assertEquals("root",received.getString());
+    }
+
+    @Test
+    public void unboundObjectNextToBoundOnes() throws InterruptedException {
+        NestedObject msg = new NestedObject();
+        NestedObject.SubObject1 sub1 = new NestedObject.SubObject1();
+        NestedObject.SubObject2 sub2 = new NestedObject.SubObject2();
+        sub2.setInteger(42);
+        sub2.setString("SomeString");
+        sub2.setIntArrays(new int[]{1,2,3});
+        sub1.setObjects(Arrays.asList(sub2));
+        msg.setObjects(Arrays.asList(sub1));
+
+        NestedObject received = this.sendAndReceive(new NestedObjectHandler(),msg);
+
+        NestedObject.SubObject2 received2 = received.getObjects().get(0).getObjects().get(0);
+        assertEquals(42,received2.getInteger());
+        assertEquals("SomeString",received2.getString());
+        assertArrayEquals(new int[]{1,2,3},received2.getIntArrays());
+    }
+}
@@ -0,0 +1,86 @@
+/* Copyright 2019, Viveris Technologies <opensource@toulouse.viveris.fr>
+ * Distributed under the terms of the Academic Free License.
+ */
+package fr.viveris.jnidbus.test.serialization;
+
+import fr.viveris.jnidbus.test.common.DBusObjects.ArrayRecursiveObject;
+import fr.viveris.jnidbus.test.common.DBusObjects.RecursiveObject;
+import fr.viveris.jnidbus.test.common.handlers.lazy.LazyArrayHandler;
+import fr.viveris.jnidbus.test.common.handlers.lazy.LazyObjectHandler;
+import fr.viveris.jnidbus.test.common.handlers.lazy.LazyStreamHandler;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static junit.framework.TestCase.*;
+
+/**
+ * Send messages to handler methods taking a LazyMessage, which decode the values they read on demand
+ */
+public class LazyMessageSerializationTest extends SerializationTestCase {
+
+    @Test
+    public void valuesReadOutOfOrder() throws InterruptedException {
+        RecursiveObject msg = new RecursiveObject();
+        RecursiveObject.SubObject sub = new RecursiveObject.SubObject();
+        sub.setString("nested");
+        msg.setInteger(42);
+        msg.setObject(sub);
+        msg.setString("root");
+
+        RecursiveObject received = this.sendAndReceive(new LazyObjectHandler(),msg);
+
+        assertEquals(42,received.getInteger());
+        assertEquals("nested",received.getObject().getString());
+        assertEquals("root",received.getString());
+    }
+
+    @Test
+    public void arrayOfStructsIterated() throws InterruptedException {
+        ArrayRecursiveObject msg = new ArrayRecursiveObject();
+        ArrayRecursiveObject.SubArrayRecursiveObject sub1 = new ArrayRecursiveObject.SubArrayRecursiveObject();
+        ArrayRecursiveObject.SubArrayRecursiveObject sub2 = new ArrayRecursiveObject.SubArrayRecursiveObject();
+        sub1.setInteger(42);
+        sub1.setStrings(Arrays.asList("comp1","comp2"));
+        sub2.setInteger(24);
+        msg.setObjects(Arrays.asList(sub1,sub2));
+
+        ArrayRecursiveObject received = this.sendAndReceive(new LazyArrayHandler(),msg);
+
+        assertEquals(2,received.getObjects().size());
+        assertEquals(42,received.getObjects().get(0).getInteger());
+        assertEquals(Arrays.asList("comp1","comp2"),received.getObjects().get(0).getStrings());
+        assertEquals(24,received.getObjects().get(1).getInteger());
+        assertEquals(0,received.getObjects().get(1).getStrings().size());
+    }
+
+    @Test
+    public void emptyArrayIterated() throws InterruptedException {
+        ArrayRecursiveObject received = this.sendAndReceive(new LazyArrayHandler(),new ArrayRecursiveObject());
+        assertEquals(0,received.getObjects().size());
+    }
+
+    @Test
+    public void arrayOfStructsStreamed() throws InterruptedException {
+        ArrayRecursiveObject msg = new ArrayRecursiveObject();
+        ArrayRecursiveObject.SubArrayRecursiveObject sub1 = new ArrayRecursiveObject.SubArrayRecursiveObject();
+        ArrayRecursiveObject.SubArrayRecursiveObject sub2 = new ArrayRecursiveObject.SubArrayRecursiveObject();
+        sub1.setInteger(42);
+        sub1.setStrings(Arrays.asList("comp1","comp2"));
+        sub2.setInteger(24);
+        msg.setObjects(Arrays.asList(sub1,sub2));
+
+        ArrayRecursiveObject received = this.sendAndReceive(new LazyStreamHandler(),msg);
+
+        assertEquals(2,received.getObjects().size());
+        assertEquals(42,received.getObjects().get(0).getInteger());
+        assertEquals(Arrays.asList("comp1","comp2"),received.getObjects().get(0).getStrings());
+        assertEquals(24,received.getObjects().get(1).getInteger());
+    }
+
+    @Test
+    public void emptyArrayStreamed() throws InterruptedException {
+        ArrayRecursiveObject received = this.sendAndReceive(new LazyStreamHandler(),new ArrayRecursiveObject());
+        assertEquals(0,received.getObjects().size());
+    }
+}
@@ -2,15 +2,21 @@ package fr.viveris.jnidbus.test.serialization;
 
 import fr.viveris.jnidbus.serialization.DBusObject;
 import fr.viveris.jnidbus.test.common.DBusObjects.map.ComplexMap;
+import fr.viveris.jnidbus.test.common.DBusObjects.map.InternedMap;
 import fr.viveris.jnidbus.test.common.DBusObjects.map.SimpleMap;
+import fr.viveris.jnidbus.test.common.DBusObjects.map.StringMap;
 import fr.viveris.jnidbus.test.common.handlers.map.ComplexMapHandler;
+import fr.viveris.jnidbus.test.common.handlers.map.InternedMapHandler;
 import fr.viveris.jnidbus.test.common.handlers.map.SimpleMapHandler;
+import fr.viveris.jnidbus.test.common.handlers.map.StringMapHandler;
 import org.junit.Test;
 
 import java.util.HashMap;
+import java.util.Map;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 public class MapSerializationTest extends SerializationTestCase {
     @Test
@@ -30,6 +36,20 @@ public class MapSerializationTest extends SerializationTestCase {
         assertEquals(2,(int)received.getMap().get("B"));
     }
 
+    @Test
+    public void stringMapTest() throws InterruptedException {
+        StringMap msg = new StringMap();
+        msg.setMap(new HashMap<String, String>(){{
+            put("A","first");
+            put("\u00e9","\u00fcnicode");
+            put("empty","");
+        }});
+
+        StringMap received = this.sendAndReceive(new StringMapHandler(),msg);
+
+        assertEquals(msg.getMap(),received.getMap());
+    }
+
     @Test
     public void complexMapTest() throws InterruptedException {
         final ComplexMap.SubObject1 sub1 = new ComplexMap.SubObject1();
@@ -63,4 +83,23 @@ public class MapSerializationTest extends SerializationTestCase {
         assertEquals(42,receivedSub1.getInteger());
         assertEquals(50,receivedSub2.getInteger());
     }
+
+    @Test
+    public void internedMapKeysTest() throws InterruptedException {
+        InternedMap msg = new InternedMap();
+        msg.setMap(new HashMap<String, Integer>(){{
+            put("state",1);
+        }});
+        InternedMap first = this.sendAndReceive(new InternedMapHandler(),msg);
+
+        msg.getMap().put("state",2);
+        InternedMap second = this.sendAndReceive(new InternedMapHandler(),msg);
+
+        //the key of the second message is the string interned when receiving the first one
+        Map.Entry<String,Integer> firstEntry = first.getMap().entrySet().iterator().next();
+        Map.Entry<String,Integer> secondEntry = second.getMap().entrySet().iterator().next();
+        assertEquals("state",firstEntry.getKey());
+        assertEquals(2,(int) secondEntry.getValue());
+        assertSame(firstEntry.getKey(),secondEntry.getKey());
+    }
 }
@@ -6,8 +6,11 @@ package fr.viveris.jnidbus.test.serialization;
 import fr.viveris.jnidbus.test.common.DBusObjects.primitives.*;
 import fr.viveris.jnidbus.test.common.handlers.primitives.*;
 import fr.viveris.jnidbus.types.ObjectPath;
+import fr.viveris.jnidbus.types.SharedBuffer;
+import fr.viveris.jnidbus.types.UnixFD;
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 import static org.junit.Assert.*;
@@ -97,6 +100,30 @@ public class PrimitiveTypesSerializationTest extends SerializationTestCase {
         assertArrayEquals(Arrays.asList(new ObjectPath("/d/e/f"),new ObjectPath("/h/i/j")).toArray(),received.getList().toArray());
     }
 
+    @Test
+    public void unixFDTest() throws Exception {
+        byte[] payload = new byte[1024 * 1024];
+        for(int i = 0; i < payload.length; i++) payload[i] = (byte) i;
+        UnixFDMessage msg = new UnixFDMessage();
+        msg.setBuffer(SharedBuffer.create("payload",ByteBuffer.wrap(payload)));
+        msg.setList(Arrays.<UnixFD>asList(SharedBuffer.create("empty",ByteBuffer.allocate(0))));
+        UnixFDMessage received = this.sendAndReceive(new UnixFDHandler(), msg);
+        //the received descriptors are duplicates, closing the sent ones does not affect them
+        msg.getBuffer().close();
+        msg.getList().get(0).close();
+
+        ByteBuffer mapped = received.getBuffer().map();
+        assertTrue(mapped.isReadOnly());
+        byte[] read = new byte[mapped.remaining()];
+        mapped.get(read);
+        assertArrayEquals(payload,read);
+        assertEquals(1,received.getList().size());
+        assertTrue(received.getList().get(0).getFd() >= 0);
+        received.getBuffer().close();
+        received.getList().get(0).close();
+        assertEquals(-1,received.getBuffer().getFd());
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void testWrongObjectPathFormat(){
         ObjectPath path = new ObjectPath("a//b/c/");
@@ -0,0 +1,188 @@
+/* Copyright 2019, Viveris Technologies <opensource@toulouse.viveris.fr>
+ * Distributed under the terms of the Academic Free License.
+ */
+package fr.viveris.jnidbus.test.serialization;
+
+import fr.viveris.jnidbus.message.Message;
+import fr.viveris.jnidbus.serialization.DBusObject;
+import fr.viveris.jnidbus.serialization.wire.WireDecoder;
+import fr.viveris.jnidbus.serialization.wire.WireEncoder;
+import fr.viveris.jnidbus.test.common.DBusObjects.ArrayRecursiveObject;
+import fr.viveris.jnidbus.test.common.DBusObjects.SimpleMessage;
+import fr.viveris.jnidbus.test.common.DBusObjects.arrays.BufferArray;
+import fr.viveris.jnidbus.test.common.DBusObjects.arrays.FixedTypesArray;
+import fr.viveris.jnidbus.test.common.DBusObjects.map.ComplexMap;
+import fr.viveris.jnidbus.test.common.DBusObjects.map.StringMap;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+
+import static junit.framework.TestCase.*;
+import static org.junit.Assert.assertArrayEquals;
+
+/**
+ * Encode and decode messages with the wire codec without going through the bus
+ */
+public class WireCodecTest {
+    private WireEncoder encoder = new WireEncoder();
+
+    @Test
+    public void signalIsEncodedInWireFormat(){
+        ByteBuffer buffer = this.encoder.encodeSignal("/a","a.b","c",new DBusObject("y",new Object[]{(byte) 7}));
+        byte[] encoded = new byte[buffer.limit()];
+        buffer.get(encoded);
+
+        byte[] expected = new byte[]{
+                'l',4,0,1, 1,0,0,0, 0,0,0,(byte) 0x80, 55,0,0,0,
+                1,1,'o',0, 2,0,0,0, '/','a',0,0, 0,0,0,0,
+                2,1,'s',0, 3,0,0,0, 'a','.','b',0, 0,0,0,0,
+                3,1,'s',0, 1,0,0,0, 'c',0,0,0, 0,0,0,0,
+                8,1,'g',0, 1,'y',0,0,
+                7
+        };
+        assertArrayEquals(expected,encoded);
+    }
+
+    @Test
+    public void simpleMessageRoundTrip() throws Exception {
+        SimpleMessage msg = new SimpleMessage();
+        msg.setString1("string1");
+        msg.setString2("\u00fcnicode");
+        msg.setInt1(42);
+        msg.setInt2(-24);
+
+        SimpleMessage received = this.roundTrip(msg,new SimpleMessage());
+        assertEquals("string1",received.getString1());
+        assertEquals("\u00fcnicode",received.getString2());
+        assertEquals(42,received.getInt1());
+        assertEquals(-24,received.getInt2());
+    }
+
+    @Test
+    public void fixedTypesArrayRoundTrip() throws Exception {
+        FixedTypesArray msg = new FixedTypesArray();
+        msg.setBytes(new byte[]{1,2,3});
+        msg.setLongs(new long[0]);
+        msg.setDoubles(new double[]{1.5,-2.5});
+        msg.setShorts(new short[]{7});
+        msg.setBooleans(Arrays.asList(true,false,true));
+        msg.setByteList(Collections.<Byte>emptyList());
+
+        FixedTypesArray received = this.roundTrip(msg,new FixedTypesArray());
+        assertArrayEquals(new byte[]{1,2,3},received.getBytes());
+        assertEquals(0,received.getLongs().length);
+        assertTrue(Arrays.equals(new double[]{1.5,-2.5},received.getDoubles()));
+        assertArrayEquals(new short[]{7},received.getShorts());
+        assertEquals(Arrays.asList(true,false,true),received.getBooleans());
+        assertEquals(0,received.getByteList().size());
+    }
+
+    @Test
+    public void messageLargerThanTheBufferRoundTrip() throws Exception {
+        byte[] bytes = new byte[10000];
+        for(int i = 0; i < bytes.length; i++) bytes[i] = (byte) i;
+        FixedTypesArray msg = new FixedTypesArray();
+        msg.setBytes(bytes);
+        msg.setLongs(new long[]{Long.MAX_VALUE});
+        msg.setDoubles(new double[0]);
+        msg.setShorts(new short[0]);
+        msg.setBooleans(Collections.<Boolean>emptyList());
+        msg.setByteList(Collections.<Byte>emptyList());
+
+        FixedTypesArray received = this.roundTrip(msg,new FixedTypesArray());
+        assertArrayEquals(bytes,received.getBytes());
+        assertArrayEquals(new long[]{Long.MAX_VALUE},received.getLongs());
+    }
+
+    @Test
+    public void bufferArrayRoundTrip() throws Exception {
+        BufferArray msg = new BufferArray();
+        msg.setBytes(ByteBuffer.wrap(new byte[]{0,1,2,3},1,3).slice());
+        msg.setInts(ByteBuffer.allocateDirect(8).order(ByteOrder.BIG_ENDIAN).asIntBuffer().put(new int[]{7,-7}));
+        msg.getInts().flip();
+        msg.setLongs(LongBuffer.allocate(0));
+        msg.setDoubles(DoubleBuffer.wrap(new double[]{0.5,1.5}));
+
+        BufferArray received = this.roundTrip(msg,new BufferArray());
+        assertEquals(ByteBuffer.wrap(new byte[]{1,2,3}),received.getBytes());
+        assertEquals(IntBuffer.wrap(new int[]{7,-7}),received.getInts());
+        assertEquals(0,received.getLongs().remaining());
+        assertEquals(DoubleBuffer.wrap(new double[]{0.5,1.5}),received.getDoubles());
+    }
+
+    @Test
+    public void arrayOfStructsRoundTrip() throws Exception {
+        ArrayRecursiveObject msg = new ArrayRecursiveObject();
+        ArrayRecursiveObject.SubArrayRecursiveObject sub1 = new ArrayRecursiveObject.SubArrayRecursiveObject();
+        ArrayRecursiveObject.SubArrayRecursiveObject sub2 = new ArrayRecursiveObject.SubArrayRecursiveObject();
+        sub1.setInteger(42);
+        sub1.getStrings().add("comp1");
+        sub1.getStrings().add("comp2");
+        sub2.setInteger(24);
+        msg.getObjects().add(sub1);
+        msg.getObjects().add(sub2);
+
+        ArrayRecursiveObject received = this.roundTrip(msg,new ArrayRecursiveObject());
+        assertEquals(2,received.getObjects().size());
+        assertEquals(42,received.getObjects().get(0).getInteger());
+        assertEquals(Arrays.asList("comp1","comp2"),received.getObjects().get(0).getStrings());
+        assertEquals(24,received.getObjects().get(1).getInteger());
+        assertEquals(0,received.getObjects().get(1).getStrings().size());
+    }
+
+    @Test
+    public void mapRoundTrip() throws Exception {
+        ComplexMap.SubObject1 value = new ComplexMap.SubObject1();
+        value.setArray(new String[]{"a","b"});
+        value.setInteger(3);
+        ComplexMap msg = new ComplexMap();
+        msg.setMap(new HashMap<String, ComplexMap.SubObject1>());
+        msg.getMap().put("key",value);
+
+        ComplexMap received = this.roundTrip(msg,new ComplexMap());
+        assertEquals(1,received.getMap().size());
+        assertArrayEquals(new String[]{"a","b"},received.getMap().get("key").getArray());
+        assertEquals(3,received.getMap().get("key").getInteger());
+    }
+
+    @Test
+    public void packedStringsRoundTrip() throws Exception {
+        StringMap msg = new StringMap();
+        msg.setMap(new HashMap<String, String>());
+        msg.getMap().put("key","value");
+        msg.getMap().put("\u00e9","");
+        msg.getMap().put("","\u00fcnicode");
+
+        StringMap received = this.roundTrip(msg,new StringMap());
+        assertEquals(msg.getMap(),received.getMap());
+    }
+
+    @Test
+    public void callWithoutReplyIsFlagged(){
+        ByteBuffer buffer = this.encoder.encodeCall("dest","/path","a.b","c",new DBusObject("",new Object[0]),true);
+        assertEquals(1,buffer.get(2));
+        buffer = this.encoder.encodeCall("dest","/path","a.b","c",new DBusObject("",new Object[0]));
+        assertEquals(0,buffer.get(2));
+    }
+
+    @Test
+    public void callWithEmptyBodyRoundTrip(){
+        ByteBuffer buffer = this.encoder.encodeCall("dest","/path","a.b","c",new DBusObject("",new Object[0]));
+        DBusObject decoded = WireDecoder.decode(buffer);
+        assertEquals("",decoded.getSignature());
+        assertEquals(0,decoded.getValues().length);
+    }
+
+    private <T extends Message> T roundTrip(Message msg, T target) throws Exception {
+        ByteBuffer buffer = this.encoder.encodeSignal("/path","a.b","c",msg.serialize());
+        target.deserialize(WireDecoder.decode(buffer));
+        return target;
+    }
+}
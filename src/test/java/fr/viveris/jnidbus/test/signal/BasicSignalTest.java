@@ -62,6 +62,20 @@ public class BasicSignalTest extends DBusTestCase {
         assertTrue(handler.barrier.await(2, TimeUnit.SECONDS));
     }
 
+    @Test
+    public void handlerAddedOnRegisteredPathReceivesSignals() throws InterruptedException {
+        SignalHandler handler = new SignalHandler();
+        OtherSignalHandler otherHandler = new OtherSignalHandler();
+        this.receiver.addHandlerBlocking(handler);
+        this.receiver.addHandlerBlocking(otherHandler);
+        this.sender.sendSignalBlocking("/fr/viveris/jnidbus/signal/BasicSignalTest",new BasicSignalTestRemote.OtherSignal());
+        assertTrue(otherHandler.barrier.await(2, TimeUnit.SECONDS));
+
+        //the first handler must still receive its signals once the other one is removed
+        this.receiver.removeHandlerBlocking(otherHandler);
+        this.sender.sendSignalBlocking("/fr/viveris/jnidbus/signal/BasicSignalTest",new BasicSignalTestRemote.EmptySignal());
+        assertTrue(handler.barrier.await(2, TimeUnit.SECONDS));
+    }
 
     @Handler(
             path = "/fr/viveris/jnidbus/signal/BasicSignalTest",
@@ -93,6 +107,22 @@ public class BasicSignalTest extends DBusTestCase {
         }
     }
 
+    @Handler(
+            path = "/fr/viveris/jnidbus/signal/BasicSignalTest",
+            interfaceName = "fr.viveris.jnidbus.fr.viveris.jnidbus.test.Signal.BasicSignalTest"
+    )
+    public class OtherSignalHandler extends GenericHandler {
+        private CountDownLatch barrier = new CountDownLatch(1);
+
+        @HandlerMethod(
+                member = "otherSignal",
+                type = MemberType.SIGNAL
+        )
+        public void otherSignal(Message.EmptyMessage emptyMessage){
+            this.barrier.countDown();
+        }
+    }
+
     @RemoteInterface("fr.viveris.jnidbus.fr.viveris.jnidbus.test.Signal.BasicSignalTest")
     public interface BasicSignalTestRemote{
 
@@ -103,6 +133,13 @@ public class BasicSignalTest extends DBusTestCase {
             }
         }
 
+        @RemoteMember("otherSignal")
+        class OtherSignal extends Signal<Message.EmptyMessage> {
+            public OtherSignal() {
+                super(Message.EMPTY);
+            }
+        }
+
         @RemoteMember("wrongEndpoint")
         class StringSignalOnWrongEndpoint extends Signal<SingleStringMessage>{
             public StringSignalOnWrongEndpoint(SingleStringMessage msg) {
@@ -0,0 +1,118 @@
+/* Copyright 2019, Viveris Technologies <opensource@toulouse.viveris.fr>
+ * Distributed under the terms of the Academic Free License.
+ */
+package fr.viveris.jnidbus.test.signal;
+
+import fr.viveris.jnidbus.bindings.bus.EventLoop;
+import fr.viveris.jnidbus.dispatching.GenericHandler;
+import fr.viveris.jnidbus.dispatching.MemberType;
+import fr.viveris.jnidbus.dispatching.annotation.Handler;
+import fr.viveris.jnidbus.dispatching.annotation.HandlerMethod;
+import fr.viveris.jnidbus.message.Message;
+import fr.viveris.jnidbus.remote.RemoteInterface;
+import fr.viveris.jnidbus.remote.RemoteMember;
+import fr.viveris.jnidbus.remote.Signal;
+import fr.viveris.jnidbus.test.common.DBusTestCase;
+import org.junit.Test;
+import org.junit.runners.Parameterized;
+
+import java.util.Collection;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Check the signals read during a tick are given to the JVM in one batch
+ */
+public class BatchDispatchSignalTest extends DBusTestCase {
+    //small enough for the signals to be read by libdbus in a single iteration
+    private static final int SIGNALS = 5;
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> features(){
+        return features(EventLoop.BATCH_DISPATCH_PROPERTY);
+    }
+
+    @Test
+    public void signalsOfATickAreDispatchedInOneBatch() throws InterruptedException {
+        final BatchHandler handler = new BatchHandler();
+        this.receiver.addHandlerBlocking(handler);
+
+        //block the receiver event loop so the signals are all read during its next tick
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        this.receiver.getEventLoopExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                blocked.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                }
+            }
+        });
+        assertTrue(blocked.await(2, TimeUnit.SECONDS));
+        for(int i = 0; i < SIGNALS; i++){
+            this.sender.sendSignalBlocking("/fr/viveris/jnidbus/signal/BatchDispatchSignalTest",new BatchDispatchSignalTestRemote.BatchedSignal());
+        }
+        //let the bus daemon route the signals to the receiver
+        Thread.sleep(500);
+        release.countDown();
+
+        assertTrue(handler.barrier.await(2, TimeUnit.SECONDS));
+        assertTrue(handler.afterBatch.await(2, TimeUnit.SECONDS));
+        //every signal went through the batch, and the runnable queued by the first one only ran after the whole batch
+        assertEquals(SIGNALS,handler.batched);
+        assertEquals(SIGNALS,handler.handledBeforeRunnable);
+    }
+
+    @Handler(
+            path = "/fr/viveris/jnidbus/signal/BatchDispatchSignalTest",
+            interfaceName = "fr.viveris.jnidbus.test.Signal.BatchDispatchSignalTest"
+    )
+    public class BatchHandler extends GenericHandler {
+        private CountDownLatch barrier = new CountDownLatch(SIGNALS);
+        private CountDownLatch afterBatch = new CountDownLatch(1);
+        private volatile int handled = 0;
+        private volatile int batched = 0;
+        private volatile int handledBeforeRunnable = -1;
+
+        @HandlerMethod(
+                member = "batchedSignal",
+                type = MemberType.SIGNAL
+        )
+        public void batchedSignal(Message.EmptyMessage emptyMessage){
+            for(StackTraceElement element : Thread.currentThread().getStackTrace()){
+                if(element.getClassName().equals(EventLoop.class.getName()) && element.getMethodName().equals("dispatchBatch")){
+                    this.batched++;
+                    break;
+                }
+            }
+            //the handler runs on the event loop thread, the runnable will run once the dispatch upcall returned
+            if(this.handled++ == 0){
+                BatchDispatchSignalTest.this.receiver.getEventLoopExecutor().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        BatchHandler.this.handledBeforeRunnable = BatchHandler.this.handled;
+                        BatchHandler.this.afterBatch.countDown();
+                    }
+                });
+            }
+            this.barrier.countDown();
+        }
+    }
+
+    @RemoteInterface("fr.viveris.jnidbus.test.Signal.BatchDispatchSignalTest")
+    public interface BatchDispatchSignalTestRemote{
+
+        @RemoteMember("batchedSignal")
+        class BatchedSignal extends Signal<Message.EmptyMessage> {
+            public BatchedSignal() {
+                super(Message.EMPTY);
+            }
+        }
+    }
+}